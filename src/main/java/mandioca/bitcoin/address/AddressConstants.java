@@ -8,4 +8,9 @@ public class AddressConstants {
     public static final byte[] P2SH_ADDR_TESTNET_PREFIX = new byte[]{(byte) 0xc4};
     public static final byte[] P2SH_ADDR_NET_PREFIX = new byte[]{(byte) 0x05};
 
+    // Bech32 human-readable parts of segwit (p2wpkh & p2wsh) addresses, see BIP-173
+    public static final String SEGWIT_ADDR_NET_HRP = "bc";
+    public static final String SEGWIT_ADDR_TESTNET_HRP = "tb";
+    public static final String SEGWIT_ADDR_REGTEST_HRP = "bcrt";
+
 }
@@ -9,12 +9,12 @@ import java.io.ByteArrayOutputStream;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
-import static java.util.Arrays.copyOfRange;
 import static mandioca.bitcoin.function.ByteArrayFunctions.concatenate;
-import static mandioca.bitcoin.function.HashFunctions.hash256;
 import static mandioca.bitcoin.network.NetworkType.p2pkhNetworkPrefix;
 import static mandioca.bitcoin.network.NetworkType.p2shNetPrefix;
 import static mandioca.bitcoin.util.Base58.*;
+import static mandioca.bitcoin.util.Bech32.decodeSegwitAddress;
+import static mandioca.bitcoin.util.Bech32.encodeSegwitAddress;
 
 // See https://en.bitcoin.it/wiki/Technical_background_of_version_1_Bitcoin_addresses
 // See https://github.com/nayuki/Bitcoin-Cryptography-Library/tree/master/java/io/nayuki/bitcoin/crypto
@@ -22,6 +22,7 @@ import static mandioca.bitcoin.util.Base58.*;
 // See https://bitcoin.stackexchange.com/questions/78861/testnet-bitcoin-wallet-which-script-in-hash-addresses
 // See https://github.com/bitcoinj/bitcoinj/blob/master/core/src/main/java/org/bitcoinj/core/LegacyAddress.java
 // See https://github.com/bitcoinj/bitcoinj/blob/master/core/src/main/java/org/bitcoinj/core/Address.java
+// See https://github.com/bitcoin/bips/blob/master/bip-0173.mediawiki
 
 @SuppressWarnings("unused")
 public class AddressFactory {
@@ -61,19 +62,42 @@ public class AddressFactory {
         return new Pay2ScriptHashAddress(n, addr);
     };
 
+    public static final BiFunction<byte[], NetworkType, Address> hashToP2wpkh = (hash, n) -> {
+        validateWitnessProgram(hash, 20);
+        return new Pay2WitnessPubKeyHashAddress(n, encodeSegwitAddress(n.segwitHrp(), 0, hash));
+    };
+
+    public static final BiFunction<byte[], NetworkType, Address> scriptHashToP2wsh = (hash, n) -> {
+        validateWitnessProgram(hash, 32);  // sha256 of the witness script
+        return new Pay2WitnessScriptHashAddress(n, encodeSegwitAddress(n.segwitHrp(), 0, hash));
+    };
+
+    // segwit addresses commit to compressed SEC public keys only
+    public static final BiFunction<Secp256k1Point, NetworkType, Address> publicKeyToP2wpkhAddress = (p, n) ->
+            hashToP2wpkh.apply(p.secHash160(true), n);
+
+    // returns the witness program (the p2wpkh hash160 or p2wsh sha256) of a segwit address on the given network
+    public static final BiFunction<String, NetworkType, byte[]> segwitAddressToHash = (a, n) ->
+            decodeSegwitAddress(n.segwitHrp(), a).program;
+
     public static final Function<NetworkType, Address> nullDataAddress = (n) -> new NullDataAddress(n, "no address");
 
 
+    private static void validateWitnessProgram(byte[] hash, int length) {
+        if (hash.length != length) {
+            throw new AddressFormatException.InvalidDataLength(
+                    "Version 0 witness programs of this type are " + length + " bytes, but got: " + hash.length + " bytes");
+        }
+    }
+
     private static String getAddress(Secp256k1Point publicKey, byte[] networkPrefix, boolean compressed) {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
             baos.write(networkPrefix);                                      // step 1:  define addr prefix
-            byte[] hash160 = publicKey.secHash160.apply(compressed);        // step 2:  hash160(hash of sec)
+            byte[] hash160 = publicKey.secHash160(compressed);        // step 2:  hash160(hash of sec)
             validateLegacyAddressSecHash.apply(hash160);
             baos.write(hash160);            // step 3:  append hash160 to prefix to get the payload to be base58 encoded
-            byte[] payload = baos.toByteArray();    // step 4:  take 1st 4 bytes of dbl-hashed payload to get checksum
-            byte[] checksum = copyOfRange(hash256.apply(payload), 0, 4);
-            baos.write(checksum);           // step 5:  append the checksum to the payload and encode it
-            return encode(baos.toByteArray());
+            // steps 4 & 5:  append the 1st 4 bytes of the dbl-hashed payload as a checksum, and encode it
+            return encodeChecked(baos.toByteArray());
         } catch (Exception e) {
             throw new RuntimeException("Error deriving address from public key:\n" + publicKey, e);
         }
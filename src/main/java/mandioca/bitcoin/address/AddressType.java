@@ -4,9 +4,9 @@ public enum AddressType {
 
     OP_RETURN_DATA("arbitrary bytes after OP_RETURN", new NullDataAddressValidator()),
     P2PKH("pay to pubkey hash", new Pay2PubKeyHashAddressValidator()),
-    P2SH("pay to script hash", new Pay2ScriptHashAddressValidator());
-
-    // TODO p2wpkh (validator), p2wsh (validator)
+    P2SH("pay to script hash", new Pay2ScriptHashAddressValidator()),
+    P2WPKH("pay to witness pubkey hash", new Pay2WitnessAddressValidator(20)),
+    P2WSH("pay to witness script hash", new Pay2WitnessAddressValidator(32));
 
     final String description;
     final AddressValidator validator;
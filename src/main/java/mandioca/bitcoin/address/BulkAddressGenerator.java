@@ -0,0 +1,74 @@
+package mandioca.bitcoin.address;
+
+import mandioca.bitcoin.ecc.Secp256k1Point;
+import mandioca.bitcoin.network.NetworkType;
+
+import java.math.BigInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static mandioca.bitcoin.address.AddressFactory.publicKeyToP2pkhAddress;
+import static mandioca.bitcoin.address.AddressFactory.publicKeyToP2wpkhAddress;
+
+/**
+ * Generates P2PKH or P2WPKH addresses for a run of consecutive private keys, for pre-generating deposit address pools.
+ * <p>
+ * The run is cut into batches that are processed in parallel.  Each batch costs one scalar multiplication for its
+ * first public key;  every later key is the previous one plus G, and the batch's points share one batch inversion
+ * (see {@link Secp256k1Point#multiplyGeneratorRange(BigInteger, int)}).  The hash160 and Base58Check (or Bech32)
+ * encoding of each key then runs on the same core as its batch.
+ * <p>
+ * Consecutive secrets are only as safe as the first one:  anyone who learns one key of a pool can find the others.
+ * Start each pool at a fresh random secret.
+ */
+public final class BulkAddressGenerator {
+
+    static final int BATCH_SIZE = 1024;
+
+    private BulkAddressGenerator() {
+    }
+
+    /**
+     * Returns the P2PKH addresses of the private keys firstSecret, firstSecret + 1, ..., firstSecret + count - 1.
+     *
+     * @param firstSecret first private key, in the range 1 to N - count
+     * @param count       number of addresses
+     * @param compressed  true to hash compressed SEC public keys
+     * @param network     network whose address prefix is used
+     * @return Address[] where index i is the address of private key firstSecret + i
+     */
+    public static Address[] generateP2pkh(BigInteger firstSecret, int count, boolean compressed, NetworkType network) {
+        return generate(firstSecret, count, (publicKey) -> publicKeyToP2pkhAddress.apply(publicKey, compressed, network));
+    }
+
+    /**
+     * Returns the P2WPKH (segwit version 0) addresses of the private keys firstSecret, firstSecret + 1, ...,
+     * firstSecret + count - 1, which always hash compressed SEC public keys.
+     *
+     * @param firstSecret first private key, in the range 1 to N - count
+     * @param count       number of addresses
+     * @param network     network whose bech32 human-readable part is used
+     * @return Address[] where index i is the address of private key firstSecret + i
+     */
+    public static Address[] generateP2wpkh(BigInteger firstSecret, int count, NetworkType network) {
+        return generate(firstSecret, count, (publicKey) -> publicKeyToP2wpkhAddress.apply(publicKey, network));
+    }
+
+    private static Address[] generate(BigInteger firstSecret, int count, Function<Secp256k1Point, Address> toAddress) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Address count cannot be negative: " + count);
+        }
+        Address[] addresses = new Address[count];
+        int batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+        IntStream.range(0, batches).parallel().forEach((b) -> {
+            int start = b * BATCH_SIZE;
+            int size = Math.min(BATCH_SIZE, count - start);
+            Secp256k1Point[] publicKeys = Secp256k1Point.multiplyGeneratorRange(
+                    firstSecret.add(BigInteger.valueOf(start)), size);
+            for (int i = 0; i < size; i++) {
+                addresses[start + i] = toAddress.apply(publicKeys[i]);
+            }
+        });
+        return addresses;
+    }
+}
@@ -0,0 +1,41 @@
+package mandioca.bitcoin.address;
+
+import mandioca.bitcoin.network.NetworkType;
+import mandioca.bitcoin.util.Bech32;
+
+import java.util.Optional;
+
+import static mandioca.bitcoin.address.AddressType.P2WPKH;
+import static mandioca.bitcoin.address.AddressType.P2WSH;
+
+// Validates version 0 segwit addresses:  bech32 with the network's hrp, and a 20 (p2wpkh) or 32 (p2wsh) byte program
+class Pay2WitnessAddressValidator implements AddressValidator {
+
+    private final int programLength;
+    private Optional<AddressValidationError> validationError = Optional.empty();
+
+    Pay2WitnessAddressValidator(int programLength) {
+        this.programLength = programLength;
+    }
+
+    @Override
+    public boolean validate(NetworkType networkType, String address) {
+        validationError = Optional.empty();
+        AddressType addressType = programLength == 20 ? P2WPKH : P2WSH;
+        try {
+            Bech32.WitnessProgram witnessProgram = Bech32.decodeSegwitAddress(networkType.segwitHrp(), address);
+            if (witnessProgram.program.length != programLength) {
+                validationError = Optional.of(new AddressValidationError(networkType, addressType, address,
+                        "its witness program is " + witnessProgram.program.length + " bytes, not " + programLength));
+            }
+        } catch (AddressFormatException e) {
+            validationError = Optional.of(new AddressValidationError(networkType, addressType, address, e.getMessage()));
+        }
+        return validationError.isEmpty();
+    }
+
+    @Override
+    public Optional<AddressValidationError> getError() {
+        return validationError;
+    }
+}
@@ -0,0 +1,12 @@
+package mandioca.bitcoin.address;
+
+import mandioca.bitcoin.network.NetworkType;
+
+import static mandioca.bitcoin.address.AddressType.P2WPKH;
+
+public class Pay2WitnessPubKeyHashAddress extends AbstractAddress implements Address {
+
+    public Pay2WitnessPubKeyHashAddress(NetworkType networkType, String value) {
+        super(P2WPKH, networkType, value);
+    }
+}
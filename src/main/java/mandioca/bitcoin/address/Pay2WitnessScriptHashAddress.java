@@ -0,0 +1,12 @@
+package mandioca.bitcoin.address;
+
+import mandioca.bitcoin.network.NetworkType;
+
+import static mandioca.bitcoin.address.AddressType.P2WSH;
+
+public class Pay2WitnessScriptHashAddress extends AbstractAddress implements Address {
+
+    public Pay2WitnessScriptHashAddress(NetworkType networkType, String value) {
+        super(P2WSH, networkType, value);
+    }
+}
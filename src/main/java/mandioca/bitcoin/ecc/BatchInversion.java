@@ -0,0 +1,89 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.Secp256k1FieldElement.PRODUCT_LIMBS;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+
+/**
+ * Batch modular inversion (Montgomery's trick):  inverts n numbers with a single modular inversion and 3(n-1)
+ * multiplications.
+ * <p>
+ * The running products a0, a0*a1, ... a0*a1*...a(n-1) are computed first, the last one is inverted, and the inverse
+ * is walked back down the array:  1/ai = (a0*...*a(i-1)) * 1/(a0*...*ai), and 1/(a0*...*a(i-1)) = ai * 1/(a0*...*ai).
+ * <p>
+ * Zeros have no inverse;  they are skipped, and their results are zero.
+ * <p>
+ * See Guide to Elliptic Curve Cryptography, Algorithm 2.26.
+ */
+public final class BatchInversion {
+
+    private BatchInversion() {
+    }
+
+    /**
+     * Returns the inverses of the given numbers modulo a prime modulus.
+     *
+     * @param numbers numbers in the range 0 to modulus-1
+     * @param modulus prime modulus
+     * @return BigInteger[] where index i holds 1/numbers[i] mod modulus, or 0 if numbers[i] is 0
+     */
+    public static BigInteger[] invert(BigInteger[] numbers, BigInteger modulus) {
+        BigInteger[] inverses = new BigInteger[numbers.length];
+        BigInteger product = BigInteger.ONE;
+        for (int i = 0; i < numbers.length; i++) {
+            inverses[i] = product;  // product of the non-zero numbers before index i
+            if (numbers[i].signum() != 0) {
+                product = product.multiply(numbers[i]).mod(modulus);
+            }
+        }
+        BigInteger inverse = product.modInverse(modulus);
+        for (int i = numbers.length - 1; i >= 0; i--) {
+            if (numbers[i].signum() == 0) {
+                inverses[i] = BigInteger.ZERO;
+            } else {
+                inverses[i] = inverses[i].multiply(inverse).mod(modulus);
+                inverse = inverse.multiply(numbers[i]).mod(modulus);
+            }
+        }
+        return inverses;
+    }
+
+    /**
+     * Returns the inverses of the given scalars modulo the secp256k1 group order N, e.g. the s^-1 of many signatures.
+     *
+     * @param scalars numbers in the range 0 to N-1
+     * @return BigInteger[] where index i holds 1/scalars[i] mod N, or 0 if scalars[i] is 0
+     */
+    public static BigInteger[] invertScalars(BigInteger[] scalars) {
+        return invert(scalars, N);
+    }
+
+    /**
+     * Returns the inverses of the given secp256k1 field elements.
+     *
+     * @param elements field elements
+     * @return Secp256k1FieldElement[] where index i holds 1/elements[i], or 0 if elements[i] is 0
+     */
+    public static Secp256k1FieldElement[] invert(Secp256k1FieldElement[] elements) {
+        int[] tt = new int[PRODUCT_LIMBS];
+        Secp256k1FieldElement[] inverses = new Secp256k1FieldElement[elements.length];
+        Secp256k1FieldElement product = Secp256k1FieldElement.ONE.clone();
+        for (int i = 0; i < elements.length; i++) {
+            inverses[i] = product.clone();  // product of the non-zero elements before index i
+            if (!elements[i].isZero()) {
+                product.setMul(elements[i], tt);
+            }
+        }
+        Secp256k1FieldElement inverse = product.setInverse(product, tt);
+        for (int i = elements.length - 1; i >= 0; i--) {
+            if (elements[i].isZero()) {
+                inverses[i].setInt(0);
+            } else {
+                inverses[i].setMul(inverse, tt);
+                inverse.setMul(elements[i], tt);
+            }
+        }
+        return inverses;
+    }
+}
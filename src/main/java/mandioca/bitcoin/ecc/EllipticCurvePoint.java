@@ -6,8 +6,8 @@ import mandioca.bitcoin.function.TriFunction;
 import java.math.BigInteger;
 import java.util.Objects;
 import java.util.function.BiFunction;
-import java.util.function.BooleanSupplier;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static java.math.BigInteger.TWO;
 import static java.math.BigInteger.ZERO;
@@ -47,53 +47,56 @@ public class EllipticCurvePoint implements Point {
     static final TriFunction<BigInteger, BigInteger, BigInteger, EllipticCurvePoint>
             newIdentity = (a, b, p) -> getIdentity(newField.apply(a, p), newField.apply(b, p));
 
-    protected final Function<Point, String> invalidPointError = (p) ->
-            String.format("%s %s and %s is not on the elliptic curve", this.getClass().getSimpleName(), p.getX(), p.getY());
+    // The arithmetic below is static, taking the point it works on as its first argument, so building a point does
+    // not build a set of lambdas capturing it.
 
-    protected final BiFunction<Field, Field, String> invalidCoordinatesError = (x, y) ->
-            String.format("%s %s and %s is not on the elliptic curve", this.getClass().getSimpleName(), x, y);
+    protected static final BiFunction<Point, Point, String> invalidPointError = (self, p) ->
+            String.format("%s %s and %s is not on the elliptic curve", self.getClass().getSimpleName(), p.getX(), p.getY());
 
-    protected final Function<Point, String> pointAdditionNotSupported = (other) ->
-            String.format("Elliptic curve point addition not supported for points %s and %s", this, other);
+    protected static final TriFunction<Point, Field, Field, String> invalidCoordinatesError = (self, x, y) ->
+            String.format("%s %s and %s is not on the elliptic curve", self.getClass().getSimpleName(), x, y);
+
+    protected static final BiFunction<Point, Point, String> pointAdditionNotSupported = (self, other) ->
+            String.format("Elliptic curve point addition not supported for points %s and %s", self, other);
 
     // following 2 funcs have been copied
-    protected final Function<Point, Field> slope = (p) -> (p.getY().subtract(this.getY()))
-            .divide(p.getX().subtract(this.getX()));
+    protected static final BiFunction<Point, Point, Field> slope = (self, p) -> (p.getY().subtract(self.getY()))
+            .divide(p.getX().subtract(self.getX()));
 
-    protected final BooleanSupplier isIdentity = () -> this.getX() == null && this.getY() == null;
+    protected static final Predicate<Point> isIdentity = (self) -> self.getX() == null && self.getY() == null;
 
-    protected final Function<Point, Field> slopeOfTangent = (p) -> {
+    protected static final Function<Point, Field> slopeOfTangent = (self) -> {
         // slope of line tangent to curve is dy/dx = (3x^2 + a) / 2y
-        Field dy = new FieldElement(THREE, this.getX().getPrime())
-                .multiply(square.apply(this.getX()))
-                .add(this.getA());
-        Field dx = new FieldElement(TWO, this.getX().getPrime())
-                .multiply(this.getY());
+        Field dy = new FieldElement(THREE, self.getX().getPrime())
+                .multiply(square.apply(self.getX()))
+                .add(self.getA());
+        Field dx = new FieldElement(TWO, self.getX().getPrime())
+                .multiply(self.getY());
         return dy.divide(dx);
     };
 
-    protected final Function<Point, Boolean> isNotOnCurve = (other) ->
-            !this.getA().equals(other.getA()) || !this.getB().equals(other.getB());
+    protected static final BiFunction<Point, Point, Boolean> isNotOnCurve = (self, other) ->
+            !self.getA().equals(other.getA()) || !self.getB().equals(other.getB());
 
-    private final Function<Point, Point> pointDerivedFromSlope = (other) -> {
-        Field m = slope.apply(other), x = this.getX(), y = this.getY(), a = this.getA(), b = this.getB();
+    private static final BiFunction<Point, Point, Point> pointDerivedFromSlope = (self, other) -> {
+        Field m = slope.apply(self, other), x = self.getX(), y = self.getY(), a = self.getA(), b = self.getB();
         // Vieta's formula says -m^2 = -(x1 - x2 + x3), so we can derive x3, then y3
         Field x3 = square.apply(m).subtract(x).subtract(other.getX()); // x3 = m^2 - x1 - x2
         Field y3 = m.multiply(x.subtract(x3)).subtract(y); // y3 = m(x1 - x3) - y1
         return new EllipticCurvePoint(x3, y3, a, b);
     };
 
-    private final Function<Point, Point> pointDerivedFromSlopeOfTangent = (other) -> {
-        Field m = slopeOfTangent.apply(other), x = this.getX(), y = this.getY(), a = this.getA(), b = this.getB();
+    private static final Function<Point, Point> pointDerivedFromSlopeOfTangent = (self) -> {
+        Field m = slopeOfTangent.apply(self), x = self.getX(), y = self.getY(), a = self.getA(), b = self.getB();
         Field x3 = square.apply(m).subtract(new FieldElement(TWO, x.getPrime()).multiply(x)); // x3 = m^2 - 2x1
         Field y3 = m.multiply(x.subtract(x3)).subtract(y); // y3 = m(x1 - x3) - y1
         return new EllipticCurvePoint(x3, y3, a, b);
     };
 
-    private final Function<BigInteger, Point> doubleAndAdd = (c) -> {
+    private static final BiFunction<EllipticCurvePoint, BigInteger, Point> doubleAndAdd = (self, c) -> {
         BigInteger coefficient = clone.apply(c);  // don't change c arg's value
-        Point current = this.clone();
-        Point result = getIdentity(this.getA(), this.getB());  // start at identity
+        Point current = self.clone();
+        Point result = getIdentity(self.getA(), self.getB());  // start at identity
         while (isNotZero.test(coefficient)) {
             if (coefficient.testBit(0)) {
                 result = result.add(current);
@@ -118,8 +121,8 @@ public class EllipticCurvePoint implements Point {
 
     @Override
     public Point add(Point other) {
-        if (isNotOnCurve.apply(other)) {
-            throw new IllegalArgumentException(invalidPointError.apply(other));
+        if (isNotOnCurve.apply(this, other)) {
+            throw new IllegalArgumentException(invalidPointError.apply(this, other));
         }
         if (x == null) {
             return other;   // case: this pt is identity, 0+q = q
@@ -132,15 +135,15 @@ public class EllipticCurvePoint implements Point {
         }
         if (!x.equals(other.getX())) {
             // case: px!=qx, p,q has slope m=(py-qy)/(px-qx), intersection of line is r (rx, ry), and p+q=-r
-            return pointDerivedFromSlope.apply(other);
+            return pointDerivedFromSlope.apply(this, other);
         }
         if (this.equals(other) && y.getNumber().equals(ZERO)) {
             return getIdentity(a, b); // case: P1 == P2, and tangent line is vertical (y=0)
         }
         if (this.equals(other)) {
-            return pointDerivedFromSlopeOfTangent.apply(other);  // case: p1 == p2
+            return pointDerivedFromSlopeOfTangent.apply(this);  // case: p1 == p2
         }
-        throw new RuntimeException(pointAdditionNotSupported.apply(other));
+        throw new RuntimeException(pointAdditionNotSupported.apply(this, other));
     }
 
     @Override
@@ -152,7 +155,7 @@ public class EllipticCurvePoint implements Point {
         if (isOne.test(coefficient)) {
             return this;
         }
-        return doubleAndAdd.apply(coefficient);
+        return doubleAndAdd.apply(this, coefficient);
     }
 
     @Override
@@ -215,11 +218,11 @@ public class EllipticCurvePoint implements Point {
      * Throws an IllegalArgumentException if point is not on elliptic curve curve described y^2 != x^3 + ax + b
      */
     private void checkIsPointOnCurve() {
-        if (isIdentity.getAsBoolean()) {
+        if (isIdentity.test(this)) {
             return;
         }
         if (square.apply(y).notEquals(cube.apply(x).add(a.multiply(x)).add(b))) {
-            throw new IllegalArgumentException(invalidCoordinatesError.apply(x, y)); // y^2 != x^3 + ax + b
+            throw new IllegalArgumentException(invalidCoordinatesError.apply(this, x, y)); // y^2 != x^3 + ax + b
         }
     }
 }
@@ -4,7 +4,8 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.function.BiFunction;
-import java.util.function.Supplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.TWO;
@@ -21,17 +22,18 @@ public class FieldElement implements Field {
     @SuppressWarnings("CanBeFinal")
     protected BigInteger prime;
 
-    private final Supplier<Field> squareRoot = () -> {
-        if (isThree.test(this.getPrime().mod(FOUR))) {  // Prime p in secp256k1 is such that p % 4 == 3
-            return this.power(prime.add(ONE).divide(FOUR));  // JSong's python sqrt():  self**( (P+1)//4 ).
+    // Static, so that building an element does not build lambdas capturing it.
+    private static final Function<FieldElement, Field> squareRoot = (self) -> {
+        if (isThree.test(self.getPrime().mod(FOUR))) {  // Prime p in secp256k1 is such that p % 4 == 3
+            return self.power(self.prime.add(ONE).divide(FOUR));  // JSong's python sqrt():  self**( (P+1)//4 ).
         } else {
             throw new RuntimeException("Not implemented for fields on any curve except secp256k1");
         }
     };
-    protected final Supplier<String> fieldNumberNotInRangeError = () ->
-            String.format("Number %d not in field range 0 to %d", number, prime.longValue() - 1);
-    protected final Supplier<Boolean> fieldNumberIsNotInRange = () ->
-            isGreaterThanOrEqual.apply(number, prime) || isNegative.test(number);
+    protected static final Function<FieldElement, String> fieldNumberNotInRangeError = (self) ->
+            String.format("Number %d not in field range 0 to %d", self.number, self.prime.longValue() - 1);
+    protected static final Predicate<FieldElement> fieldNumberIsNotInRange = (self) ->
+            isGreaterThanOrEqual.apply(self.number, self.prime) || isNegative.test(self.number);
 
     public FieldElement(BigInteger number, BigInteger prime) {
         this.number = number;
@@ -167,7 +169,7 @@ public class FieldElement implements Field {
 
     @Override
     public Field sqrt() {
-        return squareRoot.get();
+        return squareRoot.apply(this);
     }
 
     @Override
@@ -216,8 +218,8 @@ public class FieldElement implements Field {
     }
 
     private void checkRange() {
-        if (fieldNumberIsNotInRange.get()) {
-            throw new IllegalArgumentException(fieldNumberNotInRangeError.get());
+        if (fieldNumberIsNotInRange.test(this)) {
+            throw new IllegalArgumentException(fieldNumberNotInRangeError.apply(this));
         }
     }
 }
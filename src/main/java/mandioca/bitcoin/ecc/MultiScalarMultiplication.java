@@ -0,0 +1,166 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+
+/**
+ * Multi-scalar multiplication:  computes sum(k[i] * P[i]) for many points much faster than n separate scalar
+ * multiplications.
+ * <p>
+ * Every scalar is first split by the GLV endomorphism into two half-length scalars, so n terms become 2n terms of
+ * about 128 bits.  Small batches then use Strauss' algorithm ({@link Secp256k1Wnaf}), where all terms share one chain
+ * of doublings.  Larger batches use Pippenger's bucket method:  the scalars are cut into c-bit windows, and for each
+ * window every point is added into the bucket for its digit, after which the buckets are summed with about 2^(c+1)
+ * additions.  With c close to log2(n), the cost per term falls as the batch grows, to about 128/c mixed additions.
+ * <p>
+ * See https://eprint.iacr.org/2012/549.pdf (section 4), and Bernstein et al., Faster batch forgery identification.
+ */
+public final class MultiScalarMultiplication {
+
+    /**
+     * Batches of at least this many terms use Pippenger's algorithm instead of Strauss'.
+     */
+    static final int PIPPENGER_THRESHOLD = 128;
+
+    private MultiScalarMultiplication() {
+    }
+
+    /**
+     * Returns sum(scalars[i] * points[i]).  Points at infinity and zero scalars contribute nothing.
+     *
+     * @param scalars scalars, reduced mod N
+     * @param points  points
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point multiply(BigInteger[] scalars, Secp256k1Point[] points) {
+        return multiply(ZERO, scalars, points);
+    }
+
+    /**
+     * Returns u*G + sum(scalars[i] * points[i]), where G is the generator point.
+     *
+     * @param u       scalar multiplying G, reduced mod N
+     * @param scalars scalars, reduced mod N
+     * @param points  points
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point multiply(BigInteger u, BigInteger[] scalars, Secp256k1Point[] points) {
+        return linearCombination(u, scalars, points).toAffine();
+    }
+
+    /**
+     * Returns u*G + sum(scalars[i] * points[i]) in Jacobian coordinates, choosing Strauss' or Pippenger's algorithm
+     * by the number of terms.
+     */
+    static Secp256k1JacobianPoint linearCombination(BigInteger u, BigInteger[] scalars, Secp256k1Point[] points) {
+        if (scalars.length != points.length) {
+            throw new IllegalArgumentException("Need one scalar per point");
+        }
+        // Drop the terms that contribute nothing.
+        int count = 0;
+        BigInteger[] v = new BigInteger[points.length];
+        Secp256k1Point[] p = new Secp256k1Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            BigInteger k = scalars[i].mod(N);
+            if (k.signum() != 0 && points[i].getX() != null) {
+                v[count] = k;
+                p[count++] = points[i];
+            }
+        }
+        if (count < PIPPENGER_THRESHOLD) {
+            return Secp256k1Wnaf.multiply(u, trim(v, count), trim(p, count));
+        }
+        Secp256k1JacobianPoint sum = pippenger(trim(v, count), trim(p, count));
+        return u.mod(N).signum() == 0 ? sum : sum.add(Secp256k1GeneratorTable.multiply(u));
+    }
+
+    /**
+     * Returns sum(scalars[i] * points[i]) with Pippenger's bucket method, over the endomorphism split scalars.
+     * Scalars must be non-zero mod N, and points must not be the point at infinity.
+     */
+    static Secp256k1JacobianPoint pippenger(BigInteger[] scalars, Secp256k1Point[] points) {
+        int terms = 2 * points.length;
+        Secp256k1FieldElement[] x = new Secp256k1FieldElement[terms];
+        Secp256k1FieldElement[] y = new Secp256k1FieldElement[terms];
+        int[][] words = new int[terms][];
+        int bits = 0;
+        for (int i = 0; i < points.length; i++) {
+            BigInteger[] split = Secp256k1Endomorphism.split(scalars[i].mod(N));
+            Secp256k1FieldElement px = new Secp256k1FieldElement(points[i].getX().getNumber());
+            Secp256k1FieldElement py = new Secp256k1FieldElement(points[i].getY().getNumber());
+            Secp256k1FieldElement negativeY = new Secp256k1FieldElement().setNegate(py);
+            // k1*P + k2*phi(P), with a negative half scalar moved onto the point:  -k*P = k*(-P)
+            x[2 * i] = px;
+            y[2 * i] = split[0].signum() < 0 ? negativeY : py;
+            x[2 * i + 1] = Secp256k1Endomorphism.mapX(px);
+            y[2 * i + 1] = split[1].signum() < 0 ? negativeY : py;
+            words[2 * i] = toWords(split[0].abs());
+            words[2 * i + 1] = toWords(split[1].abs());
+            bits = Math.max(bits, Math.max(split[0].bitLength(), split[1].bitLength()));
+        }
+        int c = windowBits(terms);
+        int windows = (bits + c - 1) / c;
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint[] buckets = new Secp256k1JacobianPoint[1 << c];
+        for (int d = 1; d < buckets.length; d++) {
+            buckets[d] = Secp256k1JacobianPoint.newInfinity();
+        }
+        Secp256k1JacobianPoint running = Secp256k1JacobianPoint.newInfinity();
+        Secp256k1JacobianPoint windowSum = Secp256k1JacobianPoint.newInfinity();
+        Secp256k1JacobianPoint result = Secp256k1JacobianPoint.newInfinity();
+        for (int w = windows - 1; w >= 0; w--) {
+            for (int i = 0; i < c; i++) {
+                result.setTwice(ws);
+            }
+            for (int d = 1; d < buckets.length; d++) {
+                buckets[d].setInfinity();
+            }
+            for (int t = 0; t < terms; t++) {
+                int digit = getBits(words[t], w * c, c);
+                if (digit != 0) {
+                    buckets[digit].setAddAffine(x[t], y[t], ws);
+                }
+            }
+            // sum(d * bucket[d]) = running sums of the buckets from the top, themselves summed
+            running.setInfinity();
+            windowSum.setInfinity();
+            for (int d = buckets.length - 1; d > 0; d--) {
+                running.setAdd(buckets[d], ws);
+                windowSum.setAdd(running, ws);
+            }
+            result.setAdd(windowSum, ws);
+        }
+        return result;
+    }
+
+    // Bucket window width for the given number of terms:  each window costs one addition per term and about
+    // 2^(c+1) additions to sum its buckets.
+    static int windowBits(int terms) {
+        int log2 = 31 - Integer.numberOfLeadingZeros(terms);
+        return Math.max(2, Math.min(16, log2 - 2));
+    }
+
+    // Splits non-negative k (at most 160 bits) into 32-bit words, least significant word first.
+    private static int[] toWords(BigInteger k) {
+        int[] words = new int[6];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = k.shiftRight(i << 5).intValue();
+        }
+        return words;
+    }
+
+    // Returns count (1 to 31) bits of the scalar's words, starting at bit offset.
+    private static int getBits(int[] words, int offset, int count) {
+        int index = offset >>> 5;
+        int shift = offset & 31;
+        long bits = (words[index] & 0xFFFFFFFFL) | ((words[index + 1] & 0xFFFFFFFFL) << 32);
+        return (int) ((bits >>> shift) & ((1L << count) - 1));
+    }
+
+    private static <T> T[] trim(T[] array, int length) {
+        return array.length == length ? array : Arrays.copyOf(array, length);
+    }
+}
@@ -0,0 +1,19 @@
+package mandioca.bitcoin.ecc;
+
+/**
+ * Selects how a secp256k1 scalar multiplication treats its scalar.
+ */
+public enum MultiplicationMode {
+
+    /**
+     * Fastest multiplication, with running time and memory accesses that depend on the scalar.  Use it for public
+     * scalars, e.g. when verifying signatures.
+     */
+    VARIABLE_TIME,
+
+    /**
+     * Slower multiplication with complete formulas, fixed windows and masked table lookups, so running time and
+     * memory accesses do not depend on the scalar.  Use it for secret scalars:  private keys and signing nonces.
+     */
+    CONSTANT_TIME
+}
@@ -0,0 +1,191 @@
+package mandioca.bitcoin.ecc;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache of decoded compressed public keys, so the square root needed to recover a compressed
+ * key's y coordinate is computed once per key, not once per script execution.  Hot keys (exchanges, pools) appear in
+ * thousands of inputs.
+ * <p>
+ * Entries are keyed by the 33-byte compressed SEC encoding, held as a prefix byte and four longs, and hashed with a
+ * random per-cache salt.  The salted mix is not a keyed PRF, but without the salt it is impractical to pick keys that
+ * land in the same hash table bucket (hash flooding).  Keys are compared in full, so a bucket collision is only
+ * slower, never a wrong hit.  Eviction is generational, as in {@link SignatureCache}:  new entries go into the
+ * current generation, a full current generation replaces the previous one, and a hit in the previous generation
+ * copies the entry forward.
+ */
+public final class PublicKeyCache {
+
+    public static final int DEFAULT_CAPACITY = 50_000;
+    static final int COMPRESSED_SEC_LENGTH = 33;
+
+    private static final PublicKeyCache INSTANCE = new PublicKeyCache(DEFAULT_CAPACITY);
+
+    private final int generationCapacity;
+    private final long salt = new SecureRandom().nextLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Map<Key, Secp256k1Point> current = new ConcurrentHashMap<>();
+    private volatile Map<Key, Secp256k1Point> previous = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity maximum number of cached public keys, at least 2
+     */
+    public PublicKeyCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Public key cache capacity must be at least 2, not " + capacity);
+        }
+        this.generationCapacity = capacity / 2;
+    }
+
+    /**
+     * Returns the shared cache consulted by {@link Secp256k1Point#parse(byte[])}.
+     */
+    public static PublicKeyCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached point for a 33-byte compressed SEC encoding, else decodes it and caches the result.
+     *
+     * @param sec     compressed SEC encoded public key
+     * @param decoder decodes the SEC bytes, throwing an exception if they do not encode a point on the curve
+     * @return Secp256k1Point
+     */
+    public Secp256k1Point get(byte[] sec, Function<byte[], Secp256k1Point> decoder) {
+        Key key = key(sec);
+        Secp256k1Point point = current.get(key);
+        if (point == null) {
+            point = previous.get(key);
+            if (point != null) {
+                put(key, point);
+            }
+        }
+        if (point != null) {
+            hits.increment();
+            return point;
+        }
+        misses.increment();
+        point = decoder.apply(sec);
+        put(key, point);
+        return point;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that were hits, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Returns the approximate number of cached public keys.
+     */
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    /**
+     * Removes all cached public keys and resets the hit and miss counts.
+     */
+    public synchronized void clear() {
+        current = new ConcurrentHashMap<>();
+        previous = new ConcurrentHashMap<>();
+        hits.reset();
+        misses.reset();
+    }
+
+    private void put(Key key, Secp256k1Point point) {
+        Map<Key, Secp256k1Point> generation = current;
+        generation.put(key, point);
+        if (generation.size() >= generationCapacity) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Map<Key, Secp256k1Point> full) {
+        if (current == full) {  // another thread may have rotated already
+            previous = full;
+            current = new ConcurrentHashMap<>();
+        }
+    }
+
+    private Key key(byte[] sec) {
+        if (sec.length != COMPRESSED_SEC_LENGTH) {
+            throw new IllegalArgumentException("Compressed SEC public key must be "
+                    + COMPRESSED_SEC_LENGTH + " bytes, not " + sec.length);
+        }
+        return new Key(sec[0], getLong(sec, 1), getLong(sec, 9), getLong(sec, 17), getLong(sec, 25), salt);
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static final class Key {
+        private final byte prefix;
+        private final long x0;
+        private final long x1;
+        private final long x2;
+        private final long x3;
+        private final int hash;
+
+        private Key(byte prefix, long x0, long x1, long x2, long x3, long salt) {
+            this.prefix = prefix;
+            this.x0 = x0;
+            this.x1 = x1;
+            this.x2 = x2;
+            this.x3 = x3;
+            long h = mix(mix(mix(mix(salt ^ prefix) ^ x0) ^ x1) ^ x2) ^ x3;
+            h = mix(h);
+            this.hash = (int) (h ^ (h >>> 32));
+        }
+
+        // SplitMix64 finalizer
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key other = (Key) o;
+            return prefix == other.prefix && x0 == other.x0 && x1 == other.x1 && x2 == other.x2 && x3 == other.x3;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{"
+                + "size=" + size()
+                + ", hits=" + getHits()
+                + ", misses=" + getMisses()
+                + "}";
+    }
+}
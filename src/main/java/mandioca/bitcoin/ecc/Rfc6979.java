@@ -1,41 +1,50 @@
 package mandioca.bitcoin.ecc;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
-import java.security.InvalidKeyException;
+import java.security.DigestException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static java.lang.System.arraycopy;
 import static java.lang.System.out;
 import static java.util.Arrays.fill;
-import static java.util.Arrays.stream;
 import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
-import static mandioca.bitcoin.function.BigIntegerFunctions.*;
-import static mandioca.bitcoin.function.ByteArrayFunctions.*;
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 
 /**
  * Deterministic K calculator based on the algorithm defined in section 3.2 of RFC 6979.
  * <p>
+ * HMAC-SHA256 is computed directly on a reused SHA-256 MessageDigest, and K, V and the arguments live in fixed
+ * 32-byte buffers, so generating k allocates nothing.  An instance is not thread-safe;  use one per thread, and
+ * {@link #clear()} it once the last k is taken, so the secret and K/V state do not outlive the signature.
+ * <p>
  * See https://tools.ietf.org/html/rfc6979
  */
 public class Rfc6979 {
 
-    private static final String MAC_ALGORITHM = "HmacSHA256";
-
-    private final Mac mac;
-    private byte[] k;
-    private byte[] v;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int HASH_LENGTH = 32;
+    private static final int BLOCK_LENGTH = 64;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+    private static final byte[] N_BYTES = bigIntToUnsignedByteArray.apply(N);
+
+    private final MessageDigest digest;
+    private final byte[] k = new byte[HASH_LENGTH];
+    private final byte[] v = new byte[HASH_LENGTH];
+    private final byte[] secret = new byte[HASH_LENGTH];
+    private final byte[] h1 = new byte[HASH_LENGTH];
+    private final byte[] keyBlock = new byte[BLOCK_LENGTH];  // K xor ipad, then K xor opad
+    private final byte[] innerHash = new byte[HASH_LENGTH];
     @Deprecated
     private boolean debug;
 
     public Rfc6979() {
         try {
-            this.mac = Mac.getInstance(MAC_ALGORITHM);
-            this.k = new byte[mac.getMacLength()];
-            this.v = new byte[mac.getMacLength()];
+            this.digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
@@ -49,132 +58,182 @@ public class Rfc6979 {
     }
 
     public void init(BigInteger e /* secret -> hashed twice */, BigInteger z /*H1 = H(message) -> hashed once*/) {
+        init(bigIntToUnsignedByteArray.apply(e), bigIntToUnsignedByteArray.apply(z));
+    }
+
+    /**
+     * Initializes the calculator with 32-byte big-endian encodings of the secret and the message hash.  The
+     * arguments are copied, and not modified.
+     *
+     * @param e secret
+     * @param z H1 = H(message), reduced mod N here if it is not less than N
+     * @throws IllegalArgumentException if e or z is not 32 bytes
+     */
+    public void init(byte[] e, byte[] z) {
+        if (e.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("RFC 6979 secret must be " + HASH_LENGTH + " bytes, not " + e.length);
+        }
+        if (z.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("RFC 6979 message hash must be " + HASH_LENGTH + " bytes, not " + z.length);
+        }
         // See https://tools.ietf.org/html/rfc6979#section-3.1.1
-        try {
-            z = reduceZ(z);  // Reduce z if very, very large.
-            byte[] secret = bigIntToUnsignedByteArray.apply(e);  // Caching arguments' bytes for use in the next steps.
-            byte[] h1 = bigIntToUnsignedByteArray.apply(z);   // Step A ( h1 = H(m) ) is performed by caller
-            if (debug) {
-                out.printf("init(%s, %s)\n", e.toString(HEX_RADIX), z.toString(HEX_RADIX));
-                out.println("h1      = " + HEX.to64DigitPaddedHex(h1));
-                out.println("secret = " + HEX.to64DigitPaddedHex(secret)); // correct
-            }
-            fill(v, ONE_BYTE[0]);    // Step B  set V = 0x01 0x01 0x01 ... 0x01
-            fill(k, ZERO_BYTE[0]);   // Step C  set K = 0x00 0x00 0x00 ... 0x00
-            doStepD(secret, h1);            // K = HMAC_K(V || 0x00 || secret || h1)
-            doStepE();                      // V = HMAC_K(V)
-            doStepF(secret, h1);            // K = HMAC_K(V || 0x01 || secret || h1)
-            doStepG();                      // V = HMAC_K(V)
-        } catch (InvalidKeyException ex) {
-            throw new RuntimeException(ex);
+        arraycopy(e, 0, secret, 0, HASH_LENGTH);    // Caching arguments' bytes for use in the next steps.
+        arraycopy(z, 0, h1, 0, HASH_LENGTH);        // Step A ( h1 = H(m) ) is performed by caller
+        if (compare(h1, N_BYTES) >= 0) {
+            subtract(h1, N_BYTES);                  // bits2octets(h1) = h1 mod N
         }
+        if (debug) {
+            out.println("h1      = " + HEX.to64DigitPaddedHex(h1));
+            out.println("secret = " + HEX.to64DigitPaddedHex(secret));
+        }
+        fill(v, (byte) 0x01);    // Step B  set V = 0x01 0x01 0x01 ... 0x01
+        fill(k, (byte) 0x00);    // Step C  set K = 0x00 0x00 0x00 ... 0x00
+        updateK((byte) 0x00);    // Step D  K = HMAC_K(V || 0x00 || secret || h1)
+        updateV();               // Step E  V = HMAC_K(V)
+        updateK((byte) 0x01);    // Step F  K = HMAC_K(V || 0x01 || secret || h1)
+        updateV();               // Step G  V = HMAC_K(V)
     }
 
     public BigInteger nextK() {
-        try {
-            while (true) {
-                processHMACInputs(v);
-                v = mac.doFinal();
+        byte[] candidate = new byte[HASH_LENGTH];
+        nextK(candidate);
+        return new BigInteger(1, candidate);
+    }
+
+    /**
+     * Writes the next k in the range 1 to N-1 into the given 32-byte array, big-endian.
+     *
+     * @param candidate destination array
+     */
+    public void nextK(byte[] candidate) {
+        while (true) {
+            updateV();
+            if (isValidK(v)) {
                 if (debug) {
-                    out.println("nextK() -> V = " + HEX.to64DigitPaddedHex(v));
+                    out.println("nextK() -> candidate = " + HEX.to64DigitPaddedHex(v));
                 }
-                BigInteger candidate = new BigInteger(1, v);
-                if (isPositive.test(candidate) && isLessThan.apply(candidate, N)) {
-                    if (debug) {
-                        out.println("nextK() -> candidate = " + HEX.encode(candidate));
-                    }
-                    return candidate;
-                }
-                processHMACInputsVAndZero();
+                arraycopy(v, 0, candidate, 0, HASH_LENGTH);
+                return;
             }
-        } catch (InvalidKeyException ex) {
-            throw new RuntimeException(ex);
+            updateKAndVWithZero();
         }
     }
 
-    // pkg protected exact duplicate of nextK(), for testing only
-    List<BigInteger> getTestKs(int numCandidates) throws InvalidKeyException {
+    /**
+     * Zeros the cached secret, message hash, K, V and HMAC buffers.  Call {@link #init(byte[], byte[])} again
+     * before the next k.
+     */
+    public void clear() {
+        fill(secret, (byte) 0x00);
+        fill(h1, (byte) 0x00);
+        fill(k, (byte) 0x00);
+        fill(v, (byte) 0x00);
+        fill(keyBlock, (byte) 0x00);
+        fill(innerHash, (byte) 0x00);
+        digest.reset();
+    }
+
+    // pkg protected duplicate of nextK(), for testing only
+    List<BigInteger> getTestKs(int numCandidates) {
         final List<BigInteger> testCandidates = new ArrayList<>();
         while (true) {
-            processHMACInputs(v);
-            v = mac.doFinal();
-            if (debug) {
-                out.println("nextK() -> V = " + HEX.to64DigitPaddedHex(v));
+            updateV();
+            if (isValidK(v)) {
+                testCandidates.add(new BigInteger(1, v));
             }
-            BigInteger candidate = new BigInteger(1, v);
-            if (isPositive.test(candidate) && isLessThan.apply(candidate, N)) {
-                if (debug) {
-                    out.println("nextK() -> candidate = " + HEX.encode(candidate));
-                }
-                testCandidates.add(candidate);
-            }
-            processHMACInputsVAndZero();
+            updateKAndVWithZero();
             if (testCandidates.size() >= numCandidates) {
                 return testCandidates;
             }
         }
     }
 
-    private BigInteger reduceZ(BigInteger z) {
-        if (isGreaterThan.apply(z, N)) {
-            System.err.println("Reducing z for the first time!");
-            return z.subtract(N);
-        } else {
-            return z;
-        }
-    }
-
-    //  K = HMAC_K(V || 0x00 || int2octets(x) || bits2octets(h1))
-    private void doStepD(byte[] secret, byte[] h1) throws InvalidKeyException {
-        processHMACInputs(v, ZERO_BYTE, secret, h1);
-        k = mac.doFinal();
+    //  K = HMAC_K(V || separator || int2octets(x) || bits2octets(h1))
+    private void updateK(byte separator) {
+        startHmac();
+        digest.update(v);
+        digest.update(separator);
+        digest.update(secret);
+        digest.update(h1);
+        finishHmac(k);
         if (debug) {
             out.println("K = " + HEX.to64DigitPaddedHex(k));
         }
     }
 
     // V = HMAC_K(V)
-    private void doStepE() throws InvalidKeyException {
-        processHMACInputs(v);
-        v = mac.doFinal();
+    private void updateV() {
+        startHmac();
+        digest.update(v);
+        finishHmac(v);
         if (debug) {
             out.println("V = " + HEX.to64DigitPaddedHex(v));
         }
     }
 
-    //  K = HMAC_K(V || 0x01 || int2octets(x) || bits2octets(h1))
-    private void doStepF(byte[] secret, byte[] h1) throws InvalidKeyException {
-        processHMACInputs(v, ONE_BYTE, secret, h1);
-        k = mac.doFinal();
+    // K = HMAC_K(V || 0x00), then V = HMAC_K(V)
+    private void updateKAndVWithZero() {
+        startHmac();
+        digest.update(v);
+        digest.update((byte) 0x00);
+        finishHmac(k);
         if (debug) {
-            out.println("K = " + HEX.to64DigitPaddedHex(k));
+            out.println("nextK() -> K = " + HEX.to64DigitPaddedHex(k));
         }
+        updateV();
     }
 
-    // V = HMAC_K(V)
-    private void doStepG() throws InvalidKeyException {
-        processHMACInputs(v);
-        v = mac.doFinal();
-        if (debug) {
-            out.println("V = " + HEX.to64DigitPaddedHex(v));
+    // HMAC(K, m) = H((K xor opad) || H((K xor ipad) || m)), for a key K shorter than the block length.
+    private void startHmac() {
+        fill(keyBlock, IPAD);
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            keyBlock[i] ^= k[i];
         }
+        digest.reset();
+        digest.update(keyBlock);
     }
 
-    private void processHMACInputsVAndZero() throws InvalidKeyException {
-        processHMACInputs(v, ZERO_BYTE);
-        k = mac.doFinal();
-        if (debug) {
-            out.println("nextK() -> K = " + HEX.to64DigitPaddedHex(k));
+    private void finishHmac(byte[] mac) {
+        try {
+            digest.digest(innerHash, 0, HASH_LENGTH);
+            for (int i = 0; i < BLOCK_LENGTH; i++) {
+                keyBlock[i] ^= IPAD ^ OPAD;
+            }
+            digest.update(keyBlock);
+            digest.update(innerHash);
+            digest.digest(mac, 0, HASH_LENGTH);
+        } catch (DigestException e) {
+            throw new RuntimeException(e);
         }
-        processHMACInputs(v);
-        v = mac.doFinal();
-        if (debug) {
-            out.println("nextK() -> V = " + HEX.to64DigitPaddedHex(v));
+    }
+
+    // 0 < candidate < N
+    private static boolean isValidK(byte[] candidate) {
+        int bits = 0;
+        for (byte b : candidate) {
+            bits |= b;
         }
+        return bits != 0 && compare(candidate, N_BYTES) < 0;
     }
 
-    private void processHMACInputs(byte[]... inputs) throws InvalidKeyException {
-        mac.init(new SecretKeySpec(k, MAC_ALGORITHM));
-        stream(inputs).forEach(mac::update);
+    // Compares two unsigned, big-endian numbers of the same length.
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    // a = a - b, for unsigned, big-endian numbers of the same length with a >= b.
+    private static void subtract(byte[] a, byte[] b) {
+        int borrow = 0;
+        for (int i = a.length - 1; i >= 0; i--) {
+            int diff = (a[i] & 0xFF) - (b[i] & 0xFF) - borrow;
+            a[i] = (byte) diff;
+            borrow = (diff >> 8) & 1;
+        }
     }
 }
@@ -0,0 +1,169 @@
+package mandioca.bitcoin.ecc;
+
+import mandioca.bitcoin.util.Sha256;
+import mandioca.bitcoin.util.Sha256Engine;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.p;
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
+
+/**
+ * BIP-340 Schnorr signatures over secp256k1:  tagged hashes, signing, verification against 32-byte x-only public
+ * keys, and batch verification.
+ * <p>
+ * Batch verification checks n signatures with one multi-scalar multiplication.  Each signature's equation
+ * sG = R + eP is multiplied by a random a (a = 1 for the first), and all of them are summed:
+ * (sum(a s))G - sum(a R) - sum(a e P) must be the point at infinity.  The 2n + 1 products are computed together
+ * by {@link MultiScalarMultiplication}.  A failed batch does not say which signature is invalid;  verify them one by
+ * one to find out.
+ * <p>
+ * See https://github.com/bitcoin/bips/blob/master/bip-0340.mediawiki
+ */
+public final class Schnorr {
+
+    static final String AUX_TAG = "BIP0340/aux";
+    static final String NONCE_TAG = "BIP0340/nonce";
+    static final String CHALLENGE_TAG = "BIP0340/challenge";
+
+    // SHA-256 state after SHA256(tag) || SHA256(tag), one block, per tag;  restored into each thread's own hasher.
+    private static final Map<String, Sha256> tagMidstates = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Sha256> hashers = ThreadLocal.withInitial(Sha256::new);
+    private static final SecureRandom random = new SecureRandom();
+
+    private Schnorr() {
+    }
+
+    /**
+     * Returns the BIP-340 tagged hash SHA256(SHA256(tag) || SHA256(tag) || data...).  The 64-byte tag prefix is
+     * compressed once per tag, and each call resumes from that midstate on a per-thread hasher.
+     *
+     * @param tag  tag, e.g. "BIP0340/challenge"
+     * @param data data to hash, in order
+     * @return byte[32]
+     */
+    public static byte[] taggedHash(String tag, byte[]... data) {
+        Sha256 midstate = tagMidstates.computeIfAbsent(tag, (t) -> {
+            byte[] tagHash = Sha256Engine.sha256(t.getBytes(StandardCharsets.UTF_8));
+            return new Sha256().update(tagHash).update(tagHash).snapshot();
+        });
+        Sha256 sha256 = hashers.get().restore(midstate);
+        for (byte[] d : data) {
+            sha256.update(d);
+        }
+        return sha256.digest();
+    }
+
+    /**
+     * Signs a message with the given private key.
+     *
+     * @param secret    private key d', in the range 1 to N-1
+     * @param publicKey d'G
+     * @param message   message, usually a 32-byte hash
+     * @param auxRand   32 bytes of fresh auxiliary randomness, or zeros
+     * @return SchnorrSignature
+     */
+    static SchnorrSignature sign(BigInteger secret, Secp256k1Point publicKey, byte[] message, byte[] auxRand) {
+        if (auxRand.length != 32) {
+            throw new IllegalArgumentException("Schnorr auxiliary randomness must be 32 bytes, not " + auxRand.length);
+        }
+        BigInteger d = publicKey.hasEvenY() ? secret : N.subtract(secret);
+        byte[] pBytes = publicKey.getXOnly();
+        byte[] t = bigIntToUnsignedByteArray.apply(d);
+        byte[] auxHash = taggedHash(AUX_TAG, auxRand);
+        for (int i = 0; i < t.length; i++) {
+            t[i] ^= auxHash[i];
+        }
+        BigInteger k0 = new BigInteger(1, taggedHash(NONCE_TAG, t, pBytes, message)).mod(N);
+        if (k0.signum() == 0) {
+            throw new RuntimeException("Schnorr nonce is zero");  // probability ~ 2^-256
+        }
+        Secp256k1Point r = Secp256k1ProjectivePoint.multiplyGenerator(bigIntToUnsignedByteArray.apply(k0)).toAffine();
+        BigInteger k = r.hasEvenY() ? k0 : N.subtract(k0);
+        byte[] rBytes = r.getXOnly();
+        BigInteger e = challenge(rBytes, pBytes, message);
+        return new SchnorrSignature(r.getX().getNumber(), k.add(e.multiply(d)).mod(N));
+    }
+
+    /**
+     * Verifies a signature against a 32-byte x-only public key.
+     *
+     * @param publicKey x-only public key
+     * @param message   signed message
+     * @param signature signature
+     * @return true if the signature is valid
+     */
+    public static boolean verify(byte[] publicKey, byte[] message, SchnorrSignature signature) {
+        Secp256k1Point point = liftX(publicKey);
+        if (point == null || !inRange(signature)) {
+            return false;
+        }
+        BigInteger e = challenge(bigIntToUnsignedByteArray.apply(signature.getR()), publicKey, message);
+        Secp256k1Point r = Secp256k1Point.doubleScalarMultiply(signature.getS(), N.subtract(e), point);  // sG - eP
+        return r.getX() != null && r.hasEvenY() && r.getX().getNumber().equals(signature.getR());
+    }
+
+    /**
+     * Verifies many signatures with one multi-scalar multiplication.
+     *
+     * @param publicKeys x-only public keys
+     * @param messages   signed messages
+     * @param signatures signatures, where signatures[i] is checked against publicKeys[i] and messages[i]
+     * @return true if every signature is valid, false if any is invalid
+     */
+    public static boolean verifyBatch(byte[][] publicKeys, byte[][] messages, SchnorrSignature[] signatures) {
+        int n = signatures.length;
+        if (publicKeys.length != n || messages.length != n) {
+            throw new IllegalArgumentException("Need one public key and message per signature");
+        }
+        Secp256k1Point[] points = new Secp256k1Point[2 * n];       // R[0..n-1], then P[0..n-1]
+        BigInteger[] scalars = new BigInteger[2 * n];
+        BigInteger sSum = ZERO;
+        for (int i = 0; i < n; i++) {
+            byte[] rBytes = bigIntToUnsignedByteArray.apply(signatures[i].getR());
+            points[n + i] = liftX(publicKeys[i]);
+            points[i] = inRange(signatures[i]) ? liftX(rBytes) : null;
+            if (points[i] == null || points[n + i] == null) {
+                return false;
+            }
+            BigInteger a = i == 0 ? BigInteger.ONE : randomScalar();
+            BigInteger e = challenge(rBytes, publicKeys[i], messages[i]);
+            sSum = sSum.add(a.multiply(signatures[i].getS())).mod(N);
+            scalars[i] = N.subtract(a);                             // -a R
+            scalars[n + i] = N.subtract(a.multiply(e).mod(N));      // -a e P
+        }
+        return MultiScalarMultiplication.linearCombination(sSum, scalars, points).isInfinity();
+    }
+
+    // e = int(hash_BIP0340/challenge(bytes(R) || bytes(P) || m)) mod N
+    private static BigInteger challenge(byte[] r, byte[] publicKey, byte[] message) {
+        return new BigInteger(1, taggedHash(CHALLENGE_TAG, r, publicKey, message)).mod(N);
+    }
+
+    // Returns the even-y point with x coordinate x, or null if there is none.
+    private static Secp256k1Point liftX(byte[] x) {
+        try {
+            return Secp256k1Point.liftX(x);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean inRange(SchnorrSignature signature) {
+        return signature.getR().compareTo(p) < 0 && signature.getS().compareTo(N) < 0;
+    }
+
+    private static BigInteger randomScalar() {
+        BigInteger a;
+        do {
+            a = new BigInteger(256, random).mod(N);
+        } while (a.signum() == 0);
+        return a;
+    }
+}
@@ -0,0 +1,85 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+import java.util.Objects;
+
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+
+/**
+ * A BIP-340 Schnorr signature, serialized as 64 bytes:  the x coordinate of the nonce point R, then s.
+ * <p>
+ * See https://github.com/bitcoin/bips/blob/master/bip-0340.mediawiki
+ */
+public class SchnorrSignature {
+
+    public static final int LENGTH = 64;
+
+    /**
+     * X coordinate of point R, whose y coordinate is even
+     */
+    private final BigInteger r;
+    /**
+     * s = k + ed mod N, where e is the challenge hash, d is the private key, and k is the nonce
+     */
+    private final BigInteger s;
+
+    public SchnorrSignature(BigInteger r, BigInteger s) {
+        this.r = r;
+        this.s = s;
+    }
+
+    /**
+     * Returns a SchnorrSignature from its 64-byte serialization.  Ranges are checked by verification, not here.
+     *
+     * @param bytes byte[64]
+     * @return SchnorrSignature
+     */
+    public static SchnorrSignature parse(byte[] bytes) {
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Schnorr signature must be " + LENGTH + " bytes, not " + bytes.length);
+        }
+        byte[] rBytes = new byte[32];
+        byte[] sBytes = new byte[32];
+        System.arraycopy(bytes, 0, rBytes, 0, 32);
+        System.arraycopy(bytes, 32, sBytes, 0, 32);
+        return new SchnorrSignature(new BigInteger(1, rBytes), new BigInteger(1, sBytes));
+    }
+
+    public BigInteger getR() {
+        return r;
+    }
+
+    public BigInteger getS() {
+        return s;
+    }
+
+    public byte[] getBytes() {
+        byte[] bytes = new byte[LENGTH];
+        System.arraycopy(bigIntToUnsignedByteArray.apply(r), 0, bytes, 0, 32);
+        System.arraycopy(bigIntToUnsignedByteArray.apply(s), 0, bytes, 32, 32);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SchnorrSignature other = (SchnorrSignature) o;
+        return Objects.equals(r, other.r) &&
+                Objects.equals(s, other.s);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(r, s);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{\n"
+                + "  r =" + HEX.toPrettyHex(r) + "\n"
+                + ", s =" + HEX.toPrettyHex(s) + "\n"
+                + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.p;
+import static mandioca.bitcoin.function.BigIntegerFunctions.HEX_RADIX;
+
+/**
+ * The secp256k1 GLV endomorphism  phi(x, y) = (beta * x, y) = lambda * (x, y), where beta and lambda are
+ * non-trivial cube roots of unity mod p and mod N.
+ * <p>
+ * Any scalar k can be split into k1 + k2 * lambda (mod N), with k1 and k2 at most 128 bits long, so kP can be
+ * computed as k1 * P + k2 * phi(P) with a chain of 128 instead of 256 doublings.
+ * <p>
+ * See Gallant, Lambert, Vanstone, "Faster Point Multiplication on Elliptic Curves with Efficient Endomorphisms",
+ * and Guide to Elliptic Curve Cryptography, Algorithm 3.74.  Constants are the ones used by libsecp256k1.
+ */
+final class Secp256k1Endomorphism {
+
+    static final BigInteger BETA = new BigInteger("7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", HEX_RADIX);
+    static final BigInteger LAMBDA = new BigInteger("5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72", HEX_RADIX);
+
+    private static final Secp256k1FieldElement BETA_ELEMENT = new Secp256k1FieldElement(BETA);
+
+    // Short basis vectors (a1, b1), (a2, b2) of the lattice {(x, y) : x + y * lambda = 0 mod N}
+    private static final BigInteger A1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", HEX_RADIX);
+    private static final BigInteger B1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", HEX_RADIX);
+    private static final BigInteger A2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", HEX_RADIX);
+    private static final BigInteger B2 = A1;
+    private static final BigInteger TWO_N = N.shiftLeft(1);
+
+    private Secp256k1Endomorphism() {
+    }
+
+    /**
+     * Splits k into {k1, k2} such that k = k1 + k2 * lambda (mod N).  Either half may be negative, and neither is
+     * longer than 128 bits.
+     *
+     * @param k scalar in the range 0 to N-1
+     * @return BigInteger[] {k1, k2}
+     */
+    static BigInteger[] split(BigInteger k) {
+        BigInteger c1 = roundedDivideByN(B2.multiply(k));            // c1 = round(b2 * k / N)
+        BigInteger c2 = roundedDivideByN(B1.negate().multiply(k));   // c2 = round(-b1 * k / N)
+        BigInteger k1 = k.subtract(c1.multiply(A1)).subtract(c2.multiply(A2));  // k1 = k - c1*a1 - c2*a2
+        BigInteger k2 = c1.multiply(B1).add(c2.multiply(B2)).negate();           // k2 = -c1*b1 - c2*b2
+        return new BigInteger[]{k1, k2};
+    }
+
+    /**
+     * Returns beta * x mod p, the x coordinate of phi(P) for an affine or Jacobian x coordinate of P.
+     */
+    static BigInteger mapX(BigInteger x) {
+        return x.multiply(BETA).mod(p);
+    }
+
+    /**
+     * Returns a new field element beta * x.
+     */
+    static Secp256k1FieldElement mapX(Secp256k1FieldElement x) {
+        return new Secp256k1FieldElement().setMul(x, BETA_ELEMENT, new int[Secp256k1FieldElement.PRODUCT_LIMBS]);
+    }
+
+    // Returns round(n / N) for non-negative n.
+    private static BigInteger roundedDivideByN(BigInteger n) {
+        return n.shiftLeft(1).add(N).divide(TWO_N);
+    }
+}
@@ -0,0 +1,439 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.p;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+
+/**
+ * An element of the secp256k1 prime field, p = 2^256 - 2^32 - 977, held in eight 32-bit limbs instead of a
+ * {@link BigInteger}.
+ * <p>
+ * Limbs are little-endian (limb 0 holds the least significant 32 bits), and always hold the fully reduced value
+ * 0 &lt;= n &lt; p.  Products are reduced with 2^256 = 2^32 + 977 (mod p), so no division is needed, and
+ * reductions use masks instead of branches on the value.
+ * <p>
+ * The {@link Field} methods are immutable and return new elements, like {@link FieldElement}.  The package private
+ * set* methods overwrite this element in place and allocate nothing;  the ones that multiply take a 16 limb scratch
+ * array for the 512-bit product.  They are meant for the point arithmetic in this package, which owns its elements
+ * and scratch space.
+ */
+public final class Secp256k1FieldElement implements Field {
+
+    static final int LIMBS = 8;
+    static final int PRODUCT_LIMBS = 2 * LIMBS;
+
+    private static final long M = 0xFFFFFFFFL;
+    private static final int C0 = 977;  // 2^256 - p = 2^32 + 977:  limb 0 = 977, limb 1 = 1
+
+    // Shared constants, never the target of an in-place operation:  points take fresh elements of their own.
+    static final Secp256k1FieldElement ZERO = new Secp256k1FieldElement();
+    static final Secp256k1FieldElement ONE = new Secp256k1FieldElement().setInt(1);
+
+    final int[] n;
+
+    Secp256k1FieldElement() {
+        this.n = new int[LIMBS];
+    }
+
+    public Secp256k1FieldElement(BigInteger number) {
+        if (number.signum() < 0 || number.compareTo(p) >= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Number %s not in secp256k1 field range 0 to p-1", number.toString(16)));
+        }
+        this.n = new int[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            n[i] = number.shiftRight(i << 5).intValue();
+        }
+    }
+
+    /**
+     * Returns the field element encoded in 32 big-endian bytes at the given offset, or throws an
+     * IllegalArgumentException if the encoded number is not less than p.
+     *
+     * @param bytes  source array
+     * @param offset index of the most significant byte
+     * @return Secp256k1FieldElement
+     */
+    public static Secp256k1FieldElement fromBytes(byte[] bytes, int offset) {
+        Secp256k1FieldElement element = new Secp256k1FieldElement();
+        if (!element.setBytes(bytes, offset)) {
+            throw new IllegalArgumentException("Number not in secp256k1 field range 0 to p-1");
+        }
+        return element;
+    }
+
+    // Field API
+
+    @Override
+    public BigInteger getNumber() {
+        byte[] bytes = new byte[32];
+        toBytes(bytes, 0);
+        return new BigInteger(1, bytes);
+    }
+
+    @Override
+    public BigInteger getPrime() {
+        return p;
+    }
+
+    @Override
+    public Field add(Field other) {
+        return new Secp256k1FieldElement().setAdd(this, operand(other, "add"));
+    }
+
+    @Override
+    public Field subtract(Field other) {
+        return new Secp256k1FieldElement().setSub(this, operand(other, "subtract"));
+    }
+
+    @Override
+    public Field multiply(Field other) {
+        return new Secp256k1FieldElement().setMul(this, operand(other, "multiply"), new int[PRODUCT_LIMBS]);
+    }
+
+    @Override
+    public Field divide(Field other) {
+        Secp256k1FieldElement divisor = operand(other, "divide");
+        int[] tt = new int[PRODUCT_LIMBS];
+        return new Secp256k1FieldElement().setInverse(divisor, tt).setMul(this, tt);
+    }
+
+    @Override
+    public Field power(BigInteger exponent) {
+        // As in FieldElement, reduce the exponent into the 0 to p-2 range:  n^(p-1) mod p = 1 (Fermat)
+        BigInteger e = exponent.mod(p.subtract(BigInteger.ONE));
+        int[] tt = new int[PRODUCT_LIMBS];
+        Secp256k1FieldElement result = new Secp256k1FieldElement().setInt(1);
+        for (int i = e.bitLength() - 1; i >= 0; i--) {
+            result.setSquare(result, tt);
+            if (e.testBit(i)) {
+                result.setMul(result, this, tt);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns this^((p+1)/4), which is a square root of this element if it has one.
+     */
+    @Override
+    public Field sqrt() {
+        return new Secp256k1FieldElement().setSqrt(this, new int[PRODUCT_LIMBS]);
+    }
+
+    @Override
+    public boolean notEquals(Field o) {
+        return !equals(o);
+    }
+
+    // In-place API, for use by the point arithmetic in this package
+
+    Secp256k1FieldElement set(Secp256k1FieldElement a) {
+        System.arraycopy(a.n, 0, n, 0, LIMBS);
+        return this;
+    }
+
+    /**
+     * Sets this element to a if flag is 1, and leaves it unchanged if flag is 0, without branching on flag.
+     */
+    Secp256k1FieldElement cmov(Secp256k1FieldElement a, int flag) {
+        int mask = -flag;
+        for (int i = 0; i < LIMBS; i++) {
+            n[i] ^= mask & (n[i] ^ a.n[i]);
+        }
+        return this;
+    }
+
+    Secp256k1FieldElement setInt(int value) {
+        Arrays.fill(n, 0);
+        n[0] = value;
+        return this;
+    }
+
+    /**
+     * Sets this element to the number encoded in 32 big-endian bytes at the given offset.
+     *
+     * @return false (leaving this element's value undefined) if the number is not less than p
+     */
+    boolean setBytes(byte[] bytes, int offset) {
+        for (int i = 0; i < LIMBS; i++) {
+            int b = offset + 28 - (i << 2);
+            n[i] = (bytes[b] & 0xFF) << 24 | (bytes[b + 1] & 0xFF) << 16 | (bytes[b + 2] & 0xFF) << 8 | (bytes[b + 3] & 0xFF);
+        }
+        return carryAddC(n) == 0;
+    }
+
+    /**
+     * Writes this element as 32 big-endian bytes at the given offset.
+     */
+    void toBytes(byte[] bytes, int offset) {
+        for (int i = 0; i < LIMBS; i++) {
+            int b = offset + 28 - (i << 2);
+            bytes[b] = (byte) (n[i] >>> 24);
+            bytes[b + 1] = (byte) (n[i] >>> 16);
+            bytes[b + 2] = (byte) (n[i] >>> 8);
+            bytes[b + 3] = (byte) n[i];
+        }
+    }
+
+    boolean isZero() {
+        int bits = 0;
+        for (int limb : n) {
+            bits |= limb;
+        }
+        return bits == 0;
+    }
+
+    boolean isOdd() {
+        return (n[0] & 1) == 1;
+    }
+
+    boolean equalsValue(Secp256k1FieldElement other) {
+        int diff = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            diff |= n[i] ^ other.n[i];
+        }
+        return diff == 0;
+    }
+
+    Secp256k1FieldElement setAdd(Secp256k1FieldElement a, Secp256k1FieldElement b) {
+        long c = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            c += (a.n[i] & M) + (b.n[i] & M);
+            n[i] = (int) c;
+            c >>>= 32;
+        }
+        reduceOnce(n, (int) c);
+        return this;
+    }
+
+    Secp256k1FieldElement setSub(Secp256k1FieldElement a, Secp256k1FieldElement b) {
+        long c = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            c += (a.n[i] & M) - (b.n[i] & M);
+            n[i] = (int) c;
+            c >>= 32;  // 0, or -1 on borrow
+        }
+        // On borrow the limbs hold a - b + 2^256;  adding p is subtracting 2^256 - p = 2^32 + 977
+        int mask = (int) c;
+        c = (n[0] & M) - (C0 & mask);
+        n[0] = (int) c;
+        c = (c >> 32) + (n[1] & M) - (1 & mask);
+        n[1] = (int) c;
+        c >>= 32;
+        for (int i = 2; i < LIMBS; i++) {
+            c += n[i] & M;
+            n[i] = (int) c;
+            c >>= 32;
+        }
+        return this;
+    }
+
+    Secp256k1FieldElement setNegate(Secp256k1FieldElement a) {
+        return setSub(ZERO, a);
+    }
+
+    /**
+     * Sets this element to a * small, for a small non-negative multiplier (at most 2^20).
+     */
+    Secp256k1FieldElement setMulInt(Secp256k1FieldElement a, int small) {
+        long c = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            c += (a.n[i] & M) * small;
+            n[i] = (int) c;
+            c >>>= 32;
+        }
+        reduceHigh(n, c);
+        return this;
+    }
+
+    Secp256k1FieldElement setMul(Secp256k1FieldElement a, Secp256k1FieldElement b, int[] tt) {
+        multiply(a.n, b.n, tt);
+        reduce(tt, n);
+        return this;
+    }
+
+    Secp256k1FieldElement setMul(Secp256k1FieldElement a, int[] tt) {
+        return setMul(this, a, tt);
+    }
+
+    Secp256k1FieldElement setSquare(Secp256k1FieldElement a, int[] tt) {
+        multiply(a.n, a.n, tt);
+        reduce(tt, n);
+        return this;
+    }
+
+    /**
+     * Sets this element to a^(p-2) = 1/a, or to 0 if a = 0, using the addition chain from libsecp256k1:  the
+     * binary representation of p-2 has blocks of ones of lengths 1, 2, 22 and 223.
+     */
+    Secp256k1FieldElement setInverse(Secp256k1FieldElement a, int[] tt) {
+        Secp256k1FieldElement x2 = new Secp256k1FieldElement();
+        Secp256k1FieldElement x22 = new Secp256k1FieldElement();
+        Secp256k1FieldElement t = powerBlocks(a, x2, x22, tt);    // t = a^(2^223 - 1)
+        t.setSquareTimes(t, 23, tt).setMul(x22, tt);
+        t.setSquareTimes(t, 5, tt).setMul(a, tt);
+        t.setSquareTimes(t, 3, tt).setMul(x2, tt);
+        t.setSquareTimes(t, 2, tt);
+        return setMul(t, a, tt);
+    }
+
+    /**
+     * Sets this element to a^((p+1)/4), a square root of a if a is a quadratic residue.  (p+1)/4 has blocks of ones
+     * of lengths 2, 22 and 223.
+     */
+    Secp256k1FieldElement setSqrt(Secp256k1FieldElement a, int[] tt) {
+        Secp256k1FieldElement x2 = new Secp256k1FieldElement();
+        Secp256k1FieldElement x22 = new Secp256k1FieldElement();
+        Secp256k1FieldElement t = powerBlocks(a, x2, x22, tt);    // t = a^(2^223 - 1)
+        t.setSquareTimes(t, 23, tt).setMul(x22, tt);
+        t.setSquareTimes(t, 6, tt).setMul(x2, tt);
+        return setSquareTimes(t, 2, tt);
+    }
+
+    private Secp256k1FieldElement setSquareTimes(Secp256k1FieldElement a, int times, int[] tt) {
+        set(a);
+        for (int i = 0; i < times; i++) {
+            setSquare(this, tt);
+        }
+        return this;
+    }
+
+    // Returns a^(2^223 - 1), leaving a^(2^2 - 1) in x2 and a^(2^22 - 1) in x22.
+    private static Secp256k1FieldElement powerBlocks(Secp256k1FieldElement a,
+                                                     Secp256k1FieldElement x2,
+                                                     Secp256k1FieldElement x22,
+                                                     int[] tt) {
+        Secp256k1FieldElement x3 = new Secp256k1FieldElement();
+        Secp256k1FieldElement x11 = new Secp256k1FieldElement();
+        Secp256k1FieldElement x44 = new Secp256k1FieldElement();
+        Secp256k1FieldElement t = new Secp256k1FieldElement();
+        x2.setSquare(a, tt).setMul(a, tt);
+        x3.setSquare(x2, tt).setMul(a, tt);
+        t.setSquareTimes(x3, 3, tt).setMul(x3, tt);             // x6
+        t.setSquareTimes(t, 3, tt).setMul(x3, tt);              // x9
+        x11.setSquareTimes(t, 2, tt).setMul(x2, tt);
+        x22.setSquareTimes(x11, 11, tt).setMul(x11, tt);
+        x44.setSquareTimes(x22, 22, tt).setMul(x22, tt);
+        t.setSquareTimes(x44, 44, tt).setMul(x44, tt);          // x88
+        Secp256k1FieldElement x88 = new Secp256k1FieldElement().set(t);
+        t.setSquareTimes(t, 88, tt).setMul(x88, tt);            // x176
+        t.setSquareTimes(t, 44, tt).setMul(x44, tt);            // x220
+        return t.setSquareTimes(t, 3, tt).setMul(x3, tt);       // x223
+    }
+
+    // Limb kernels
+
+    /**
+     * Writes the 512-bit product a * b into the 16 limbs of tt.
+     */
+    static void multiply(int[] a, int[] b, int[] tt) {
+        Arrays.fill(tt, 0, LIMBS, 0);
+        for (int i = 0; i < LIMBS; i++) {
+            long ai = a[i] & M;
+            long c = 0;
+            for (int j = 0; j < LIMBS; j++) {
+                c += ai * (b[j] & M) + (tt[i + j] & M);  // at most 2^64 - 1, as an unsigned long
+                tt[i + j] = (int) c;
+                c >>>= 32;
+            }
+            tt[i + LIMBS] = (int) c;
+        }
+    }
+
+    /**
+     * Reduces the 512-bit number L + H * 2^256 in tt to r = L + H * (2^32 + 977) mod p.
+     */
+    static void reduce(int[] tt, int[] r) {
+        long c = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            c += (tt[i] & M) + (tt[i + LIMBS] & M) * C0;
+            if (i > 0) {
+                c += tt[i + LIMBS - 1] & M;
+            }
+            r[i] = (int) c;
+            c >>>= 32;
+        }
+        reduceHigh(r, c + (tt[2 * LIMBS - 1] & M));
+    }
+
+    // Folds r + high * 2^256, for high < 2^40, into r mod p.
+    private static void reduceHigh(int[] r, long high) {
+        long c = (r[0] & M) + high * C0;
+        r[0] = (int) c;
+        c = (c >>> 32) + (r[1] & M) + high;
+        r[1] = (int) c;
+        c >>>= 32;
+        for (int i = 2; i < LIMBS; i++) {
+            c += r[i] & M;
+            r[i] = (int) c;
+            c >>>= 32;
+        }
+        reduceOnce(r, (int) c);
+    }
+
+    // Subtracts p once from r + carry * 2^256 if that number is at least p, which leaves it in the range 0 to p-1.
+    private static void reduceOnce(int[] r, int carry) {
+        int mask = -(carry | carryAddC(r));
+        long c = (r[0] & M) + (C0 & mask);
+        r[0] = (int) c;
+        c = (c >>> 32) + (r[1] & M) + (1 & mask);
+        r[1] = (int) c;
+        c >>>= 32;
+        for (int i = 2; i < LIMBS; i++) {
+            c += r[i] & M;
+            r[i] = (int) c;
+            c >>>= 32;
+        }
+    }
+
+    // Returns 1 if r + (2^256 - p) overflows 256 bits, that is, if r >= p, else 0.
+    private static int carryAddC(int[] r) {
+        long c = ((r[0] & M) + C0) >>> 32;
+        c = ((r[1] & M) + 1 + c) >>> 32;
+        for (int i = 2; i < LIMBS; i++) {
+            c = ((r[i] & M) + c) >>> 32;
+        }
+        return (int) c;
+    }
+
+    private Secp256k1FieldElement operand(Field other, String operation) {
+        if (other == null) {
+            throw new NullPointerException("Cannot operate on null FieldElement");
+        }
+        if (other instanceof Secp256k1FieldElement) {
+            return (Secp256k1FieldElement) other;
+        }
+        if (!p.equals(other.getPrime())) {
+            throw new IllegalArgumentException("Cannot " + operation + " two numbers in different finite fields");
+        }
+        return new Secp256k1FieldElement(other.getNumber());
+    }
+
+    @Override
+    public Secp256k1FieldElement clone() {
+        return new Secp256k1FieldElement().set(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return equalsValue((Secp256k1FieldElement) o);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(n);
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{"
+                + "\n\t  number = " + HEX.toPrettyHex(getNumber())
+                + "\n\t, prime  = " + HEX.toPrettyHex(p)
+                + "\n  }";
+    }
+}
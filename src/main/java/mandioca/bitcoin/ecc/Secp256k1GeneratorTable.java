@@ -0,0 +1,141 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.Secp256k1Point.G;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+
+/**
+ * Immutable table of precomputed multiples of the generator point G, used for fixed-base scalar multiplication.
+ * <p>
+ * A 256-bit scalar k is split into 64 4-bit windows, k = sum(k_i * 16^i), and the table holds the affine points
+ * j * 16^i * G for every window i and window value j in 1..15.  Computing kG is then a sum of at most 64 table
+ * entries:  no doublings, and each addition is a cheap mixed (Jacobian + affine) addition.
+ * <p>
+ * The table is built lazily, the first time a generator multiplication is requested.  A second, smaller table of
+ * the odd multiples G, 3G, ... 127G (and their images under the endomorphism) serves the wNAF based
+ * {@link Secp256k1Wnaf} multiplications used by signature verification.
+ */
+final class Secp256k1GeneratorTable {
+
+    static final int WINDOW_BITS = 4;
+    static final int WINDOW_SIZE = 1 << WINDOW_BITS;                  // 16 values per window
+    static final int NUM_WINDOWS = (256 + WINDOW_BITS - 1) / WINDOW_BITS;  // 64 windows per 256-bit scalar
+
+    private final Secp256k1FieldElement[][] x;
+    private final Secp256k1FieldElement[][] y;
+
+    private Secp256k1GeneratorTable() {
+        this.x = new Secp256k1FieldElement[NUM_WINDOWS][WINDOW_SIZE];
+        this.y = new Secp256k1FieldElement[NUM_WINDOWS][WINDOW_SIZE];
+        // Build all the multiples in Jacobian coordinates, then convert them with one batch inversion.
+        Secp256k1JacobianPoint[] multiples = new Secp256k1JacobianPoint[NUM_WINDOWS * (WINDOW_SIZE - 1)];
+        Secp256k1JacobianPoint base = Secp256k1JacobianPoint.fromAffine(G);  // 16^i * G
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            Secp256k1JacobianPoint multiple = base;
+            for (int j = 1; j < WINDOW_SIZE; j++) {
+                multiples[index(i, j)] = multiple;
+                multiple = multiple.add(base);
+            }
+            base = multiple;  // 16 * 16^i * G = 16^(i+1) * G
+        }
+        Secp256k1FieldElement[][] affine = Secp256k1JacobianPoint.affineCoordinates(multiples);
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            for (int j = 1; j < WINDOW_SIZE; j++) {
+                x[i][j] = affine[0][index(i, j)];
+                y[i][j] = affine[1][index(i, j)];
+            }
+        }
+    }
+
+    private static int index(int window, int value) {
+        return window * (WINDOW_SIZE - 1) + value - 1;
+    }
+
+    /**
+     * Lazy, thread-safe initialization of the singleton table (initialization-on-demand holder idiom).
+     */
+    private static final class Holder {
+        private static final Secp256k1GeneratorTable TABLE = new Secp256k1GeneratorTable();
+    }
+
+    static Secp256k1GeneratorTable getInstance() {
+        return Holder.TABLE;
+    }
+
+    /**
+     * Lazily computed affine odd multiples of G, for wNAF digits of width {@link Secp256k1Wnaf#GENERATOR_WINDOW}.
+     */
+    private static final class OddMultiplesHolder {
+        private static final Secp256k1FieldElement[][] ODD_MULTIPLES = Secp256k1JacobianPoint.affineCoordinates(
+                Secp256k1Wnaf.oddMultiples(Secp256k1JacobianPoint.fromAffine(G), Secp256k1Wnaf.GENERATOR_WINDOW));
+        private static final Secp256k1FieldElement[][] ODD_MULTIPLES_ENDOMORPHISM = new Secp256k1FieldElement[2][ODD_MULTIPLES[0].length];
+
+        static {
+            for (int i = 0; i < ODD_MULTIPLES[0].length; i++) {
+                ODD_MULTIPLES_ENDOMORPHISM[0][i] = Secp256k1Endomorphism.mapX(ODD_MULTIPLES[0][i]);
+                ODD_MULTIPLES_ENDOMORPHISM[1][i] = ODD_MULTIPLES[1][i];
+            }
+        }
+    }
+
+    /**
+     * Returns the affine odd multiples of G as {x[], y[]}, where index i holds (2i + 1)G.
+     */
+    static Secp256k1FieldElement[][] oddMultiples() {
+        return OddMultiplesHolder.ODD_MULTIPLES;
+    }
+
+    /**
+     * Returns the images of the affine odd multiples of G under the endomorphism, phi((2i + 1)G) at index i.
+     */
+    static Secp256k1FieldElement[][] oddMultiplesEndomorphism() {
+        return OddMultiplesHolder.ODD_MULTIPLES_ENDOMORPHISM;
+    }
+
+    /**
+     * Returns kG in Jacobian coordinates.
+     *
+     * @param k scalar
+     * @return Secp256k1JacobianPoint
+     */
+    static Secp256k1JacobianPoint multiply(BigInteger k) {
+        return getInstance().multiplyG(k.mod(N));
+    }
+
+    private Secp256k1JacobianPoint multiplyG(BigInteger k) {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint result = Secp256k1JacobianPoint.newInfinity();
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            int window = window(k, i);
+            if (window != 0) {
+                result.setAddAffine(x[i][window], y[i][window], ws);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets (qx, qy) to the table entry value * 16^window * G in constant time:  every entry of the window is read,
+     * and the wanted one is selected with a mask.  Value 0 has no entry, and yields the entry for 1.
+     */
+    void lookup(int window, int value, Secp256k1FieldElement qx, Secp256k1FieldElement qy) {
+        qx.set(x[window][1]);
+        qy.set(y[window][1]);
+        for (int j = 2; j < WINDOW_SIZE; j++) {
+            int equal = ((j ^ value) - 1) >>> 31;
+            qx.cmov(x[window][j], equal);
+            qy.cmov(y[window][j], equal);
+        }
+    }
+
+    // Returns the value of the i'th 4-bit window of k, counting from the least significant bits.
+    private static int window(BigInteger k, int i) {
+        int bit = i * WINDOW_BITS;
+        int window = 0;
+        for (int b = WINDOW_BITS - 1; b >= 0; b--) {
+            window = (window << 1) | (k.testBit(bit + b) ? 1 : 0);
+        }
+        return window;
+    }
+}
@@ -0,0 +1,357 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.Secp256k1FieldElement.PRODUCT_LIMBS;
+
+/**
+ * A secp256k1 point in Jacobian projective coordinates (X, Y, Z), representing the affine point (X/Z^2, Y/Z^3).
+ * <p>
+ * Point addition and doubling in Jacobian coordinates need no modular inversion, and intermediate results are not
+ * checked against the curve equation, so a scalar multiplication costs a single inversion when the result is
+ * converted back to an affine {@link Secp256k1Point}.  Coordinates are {@link Secp256k1FieldElement}s.
+ * <p>
+ * The plain operations (add, twice, ...) never modify their operands, and return new points with coordinates of
+ * their own, never an operand or a shared constant, so a caller may go on to modify a result in place.  The set*
+ * operations modify a point in place, with temporaries from a {@link Secp256k1Workspace}, and allocate nothing;
+ * scalar multiplication loops run on one mutable accumulator made by {@link #newInfinity()}.
+ * <p>
+ * Formulas for a = 0 curves from https://hyperelliptic.org/EFD/g1p/auto-shortw-jacobian-0.html
+ * (dbl-2009-l, add-2007-bl, madd-2007-bl).
+ */
+final class Secp256k1JacobianPoint {
+
+    private final Secp256k1FieldElement x;
+    private final Secp256k1FieldElement y;
+    private final Secp256k1FieldElement z;
+
+    Secp256k1JacobianPoint(Secp256k1FieldElement x, Secp256k1FieldElement y, Secp256k1FieldElement z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    static Secp256k1JacobianPoint fromAffine(Secp256k1Point point) {
+        if (point.getX() == null) {
+            return newInfinity();
+        }
+        return new Secp256k1JacobianPoint(new Secp256k1FieldElement(point.getX().getNumber()),
+                new Secp256k1FieldElement(point.getY().getNumber()),
+                new Secp256k1FieldElement().setInt(1));
+    }
+
+    /**
+     * Returns a new, mutable point at infinity, represented by Z = 0.
+     */
+    static Secp256k1JacobianPoint newInfinity() {
+        return new Secp256k1JacobianPoint(new Secp256k1FieldElement().setInt(1),
+                new Secp256k1FieldElement().setInt(1),
+                new Secp256k1FieldElement());
+    }
+
+    /**
+     * Returns a mutable copy of this point.
+     */
+    Secp256k1JacobianPoint copy() {
+        return new Secp256k1JacobianPoint(new Secp256k1FieldElement().set(x),
+                new Secp256k1FieldElement().set(y),
+                new Secp256k1FieldElement().set(z));
+    }
+
+    boolean isInfinity() {
+        return z.isZero();
+    }
+
+    Secp256k1JacobianPoint negate() {
+        if (isInfinity()) {
+            return newInfinity();
+        }
+        return new Secp256k1JacobianPoint(new Secp256k1FieldElement().set(x),
+                new Secp256k1FieldElement().setNegate(y),
+                new Secp256k1FieldElement().set(z));
+    }
+
+    /**
+     * Returns phi(P) = (beta * X, Y, Z), the image of P under the secp256k1 endomorphism.
+     */
+    Secp256k1JacobianPoint endomorphism() {
+        if (isInfinity()) {
+            return newInfinity();
+        }
+        return new Secp256k1JacobianPoint(Secp256k1Endomorphism.mapX(x),
+                new Secp256k1FieldElement().set(y),
+                new Secp256k1FieldElement().set(z));
+    }
+
+    /**
+     * Returns 2P.
+     */
+    Secp256k1JacobianPoint twice() {
+        return isInfinity() ? newInfinity() : copy().setTwice(Secp256k1Workspace.get());
+    }
+
+    /**
+     * Returns P + Q, where Q is given in Jacobian coordinates.
+     */
+    Secp256k1JacobianPoint add(Secp256k1JacobianPoint other) {
+        if (isInfinity()) {
+            return other.copy();
+        }
+        if (other.isInfinity()) {
+            return copy();
+        }
+        return copy().setAdd(other, Secp256k1Workspace.get());
+    }
+
+    /**
+     * Returns P + Q, where Q is the affine point (qx, qy).
+     */
+    Secp256k1JacobianPoint addAffine(Secp256k1FieldElement qx, Secp256k1FieldElement qy) {
+        if (isInfinity()) {
+            return new Secp256k1JacobianPoint(new Secp256k1FieldElement().set(qx),
+                    new Secp256k1FieldElement().set(qy),
+                    new Secp256k1FieldElement().setInt(1));
+        }
+        return copy().setAddAffine(qx, qy, Secp256k1Workspace.get());
+    }
+
+    /**
+     * Returns P - Q, where Q is the affine point (qx, qy).
+     */
+    Secp256k1JacobianPoint subtractAffine(Secp256k1FieldElement qx, Secp256k1FieldElement qy) {
+        return addAffine(qx, new Secp256k1FieldElement().setNegate(qy));
+    }
+
+    // In-place operations:  every point owns its coordinates, so these modify no other point.
+
+    Secp256k1JacobianPoint set(Secp256k1JacobianPoint other) {
+        x.set(other.x);
+        y.set(other.y);
+        z.set(other.z);
+        return this;
+    }
+
+    Secp256k1JacobianPoint setInfinity() {
+        x.setInt(1);
+        y.setInt(1);
+        z.setInt(0);
+        return this;
+    }
+
+    /**
+     * Sets this point to 2P, where P is this point  (dbl-2009-l).
+     */
+    Secp256k1JacobianPoint setTwice(Secp256k1Workspace ws) {
+        if (isInfinity() || y.isZero()) {
+            return setInfinity();
+        }
+        int[] tt = ws.tt;
+        Secp256k1FieldElement a = ws.t0.setSquare(x, tt);                   // A = X1^2
+        Secp256k1FieldElement b = ws.t1.setSquare(y, tt);                   // B = Y1^2
+        Secp256k1FieldElement c = ws.t2.setSquare(b, tt);                   // C = B^2
+        Secp256k1FieldElement d = ws.t3.setAdd(x, b);
+        d.setSquare(d, tt).setSub(d, a).setSub(d, c).setAdd(d, d);          // D = 2*((X1+B)^2-A-C)
+        Secp256k1FieldElement e = a.setMulInt(a, 3);                        // E = 3*A
+        Secp256k1FieldElement f = ws.t4.setSquare(e, tt);                   // F = E^2
+        z.setMul(y, tt);
+        z.setAdd(z, z);                                                     // Z3 = 2*Y1*Z1
+        x.setAdd(d, d);
+        x.setSub(f, x);                                                     // X3 = F-2*D
+        y.setSub(d, x);
+        y.setMul(e, tt).setSub(y, c.setMulInt(c, 8));                       // Y3 = E*(D-X3)-8*C
+        return this;
+    }
+
+    /**
+     * Sets this point to P + Q, where P is this point and Q is given in Jacobian coordinates  (add-2007-bl).
+     */
+    Secp256k1JacobianPoint setAdd(Secp256k1JacobianPoint other, Secp256k1Workspace ws) {
+        return setAdd(other.x, other.y, other.z, ws);
+    }
+
+    /**
+     * Sets this point to P - Q, where P is this point and Q is given in Jacobian coordinates.
+     */
+    Secp256k1JacobianPoint setSubtract(Secp256k1JacobianPoint other, Secp256k1Workspace ws) {
+        return setAdd(other.x, ws.negatedY.setNegate(other.y), other.z, ws);
+    }
+
+    private Secp256k1JacobianPoint setAdd(Secp256k1FieldElement x2,
+                                          Secp256k1FieldElement y2,
+                                          Secp256k1FieldElement z2,
+                                          Secp256k1Workspace ws) {
+        if (z2.isZero()) {
+            return this;
+        }
+        if (isInfinity()) {
+            x.set(x2);
+            y.set(y2);
+            z.set(z2);
+            return this;
+        }
+        int[] tt = ws.tt;
+        Secp256k1FieldElement z1z1 = ws.t0.setSquare(z, tt);                // Z1Z1 = Z1^2
+        Secp256k1FieldElement z2z2 = ws.t1.setSquare(z2, tt);               // Z2Z2 = Z2^2
+        Secp256k1FieldElement u1 = ws.t2.setMul(x, z2z2, tt);               // U1 = X1*Z2Z2
+        Secp256k1FieldElement u2 = ws.t3.setMul(x2, z1z1, tt);              // U2 = X2*Z1Z1
+        Secp256k1FieldElement s1 = ws.t4.setMul(y, z2, tt);
+        s1.setMul(z2z2, tt);                                                // S1 = Y1*Z2*Z2Z2
+        Secp256k1FieldElement s2 = ws.t5.setMul(y2, z, tt);
+        s2.setMul(z1z1, tt);                                                // S2 = Y2*Z1*Z1Z1
+        Secp256k1FieldElement h = u2.setSub(u2, u1);                        // H = U2-U1
+        Secp256k1FieldElement r = s2.setSub(s2, s1);                        // r = S2-S1
+        if (h.isZero()) {
+            return r.isZero() ? setTwice(ws) : setInfinity();  // P == Q, or P == -Q
+        }
+        z.setMul(z2, tt).setMul(h, tt);                                     // Z3 = Z1*Z2*H
+        return setTail(u1, s1, h, r, ws);
+    }
+
+    /**
+     * Sets this point to P + Q, where P is this point and Q is the affine point (qx, qy)  (madd-2007-bl, Z2 = 1).
+     */
+    Secp256k1JacobianPoint setAddAffine(Secp256k1FieldElement qx, Secp256k1FieldElement qy, Secp256k1Workspace ws) {
+        if (isInfinity()) {
+            x.set(qx);
+            y.set(qy);
+            z.setInt(1);
+            return this;
+        }
+        int[] tt = ws.tt;
+        Secp256k1FieldElement z1z1 = ws.t0.setSquare(z, tt);                // Z1Z1 = Z1^2
+        Secp256k1FieldElement u2 = ws.t1.setMul(qx, z1z1, tt);              // U2 = X2*Z1Z1
+        Secp256k1FieldElement s2 = ws.t2.setMul(qy, z, tt);
+        s2.setMul(z1z1, tt);                                                // S2 = Y2*Z1*Z1Z1
+        Secp256k1FieldElement h = u2.setSub(u2, x);                         // H = U2-X1
+        Secp256k1FieldElement r = s2.setSub(s2, y);                         // r = S2-Y1
+        if (h.isZero()) {
+            return r.isZero() ? setTwice(ws) : setInfinity();  // P == Q, or P == -Q
+        }
+        z.setMul(h, tt);                                                    // Z3 = Z1*H
+        return setTail(x, ws.t3.set(y), h, r, ws);                          // U1 = X1, S1 = Y1
+    }
+
+    /**
+     * Sets this point to P - Q, where P is this point and Q is the affine point (qx, qy).
+     */
+    Secp256k1JacobianPoint setSubtractAffine(Secp256k1FieldElement qx, Secp256k1FieldElement qy, Secp256k1Workspace ws) {
+        return setAddAffine(qx, ws.negatedY.setNegate(qy), ws);
+    }
+
+    // The steps shared by add-2007-bl and madd-2007-bl once U1, S1, H, r and Z3 are known;  overwrites h and s1.
+    // U1 may be this point's X, which is read before it is overwritten;  S1 must not be this point's Y.
+    private Secp256k1JacobianPoint setTail(Secp256k1FieldElement u1,
+                                           Secp256k1FieldElement s1,
+                                           Secp256k1FieldElement h,
+                                           Secp256k1FieldElement r,
+                                           Secp256k1Workspace ws) {
+        int[] tt = ws.tt;
+        Secp256k1FieldElement hh = ws.t6.setSquare(h, tt);                  // HH = H^2
+        Secp256k1FieldElement hhh = h.setMul(hh, tt);                       // HHH = H*HH
+        Secp256k1FieldElement v = hh.setMul(u1, tt);                        // V = U1*HH
+        x.setSquare(r, tt);
+        x.setSub(x, hhh).setSub(x, v).setSub(x, v);                         // X3 = r^2-HHH-2*V
+        y.setSub(v, x);
+        y.setMul(r, tt).setSub(y, s1.setMul(hhh, tt));                      // Y3 = r*(V-X3)-S1*HHH
+        return this;
+    }
+
+    /**
+     * Returns kP for the affine point P, using left to right double-and-add with mixed additions.
+     */
+    static Secp256k1JacobianPoint multiply(Secp256k1Point point, BigInteger k) {
+        if (point.getX() == null || k.signum() == 0) {
+            return newInfinity();
+        }
+        Secp256k1FieldElement px = new Secp256k1FieldElement(point.getX().getNumber());
+        Secp256k1FieldElement py = new Secp256k1FieldElement(point.getY().getNumber());
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint result = newInfinity();
+        for (int i = k.bitLength() - 1; i >= 0; i--) {
+            result.setTwice(ws);
+            if (k.testBit(i)) {
+                result.setAddAffine(px, py, ws);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the affine x coordinate X/Z^2, or null if this is the point at infinity.
+     */
+    BigInteger affineX() {
+        if (isInfinity()) {
+            return null;
+        }
+        int[] tt = new int[PRODUCT_LIMBS];
+        Secp256k1FieldElement zInv2 = new Secp256k1FieldElement().setInverse(z, tt);
+        return zInv2.setSquare(zInv2, tt).setMul(x, tt).getNumber();
+    }
+
+    /**
+     * Converts this point to affine coordinates with a single modular inversion.
+     */
+    Secp256k1Point toAffine() {
+        if (isInfinity()) {
+            return Secp256k1Point.IDENTITY;
+        }
+        Secp256k1FieldElement[] affine = affineCoordinates();
+        return Secp256k1Point.newPoint.apply(affine[0].getNumber(), affine[1].getNumber());
+    }
+
+    /**
+     * Returns the affine coordinates {X/Z^2, Y/Z^3} of this point, which must not be the point at infinity.
+     */
+    Secp256k1FieldElement[] affineCoordinates() {
+        int[] tt = new int[PRODUCT_LIMBS];
+        Secp256k1FieldElement zInv = new Secp256k1FieldElement().setInverse(z, tt);
+        Secp256k1FieldElement zInv2 = new Secp256k1FieldElement().setSquare(zInv, tt);
+        Secp256k1FieldElement affineX = new Secp256k1FieldElement().setMul(x, zInv2, tt);
+        Secp256k1FieldElement affineY = zInv.setMul(zInv2, tt).setMul(y, tt);
+        return new Secp256k1FieldElement[]{affineX, affineY};
+    }
+
+    /**
+     * Returns the affine coordinates {x[], y[]} of all the given points, sharing a single batch inversion of their
+     * Z coordinates.  Points at infinity get null coordinates.
+     */
+    static Secp256k1FieldElement[][] affineCoordinates(Secp256k1JacobianPoint[] points) {
+        Secp256k1FieldElement[] zs = new Secp256k1FieldElement[points.length];
+        for (int i = 0; i < points.length; i++) {
+            zs[i] = points[i].z;
+        }
+        Secp256k1FieldElement[] zInverses = BatchInversion.invert(zs);
+        Secp256k1FieldElement[][] coordinates = new Secp256k1FieldElement[2][points.length];
+        int[] tt = new int[PRODUCT_LIMBS];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i].isInfinity()) {
+                continue;
+            }
+            Secp256k1FieldElement zInv = zInverses[i];
+            Secp256k1FieldElement zInv2 = new Secp256k1FieldElement().setSquare(zInv, tt);
+            coordinates[0][i] = new Secp256k1FieldElement().setMul(points[i].x, zInv2, tt);
+            coordinates[1][i] = zInv.setMul(zInv2, tt).setMul(points[i].y, tt);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Converts all the given points to affine coordinates, sharing a single batch inversion.
+     */
+    static Secp256k1Point[] toAffine(Secp256k1JacobianPoint[] points) {
+        Secp256k1FieldElement[][] coordinates = affineCoordinates(points);
+        Secp256k1Point[] affinePoints = new Secp256k1Point[points.length];
+        for (int i = 0; i < points.length; i++) {
+            affinePoints[i] = points[i].isInfinity()
+                    ? Secp256k1Point.IDENTITY
+                    : Secp256k1Point.newPoint.apply(coordinates[0][i].getNumber(), coordinates[1][i].getNumber());
+        }
+        return affinePoints;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{" + "x=" + x.getNumber().toString(16)
+                + ", y=" + y.getNumber().toString(16) + ", z=" + z.getNumber().toString(16) + "}";
+    }
+}
@@ -3,7 +3,6 @@ package mandioca.bitcoin.ecc;
 import mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters;
 
 import java.math.BigInteger;
-import java.util.Arrays;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -11,8 +10,6 @@ import java.util.function.Function;
 import static java.math.BigInteger.TWO;
 import static java.math.BigInteger.ZERO;
 import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.*;
-import static mandioca.bitcoin.function.BigIntegerFunctions.THREE;
-import static mandioca.bitcoin.function.BigIntegerFunctions.startEnd;
 import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
 import static mandioca.bitcoin.function.ByteArrayFunctions.concatenate;
 import static mandioca.bitcoin.function.HashFunctions.hash160;
@@ -31,53 +28,76 @@ public class Secp256k1Point extends EllipticCurvePoint implements Point {
     static final Function<BigInteger, FieldElement> newField = (n) -> new FieldElement(n, p);
     public static final BiFunction<BigInteger, BigInteger, Secp256k1Point> newPoint = (x, y)
             -> new Secp256k1Point(newField.apply(x), newField.apply(y));
-    private static final BiFunction<byte[], Integer[], BigInteger> decodeCoordinate = (sec, range)
-            -> new BigInteger(1, Arrays.copyOfRange(sec, range[0], range[1]));
+    private static final BiFunction<byte[], Integer, BigInteger> decodeCoordinate = (sec, offset)
+            -> Secp256k1FieldElement.fromBytes(sec, offset).getNumber();
     private static final Function<Byte, Boolean> isUncompressedSec = (b) -> b == UNCOMPRESSED_SEC_PREFIX[0];
     private static final Function<Byte, Boolean> isCompressedEvenSec = (b) -> b == COMPRESSED_EVEN_SEC_PREFIX[0];
     private static final Function<Field, Boolean> isYCoordinateEven = (y) -> y.getNumber().mod(TWO).compareTo(ZERO) == 0;
     private static final BiFunction<BigInteger, BigInteger, BigInteger> calcU = (z, sigInverse) -> z.multiply(sigInverse).mod(N);
     private static final BiFunction<Signature, BigInteger, BigInteger> calcV = (sig, sigInverse) -> sig.getR().multiply(sigInverse).mod(N);
-    public final Function<Boolean, byte[]> secHash160 = (compressed) -> hash160.apply(getSec(compressed)); // 20-byte hash of pubkey
-    private final Function<Point, Secp256k1Point> wrapResult = (p) -> new Secp256k1Point(p.getX(), p.getY());
+    private static volatile boolean endomorphismEnabled = true;
+    private static final Function<Point, Secp256k1Point> wrapResult = (p) ->
+            p instanceof Secp256k1Point ? (Secp256k1Point) p : new Secp256k1Point(p.getX(), p.getY());
 
     public Secp256k1Point(Field x, Field y) {
         super(x, y, FIELD_A, FIELD_B);
     }
 
     /**
-     * Returns a Point object from a SEC binary.
+     * Returns a Point object from a SEC binary.  Compressed keys are looked up in the shared {@link PublicKeyCache}
+     * before their y coordinate is recovered.
      *
      * @param sec byte[]
      * @return Secp256k1Point
      */
     public static Secp256k1Point parse(byte[] sec) {
-        return isUncompressedSec.apply(sec[0]) ? parseUncompressedSec(sec) : parseCompressedSec(sec);
+        if (isUncompressedSec.apply(sec[0])) {
+            return parseUncompressedSec(sec);
+        }
+        return sec.length == PublicKeyCache.COMPRESSED_SEC_LENGTH
+                ? PublicKeyCache.getInstance().get(sec, Secp256k1Point::parseCompressedSec)
+                : parseCompressedSec(sec);
+    }
+
+    /**
+     * Returns the point with the given 32-byte x coordinate and an even y coordinate, as BIP-340 lift_x does for
+     * x-only public keys.
+     *
+     * @param xOnly byte[32]
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point liftX(byte[] xOnly) {
+        if (xOnly.length != 32) {
+            throw new IllegalArgumentException("x-only public key must be 32 bytes, not " + xOnly.length);
+        }
+        return parse(concatenate.apply(COMPRESSED_EVEN_SEC_PREFIX, xOnly));
     }
 
     private static Secp256k1Point parseUncompressedSec(byte[] sec) {
-        BigInteger x = decodeCoordinate.apply(sec, startEnd.apply(1, 33));
-        BigInteger y = decodeCoordinate.apply(sec, startEnd.apply(33, 65));
+        BigInteger x = decodeCoordinate.apply(sec, 1);
+        BigInteger y = decodeCoordinate.apply(sec, 33);
         return newPoint.apply(x, y);
     }
 
-    private static Secp256k1Point parseCompressedSec(byte[] sec) {
-        BigInteger x = decodeCoordinate.apply(sec, startEnd.apply(1, sec.length));
-        Field alpha = newField.apply(x).power(THREE).add(FIELD_B);
-        Field beta = alpha.sqrt();
-        Field evenBeta, oddBeta;
-        if (isYCoordinateEven.apply(beta)) {
-            evenBeta = beta;
-            oddBeta = newField.apply(p.subtract(beta.getNumber()));
-        } else {
-            evenBeta = newField.apply(p.subtract(beta.getNumber()));
-            oddBeta = beta;
+    // Recovers y from y^2 = x^3 + 7 in limb arithmetic, picking the root with the parity given by the prefix.
+    static Secp256k1Point parseCompressedSec(byte[] sec) {
+        if (sec.length != PublicKeyCache.COMPRESSED_SEC_LENGTH) {
+            throw new IllegalArgumentException("Compressed SEC public key must be "
+                    + PublicKeyCache.COMPRESSED_SEC_LENGTH + " bytes, not " + sec.length);
         }
-        if (isCompressedEvenSec.apply(sec[0])) {
-            return newPoint.apply(x, evenBeta.getNumber());
-        } else {
-            return newPoint.apply(x, oddBeta.getNumber());
+        int[] tt = new int[Secp256k1FieldElement.PRODUCT_LIMBS];
+        Secp256k1FieldElement x = Secp256k1FieldElement.fromBytes(sec, 1);
+        Secp256k1FieldElement alpha = new Secp256k1FieldElement().setSquare(x, tt).setMul(x, tt);
+        alpha.setAdd(alpha, new Secp256k1FieldElement().setInt(7));           // x^3 + 7
+        Secp256k1FieldElement beta = new Secp256k1FieldElement().setSqrt(alpha, tt);
+        if (!new Secp256k1FieldElement().setSquare(beta, tt).equalsValue(alpha)) {
+            throw new IllegalArgumentException("SEC x coordinate " + x.getNumber().toString(16)
+                    + " is not on the secp256k1 curve");
+        }
+        if (beta.isOdd() == isCompressedEvenSec.apply(sec[0])) {
+            beta.setNegate(beta);
         }
+        return newPoint.apply(x.getNumber(), beta.getNumber());
     }
 
     @Override
@@ -85,18 +105,218 @@ public class Secp256k1Point extends EllipticCurvePoint implements Point {
         return wrapResult.apply(super.add(other));
     }
 
+    /**
+     * Returns kP, computed in Jacobian coordinates with a single inversion on the way back to affine coordinates.
+     * Multiples of the generator point G are computed from a precomputed table of multiples of G.  Multiples of
+     * other points are computed with the GLV endomorphism, unless it is disabled.
+     *
+     * @param coefficient k
+     * @return Secp256k1Point
+     */
     @Override
     public Secp256k1Point scalarMultiply(BigInteger coefficient) {
-        Point result = super.scalarMultiply(coefficient.mod(N));
-        return wrapResult.apply(result);
+        if (isGenerator()) {
+            return Secp256k1GeneratorTable.multiply(coefficient).toAffine();
+        }
+        if (endomorphismEnabled) {
+            return Secp256k1Wnaf.multiplyEndomorphism(coefficient, this).toAffine();
+        }
+        return Secp256k1JacobianPoint.multiply(this, coefficient.mod(N)).toAffine();
+    }
+
+    /**
+     * Returns kP, computed in the given mode.  Use {@link MultiplicationMode#CONSTANT_TIME} when k is secret.
+     *
+     * @param coefficient k
+     * @param mode        VARIABLE_TIME, the same as {@link #scalarMultiply(BigInteger)}, or CONSTANT_TIME
+     * @return Secp256k1Point
+     */
+    public Secp256k1Point scalarMultiply(BigInteger coefficient, MultiplicationMode mode) {
+        if (mode == MultiplicationMode.VARIABLE_TIME) {
+            return scalarMultiply(coefficient);
+        }
+        return isGenerator()
+                ? Secp256k1ProjectivePoint.multiplyGenerator(coefficient).toAffine()
+                : Secp256k1ProjectivePoint.multiply(this, coefficient).toAffine();
+    }
+
+    /**
+     * Returns kG, using the precomputed table of multiples of the generator point G.
+     *
+     * @param coefficient k
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point multiplyGenerator(BigInteger coefficient) {
+        return Secp256k1GeneratorTable.multiply(coefficient).toAffine();
+    }
+
+    /**
+     * Returns kG, computed in the given mode.  Use {@link MultiplicationMode#CONSTANT_TIME} when k is secret.
+     *
+     * @param coefficient k
+     * @param mode        VARIABLE_TIME or CONSTANT_TIME
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point multiplyGenerator(BigInteger coefficient, MultiplicationMode mode) {
+        return mode == MultiplicationMode.CONSTANT_TIME
+                ? Secp256k1ProjectivePoint.multiplyGenerator(coefficient).toAffine()
+                : multiplyGenerator(coefficient);
+    }
+
+    /**
+     * Returns kG + this point.  This is the BIP-32 public child key step, K_i = point(IL) + K_par;  k is not secret
+     * there, so kG is read from the generator table in variable time.
+     *
+     * @param k scalar multiplying the generator point G
+     * @return Secp256k1Point
+     */
+    public Secp256k1Point addMultipleOfGenerator(BigInteger k) {
+        return addMultiplesOfGenerator(new BigInteger[]{k}, this)[0];
+    }
+
+    /**
+     * Returns k[i]G + P for every k[i].  Each kG comes from the precomputed generator table, P is added to it with
+     * one mixed addition, and all the sums are converted to affine coordinates with one batch inversion.
+     *
+     * @param k     scalars multiplying the generator point G
+     * @param point P
+     * @return Secp256k1Point[] where index i is k[i]G + P
+     */
+    public static Secp256k1Point[] addMultiplesOfGenerator(BigInteger[] k, Secp256k1Point point) {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint[] sums = new Secp256k1JacobianPoint[k.length];
+        Secp256k1FieldElement px = point.x == null ? null : new Secp256k1FieldElement(point.x.getNumber());
+        Secp256k1FieldElement py = point.y == null ? null : new Secp256k1FieldElement(point.y.getNumber());
+        for (int i = 0; i < k.length; i++) {
+            sums[i] = Secp256k1GeneratorTable.multiply(k[i]);
+            if (px != null) {
+                sums[i].setAddAffine(px, py, ws);
+            }
+        }
+        return Secp256k1JacobianPoint.toAffine(sums);
+    }
+
+    /**
+     * Returns the count consecutive multiples first*G, (first+1)*G, ..., the public keys of count consecutive
+     * secrets.  Only first*G is a scalar multiplication, done in constant time;  each later point is the previous one
+     * plus G, one mixed addition, and all the points are converted to affine coordinates with one batch inversion.
+     *
+     * @param first first secret, in the range 1 to N - count
+     * @param count number of points
+     * @return Secp256k1Point[] where index i is (first + i)G
+     */
+    public static Secp256k1Point[] multiplyGeneratorRange(BigInteger first, int count) {
+        if (count < 0 || first.signum() <= 0 || first.add(BigInteger.valueOf(count)).compareTo(N) > 0) {
+            throw new IllegalArgumentException("Generator multiples " + first + " + [0, " + count + ") are out of range");
+        }
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1FieldElement gx = new Secp256k1FieldElement(Gx);
+        Secp256k1FieldElement gy = new Secp256k1FieldElement(Gy);
+        Secp256k1Point start = multiplyGenerator(first, MultiplicationMode.CONSTANT_TIME);
+        Secp256k1JacobianPoint current = Secp256k1JacobianPoint.newInfinity().setAddAffine(
+                new Secp256k1FieldElement(start.x.getNumber()), new Secp256k1FieldElement(start.y.getNumber()), ws);
+        Secp256k1JacobianPoint[] points = new Secp256k1JacobianPoint[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = i == 0 ? current : current.copy().setAddAffine(gx, gy, ws);
+            current = points[i];
+        }
+        return Secp256k1JacobianPoint.toAffine(points);
     }
 
     public boolean verify(BigInteger z, Signature signature) {
         BigInteger sigInverse = signature.sInverse.apply(N);
         BigInteger u = calcU.apply(z, sigInverse);
         BigInteger v = calcV.apply(signature, sigInverse);
-        Secp256k1Point total = G.scalarMultiply(u).add(scalarMultiply(v));
-        return total.getX().getNumber().equals(signature.getR());
+        return signature.getR().equals(linearCombination(u, v, this).affineX());
+    }
+
+    /**
+     * Verifies many signatures at once, with the same result as calling verify on each one.  All the s^-1 are
+     * computed with one batch inversion mod N, and all the uG + vP results are converted to affine coordinates with
+     * one batch inversion mod p.
+     *
+     * @param points     public keys
+     * @param z          signature hashes
+     * @param signatures signatures, where signatures[i] is checked against points[i] and z[i]
+     * @return boolean[] where index i is true if signatures[i] is valid
+     */
+    public static boolean[] verifyAll(Secp256k1Point[] points, BigInteger[] z, Signature[] signatures) {
+        if (points.length != signatures.length || z.length != signatures.length) {
+            throw new IllegalArgumentException("Need one public key and signature hash per signature");
+        }
+        BigInteger[] s = new BigInteger[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            s[i] = signatures[i].getS().mod(N);
+        }
+        BigInteger[] sigInverses = BatchInversion.invertScalars(s);
+        Secp256k1JacobianPoint[] results = new Secp256k1JacobianPoint[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            BigInteger u = calcU.apply(z[i], sigInverses[i]);
+            BigInteger v = calcV.apply(signatures[i], sigInverses[i]);
+            results[i] = linearCombination(u, v, points[i]);
+        }
+        Secp256k1FieldElement[] x = Secp256k1JacobianPoint.affineCoordinates(results)[0];
+        boolean[] valid = new boolean[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            valid[i] = x[i] != null && signatures[i].getR().equals(x[i].getNumber());
+        }
+        return valid;
+    }
+
+    /**
+     * Returns uG + vP, computed with Strauss-Shamir simultaneous multiplication over the wNAFs of u and v:  both
+     * products share one chain of doublings, so the cost is close to that of a single scalar multiplication.
+     *
+     * @param u scalar multiplying the generator point G
+     * @param v scalar multiplying point
+     * @param point P
+     * @return Secp256k1Point
+     */
+    public static Secp256k1Point doubleScalarMultiply(BigInteger u, BigInteger v, Secp256k1Point point) {
+        return linearCombination(u, v, point).toAffine();
+    }
+
+    // uG + vP, using the GLV endomorphism unless it is disabled
+    private static Secp256k1JacobianPoint linearCombination(BigInteger u, BigInteger v, Secp256k1Point point) {
+        return endomorphismEnabled
+                ? Secp256k1Wnaf.multiplyEndomorphism(u, v, point)
+                : Secp256k1Wnaf.multiply(u, v, point);
+    }
+
+    /**
+     * Enables or disables GLV endomorphism accelerated multiplication of points other than G, which is on by
+     * default.  Results are identical either way;  the switch exists for benchmarking and diagnostics.
+     *
+     * @param enabled true to split scalars with the endomorphism
+     */
+    public static void setEndomorphismEnabled(boolean enabled) {
+        endomorphismEnabled = enabled;
+    }
+
+    public static boolean isEndomorphismEnabled() {
+        return endomorphismEnabled;
+    }
+
+    private boolean isGenerator() {
+        return this == G || (x != null && x.equals(G.x) && y.equals(G.y));
+    }
+
+    /**
+     * Returns the 32-byte x coordinate, the BIP-340 x-only encoding of this point.
+     */
+    public byte[] getXOnly() {
+        return bigIntToUnsignedByteArray.apply(x.getNumber());
+    }
+
+    boolean hasEvenY() {
+        return isYCoordinateEven.apply(y);
+    }
+
+    /**
+     * Returns the 20-byte hash160 of this point's SEC encoding.
+     */
+    public byte[] secHash160(boolean compressed) {
+        return hash160.apply(getSec(compressed));
     }
 
     public byte[] getSec(boolean compressed) {
@@ -8,7 +8,7 @@ import java.util.function.Function;
 
 import static java.math.BigInteger.TWO;
 import static java.util.Arrays.copyOfRange;
-import static mandioca.bitcoin.ecc.Secp256k1Point.G;
+import static java.util.Arrays.fill;
 import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
 import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
 import static mandioca.bitcoin.function.HashFunctions.hash256;
@@ -21,37 +21,59 @@ public class Secp256k1PrivateKey {
     private static final Function<BigInteger, BigInteger> kInverse = (k) -> k.modPow(N.subtract(TWO), N);
     private static final Function<Boolean, byte[]> networkPrefix = (testnet) -> testnet ? new byte[]{(byte) 0xef} : new byte[]{(byte) 0x80};
     private static final Function<Boolean, byte[]> wifSuffix = (compressed) -> compressed ? new byte[]{(byte) 0x01} : new byte[0];
-    private static final Rfc6979 kalkulator = new Rfc6979();
-    private static final Function<BigInteger, BigInteger> calcR = (k) -> G.scalarMultiply(k).getX().getNumber(); // x coordinate of kG
+    // Rfc6979 instances keep K and V state between steps, so each signing thread gets its own.
+    private static final ThreadLocal<Rfc6979> kalkulator = ThreadLocal.withInitial(Rfc6979::new);
+    private static final Function<BigInteger, BigInteger> calcR = (k) -> Secp256k1ProjectivePoint.multiplyGenerator(k).affineX(); // x coordinate of kG, in constant time
     private static final QuadriFunction<BigInteger, BigInteger, BigInteger, BigInteger, BigInteger> calcS = (z, r, e, kInv) -> z.add(r.multiply(e)).multiply(kInv).mod(N);   // ((z + r*e) * kInv) % N, or s=(z+re)/k mod N
     private static final Function<BigInteger, Boolean> sValueIsNotLowEnoughForTxRelay = (s) -> s.compareTo(N.divide(TWO)) > 0;
 
     private final BigInteger e;                 // Private Key (double-hashed secret)
+    private final byte[] eBytes;                // 32-byte encoding of e, for RFC 6979
     private final Secp256k1Point publicKey;     // Public Key P = eG
 
     public Secp256k1PrivateKey(BigInteger secret) {
         this.e = secret;
-        this.publicKey = G.scalarMultiply(e);
+        this.eBytes = bigIntToUnsignedByteArray.apply(secret);
+        this.publicKey = Secp256k1Point.multiplyGenerator(e, MultiplicationMode.CONSTANT_TIME);
     }
 
     // K is deterministic, calculated according to RFC 6979
-    @SuppressWarnings("DuplicatedCode")
     public Signature sign(BigInteger z) {
-        kalkulator.init(e, z);
-        BigInteger k = kalkulator.nextK();
-        BigInteger r = calcR.apply(k);         // x coordinate of kG
-        BigInteger kInv = kInverse.apply(k);
-        BigInteger s = calcS.apply(z, r, e, kInv); // ((z + r*e) * kInv) % N, or s=(z+re)/k mod N
-        if (sValueIsNotLowEnoughForTxRelay.apply(s)) {
-            s = N.subtract(s); // A low s value induces bitcoin nodes to relay Tx for malleability reasons. -Jimmy Song
+        return sign(bigIntToUnsignedByteArray.apply(z));
+    }
+
+    /**
+     * Signs a 32-byte, big-endian signature hash.  k is generated by this thread's RFC 6979 calculator straight
+     * from the key and hash bytes, and kG is computed from k's bytes in constant time;  sign can be called from many
+     * threads at once.
+     *
+     * @param z signature hash
+     * @return Signature
+     * @throws IllegalArgumentException if z is not 32 bytes, as k would not be derived from the hash being signed
+     */
+    public Signature sign(byte[] z) {
+        if (z.length != 32) {
+            throw new IllegalArgumentException("Signature hash must be 32 bytes, not " + z.length);
+        }
+        Rfc6979 rfc6979 = kalkulator.get();
+        byte[] kBytes = new byte[32];
+        try {
+            rfc6979.init(eBytes, z);
+            rfc6979.nextK(kBytes);
+            BigInteger r = Secp256k1ProjectivePoint.multiplyGenerator(kBytes).affineX();  // x coordinate of kG
+            return sign(new BigInteger(1, z), r, new BigInteger(1, kBytes));
+        } finally {
+            rfc6979.clear();
+            fill(kBytes, (byte) 0x00);
         }
-        return new Signature(r, s);
     }
 
     // pkg protected signing method taking 'k' argument -- for testing only
-    @SuppressWarnings("DuplicatedCode")
     Signature sign(BigInteger z, BigInteger k) {
-        BigInteger r = calcR.apply(k);         // x coordinate of kG
+        return sign(z, calcR.apply(k), k);
+    }
+
+    private Signature sign(BigInteger z, BigInteger r, BigInteger k) {
         BigInteger kInv = kInverse.apply(k);
         BigInteger s = calcS.apply(z, r, e, kInv); // ((z + r*e) * kInv) % N, or s=(z+re)/k mod N
         if (sValueIsNotLowEnoughForTxRelay.apply(s)) {
@@ -60,6 +82,24 @@ public class Secp256k1PrivateKey {
         return new Signature(r, s);
     }
 
+    /**
+     * Returns a BIP-340 Schnorr signature of the message.
+     *
+     * @param message message, usually a 32-byte hash
+     * @param auxRand 32 bytes of fresh auxiliary randomness, or zeros
+     * @return SchnorrSignature
+     */
+    public SchnorrSignature signSchnorr(byte[] message, byte[] auxRand) {
+        return Schnorr.sign(e, publicKey, message, auxRand);
+    }
+
+    /**
+     * Returns the secret e, for key derivation schemes such as BIP-32 that compute child keys from it.
+     */
+    public BigInteger getSecret() {
+        return e;
+    }
+
     public Secp256k1Point getPublicKey() {
         return publicKey;
     }
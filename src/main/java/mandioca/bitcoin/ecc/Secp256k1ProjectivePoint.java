@@ -0,0 +1,294 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.Secp256k1FieldElement.PRODUCT_LIMBS;
+import static mandioca.bitcoin.ecc.Secp256k1GeneratorTable.NUM_WINDOWS;
+import static mandioca.bitcoin.ecc.Secp256k1GeneratorTable.WINDOW_BITS;
+import static mandioca.bitcoin.ecc.Secp256k1GeneratorTable.WINDOW_SIZE;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+
+/**
+ * A mutable secp256k1 point in homogeneous projective coordinates (X, Y, Z), representing the affine point
+ * (X/Z, Y/Z), used for constant-time scalar multiplication with secret scalars.
+ * <p>
+ * The addition formulas are complete:  the same sequence of field operations adds any two points, including equal
+ * points, opposite points and the point at infinity (0, 1, 0), so there are no special cases to branch on.  Scalar
+ * multiplication uses fixed 4-bit windows:  every window costs the same additions (and doublings) whatever its
+ * value, table entries are selected by reading every entry and masking, and the result of an addition that should
+ * not happen is discarded with a conditional move rather than a branch.
+ * <p>
+ * Only the secret scalar is protected;  branches on public data (the point at infinity as input or output, whether
+ * P is G) remain.  The field arithmetic of {@link Secp256k1FieldElement} has no value dependent branches.
+ * <p>
+ * Formulas for a = 0 curves from Renes, Costello, Batina, "Complete addition formulas for prime order elliptic
+ * curves", Algorithms 7, 8 and 9.  See https://eprint.iacr.org/2015/1060.pdf
+ */
+final class Secp256k1ProjectivePoint {
+
+    private static final int B3 = 21;  // 3 * b, where b = 7
+
+    final Secp256k1FieldElement x = new Secp256k1FieldElement();
+    final Secp256k1FieldElement y = new Secp256k1FieldElement();
+    final Secp256k1FieldElement z = new Secp256k1FieldElement();
+
+    static Secp256k1ProjectivePoint infinity() {
+        Secp256k1ProjectivePoint point = new Secp256k1ProjectivePoint();
+        point.y.setInt(1);
+        return point;
+    }
+
+    Secp256k1ProjectivePoint set(Secp256k1ProjectivePoint other) {
+        x.set(other.x);
+        y.set(other.y);
+        z.set(other.z);
+        return this;
+    }
+
+    /**
+     * Sets this point to other if flag is 1, and leaves it unchanged if flag is 0, without branching on flag.
+     */
+    Secp256k1ProjectivePoint cmov(Secp256k1ProjectivePoint other, int flag) {
+        x.cmov(other.x, flag);
+        y.cmov(other.y, flag);
+        z.cmov(other.z, flag);
+        return this;
+    }
+
+    boolean isInfinity() {
+        return z.isZero();
+    }
+
+    /**
+     * Sets this point to P + Q  (Algorithm 7).  This point may be P or Q.
+     */
+    Secp256k1ProjectivePoint setAdd(Secp256k1ProjectivePoint p, Secp256k1ProjectivePoint q, Secp256k1Workspace ws) {
+        int[] tt = ws.tt;
+        Secp256k1FieldElement t0 = ws.t0.setMul(p.x, q.x, tt);
+        Secp256k1FieldElement t1 = ws.t1.setMul(p.y, q.y, tt);
+        Secp256k1FieldElement t2 = ws.t2.setMul(p.z, q.z, tt);
+        Secp256k1FieldElement t3 = ws.t3.setAdd(p.x, p.y);
+        Secp256k1FieldElement t4 = ws.t4.setAdd(q.x, q.y);
+        t3.setMul(t4, tt);
+        t4.setAdd(t0, t1);
+        t3.setSub(t3, t4);
+        t4.setAdd(p.y, p.z);
+        Secp256k1FieldElement x3 = ws.t5.setAdd(q.y, q.z);
+        t4.setMul(x3, tt);
+        x3.setAdd(t1, t2);
+        t4.setSub(t4, x3);
+        x3.setAdd(p.x, p.z);
+        Secp256k1FieldElement y3 = ws.t6.setAdd(q.x, q.z);
+        x3.setMul(y3, tt);
+        y3.setAdd(t0, t2);
+        y3.setSub(x3, y3);
+        x3.setAdd(t0, t0);
+        t0.setAdd(x3, t0);
+        t2.setMulInt(t2, B3);
+        Secp256k1FieldElement z3 = ws.t7.setAdd(t1, t2);
+        t1.setSub(t1, t2);
+        y3.setMulInt(y3, B3);
+        return finish(t0, t1, t3, t4, x3, y3, z3, ws);
+    }
+
+    /**
+     * Sets this point to P + Q, where Q is the affine point (qx, qy)  (Algorithm 8).  Q cannot be the point at
+     * infinity, but P can, and this point may be P.
+     */
+    Secp256k1ProjectivePoint setAddAffine(Secp256k1ProjectivePoint p,
+                                          Secp256k1FieldElement qx,
+                                          Secp256k1FieldElement qy,
+                                          Secp256k1Workspace ws) {
+        int[] tt = ws.tt;
+        Secp256k1FieldElement t0 = ws.t0.setMul(p.x, qx, tt);
+        Secp256k1FieldElement t1 = ws.t1.setMul(p.y, qy, tt);
+        Secp256k1FieldElement t3 = ws.t3.setAdd(qx, qy);
+        Secp256k1FieldElement t4 = ws.t4.setAdd(p.x, p.y);
+        t3.setMul(t4, tt);
+        t4.setAdd(t0, t1);
+        t3.setSub(t3, t4);
+        t4.setMul(qy, p.z, tt);
+        t4.setAdd(t4, p.y);
+        Secp256k1FieldElement y3 = ws.t6.setMul(qx, p.z, tt);
+        y3.setAdd(y3, p.x);
+        Secp256k1FieldElement x3 = ws.t5.setAdd(t0, t0);
+        t0.setAdd(x3, t0);
+        Secp256k1FieldElement t2 = ws.t2.setMulInt(p.z, B3);
+        Secp256k1FieldElement z3 = ws.t7.setAdd(t1, t2);
+        t1.setSub(t1, t2);
+        y3.setMulInt(y3, B3);
+        return finish(t0, t1, t3, t4, x3, y3, z3, ws);
+    }
+
+    // The last steps shared by Algorithms 7 and 8.
+    private Secp256k1ProjectivePoint finish(Secp256k1FieldElement t0,
+                                            Secp256k1FieldElement t1,
+                                            Secp256k1FieldElement t3,
+                                            Secp256k1FieldElement t4,
+                                            Secp256k1FieldElement x3,
+                                            Secp256k1FieldElement y3,
+                                            Secp256k1FieldElement z3,
+                                            Secp256k1Workspace ws) {
+        int[] tt = ws.tt;
+        x3.setMul(t4, y3, tt);
+        Secp256k1FieldElement t2 = ws.t8.setMul(t3, t1, tt);
+        x3.setSub(t2, x3);
+        y3.setMul(t0, tt);
+        t1.setMul(z3, tt);
+        y3.setAdd(t1, y3);
+        t0.setMul(t3, tt);
+        z3.setMul(t4, tt);
+        z3.setAdd(z3, t0);
+        x.set(x3);
+        y.set(y3);
+        z.set(z3);
+        return this;
+    }
+
+    /**
+     * Sets this point to 2P  (Algorithm 9).  This point may be P.
+     */
+    Secp256k1ProjectivePoint setTwice(Secp256k1ProjectivePoint p, Secp256k1Workspace ws) {
+        int[] tt = ws.tt;
+        Secp256k1FieldElement t0 = ws.t0.setSquare(p.y, tt);
+        Secp256k1FieldElement z3 = ws.t7.setMulInt(t0, 8);
+        Secp256k1FieldElement t1 = ws.t1.setMul(p.y, p.z, tt);
+        Secp256k1FieldElement t2 = ws.t2.setSquare(p.z, tt);
+        t2.setMulInt(t2, B3);
+        Secp256k1FieldElement x3 = ws.t5.setMul(t2, z3, tt);
+        Secp256k1FieldElement y3 = ws.t6.setAdd(t0, t2);
+        z3.setMul(t1, tt);
+        t1.setAdd(t2, t2);
+        t2.setAdd(t1, t2);
+        t0.setSub(t0, t2);
+        y3.setMul(t0, tt);
+        y3.setAdd(x3, y3);
+        t1.setMul(p.x, p.y, tt);
+        x3.setMul(t0, t1, tt);
+        x3.setAdd(x3, x3);
+        x.set(x3);
+        y.set(y3);
+        z.set(z3);
+        return this;
+    }
+
+    /**
+     * Returns kG in constant time, with one complete mixed addition per 4-bit window of k and no doublings.
+     *
+     * @param k secret scalar
+     * @return Secp256k1ProjectivePoint
+     */
+    static Secp256k1ProjectivePoint multiplyGenerator(BigInteger k) {
+        return multiplyGenerator(toWords(k));
+    }
+
+    /**
+     * Returns kG in constant time, for k given as 32 big-endian bytes, in the range 0 to N-1.
+     *
+     * @param k secret scalar
+     * @return Secp256k1ProjectivePoint
+     */
+    static Secp256k1ProjectivePoint multiplyGenerator(byte[] k) {
+        int[] words = new int[8];
+        for (int i = 0; i < words.length; i++) {
+            int b = 28 - (i << 2);
+            words[i] = (k[b] & 0xFF) << 24 | (k[b + 1] & 0xFF) << 16 | (k[b + 2] & 0xFF) << 8 | (k[b + 3] & 0xFF);
+        }
+        return multiplyGenerator(words);
+    }
+
+    private static Secp256k1ProjectivePoint multiplyGenerator(int[] words) {
+        Secp256k1GeneratorTable table = Secp256k1GeneratorTable.getInstance();
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1FieldElement qx = new Secp256k1FieldElement();
+        Secp256k1FieldElement qy = new Secp256k1FieldElement();
+        Secp256k1ProjectivePoint result = infinity();
+        Secp256k1ProjectivePoint sum = new Secp256k1ProjectivePoint();
+        for (int i = 0; i < NUM_WINDOWS; i++) {
+            int window = window(words, i);
+            table.lookup(i, window, qx, qy);
+            sum.setAddAffine(result, qx, qy, ws);
+            result.cmov(sum, (window | -window) >>> 31);  // keep the sum only if the window is not 0
+        }
+        return result;
+    }
+
+    /**
+     * Returns kP in constant time, with four doublings and one complete addition per 4-bit window of k.
+     *
+     * @param point P
+     * @param k     secret scalar
+     * @return Secp256k1ProjectivePoint
+     */
+    static Secp256k1ProjectivePoint multiply(Secp256k1Point point, BigInteger k) {
+        if (point.getX() == null) {
+            return infinity();
+        }
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1FieldElement px = new Secp256k1FieldElement(point.getX().getNumber());
+        Secp256k1FieldElement py = new Secp256k1FieldElement(point.getY().getNumber());
+        Secp256k1ProjectivePoint[] multiples = new Secp256k1ProjectivePoint[WINDOW_SIZE];  // 0P, P, 2P, ... 15P
+        multiples[0] = infinity();
+        for (int j = 1; j < WINDOW_SIZE; j++) {
+            multiples[j] = new Secp256k1ProjectivePoint().setAddAffine(multiples[j - 1], px, py, ws);
+        }
+        int[] words = toWords(k);
+        Secp256k1ProjectivePoint result = infinity();
+        Secp256k1ProjectivePoint multiple = new Secp256k1ProjectivePoint();
+        for (int i = NUM_WINDOWS - 1; i >= 0; i--) {
+            for (int d = 0; d < WINDOW_BITS; d++) {
+                result.setTwice(result, ws);
+            }
+            int window = window(words, i);
+            multiple.set(multiples[0]);
+            for (int j = 1; j < WINDOW_SIZE; j++) {
+                multiple.cmov(multiples[j], ((j ^ window) - 1) >>> 31);
+            }
+            result.setAdd(result, multiple, ws);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the affine x coordinate X/Z, or null if this is the point at infinity.
+     */
+    BigInteger affineX() {
+        if (isInfinity()) {
+            return null;
+        }
+        int[] tt = new int[PRODUCT_LIMBS];
+        return new Secp256k1FieldElement().setInverse(z, tt).setMul(x, tt).getNumber();
+    }
+
+    Secp256k1Point toAffine() {
+        if (isInfinity()) {
+            return Secp256k1Point.IDENTITY;
+        }
+        int[] tt = new int[PRODUCT_LIMBS];
+        Secp256k1FieldElement zInv = new Secp256k1FieldElement().setInverse(z, tt);
+        Secp256k1FieldElement affineX = new Secp256k1FieldElement().setMul(x, zInv, tt);
+        Secp256k1FieldElement affineY = zInv.setMul(y, tt);
+        return Secp256k1Point.newPoint.apply(affineX.getNumber(), affineY.getNumber());
+    }
+
+    // Splits k mod N into eight 32-bit words, least significant word first.
+    private static int[] toWords(BigInteger k) {
+        BigInteger scalar = k.mod(N);
+        int[] words = new int[8];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = scalar.shiftRight(i << 5).intValue();
+        }
+        return words;
+    }
+
+    // Returns the value of the i'th 4-bit window of the scalar's words.
+    private static int window(int[] words, int i) {
+        return (words[i >>> 3] >>> ((i & 7) << 2)) & 0xF;
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{" + "x=" + x.getNumber().toString(16)
+                + ", y=" + y.getNumber().toString(16) + ", z=" + z.getNumber().toString(16) + "}";
+    }
+}
@@ -0,0 +1,255 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+
+/**
+ * Width-w non-adjacent form (wNAF) scalar recoding, and Strauss-Shamir simultaneous multiplication.
+ * <p>
+ * A scalar's wNAF digits are zero or odd numbers in the range (-2^(w-1), 2^(w-1)), and any w consecutive digits
+ * contain at most one non-zero digit.  Strauss' algorithm computes u*G + v*P by walking the wNAF digits of u and v
+ * together from the most significant end, sharing one chain of doublings, and adding a precomputed odd multiple of
+ * G or P for each non-zero digit.
+ * <p>
+ * The endomorphism variants first split each scalar with {@link Secp256k1Endomorphism#split}, so four half-length
+ * scalars share a chain of 128 doublings.
+ * <p>
+ * See https://www.bmoeller.de/pdf/TI-01-08.multiexp.pdf
+ */
+final class Secp256k1Wnaf {
+
+    /**
+     * Window width used for variable points;  odd multiples P, 3P, ... 15P are computed on the fly.
+     */
+    static final int VARIABLE_POINT_WINDOW = 5;
+    /**
+     * Window width used for G;  odd multiples G, 3G, ... 127G are precomputed once.
+     */
+    static final int GENERATOR_WINDOW = 8;
+
+    private Secp256k1Wnaf() {
+    }
+
+    /**
+     * Returns the width-w NAF of k, least significant digit first.  The digits of a negative k are the negated
+     * digits of |k|.
+     *
+     * @param k scalar
+     * @param w window width, 2 to 31
+     * @return wNAF digits, one per bit of |k| plus one
+     */
+    static int[] encode(BigInteger k, int w) {
+        int[] words = toWords(k.abs());
+        int len = k.abs().bitLength() + 1;
+        int[] wnaf = new int[len];
+        int carry = 0;
+        int bit = 0;
+        while (bit < len) {
+            if (getBits(words, bit, 1) == carry) {
+                bit++;
+                continue;
+            }
+            int now = Math.min(w, len - bit);
+            int word = getBits(words, bit, now) + carry;
+            carry = (word >> (w - 1)) & 1;
+            word -= carry << w;
+            wnaf[bit] = k.signum() < 0 ? -word : word;
+            bit += now;
+        }
+        return wnaf;
+    }
+
+    /**
+     * Returns the odd multiples P, 3P, 5P, ... (2^(w-2) points) of the given point.
+     */
+    static Secp256k1JacobianPoint[] oddMultiples(Secp256k1JacobianPoint point, int w) {
+        Secp256k1JacobianPoint[] multiples = new Secp256k1JacobianPoint[1 << (w - 2)];
+        Secp256k1JacobianPoint twice = point.twice();
+        multiples[0] = point;
+        for (int i = 1; i < multiples.length; i++) {
+            multiples[i] = multiples[i - 1].add(twice);
+        }
+        return multiples;
+    }
+
+    /**
+     * Returns the images phi(P), 3phi(P), ... of odd multiples P, 3P, ... under the endomorphism.
+     */
+    static Secp256k1JacobianPoint[] endomorphism(Secp256k1JacobianPoint[] multiples) {
+        Secp256k1JacobianPoint[] images = new Secp256k1JacobianPoint[multiples.length];
+        for (int i = 0; i < multiples.length; i++) {
+            images[i] = multiples[i].endomorphism();
+        }
+        return images;
+    }
+
+    /**
+     * Returns u*G + v*P in Jacobian coordinates, with one shared chain of doublings.
+     *
+     * @param u scalar multiplying the generator point G
+     * @param v scalar multiplying point
+     * @param point P
+     * @return Secp256k1JacobianPoint
+     */
+    static Secp256k1JacobianPoint multiply(BigInteger u, BigInteger v, Secp256k1Point point) {
+        int[] uNaf = encode(u.mod(N), GENERATOR_WINDOW);
+        if (point.getX() == null) {
+            return strauss(new int[][]{uNaf}, new Secp256k1FieldElement[][][]{Secp256k1GeneratorTable.oddMultiples()},
+                    new Secp256k1JacobianPoint[1][]);
+        }
+        int[] vNaf = encode(v.mod(N), VARIABLE_POINT_WINDOW);
+        Secp256k1JacobianPoint[] pMultiples = oddMultiples(Secp256k1JacobianPoint.fromAffine(point), VARIABLE_POINT_WINDOW);
+        return strauss(new int[][]{uNaf, vNaf},
+                new Secp256k1FieldElement[][][]{Secp256k1GeneratorTable.oddMultiples(), null},
+                new Secp256k1JacobianPoint[][]{null, pMultiples});
+    }
+
+    /**
+     * Returns u*G + v*P as u1*G + u2*phi(G) + v1*P + v2*phi(P), with one shared chain of 128 doublings.
+     *
+     * @param u scalar multiplying the generator point G
+     * @param v scalar multiplying point
+     * @param point P
+     * @return Secp256k1JacobianPoint
+     */
+    static Secp256k1JacobianPoint multiplyEndomorphism(BigInteger u, BigInteger v, Secp256k1Point point) {
+        BigInteger[] uSplit = Secp256k1Endomorphism.split(u.mod(N));
+        int[] u1Naf = encode(uSplit[0], GENERATOR_WINDOW);
+        int[] u2Naf = encode(uSplit[1], GENERATOR_WINDOW);
+        if (point.getX() == null) {
+            return strauss(new int[][]{u1Naf, u2Naf},
+                    new Secp256k1FieldElement[][][]{Secp256k1GeneratorTable.oddMultiples(), Secp256k1GeneratorTable.oddMultiplesEndomorphism()},
+                    new Secp256k1JacobianPoint[2][]);
+        }
+        BigInteger[] vSplit = Secp256k1Endomorphism.split(v.mod(N));
+        int[] v1Naf = encode(vSplit[0], VARIABLE_POINT_WINDOW);
+        int[] v2Naf = encode(vSplit[1], VARIABLE_POINT_WINDOW);
+        Secp256k1JacobianPoint[] pMultiples = oddMultiples(Secp256k1JacobianPoint.fromAffine(point), VARIABLE_POINT_WINDOW);
+        return strauss(new int[][]{u1Naf, u2Naf, v1Naf, v2Naf},
+                new Secp256k1FieldElement[][][]{Secp256k1GeneratorTable.oddMultiples(), Secp256k1GeneratorTable.oddMultiplesEndomorphism(), null, null},
+                new Secp256k1JacobianPoint[][]{null, null, pMultiples, endomorphism(pMultiples)});
+    }
+
+    /**
+     * Returns k*P as k1*P + k2*phi(P), with one shared chain of 128 doublings.
+     *
+     * @param k scalar
+     * @param point P
+     * @return Secp256k1JacobianPoint
+     */
+    static Secp256k1JacobianPoint multiplyEndomorphism(BigInteger k, Secp256k1Point point) {
+        if (point.getX() == null) {
+            return Secp256k1JacobianPoint.newInfinity();
+        }
+        BigInteger[] kSplit = Secp256k1Endomorphism.split(k.mod(N));
+        Secp256k1JacobianPoint[] pMultiples = oddMultiples(Secp256k1JacobianPoint.fromAffine(point), VARIABLE_POINT_WINDOW);
+        return strauss(new int[][]{encode(kSplit[0], VARIABLE_POINT_WINDOW), encode(kSplit[1], VARIABLE_POINT_WINDOW)},
+                new Secp256k1FieldElement[2][][],
+                new Secp256k1JacobianPoint[][]{pMultiples, endomorphism(pMultiples)});
+    }
+
+    /**
+     * Returns u*G + sum(v[i] * P[i]) in Jacobian coordinates, with every scalar split by the endomorphism so all
+     * 2n + 2 half-length terms share one chain of 128 doublings.  The odd multiples of all the points are converted
+     * to affine coordinates with a single batch inversion, so every addition in the main loop is a mixed addition.
+     *
+     * @param u      scalar multiplying the generator point G
+     * @param v      scalars multiplying points
+     * @param points P[i], none of them the point at infinity
+     * @return Secp256k1JacobianPoint
+     */
+    static Secp256k1JacobianPoint multiply(BigInteger u, BigInteger[] v, Secp256k1Point[] points) {
+        int n = points.length;
+        int tableSize = 1 << (VARIABLE_POINT_WINDOW - 2);
+        Secp256k1JacobianPoint[] allMultiples = new Secp256k1JacobianPoint[n * tableSize];
+        for (int i = 0; i < n; i++) {
+            Secp256k1JacobianPoint[] pMultiples = oddMultiples(Secp256k1JacobianPoint.fromAffine(points[i]), VARIABLE_POINT_WINDOW);
+            System.arraycopy(pMultiples, 0, allMultiples, i * tableSize, tableSize);
+        }
+        Secp256k1FieldElement[][] affine = Secp256k1JacobianPoint.affineCoordinates(allMultiples);
+
+        int[][] digits = new int[2 * n + 2][];
+        Secp256k1FieldElement[][][] affineMultiples = new Secp256k1FieldElement[2 * n + 2][][];
+        BigInteger[] uSplit = Secp256k1Endomorphism.split(u.mod(N));
+        digits[0] = encode(uSplit[0], GENERATOR_WINDOW);
+        digits[1] = encode(uSplit[1], GENERATOR_WINDOW);
+        affineMultiples[0] = Secp256k1GeneratorTable.oddMultiples();
+        affineMultiples[1] = Secp256k1GeneratorTable.oddMultiplesEndomorphism();
+        for (int i = 0; i < n; i++) {
+            BigInteger[] vSplit = Secp256k1Endomorphism.split(v[i].mod(N));
+            Secp256k1FieldElement[][] multiples = new Secp256k1FieldElement[2][tableSize];
+            Secp256k1FieldElement[][] images = new Secp256k1FieldElement[2][tableSize];
+            for (int j = 0; j < tableSize; j++) {
+                multiples[0][j] = affine[0][i * tableSize + j];
+                multiples[1][j] = affine[1][i * tableSize + j];
+                images[0][j] = Secp256k1Endomorphism.mapX(multiples[0][j]);
+                images[1][j] = multiples[1][j];
+            }
+            digits[2 * i + 2] = encode(vSplit[0], VARIABLE_POINT_WINDOW);
+            digits[2 * i + 3] = encode(vSplit[1], VARIABLE_POINT_WINDOW);
+            affineMultiples[2 * i + 2] = multiples;
+            affineMultiples[2 * i + 3] = images;
+        }
+        return strauss(digits, affineMultiples, new Secp256k1JacobianPoint[2 * n + 2][]);
+    }
+
+    /**
+     * Returns the sum of all terms digits[t] * P[t], walking the wNAF digits of every term together from the most
+     * significant end.  Each term's odd multiples of P[t] are given either in affine coordinates, {x[], y[]} in
+     * affineMultiples[t], or in Jacobian coordinates in jacobianMultiples[t].
+     */
+    private static Secp256k1JacobianPoint strauss(int[][] digits,
+                                                  Secp256k1FieldElement[][][] affineMultiples,
+                                                  Secp256k1JacobianPoint[][] jacobianMultiples) {
+        int maxLength = 0;
+        for (int[] d : digits) {
+            maxLength = Math.max(maxLength, d.length);
+        }
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint result = Secp256k1JacobianPoint.newInfinity();
+        for (int i = maxLength - 1; i >= 0; i--) {
+            result.setTwice(ws);
+            for (int t = 0; t < digits.length; t++) {
+                int digit = i < digits[t].length ? digits[t][i] : 0;
+                if (digit == 0) {
+                    continue;
+                }
+                int index = Math.abs(digit) >> 1;
+                if (affineMultiples[t] != null) {
+                    Secp256k1FieldElement[][] multiples = affineMultiples[t];
+                    if (digit > 0) {
+                        result.setAddAffine(multiples[0][index], multiples[1][index], ws);
+                    } else {
+                        result.setSubtractAffine(multiples[0][index], multiples[1][index], ws);
+                    }
+                } else if (digit > 0) {
+                    result.setAdd(jacobianMultiples[t][index], ws);
+                } else {
+                    result.setSubtract(jacobianMultiples[t][index], ws);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Splits non-negative k into 32-bit words, least significant word first.
+    private static int[] toWords(BigInteger k) {
+        int[] words = new int[(k.bitLength() >> 5) + 2];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = k.shiftRight(i << 5).intValue();
+        }
+        return words;
+    }
+
+    // Returns count (1 to 31) bits of the scalar's words, starting at bit offset.
+    private static int getBits(int[] words, int offset, int count) {
+        int index = offset >>> 5;
+        int shift = offset & 31;
+        long bits = words[index] & 0xFFFFFFFFL;
+        if (shift + count > 32 && index + 1 < words.length) {
+            bits |= (words[index + 1] & 0xFFFFFFFFL) << 32;
+        }
+        return (int) ((bits >>> shift) & ((1L << count) - 1));
+    }
+}
@@ -0,0 +1,37 @@
+package mandioca.bitcoin.ecc;
+
+import static mandioca.bitcoin.ecc.Secp256k1FieldElement.PRODUCT_LIMBS;
+
+/**
+ * Scratch space for in-place point arithmetic:  a product buffer and a set of temporary field elements, so adding
+ * or doubling a mutable {@link Secp256k1JacobianPoint} or {@link Secp256k1ProjectivePoint} allocates nothing.
+ * <p>
+ * A workspace belongs to one thread;  {@link #get()} returns the calling thread's.  Point operations use the
+ * temporaries only while they run, and never call each other with a temporary still live, except where noted.
+ */
+final class Secp256k1Workspace {
+
+    private static final ThreadLocal<Secp256k1Workspace> POOL = ThreadLocal.withInitial(Secp256k1Workspace::new);
+
+    final int[] tt = new int[PRODUCT_LIMBS];
+    final Secp256k1FieldElement t0 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t1 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t2 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t3 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t4 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t5 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t6 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t7 = new Secp256k1FieldElement();
+    final Secp256k1FieldElement t8 = new Secp256k1FieldElement();
+    /**
+     * Holds a negated y coordinate for subtractions;  not touched by the addition formulas.
+     */
+    final Secp256k1FieldElement negatedY = new Secp256k1FieldElement();
+
+    private Secp256k1Workspace() {
+    }
+
+    static Secp256k1Workspace get() {
+        return POOL.get();
+    }
+}
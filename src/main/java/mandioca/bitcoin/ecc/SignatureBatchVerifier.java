@@ -0,0 +1,206 @@
+package mandioca.bitcoin.ecc;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verifies many ECDSA signatures in parallel.
+ * <p>
+ * Jobs are split into chunks of {@link #getChunkSize()} signatures, and each chunk is verified on the executor with
+ * {@link Secp256k1Point#verifyAll}, which shares one batch inversion per chunk.  Results are reported per job, in
+ * the order jobs were submitted.
+ * <p>
+ * In fail-fast mode, the first invalid signature found stops the chunks that have not started yet, and the jobs
+ * in them are reported as {@link Status#NOT_VERIFIED}.
+ * <p>
+ * The verifier does not own its executor;  callers passing their own executor are responsible for shutting it down.
+ */
+public class SignatureBatchVerifier {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    public enum Status {
+        VALID, INVALID, NOT_VERIFIED
+    }
+
+    private final ExecutorService executor;
+    private final int chunkSize;
+    private final boolean failFast;
+
+    /**
+     * Creates a verifier running on the common ForkJoinPool, that verifies every job.
+     */
+    public SignatureBatchVerifier() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * @param executor  executor running the verification tasks
+     * @param chunkSize number of signatures verified per task
+     * @param failFast  true to stop verifying after the first invalid signature
+     */
+    public SignatureBatchVerifier(ExecutorService executor, int chunkSize, boolean failFast) {
+        if (executor == null) {
+            throw new NullPointerException("Cannot verify signatures with null executor");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1, not " + chunkSize);
+        }
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.failFast = failFast;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Verifies every job in the stream, blocking until all results are known.
+     *
+     * @param jobs verification jobs
+     * @return Result
+     */
+    public Result verify(Stream<Job> jobs) {
+        return verify(jobs.collect(Collectors.toList()));
+    }
+
+    /**
+     * Verifies every job in the collection, blocking until all results are known.
+     *
+     * @param jobs verification jobs
+     * @return Result
+     */
+    public Result verify(Collection<Job> jobs) {
+        Job[] jobArray = jobs.toArray(new Job[0]);
+        Status[] statuses = new Status[jobArray.length];
+        Arrays.fill(statuses, Status.NOT_VERIFIED);
+        AtomicBoolean invalidFound = new AtomicBoolean(false);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < jobArray.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, jobArray.length);
+            futures.add(executor.submit(() -> verifyChunk(jobArray, start, end, statuses, invalidFound)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Interrupted while verifying signatures", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Error verifying signatures", e.getCause());
+        }
+        return new Result(statuses);
+    }
+
+    private void verifyChunk(Job[] jobs, int start, int end, Status[] statuses, AtomicBoolean invalidFound) {
+        if (failFast && invalidFound.get()) {
+            return;
+        }
+        int length = end - start;
+        Secp256k1Point[] points = new Secp256k1Point[length];
+        BigInteger[] z = new BigInteger[length];
+        Signature[] signatures = new Signature[length];
+        for (int i = 0; i < length; i++) {
+            points[i] = jobs[start + i].publicKey;
+            z[i] = jobs[start + i].z;
+            signatures[i] = jobs[start + i].signature;
+        }
+        boolean[] valid = Secp256k1Point.verifyAll(points, z, signatures);
+        for (int i = 0; i < length; i++) {
+            statuses[start + i] = valid[i] ? Status.VALID : Status.INVALID;
+            if (!valid[i]) {
+                invalidFound.set(true);
+            }
+        }
+    }
+
+    /**
+     * A public key, signature hash and signature to verify.
+     */
+    public static final class Job {
+        private final Secp256k1Point publicKey;
+        private final BigInteger z;
+        private final Signature signature;
+
+        public Job(Secp256k1Point publicKey, BigInteger z, Signature signature) {
+            this.publicKey = publicKey;
+            this.z = z;
+            this.signature = signature;
+        }
+
+        public Secp256k1Point getPublicKey() {
+            return publicKey;
+        }
+
+        public BigInteger getZ() {
+            return z;
+        }
+
+        public Signature getSignature() {
+            return signature;
+        }
+    }
+
+    /**
+     * The per-job outcome of a batch, indexed in job submission order.
+     */
+    public static final class Result {
+        private final Status[] statuses;
+
+        private Result(Status[] statuses) {
+            this.statuses = statuses;
+        }
+
+        public int size() {
+            return statuses.length;
+        }
+
+        public Status getStatus(int index) {
+            return statuses[index];
+        }
+
+        public boolean isValid(int index) {
+            return statuses[index] == Status.VALID;
+        }
+
+        /**
+         * Returns true if every job was verified, and every signature is valid.
+         */
+        public boolean allValid() {
+            return Arrays.stream(statuses).allMatch(s -> s == Status.VALID);
+        }
+
+        /**
+         * Returns the index of the first job found to have an invalid signature, or -1 if none was found.
+         */
+        public int firstInvalid() {
+            for (int i = 0; i < statuses.length; i++) {
+                if (statuses[i] == Status.INVALID) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return this.getClass().getSimpleName() + "{" + "statuses=" + Arrays.toString(statuses) + "}";
+        }
+    }
+}
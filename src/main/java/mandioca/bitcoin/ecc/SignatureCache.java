@@ -0,0 +1,226 @@
+package mandioca.bitcoin.ecc;
+
+import mandioca.bitcoin.util.Sha256Engine;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
+
+/**
+ * A bounded, thread-safe cache of signatures already found to be valid, so the same (signature hash, public key,
+ * signature) triple is not verified twice, e.g. when a transaction is seen first in a tx message and again in a
+ * block.
+ * <p>
+ * Only valid signatures are cached.  Entries are keyed by a salted SHA-256 hash of the signature hash, SEC public
+ * key and DER signature bytes, stored as four longs;  the random salt keeps anyone from crafting colliding keys.
+ * <p>
+ * Eviction is generational:  new entries go into the current generation, and when it is full it becomes the
+ * previous generation, replacing (and dropping) the older one.  A hit in the previous generation copies the entry
+ * forward.  Each lookup and insert is a hash table operation, and the two generations together hold at most about
+ * the cache's capacity.
+ */
+public final class SignatureCache {
+
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    private static final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+    private static final SignatureCache INSTANCE = new SignatureCache(DEFAULT_CAPACITY);
+
+    private final int generationCapacity;
+
+    private final byte[] salt = new byte[32];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile Set<Key> current = ConcurrentHashMap.newKeySet();
+    private volatile Set<Key> previous = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param capacity maximum number of cached signatures, at least 2
+     */
+    public SignatureCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Signature cache capacity must be at least 2, not " + capacity);
+        }
+        this.generationCapacity = capacity / 2;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * Returns the shared cache consulted by the script engine's OP_CHECKSIG and OP_CHECKMULTISIG.
+     */
+    public static SignatureCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns true if the signature is cached as valid, else runs the verification and caches a valid result.
+     *
+     * @param z            signature hash
+     * @param sec          SEC encoded public key
+     * @param der          DER encoded signature, without the sighash type byte
+     * @param verification verifies the signature, e.g. by parsing the public key and signature and calling verify
+     * @return true if the signature is valid
+     */
+    public boolean verify(BigInteger z, byte[] sec, byte[] der, Supplier<Boolean> verification) {
+        Key key = key(z, sec, der);
+        if (lookup(key)) {
+            return true;
+        }
+        boolean valid = verification.get();
+        if (valid) {
+            add(key);
+        }
+        return valid;
+    }
+
+    /**
+     * Returns true if the signature is cached as valid.
+     */
+    public boolean contains(BigInteger z, byte[] sec, byte[] der) {
+        return lookup(key(z, sec, der));
+    }
+
+    /**
+     * Caches the signature as valid;  the caller must have verified it.
+     */
+    public void add(BigInteger z, byte[] sec, byte[] der) {
+        add(key(z, sec, der));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that were hits, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Returns the approximate number of cached signatures.
+     */
+    public int size() {
+        return current.size() + previous.size();
+    }
+
+    /**
+     * Removes all cached signatures and resets the hit and miss counts.
+     */
+    public synchronized void clear() {
+        current = ConcurrentHashMap.newKeySet();
+        previous = ConcurrentHashMap.newKeySet();
+        hits.reset();
+        misses.reset();
+    }
+
+    private boolean lookup(Key key) {
+        boolean found = current.contains(key);
+        if (!found && previous.contains(key)) {
+            add(key);
+            found = true;
+        }
+        if (found) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return found;
+    }
+
+    private void add(Key key) {
+        Set<Key> generation = current;
+        generation.add(key);
+        if (generation.size() >= generationCapacity) {
+            rotate(generation);
+        }
+    }
+
+    private synchronized void rotate(Set<Key> full) {
+        if (current == full) {  // another thread may have rotated already
+            previous = full;
+            current = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    private Key key(BigInteger z, byte[] sec, byte[] der) {
+        byte[] zBytes = bigIntToUnsignedByteArray.apply(z);
+        Scratch scratch = scratches.get();
+        byte[] preimage = scratch.preimage(salt.length + zBytes.length + 1 + sec.length + der.length);
+        int length = 0;
+        System.arraycopy(salt, 0, preimage, length, salt.length);
+        length += salt.length;
+        System.arraycopy(zBytes, 0, preimage, length, zBytes.length);
+        length += zBytes.length;
+        preimage[length++] = (byte) sec.length;
+        System.arraycopy(sec, 0, preimage, length, sec.length);
+        length += sec.length;
+        System.arraycopy(der, 0, preimage, length, der.length);
+        length += der.length;
+        Sha256Engine.sha256(preimage, 0, length, scratch.hash, 0);
+        ByteBuffer hash = ByteBuffer.wrap(scratch.hash);
+        return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    // Per-thread key preimage and hash buffers, so a lookup allocates only the key.
+    private static final class Scratch {
+        private byte[] preimage = new byte[256];
+        private final byte[] hash = new byte[Sha256Engine.HASH_LENGTH];
+
+        byte[] preimage(int n) {
+            if (preimage.length < n) {
+                preimage = new byte[n];
+            }
+            return preimage;
+        }
+    }
+
+    private static final class Key {
+        private final long h0;
+        private final long h1;
+        private final long h2;
+        private final long h3;
+
+        private Key(long h0, long h1, long h2, long h3) {
+            this.h0 = h0;
+            this.h1 = h1;
+            this.h2 = h2;
+            this.h3 = h3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key other = (Key) o;
+            return h0 == other.h0 && h1 == other.h1 && h2 == other.h2 && h3 == other.h3;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(h0);  // already a salted hash
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "{"
+                + "size=" + size()
+                + ", hits=" + getHits()
+                + ", misses=" + getMisses()
+                + "}";
+    }
+}
@@ -1,6 +1,7 @@
 package mandioca.bitcoin.function;
 
 import mandioca.bitcoin.util.Ripemd160;
+import mandioca.bitcoin.util.Sha256Engine;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -33,27 +34,23 @@ public class HashFunctions {
         }
     };
 
-    public static final Function<byte[], byte[]> sha256Hash = (data) -> {
-        MessageDigest digest = newSHA256Digest.get();
-        return digest.digest(data);
-    };
+    // sha256Hash, hash256 and hash256FromOffset use Sha256Engine's thread-local digests
+    public static final Function<byte[], byte[]> sha256Hash = Sha256Engine::sha256;
 
-    public static final Function<byte[], byte[]> hash256 = (data) -> {
-        // a double sha256 hash
-        MessageDigest digest = newSHA256Digest.get();
-        byte[] hash = digest.digest(data); // 1st hash
-        return digest.digest(hash); // 2nd hash
-    };
+    public static final Function<byte[], byte[]> hash256 = Sha256Engine::hash256;  // a double sha256 hash
 
     public static final TriFunction<byte[], Integer, Integer, byte[]> hash256FromOffset = (data, offset, len) -> {
-        MessageDigest digest = newSHA256Digest.get();
-        digest.update(data, offset, len);
-        byte[] hash = digest.digest(data);          // 1st hash
-        return digest.digest(hash);    // 2nd hash
+        byte[] hash = new byte[Sha256Engine.HASH_LENGTH];
+        Sha256Engine.hash256(data, offset, len, hash, 0);
+        return hash;
     };
 
     public static final Function<byte[], byte[]> hashRipemd160 = Ripemd160::getHash;
 
-    public static final Function<byte[], byte[]> hash160 = (data) -> hashRipemd160.apply(sha256Hash.apply(data));
+    public static final Function<byte[], byte[]> hash160 = (data) -> {  // ripemd160(sha256), without intermediate arrays
+        byte[] hash = new byte[Ripemd160.HASH_LENGTH];
+        Ripemd160.hash160(data, 0, data.length, hash, 0);
+        return hash;
+    };
 
 }
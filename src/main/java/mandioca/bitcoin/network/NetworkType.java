@@ -10,20 +10,20 @@ import static mandioca.bitcoin.util.HexUtils.HEX;
 @SuppressWarnings("unused")
 public enum NetworkType {
 
-    MAINNET(P2PKH_ADDR_NET_PREFIX, P2SH_ADDR_NET_PREFIX, "mainnet"),
-    REGTEST(new byte[]{(byte) MASK_0xFF}, new byte[]{(byte) MASK_0xFF}, "regtest"),
-    TESTNET3(P2PKH_ADDR_TESTNET_PREFIX, P2SH_ADDR_TESTNET_PREFIX, "testnet");
+    MAINNET(P2PKH_ADDR_NET_PREFIX, P2SH_ADDR_NET_PREFIX, SEGWIT_ADDR_NET_HRP, "mainnet"),
+    REGTEST(new byte[]{(byte) MASK_0xFF}, new byte[]{(byte) MASK_0xFF}, SEGWIT_ADDR_REGTEST_HRP, "regtest"),
+    TESTNET3(P2PKH_ADDR_TESTNET_PREFIX, P2SH_ADDR_TESTNET_PREFIX, SEGWIT_ADDR_TESTNET_HRP, "testnet");
 
     final byte[] p2pkhPrefix;
-    // todo final byte[] p2wpkhPrefix;
     final byte[] p2shPrefix;
-    // todo final byte[] p2wshPrefix;
+    final String segwitHrp;  // human-readable part of p2wpkh and p2wsh (bech32) addresses
 
     final String description;
 
-    NetworkType(byte[] p2pkhPrefix, byte[] p2shPrefix, String description) {
+    NetworkType(byte[] p2pkhPrefix, byte[] p2shPrefix, String segwitHrp, String description) {
         this.p2pkhPrefix = p2pkhPrefix;
         this.p2shPrefix = p2shPrefix;
+        this.segwitHrp = segwitHrp;
         this.description = description;
     }
 
@@ -35,6 +35,10 @@ public enum NetworkType {
         return p2shPrefix;
     }
 
+    public String segwitHrp() {
+        return segwitHrp;
+    }
+
     public String description() {
         return description;
     }
@@ -76,6 +80,7 @@ public enum NetworkType {
                 "name='" + this.name() +
                 ", p2pkhPrefix=" + HEX.byteToPrefixedHex.apply(p2pkhPrefix[0]) +
                 ", p2pshPrefix=" + HEX.byteToPrefixedHex.apply(p2shPrefix[0]) +
+                ", segwitHrp='" + segwitHrp + '\'' +
                 ", description='" + description + '\'' +
                 '}';
     }
@@ -1,12 +1,10 @@
 package mandioca.bitcoin.network.block;
 
+import mandioca.bitcoin.util.Sha256Batch;
+
 import java.io.ByteArrayInputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.function.BiFunction;
-import java.util.function.Consumer;
-import java.util.function.Function;
 
 import static mandioca.bitcoin.function.ByteArrayFunctions.*;
 import static mandioca.bitcoin.function.EndianFunctions.reverse;
@@ -26,35 +24,12 @@ import static mandioca.bitcoin.util.HexUtils.HEX;
 @SuppressWarnings("unused")
 public class BlockHeader {
 
-    private final Consumer<List<byte[]>> balanceMerkleTree = (hashes) -> {
-        if (hashes.size() % 2 == 1) {   // if odd # of leaves, duplicate the last hash for balance
-            hashes.add(hashes.get(hashes.size() - 1));
-        }
-    };
-    private final BiFunction<byte[], byte[], byte[]> merkleParent = (l, r) -> hash256.apply(concatenate.apply(l, r));
-    private final Function<List<byte[]>, List<byte[]>> merkleParentLevel = (hashes) -> {
-        balanceMerkleTree.accept(hashes);
-        List<byte[]> parentLevel = new ArrayList<>();
-        for (int i = 0; i < hashes.size(); i += 2) { // skip 2
-            byte[] parent = merkleParent.apply(hashes.get(i), hashes.get(i + 1));
-            parentLevel.add(parent);
-        }
-        return parentLevel;
-    };
-    private final Function<List<byte[]>, byte[]> calcMerkleRoot = (hashes) -> {
-        List<byte[]> currentHashes = hashes;
-        while (currentHashes.size() > 1) {
-            currentHashes = merkleParentLevel.apply(currentHashes);
-        }
-        assert 1 == currentHashes.size() : "there can be only one merkle root";
-        return currentHashes.get(0);
-    };
     private final BiFunction<byte[][], byte[], Boolean> validateMerkleRoot = (txHashes, merkleRoot) -> {
-        List<byte[]> reversedHashes = new ArrayList<>();
-        for (byte[] txHash : txHashes) {
-            reversedHashes.add(reverse.apply(txHash));
+        byte[] leaves = new byte[txHashes.length * 32];  // reversed tx hashes, one after another
+        for (int i = 0; i < txHashes.length; i++) {
+            System.arraycopy(reverse.apply(txHashes[i]), 0, leaves, i * 32, 32);
         }
-        byte[] calculatedRoot = reverse.apply(calcMerkleRoot.apply(reversedHashes));
+        byte[] calculatedRoot = reverse.apply(Sha256Batch.merkleRoot(leaves, txHashes.length));
         return Arrays.equals(calculatedRoot, merkleRoot);
     };
 
@@ -139,7 +114,7 @@ public class BlockHeader {
     }
 
     public String getHashHex() {
-        return HEX.encode(hash());
+        return HEX.encodeReversed(hash256.apply(serialize()));
     }
 
     public byte[] getVersion() {
@@ -154,7 +129,7 @@ public class BlockHeader {
     }
 
     public String getVersionHex() {
-        return HEX.encode(reverse.apply(version));
+        return HEX.encodeReversed(version);
     }
 
     public byte[] getPreviousBlock() {
@@ -203,7 +178,7 @@ public class BlockHeader {
     }
 
     public String getTimestampHex() {
-        return HEX.encode(reverse.apply(timestamp));
+        return HEX.encodeReversed(timestamp);
     }
 
     public byte[] getBits() {
@@ -211,7 +186,7 @@ public class BlockHeader {
     }
 
     public String getBitsHex() {
-        return HEX.encode(reverse.apply(bits));
+        return HEX.encodeReversed(bits);
     }
 
     public byte[] getNonce() {
@@ -223,7 +198,7 @@ public class BlockHeader {
     }
 
     public String getNonceHex() {
-        return HEX.encode(reverse.apply(nonce));
+        return HEX.encodeReversed(nonce);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package mandioca.bitcoin.network.block;
 
 import mandioca.bitcoin.function.BigIntegerFunctions;
+import mandioca.bitcoin.util.Sha256Batch;
 
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
@@ -55,6 +56,25 @@ final class BlockHelper {
         return isLessThan.apply(proof, target);
     }
 
+    boolean[] checkProofOfWork(BlockHeader[] blockHeaders) {
+        // Serializes the headers one after another and hashes them in one batch, instead of one array per header.
+        byte[] headers = new byte[blockHeaders.length * 80];
+        for (int i = 0; i < blockHeaders.length; i++) {
+            arraycopy(blockHeaders[i].serialize(), 0, headers, i * 80, 80);
+        }
+        byte[] hashes = new byte[blockHeaders.length * 32];
+        Sha256Batch.hash256(headers, 0, 80, blockHeaders.length, hashes, 0);
+        boolean[] valid = new boolean[blockHeaders.length];
+        for (int i = 0; i < blockHeaders.length; i++) {
+            byte[] hash = new byte[32];
+            for (int j = 0; j < 32; j++) {
+                hash[j] = hashes[i * 32 + 31 - j];      // little endian hash to big endian proof
+            }
+            valid[i] = isLessThan.apply(new BigInteger(1, hash), bitsToTarget(blockHeaders[i].bits));
+        }
+        return valid;
+    }
+
     BigInteger difficulty(BigInteger target) {
         //  Returns the block getDifficulty based on the bits.
         //  Difficulty is (getTarget of lowest getDifficulty) / (self's getTarget).
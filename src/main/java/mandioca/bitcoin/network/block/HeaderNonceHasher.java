@@ -0,0 +1,95 @@
+package mandioca.bitcoin.network.block;
+
+import mandioca.bitcoin.util.Sha256;
+
+import java.math.BigInteger;
+
+import static java.lang.System.arraycopy;
+
+/**
+ * Hashes one 80-byte block header with many nonces.  The first 64 bytes of the header (version, previous block
+ * hash and most of the merkle root) do not depend on the nonce, so they are compressed once, and each nonce costs
+ * the compression of the padded last 16 bytes plus the second SHA-256:  two compressions instead of three.
+ * <p>
+ * Not thread-safe;  give each scanning thread its own instance.
+ */
+public final class HeaderNonceHasher {
+
+    static final int HEADER_LENGTH = 80;
+    static final int NONCE_OFFSET = 76;
+
+    private final Sha256 midstate;                         // state after header[0, 64)
+    private final byte[] tail = new byte[NONCE_OFFSET - Sha256.BLOCK_LENGTH];  // header[64, 76)
+    private final Sha256 sha256 = new Sha256();
+    private final byte[] hash = new byte[Sha256.HASH_LENGTH];
+
+    public HeaderNonceHasher(BlockHeader blockHeader) {
+        this(blockHeader.serialize());
+    }
+
+    /**
+     * @param header 80-byte serialized block header;  its nonce field is ignored
+     */
+    public HeaderNonceHasher(byte[] header) {
+        if (header.length != HEADER_LENGTH) {
+            throw new IllegalArgumentException("Block header must be " + HEADER_LENGTH + " bytes, not " + header.length);
+        }
+        this.midstate = new Sha256().update(header, 0, Sha256.BLOCK_LENGTH);
+        arraycopy(header, Sha256.BLOCK_LENGTH, tail, 0, tail.length);
+    }
+
+    /**
+     * Writes hash256 of the header with the given nonce to out[off, off + 32), in the byte order of the hash (the
+     * reverse of {@link BlockHeader#hash()}).
+     */
+    public void hash(int nonce, byte[] out, int off) {
+        sha256.restore(midstate).update(tail, 0, tail.length).updateIntLE(nonce).digestHash256(out, off);
+    }
+
+    /**
+     * Returns the first nonce in [from, to) whose header hash, as a little endian number, is below the target, or -1
+     * if there is none.
+     *
+     * @param from   first nonce, 0 to 2^32 - 1
+     * @param to     nonce after the last, up to 2^32
+     * @param target proof of work target, as from the header's bits
+     * @return long nonce, or -1
+     */
+    public long findNonce(long from, long to, BigInteger target) {
+        if (from < 0 || to > 0x100000000L) {
+            throw new IllegalArgumentException("Nonce range [" + from + ", " + to + ") is not within 32 bits");
+        }
+        byte[] targetBytes = toLittleEndian32(target);
+        for (long nonce = from; nonce < to; nonce++) {
+            hash((int) nonce, hash, 0);
+            if (isBelow(hash, targetBytes)) {
+                return nonce;
+            }
+        }
+        return -1;
+    }
+
+    // Compares two 32-byte little endian numbers, most significant byte (the last) first.
+    private static boolean isBelow(byte[] hash, byte[] target) {
+        for (int i = 31; i >= 0; i--) {
+            int h = hash[i] & 0xFF;
+            int t = target[i] & 0xFF;
+            if (h != t) {
+                return h < t;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] toLittleEndian32(BigInteger n) {
+        if (n.signum() < 0 || n.bitLength() > 256) {
+            throw new IllegalArgumentException("Target must be a 256-bit unsigned number");
+        }
+        byte[] bigEndian = n.toByteArray();
+        byte[] littleEndian = new byte[32];
+        for (int i = 0; i < bigEndian.length && i < 32; i++) {
+            littleEndian[i] = bigEndian[bigEndian.length - 1 - i];
+        }
+        return littleEndian;
+    }
+}
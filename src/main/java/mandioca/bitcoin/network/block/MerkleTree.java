@@ -3,6 +3,8 @@ package mandioca.bitcoin.network.block;
 import mandioca.bitcoin.function.TriFunction;
 import mandioca.bitcoin.stack.BlockingStack;
 import mandioca.bitcoin.stack.Stack;
+import mandioca.bitcoin.util.Sha256Batch;
+import mandioca.bitcoin.util.Sha256Engine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +15,6 @@ import java.util.List;
 import java.util.function.*;
 
 import static mandioca.bitcoin.function.ByteArrayFunctions.*;
-import static mandioca.bitcoin.function.HashFunctions.hash256;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 
 
@@ -51,27 +52,36 @@ public final class MerkleTree {
 
     public final Supplier<String> rootHex = () -> nodeHex.apply(0, 0);
 
-    public final BiFunction<byte[], byte[], byte[]> merkleParent = (l, r) -> hash256.apply(concatenate.apply(l, r));
+    public final BiFunction<byte[], byte[], byte[]> merkleParent = (l, r) -> {
+        byte[] parent = new byte[32];
+        Sha256Engine.hash256(l, r, parent, 0);  // hash256(l || r), without concatenating
+        return parent;
+    };
 
     public final Function<List<byte[]>, List<byte[]>> merkleParentLevel = (hashes) -> {
         balanceTree.accept(hashes);
-        List<byte[]> parentLevel = new ArrayList<>();
-        for (int i = 0; i < hashes.size(); i += 2) { // skip 2
-            byte[] parent = merkleParent.apply(hashes.get(i), hashes.get(i + 1));
-            parentLevel.add(parent);
+        int numParents = hashes.size() / 2;
+        byte[] parents = new byte[numParents * 32];
+        Sha256Batch.hash256(concatenate(hashes), 0, 64, numParents, parents, 0);  // each pair is 64 contiguous bytes
+        List<byte[]> parentLevel = new ArrayList<>(numParents);
+        for (int i = 0; i < numParents; i++) {
+            parentLevel.add(Arrays.copyOfRange(parents, i * 32, (i + 1) * 32));
         }
         return parentLevel;
     };
 
     @SuppressWarnings("unused")
-    public final Function<List<byte[]>, byte[]> merkleRoot = (hashes) -> {
-        List<byte[]> currentHashes = hashes;
-        while (currentHashes.size() > 1) {
-            currentHashes = merkleParentLevel.apply(currentHashes);
+    public final Function<List<byte[]>, byte[]> merkleRoot = (hashes) ->
+            Sha256Batch.merkleRoot(concatenate(hashes), hashes.size());  // level by level, without per-node arrays
+
+    // Lays 32-byte hashes out one after another.
+    private static byte[] concatenate(List<byte[]> hashes) {
+        byte[] level = new byte[hashes.size() * 32];
+        for (int i = 0; i < hashes.size(); i++) {
+            System.arraycopy(hashes.get(i), 0, level, i * 32, 32);
         }
-        assert 1 == currentHashes.size() : "there can be only one merkle root";
-        return currentHashes.get(0);
-    };
+        return level;
+    }
 
     public final TriFunction<Integer, Integer, Integer, Integer> calcNumNodesAtDepth = (depth, maxDepth, totalLeaves) -> {
         @SuppressWarnings("BigDecimalMethodWithoutRoundingCalled")
@@ -63,7 +63,7 @@ public final class GetBlocksMessage extends AbstractNetworkMessage implements Ne
     };
     private final Function<byte[], String> hashLittleEndianBytesToHex = (b) -> {
         validateBlockLocatorBytes.accept(b);
-        return HEX.encode(reverse.apply(b));
+        return HEX.encodeReversed(b);
     };
 
     /**
@@ -58,7 +58,7 @@ public final class GetHeadersMessage extends AbstractNetworkMessage implements N
     };
     private final Function<byte[], String> hashLittleEndianBytesToHex = (b) -> {
         validateBlockLocatorBytes.accept(b);
-        return HEX.encode(reverse.apply(b));
+        return HEX.encodeReversed(b);
     };
 
     /**
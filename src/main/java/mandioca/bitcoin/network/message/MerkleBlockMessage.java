@@ -131,7 +131,7 @@ public final class MerkleBlockMessage extends AbstractNetworkMessage implements
     }
 
     public String getVersionHex() {
-        return HEX.encode(reverse.apply(version));
+        return HEX.encodeReversed(version);
     }
 
     public byte[] getPreviousBlock() {
@@ -180,7 +180,7 @@ public final class MerkleBlockMessage extends AbstractNetworkMessage implements
     }
 
     public String getTimestampHex() {
-        return HEX.encode(reverse.apply(timestamp));
+        return HEX.encodeReversed(timestamp);
     }
 
     public byte[] getBits() {
@@ -188,7 +188,7 @@ public final class MerkleBlockMessage extends AbstractNetworkMessage implements
     }
 
     public String getBitsHex() {
-        return HEX.encode(reverse.apply(bits));
+        return HEX.encodeReversed(bits);
     }
 
     public byte[] getNonce() {
@@ -200,7 +200,7 @@ public final class MerkleBlockMessage extends AbstractNetworkMessage implements
     }
 
     public String getNonceHex() {
-        return HEX.encode(reverse.apply(nonce));
+        return HEX.encodeReversed(nonce);
     }
 
     public byte[] getTransactionCount() {
@@ -4,6 +4,7 @@ import java.io.DataInputStream;
 import java.nio.ByteBuffer;
 
 import static mandioca.bitcoin.function.ByteArrayFunctions.toDataInputStream;
+import static mandioca.bitcoin.util.VarintUtils.VARINT;
 
 public class ByteBufferParser extends AbstractParser implements Parser {
     private final ByteBuffer byteBuffer;
@@ -50,8 +51,11 @@ public class ByteBufferParser extends AbstractParser implements Parser {
 
     @Override
     public long readVarint() {
-        byte[] vi = new byte[]{read()}; // is big endian ordered in stream
-        return readVarint(vi);  // return little endian
+        try {
+            return VARINT.read(byteBuffer);
+        } catch (Exception e) {
+            throw new RuntimeException("error reading varint from " + getByteBufferInfo(), e);
+        }
     }
 
     @Override
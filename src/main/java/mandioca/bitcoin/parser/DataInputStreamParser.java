@@ -3,6 +3,8 @@ package mandioca.bitcoin.parser;
 import java.io.DataInputStream;
 import java.io.IOException;
 
+import static mandioca.bitcoin.util.VarintUtils.VARINT;
+
 public class DataInputStreamParser extends AbstractParser implements Parser {
     private final DataInputStream is;
 
@@ -59,9 +61,7 @@ public class DataInputStreamParser extends AbstractParser implements Parser {
             if (is.available() == 0) {
                 throw new RuntimeException("Attempt to read consumed DataInputStream; available() = 0");
             }
-            byte[] vi = new byte[1]; // is big endian ordered in stream
-            is.readFully(vi);
-            return readVarint(vi);
+            return VARINT.read(is);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
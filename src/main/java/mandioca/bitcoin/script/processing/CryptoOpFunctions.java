@@ -4,6 +4,7 @@ package mandioca.bitcoin.script.processing;
 
 import mandioca.bitcoin.ecc.Secp256k1Point;
 import mandioca.bitcoin.ecc.Signature;
+import mandioca.bitcoin.ecc.SignatureCache;
 import mandioca.bitcoin.stack.Stack;
 
 import java.math.BigInteger;
@@ -23,6 +24,9 @@ import static mandioca.bitcoin.stack.Stack.stackIsNotEmpty;
 
 class CryptoOpFunctions extends AbstractOpFunctions {
 
+    // Valid signatures are cached, so a signature seen in a tx message is not verified again when seen in a block.
+    private static final SignatureCache signatureCache = SignatureCache.getInstance();
+
     static final Function<Stack, Boolean> opRipemd160 = (s) -> {
         // The input is hashed using RIPEMD-160
         // def op_ripemd160(stack):
@@ -122,9 +126,12 @@ class CryptoOpFunctions extends AbstractOpFunctions {
                 byte[] sec = s.pop();                   // top element of the stack is the SEC pubkey
                 int derLength = s.peek().length - 1;    // next element of the stack is the DER signature
                 byte[] der = Arrays.copyOfRange(s.pop(), 0, derLength); // ignored last byte of der (the hash_type)
-                Secp256k1Point point = Secp256k1Point.parse(sec);   // parse the serialized pubkey
-                Signature signature = Signature.parse(der);         // parse the serialized signature
-                if (point.verify(z, signature)) {
+                boolean valid = signatureCache.verify(z, sec, der, () -> {
+                    Secp256k1Point point = Secp256k1Point.parse(sec);   // parse the serialized pubkey
+                    Signature signature = Signature.parse(der);         // parse the serialized signature
+                    return point.verify(z, signature);
+                });
+                if (valid) {
                     s.push(ENC_1);
                 } else {
                     s.push(ENC_0);
@@ -187,14 +194,18 @@ class CryptoOpFunctions extends AbstractOpFunctions {
                 Stream.of(secPubKeys).forEachOrdered(sec -> points.add(Secp256k1Point.parse(sec)));
                 List<Signature> signatures = new ArrayList<>(m);
                 Stream.of(derSignatures).forEachOrdered(der -> signatures.add(Signature.parse(der)));
-                for (Signature signature : signatures) {
+                List<byte[]> secs = new ArrayList<>(Arrays.asList(secPubKeys));  // kept in step with points
+                for (int sigIndex = 0; sigIndex < m; sigIndex++) {
+                    Signature signature = signatures.get(sigIndex);
+                    byte[] der = derSignatures[sigIndex];
                     if (points.isEmpty()) {
                         System.err.println("OP_CHECKMULTISIG signatures no good or not in right order");
                         return false;
                     }
                     for (int i = 0; i < m; i++) {  // find point which works with this signature
                         Secp256k1Point point = points.remove(0);
-                        if (point.verify(z, signature)) {
+                        byte[] sec = secs.remove(0);
+                        if (signatureCache.verify(z, sec, der, () -> point.verify(z, signature))) {
                             break; // found it, move on to the next signature
                         }
                     }
@@ -5,6 +5,7 @@ import mandioca.bitcoin.network.NetworkType;
 import mandioca.bitcoin.script.Interpreter;
 import mandioca.bitcoin.script.Script;
 import mandioca.bitcoin.script.ScriptError;
+import mandioca.bitcoin.util.Sha256;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,6 +15,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
@@ -53,9 +55,17 @@ public class Tx implements Transaction {
     protected byte[] locktime;
 
     protected boolean isSegwit;
-    protected byte[] hashPrevouts = null;
-    protected byte[] hashSequence = null;
-    protected byte[] hashOutputs = null;
+    protected volatile byte[] hashPrevouts = null;
+    protected volatile byte[] hashSequence = null;
+    protected volatile byte[] hashOutputs = null;
+
+    // Signature hash preimage parts shared by all inputs, computed lazily.  Each is built completely before it is
+    // published through a volatile field or an atomic array element, and never modified after, so threads computing
+    // signature hashes for inputs of the same tx at once see whole values;  at worst two compute the same part.
+    private volatile Sha256 bip143SigHashPrefix;
+    private volatile AtomicReferenceArray<Sha256> legacySigHashPrefixes;
+    private volatile byte[][] unsignedInputs;
+    private volatile byte[] legacySigHashSuffix;
 
     protected final NetworkType networkType;
 
@@ -118,7 +128,7 @@ public class Tx implements Transaction {
 
 
     public String id() {
-        return HEX.encode(hash());
+        return HEX.encodeReversed(hash256.apply(serializer.init(this).serializePreSegwit()));
     }
 
     public byte[] hash() {
@@ -161,41 +171,92 @@ public class Tx implements Transaction {
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     public BigInteger sigHash(int inputIndex, Optional<Script> redeemScript) {
         // Returns integer representation of the hash to be signed for TxIn[input_index].
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            baos.write(version);                                        // start serialization with version
-            baos.write(VARINT.encode(getDeserializedInputs().length));   // serializeInternal # inputs
-
-            Script scriptSig;
-            for (int i = 0; i < getDeserializedInputs().length; i++) {  // for each input
-                TxIn txIn = getDeserializedInputs()[i];
-                if (i == inputIndex) {  //  if input index is the one being signed...
-                    // prev tx ScriptPubkey is ScriptSig
-                    scriptSig = redeemScript.orElseGet(() -> txIn.scriptPubKey(networkType));
-                } else {
-                    scriptSig = new Script(new byte[][]{});      // else, ScriptSig is empty
-                }
-
-                // add serialization of input with the ScriptSig we want
-                TxIn t = new TxIn(txIn.previousTransactionId, txIn.previousTransactionIndex, scriptSig, txIn.sequence);
-                baos.write(t.serialize());
+        //
+        // The preimage is version, # inputs, every input with an empty ScriptSig except the one being signed,
+        // outputs, locktime and hash type.  The inputs before inputIndex are the same for every later input, so
+        // the hash state after each of them is kept and restored, instead of rehashing them for every input.
+        TxIn txIn = getDeserializedInputs()[inputIndex];
+        Script scriptSig = redeemScript.orElseGet(() -> txIn.scriptPubKey(networkType));  // prev tx ScriptPubkey is ScriptSig
+        TxIn t = new TxIn(txIn.previousTransactionId, txIn.previousTransactionIndex, scriptSig, txIn.sequence);
+
+        Sha256 sha256 = new Sha256().restore(legacySigHashPrefix(inputIndex));
+        sha256.update(t.serialize());                                  // add input with the ScriptSig we want
+        byte[][] unsignedInputs = unsignedInputs();
+        for (int i = inputIndex + 1; i < unsignedInputs.length; i++) {
+            sha256.update(unsignedInputs[i]);                          // later inputs, ScriptSig empty
+        }
+        sha256.update(legacySigHashSuffix());                          // # outputs, outputs, locktime, SIGHASH_ALL
+        byte[] hash = new byte[Sha256.HASH_LENGTH];
+        sha256.digestHash256(hash, 0);                                 // hash256 the serialization
+        return new BigInteger(1, hash);                                // convert result to big endian integer
+    }
+
+    // Returns the hash state after version, # inputs and the (unsigned) inputs before inputIndex.
+    private Sha256 legacySigHashPrefix(int inputIndex) {
+        byte[][] unsignedInputs = unsignedInputs();
+        AtomicReferenceArray<Sha256> prefixes = this.legacySigHashPrefixes;
+        if (prefixes == null) {
+            prefixes = new AtomicReferenceArray<>(unsignedInputs.length);
+            prefixes.set(0, new Sha256()
+                    .update(version)                                   // start serialization with version
+                    .update(VARINT.encode(unsignedInputs.length)));    // serialize # inputs
+            this.legacySigHashPrefixes = prefixes;
+        }
+        int known = inputIndex;
+        while (prefixes.get(known) == null) {
+            known--;
+        }
+        if (known < inputIndex) {
+            Sha256 sha256 = prefixes.get(known).snapshot();
+            for (int i = known; i < inputIndex; i++) {
+                sha256.update(unsignedInputs[i]);
+                prefixes.set(i + 1, sha256.snapshot());
             }
-
-            baos.write(VARINT.encode(getDeserializedOutputs().length));  // add serialized # outputs
-            for (TxOut o : getDeserializedOutputs()) {                  // add serialized outputs
-                baos.write(o.serialize());
+        }
+        return prefixes.get(inputIndex);
+    }
+
+    // Returns each input serialized with an empty ScriptSig.
+    private byte[][] unsignedInputs() {
+        if (this.unsignedInputs == null) {
+            TxIn[] inputs = getDeserializedInputs();
+            byte[][] serialized = new byte[inputs.length][];
+            Script empty = new Script(new byte[][]{});
+            for (int i = 0; i < inputs.length; i++) {
+                TxIn txIn = inputs[i];
+                serialized[i] = new TxIn(txIn.previousTransactionId, txIn.previousTransactionIndex, empty, txIn.sequence).serialize();
             }
+            this.unsignedInputs = serialized;
+        }
+        return this.unsignedInputs;
+    }
 
-            baos.write(locktime);                                       // add locktime
-            baos.write(SIGHASH_ALL.littleEndian());                     // add 4 byte littleEndian hash type SIGHASH_ALL
-            byte[] hash = hash256.apply(baos.toByteArray());            // hash256 the serialization
-            return new BigInteger(1, hash);                     // convert result to big endian integer
-        } catch (IOException e) {
-            throw new RuntimeException("Error computing signature hash z", e);
+    private byte[] legacySigHashSuffix() {
+        if (this.legacySigHashSuffix == null) {
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                baos.write(VARINT.encode(getDeserializedOutputs().length));  // add serialized # outputs
+                for (TxOut o : getDeserializedOutputs()) {                  // add serialized outputs
+                    baos.write(o.serialize());
+                }
+                baos.write(locktime);                                       // add locktime
+                baos.write(SIGHASH_ALL.littleEndian());                     // add 4 byte littleEndian hash type SIGHASH_ALL
+                this.legacySigHashSuffix = baos.toByteArray();
+            } catch (IOException e) {
+                throw new RuntimeException("Error computing signature hash z", e);
+            }
         }
+        return this.legacySigHashSuffix;
     }
 
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     BigInteger sigHashBip143(int inputIndex, Optional<Script> redeemScript, Optional<Script> witnessScript) {
+        return sigHashBip143(inputIndex, redeemScript, witnessScript,
+                getDeserializedInputs()[inputIndex].valueAsLong(NETWORK));
+    }
+
+    // pkg protected for testing with known input amounts, without fetching the previous transactions
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    BigInteger sigHashBip143(int inputIndex, Optional<Script> redeemScript, Optional<Script> witnessScript, long amount) {
         // fixes quadratic hashing problem?  (todo verify that's really true)
 
         log.info("********** sigHashBip143 **********");
@@ -212,12 +273,9 @@ public class Tx implements Transaction {
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
             // per BIP143 spec
             // s = int_to_little_endian(self.version, 4)
-            baos.write(version);
             // s += self.hash_prevouts() + self.hash_sequence()
-            baos.write(hashPreviousOuts());
+            // This 68 byte prefix is the same for every input;  bip143SigHashPrefix() holds its hash state.
             log.info("\thashPreviousOuts = {}", HEX.encode(hashPreviousOuts()));
-
-            baos.write(hashSequence());
             log.info("\thashSequence = {}", HEX.encode(hashSequence()));
 
             // [::-1] -> all items in the array, reversed
@@ -243,12 +301,12 @@ public class Tx implements Transaction {
             baos.write(scriptCode);
 
             // s += int_to_little_endian(tx_in.value(), 8)
-            log.info("\ttxIn.value = {}", HEX.encode(toLittleEndian.apply(txIn.valueAsLong(NETWORK), Long.BYTES)));
-            baos.write(toLittleEndian.apply(txIn.valueAsLong(NETWORK), Long.BYTES));
+            log.info("\ttxIn.value = {}", HEX.encode(toLittleEndian.apply(amount, Long.BYTES)));
+            baos.write(toLittleEndian.apply(amount, Long.BYTES));
 
             // s += int_to_little_endian(tx_in.sequence, 4)
             log.info("\ttxIn.sequence = {}", HEX.encode(txIn.sequence));
-            baos.write(txIn.sequence);
+            baos.write(reverse.apply(txIn.sequence));
 
             // s += self.hash_outputs()
             log.info("\thashOutputs = {}", HEX.encode(hashOutputs()));
@@ -261,7 +319,8 @@ public class Tx implements Transaction {
             // s += int_to_little_endian(SIGHASH_ALL, 4)
             baos.write(SIGHASH_ALL.littleEndian());
 
-            byte[] hash = hash256.apply(baos.toByteArray());            // hash256 the serialization
+            byte[] hash = new byte[Sha256.HASH_LENGTH];                 // hash256 the serialization
+            new Sha256().restore(bip143SigHashPrefix()).update(baos.toByteArray()).digestHash256(hash, 0);
             log.info("\thash = {}", HEX.encode(hash));
 
             BigInteger z = new BigInteger(1, hash); // convert result to big endian integer
@@ -272,6 +331,14 @@ public class Tx implements Transaction {
         }
     }
 
+    // Returns the hash state after version, hashPrevouts and hashSequence.
+    private Sha256 bip143SigHashPrefix() {
+        if (this.bip143SigHashPrefix == null) {
+            this.bip143SigHashPrefix = new Sha256().update(version).update(hashPreviousOuts()).update(hashSequence());
+        }
+        return this.bip143SigHashPrefix;
+    }
+
     byte[] hashPreviousOuts() {
         if (this.hashPrevouts == null) {
             // TODO Use already serialized fields after testing; use a ByteBuffer too, since we know size  byte arrays.
@@ -289,7 +356,7 @@ public class Tx implements Transaction {
                     //log.info("\tprevIdx={}", prevIdxHex);
                 }
 
-                this.hashPrevouts = hash256.apply(baos.toByteArray());
+                byte[] prevouts = hash256.apply(baos.toByteArray());
                 //String hashPrevoutsHex = HEX.encode(hashPrevouts);
                 //log.info("\thashPrevouts={}", hashPrevoutsHex);
 
@@ -302,6 +369,7 @@ public class Tx implements Transaction {
                 this.hashSequence = hash256.apply(baos.toByteArray());
                 //String hashSequenceHex = HEX.encode(hashSequence);
                 //log.info("\thashSequence={}", hashSequenceHex);
+                this.hashPrevouts = prevouts;   // last:  once hashPrevouts is set, hashSequence is too
 
             } catch (IOException e) {
                 throw new RuntimeException("error computing Bip 0134 signature hash z", e);
@@ -17,7 +17,6 @@ import java.util.function.Function;
 
 import static mandioca.bitcoin.function.ByteArrayFunctions.hexToByteArrayInputStream;
 import static mandioca.bitcoin.function.ByteArrayFunctions.toByteArrayInputStream;
-import static mandioca.bitcoin.function.EndianFunctions.reverse;
 import static mandioca.bitcoin.function.HashFunctions.hash256;
 import static mandioca.bitcoin.rpc.RpcCommand.*;
 import static mandioca.bitcoin.transaction.Tx.parse;
@@ -109,7 +108,7 @@ public class TxFetcher {
         if (tx.isSegwit) {
             computedHash = tx.id();
         } else {
-            computedHash = HEX.encode(reverse.apply(hash256.apply(bytes)));
+            computedHash = HEX.encodeReversed(hash256.apply(bytes));
         }
         if (!computedHash.equals(txId)) {
             throw new IllegalStateException("server lied;  txid in fetched tx '" + tx.id()
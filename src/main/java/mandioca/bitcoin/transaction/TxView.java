@@ -0,0 +1,295 @@
+package mandioca.bitcoin.transaction;
+
+import mandioca.bitcoin.network.NetworkType;
+import mandioca.bitcoin.util.Sha256Engine;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import static mandioca.bitcoin.network.NetworkConstants.HASH_LENGTH;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static mandioca.bitcoin.util.VarintUtils.VARINT;
+
+/**
+ * A read-only view of one serialized transaction in a shared ByteBuffer (heap, direct or mapped), such as a whole
+ * block's transactions.  Construction walks the serialization once to record where each input, output and witness
+ * starts;  fields are decoded from the buffer only when asked for, and nothing is copied.  The txid and wtxid are
+ * hashed from slices of the buffer.
+ * <p>
+ * Views use absolute reads and never move the buffer's position or limit, so many views can share one buffer.  The
+ * buffer's contents must not change while a view is in use.  Multi-byte fields are little endian whatever the
+ * buffer's byte order.  For a fully decoded, mutable {@link Tx}, see {@link #toTx(NetworkType)}.
+ */
+public final class TxView {
+
+    private static final int OUTPOINT_LENGTH = HASH_LENGTH + Integer.BYTES;
+    private static final int MIN_INPUT_LENGTH = OUTPOINT_LENGTH + 1 + Integer.BYTES;
+    private static final int MIN_OUTPUT_LENGTH = Long.BYTES + 1;
+    private static final int MIN_WITNESS_ITEM_LENGTH = 1;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int end;
+    private final boolean isSegwit;
+    private final int[] inputs;     // index of each input's outpoint
+    private final int[] outputs;    // index of each output's amount
+    private final int[] witnesses;  // index of each input's witness item count, if segwit
+    private final int locktimeIndex;
+    private final int[] txidSlices;  // version, inputs and outputs, locktime:  the serialization without witnesses
+    private final int[] wtxidSlices; // the whole serialization
+
+    /**
+     * Views the transaction starting at the buffer's position.
+     */
+    public TxView(ByteBuffer buffer) {
+        this(buffer, buffer.position());
+    }
+
+    /**
+     * Views the transaction starting at an absolute index of the buffer;  the next transaction, if any, starts at
+     * offset + {@link #length()}.
+     */
+    public TxView(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        try {
+            int i = offset + Integer.BYTES;
+            this.isSegwit = buffer.get(i) == 0x00 && buffer.get(i + 1) == 0x01;
+            if (isSegwit) {
+                i += 2;
+            }
+            int inputsStart = i;
+            this.inputs = new int[count(i, MIN_INPUT_LENGTH)];
+            i += VARINT.length(buffer.get(i));
+            for (int n = 0; n < inputs.length; n++) {
+                inputs[n] = i;
+                i = skipVarBytes(i + OUTPOINT_LENGTH) + Integer.BYTES;
+            }
+            this.outputs = new int[count(i, MIN_OUTPUT_LENGTH)];
+            i += VARINT.length(buffer.get(i));
+            for (int n = 0; n < outputs.length; n++) {
+                outputs[n] = i;
+                i = skipVarBytes(i + Long.BYTES);
+            }
+            int outputsEnd = i;
+            if (isSegwit) {
+                this.witnesses = new int[inputs.length];
+                for (int n = 0; n < witnesses.length; n++) {
+                    witnesses[n] = i;
+                    int items = count(i, MIN_WITNESS_ITEM_LENGTH);
+                    i += VARINT.length(buffer.get(i));
+                    for (int item = 0; item < items; item++) {
+                        i = skipVarBytes(i);
+                    }
+                }
+                this.txidSlices = new int[]{offset, Integer.BYTES, inputsStart, outputsEnd - inputsStart, i, Integer.BYTES};
+            } else {
+                this.witnesses = new int[0];
+                this.txidSlices = new int[]{offset, i + Integer.BYTES - offset};
+            }
+            this.locktimeIndex = i;
+            this.end = i + Integer.BYTES;
+            this.wtxidSlices = isSegwit ? new int[]{offset, end - offset} : txidSlices;
+            if (end > buffer.limit()) {
+                throw new IndexOutOfBoundsException("locktime ends at " + end);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new RuntimeException("error viewing transaction at offset " + offset
+                    + " of buffer with limit " + buffer.limit() + ";  it is truncated", e);
+        }
+    }
+
+    // Reads a count at index that cannot exceed the bytes left in the buffer.
+    private int count(int index, int minItemLength) {
+        long count = VARINT.read(buffer, index);
+        if (count < 0 || count > (buffer.limit() - index) / minItemLength) {
+            throw new RuntimeException("error viewing transaction at offset " + offset
+                    + ";  count " + Long.toUnsignedString(count) + " at index " + index + " is too large");
+        }
+        return (int) count;
+    }
+
+    // Returns the index after the varint length prefixed field at index.
+    private int skipVarBytes(int index) {
+        long length = VARINT.read(buffer, index);
+        if (length < 0 || length > buffer.limit() - index) {
+            throw new IndexOutOfBoundsException("field of " + Long.toUnsignedString(length) + " bytes at " + index);
+        }
+        return index + VARINT.length(buffer.get(index)) + (int) length;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of bytes of the serialized transaction, witnesses included.
+     */
+    public int length() {
+        return end - offset;
+    }
+
+    public boolean isSegwit() {
+        return isSegwit;
+    }
+
+    public int version() {
+        return (int) littleEndian(offset, Integer.BYTES);
+    }
+
+    public int locktime() {
+        return (int) littleEndian(locktimeIndex, Integer.BYTES);
+    }
+
+    public int inputCount() {
+        return inputs.length;
+    }
+
+    public int outputCount() {
+        return outputs.length;
+    }
+
+    /**
+     * Copies the 32-byte hash of the transaction spent by an input to out[outOff, outOff + 32), in serialized (not
+     * displayed) byte order.
+     */
+    public void previousTransactionId(int input, byte[] out, int outOff) {
+        int index = inputs[input];
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            out[outOff + i] = buffer.get(index + i);
+        }
+    }
+
+    /**
+     * Returns the hex id of the transaction spent by an input, as {@link Tx#id()} displays it.
+     */
+    public String previousTransactionIdHex(int input) {
+        byte[] hash = new byte[HASH_LENGTH];
+        previousTransactionId(input, hash, 0);
+        return HEX.encodeReversed(hash);
+    }
+
+    public int previousTransactionIndex(int input) {
+        return (int) littleEndian(inputs[input] + HASH_LENGTH, Integer.BYTES);
+    }
+
+    /**
+     * Returns the input's script sig, without its length prefix, as a read-only slice of the buffer.
+     */
+    public ByteBuffer scriptSig(int input) {
+        return varBytes(inputs[input] + OUTPOINT_LENGTH);
+    }
+
+    public int sequence(int input) {
+        int scriptSig = inputs[input] + OUTPOINT_LENGTH;
+        return (int) littleEndian(scriptSig + VARINT.length(buffer.get(scriptSig)) + varLength(scriptSig), Integer.BYTES);
+    }
+
+    /**
+     * Returns the output's amount in satoshis.
+     */
+    public long amount(int output) {
+        return littleEndian(outputs[output], Long.BYTES);
+    }
+
+    /**
+     * Returns the output's script pubkey, without its length prefix, as a read-only slice of the buffer.
+     */
+    public ByteBuffer scriptPubKey(int output) {
+        return varBytes(outputs[output] + Long.BYTES);
+    }
+
+    /**
+     * Returns the number of witness items of an input, 0 if this is not a segwit transaction.
+     */
+    public int witnessItemCount(int input) {
+        if (!isSegwit) {
+            return 0;
+        }
+        return (int) VARINT.read(buffer, witnesses[input]);
+    }
+
+    /**
+     * Returns an input's witness item, without its length prefix, as a read-only slice of the buffer.
+     */
+    public ByteBuffer witnessItem(int input, int item) {
+        if (item < 0 || item >= witnessItemCount(input)) {
+            throw new IndexOutOfBoundsException("Input " + input + " has no witness item " + item);
+        }
+        int index = witnesses[input] + VARINT.length(buffer.get(witnesses[input]));
+        for (int i = 0; i < item; i++) {
+            index = skipVarBytes(index);
+        }
+        return varBytes(index);
+    }
+
+    /**
+     * Puts the hash256 of the serialization without witnesses to out[outOff, outOff + 32), in serialized byte
+     * order, as a Merkle tree leaf or an outpoint of a spending transaction holds it.
+     */
+    public void txid(byte[] out, int outOff) {
+        Sha256Engine.hash256(buffer, txidSlices, out, outOff);
+    }
+
+    /**
+     * Puts the hash256 of the whole serialization to out[outOff, outOff + 32);  the same as the txid if this is
+     * not a segwit transaction.
+     */
+    public void wtxid(byte[] out, int outOff) {
+        Sha256Engine.hash256(buffer, wtxidSlices, out, outOff);
+    }
+
+    /**
+     * Returns the hex txid, as {@link Tx#id()} displays it.
+     */
+    public String id() {
+        byte[] hash = new byte[HASH_LENGTH];
+        txid(hash, 0);
+        return HEX.encodeReversed(hash);
+    }
+
+    /**
+     * Returns the hex wtxid, in the same byte order as {@link #id()}.
+     */
+    public String witnessId() {
+        byte[] hash = new byte[HASH_LENGTH];
+        wtxid(hash, 0);
+        return HEX.encodeReversed(hash);
+    }
+
+    /**
+     * Copies and parses the transaction into a fully decoded {@link Tx}.
+     */
+    public Tx toTx(NetworkType networkType) {
+        byte[] bytes = new byte[length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return Tx.parse(new ByteArrayInputStream(bytes), networkType);
+    }
+
+    private int varLength(int index) {
+        return (int) VARINT.read(buffer, index);
+    }
+
+    private ByteBuffer varBytes(int index) {
+        int start = index + VARINT.length(buffer.get(index));
+        ByteBuffer slice = buffer.asReadOnlyBuffer();
+        slice.limit(start + varLength(index)).position(start);
+        return slice.slice();
+    }
+
+    private long littleEndian(int index, int length) {
+        long n = 0;
+        for (int i = 0; i < length; i++) {
+            n |= (buffer.get(index + i) & 0xFFL) << (8 * i);
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return "TxView{ id=" + id() + ", offset=" + offset + ", length=" + length() + ", isSegwit=" + isSegwit
+                + ", inputs=" + inputs.length + ", outputs=" + outputs.length + " }";
+    }
+}
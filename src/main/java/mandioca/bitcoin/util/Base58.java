@@ -21,10 +21,12 @@ import mandioca.bitcoin.address.AddressFormatException;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static java.lang.System.arraycopy;
 import static mandioca.bitcoin.function.ByteArrayFunctions.MASK_0xFF;
-import static mandioca.bitcoin.function.HashFunctions.hash256;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 
 // Modified from https://github.com/bitcoinj/bitcoinj/tree/master/core/src/main/java/org/bitcoinj/core
@@ -46,7 +48,9 @@ import static mandioca.bitcoin.util.HexUtils.HEX;
  * <li>Doubleclicking selects the whole number as one word if it's all alphanumeric.</li>
  * </ul>
  * <p>
- * However, note that the encoding/decoding runs in O(n&sup2;) time, so it is not useful for large data.
+ * However, note that the encoding/decoding runs in O(n&sup2;) time, so it is not useful for large data.  To cut the
+ * constant, the encoder works on 32-bit words of input and base 58^5 limbs of output, and the decoder on groups of
+ * five base58 digits and 32-bit limbs of output, with limb buffers reused per thread.
  * <p>
  * The basic idea of the encoding is to treat the data bytes as a large number represented using
  * base-256 digits, convert the number to be represented using base-58 digits, preserve the exact
@@ -59,6 +63,12 @@ public class Base58 {
     private static final char ENCODED_ZERO = ALPHABET[0];
     private static final int[] INDEXES = new int[128];
 
+    private static final int DIGITS_PER_LIMB = 5;               // base58 digits per limb of the encoder
+    private static final long LIMB_BASE = 656_356_768L;        // 58^5, the encoder's limb base, below 2^30
+    private static final long[] POWERS_OF_58 = {1, 58, 3_364, 195_112, 11_316_496, 656_356_768L};
+
+    private static final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
     static {
         Arrays.fill(INDEXES, -1);
         for (int i = 0; i < ALPHABET.length; i++) {
@@ -73,33 +83,68 @@ public class Base58 {
      * @return the base58-encoded string
      */
     public static String encode(byte[] input) {
-        if (input.length == 0) {
-            return "";
+        StringBuilder out = new StringBuilder(input.length * 138 / 100 + 1);
+        encode(input, 0, input.length, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the base58 encoding of input[offset, offset + length) to out (no checksum is appended).
+     *
+     * @param input  the bytes to encode
+     * @param offset the index of the first byte to encode
+     * @param length the number of bytes to encode
+     * @param out    the builder the base58 characters are appended to
+     */
+    public static void encode(byte[] input, int offset, int length, StringBuilder out) {
+        if (offset < 0 || length < 0 || offset + length > input.length) {
+            throw new IndexOutOfBoundsException("Cannot encode " + length + " bytes at offset " + offset
+                    + " of a " + input.length + " byte array");
         }
+        int end = offset + length;
         // Count leading zeros.
         int zeros = 0;
-        while (zeros < input.length && input[zeros] == 0) {
+        while (offset + zeros < end && input[offset + zeros] == 0) {
             ++zeros;
         }
-        // Convert base-256 digits to base-58 digits (plus conversion to ASCII characters)
-        input = Arrays.copyOf(input, input.length); // since we modify it in-place
-        char[] encoded = new char[input.length * 2]; // upper bound
-        int outputStart = encoded.length;
-        for (int inputStart = zeros; inputStart < input.length; ) {
-            encoded[--outputStart] = ALPHABET[divmod(input, inputStart, 256, 58)];
-            if (input[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        // Convert base-256 digits to base-58^5 limbs, least significant first, one 32-bit word of input at a time.
+        Scratch scratch = scratches.get();
+        int[] limbs = scratch.limbs((length - zeros) * 8 / 29 + 2);  // a limb holds log2(58^5) > 29 bits
+        int size = 0;
+        for (int i = offset + zeros; i < end; ) {
+            int n = i == offset + zeros && (end - i) % 4 != 0 ? (end - i) % 4 : 4;  // a short word first
+            long carry = 0;
+            for (int k = 0; k < n; k++) {
+                carry = (carry << 8) | (input[i++] & MASK_0xFF);
+            }
+            int shift = n << 3;
+            for (int j = 0; j < size; j++) {
+                long t = ((long) limbs[j] << shift) + carry;
+                limbs[j] = (int) (t % LIMB_BASE);
+                carry = t / LIMB_BASE;
+            }
+            for (; carry != 0; carry /= LIMB_BASE) {
+                limbs[size++] = (int) (carry % LIMB_BASE);
+            }
+        }
+        // Convert each limb to 5 base-58 digits (plus conversion to ASCII characters), from the end.
+        char[] encoded = scratch.chars(size * DIGITS_PER_LIMB);
+        int outputStart = size * DIGITS_PER_LIMB;
+        for (int j = 0; j < size; j++) {
+            int limb = limbs[j];
+            for (int d = 0; d < DIGITS_PER_LIMB; d++) {
+                encoded[--outputStart] = ALPHABET[limb % 58];
+                limb /= 58;
             }
         }
         // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
-        while (outputStart < encoded.length && encoded[outputStart] == ENCODED_ZERO) {
+        while (outputStart < size * DIGITS_PER_LIMB && encoded[outputStart] == ENCODED_ZERO) {
             ++outputStart;
         }
-        while (--zeros >= 0) {
-            encoded[--outputStart] = ENCODED_ZERO;
+        for (int i = 0; i < zeros; i++) {
+            out.append(ENCODED_ZERO);
         }
-        // Return encoded string (including encoded leading zeros).
-        return new String(encoded, outputStart, encoded.length - outputStart);
+        out.append(encoded, outputStart, size * DIGITS_PER_LIMB - outputStart);
     }
 
     /**
@@ -109,13 +154,23 @@ public class Base58 {
      * @return the base58-encoded string
      */
     public static String encodeChecked(byte[] payload) {
-        // A stringified buffer is:  data bytes + 4 bytes check code (a truncated hash)
-        byte[] checksum = new byte[4];
-        byte[] addressBytes = new byte[payload.length + checksum.length];
-        arraycopy(payload, 0, addressBytes, 0, payload.length);
-        arraycopy(hash256.apply(payload), 0, checksum, 0, checksum.length);
-        arraycopy(checksum, 0, addressBytes, payload.length, checksum.length);
-        return Base58.encode(addressBytes);
+        StringBuilder out = new StringBuilder((payload.length + 4) * 138 / 100 + 1);
+        encodeChecked(payload, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the base58 encoding of the payload followed by its checksum, the first 4 bytes of its hash256, to out.
+     *
+     * @param payload the bytes to encode, e.g. pubkey hash
+     * @param out     the builder the base58 characters are appended to
+     */
+    public static void encodeChecked(byte[] payload, StringBuilder out) {
+        // A stringified buffer is:  data bytes + 4 bytes check code (a truncated hash), hashed in place
+        byte[] buffer = scratches.get().bytes(payload.length + Sha256Engine.HASH_LENGTH);
+        arraycopy(payload, 0, buffer, 0, payload.length);
+        Sha256Engine.hash256(buffer, 0, payload.length, buffer, payload.length);
+        encode(buffer, 0, payload.length + 4, out);
     }
 
     /**
@@ -126,39 +181,47 @@ public class Base58 {
      * @throws AddressFormatException if the given string is not a valid base58 string
      */
     public static byte[] decode(String input) throws AddressFormatException {
-        if (input.length() == 0) {
-            return new byte[0];
-        }
-        // Convert the base58-encoded ASCII chars to a base58 byte sequence (base58 digits).
-        byte[] input58 = new byte[input.length()];
-        for (int i = 0; i < input.length(); ++i) {
-            char c = input.charAt(i);
-            int digit = c < 128 ? INDEXES[c] : -1;
-            if (digit < 0) {
-                throw new AddressFormatException.InvalidCharacter(c, i);
-            }
-            input58[i] = (byte) digit;
-        }
+        int length = input.length();
         // Count leading zeros.
         int zeros = 0;
-        while (zeros < input58.length && input58[zeros] == 0) {
+        while (zeros < length && input.charAt(zeros) == ENCODED_ZERO) {
             ++zeros;
         }
-        // Convert base-58 digits to base-256 digits.
-        byte[] decoded = new byte[input.length()];
-        int outputStart = decoded.length;
-        for (int inputStart = zeros; inputStart < input58.length; ) {
-            decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
-            if (input58[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        // Convert base-58 digits to 32-bit limbs, least significant first, up to five digits at a time.
+        int[] limbs = scratches.get().limbs((length - zeros) * 3 / 16 + 2);  // a digit holds log2(58) < 6 bits
+        int size = 0;
+        for (int i = zeros; i < length; ) {
+            int n = i == zeros && (length - i) % DIGITS_PER_LIMB != 0 ? (length - i) % DIGITS_PER_LIMB : DIGITS_PER_LIMB;
+            long carry = 0;
+            for (int k = 0; k < n; k++, i++) {
+                char c = input.charAt(i);
+                int digit = c < 128 ? INDEXES[c] : -1;
+                if (digit < 0) {
+                    throw new AddressFormatException.InvalidCharacter(c, i);
+                }
+                carry = carry * 58 + digit;
+            }
+            long multiplier = POWERS_OF_58[n];
+            for (int j = 0; j < size; j++) {
+                long t = (limbs[j] & 0xFFFFFFFFL) * multiplier + carry;
+                limbs[j] = (int) t;
+                carry = t >>> 32;
+            }
+            if (carry != 0) {
+                limbs[size++] = (int) carry;
             }
         }
-        // Ignore extra leading zeroes that were added during the calculation.
-        while (outputStart < decoded.length && decoded[outputStart] == 0) {
-            ++outputStart;
+        // Ignore leading zero bytes of the most significant limb.
+        int significant = size * 4;
+        if (size > 0) {
+            significant -= Integer.numberOfLeadingZeros(limbs[size - 1]) >>> 3;
         }
         // Return decoded data (including original number of leading zeros).
-        return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+        byte[] decoded = new byte[zeros + significant];
+        for (int i = decoded.length - 1, b = 0; b < significant; i--, b++) {
+            decoded[i] = (byte) (limbs[b >>> 2] >>> ((b & 3) << 3));
+        }
+        return decoded;
     }
 
     public static BigInteger decodeToBigInteger(String input) throws AddressFormatException {
@@ -176,60 +239,95 @@ public class Base58 {
      * @throws AddressFormatException if the input is not base 58 or the checksum does not validate.
      */
     public static byte[] decodeChecked(String input, boolean excludeNetworkPrefix) throws AddressFormatException {
-        byte[] data = decodeChecked(input);
+        byte[] decoded = decodeAndVerify(input);
         if (excludeNetworkPrefix) {
-            if (data.length != 21) {
+            if (decoded.length != 21 + 4) {
+                byte[] data = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
                 throw new IllegalStateException("Network prefixed address "
                         + HEX.encode(data) + " should be 21 bytes long;  it is " + data.length + " bytes long");
             }
-            byte[] addressWithoutPrefix = new byte[data.length - 1];
-            arraycopy(data, 1, addressWithoutPrefix, 0, addressWithoutPrefix.length);
-            return addressWithoutPrefix;
+            return Arrays.copyOfRange(decoded, 1, decoded.length - 4);
         } else {
-            return data;
+            return Arrays.copyOfRange(decoded, 0, decoded.length - 4);
         }
     }
 
     /**
-     * Decodes the given base58 string into the original data bytes, using the checksum in the last 4 bytes of the
-     * decoded data to verify that the rest are correct. The checksum is removed from the returned data.
+     * Decodes each of the given base58 strings, in parallel.
+     *
+     * @param inputs the base58-encoded strings to decode
+     * @return the decoded data bytes, in the inputs' iteration order
+     * @throws AddressFormatException if any input is not a valid base58 string
+     */
+    public static List<byte[]> decodeAll(Collection<String> inputs) throws AddressFormatException {
+        return inputs.parallelStream().map(Base58::decode).collect(Collectors.toList());
+    }
+
+    /**
+     * Decodes each of the given base58 strings and verifies its checksum, in parallel, as
+     * {@link #decodeChecked(String, boolean)} does.
+     *
+     * @param inputs               the base58-encoded strings to decode (which should include the checksum)
+     * @param excludeNetworkPrefix the network prefix is excluded from the returned data if true
+     * @return the decoded data bytes without checksums, in the inputs' iteration order
+     * @throws AddressFormatException if any input is not base 58 or its checksum does not validate.
+     */
+    public static List<byte[]> decodeAllChecked(Collection<String> inputs, boolean excludeNetworkPrefix)
+            throws AddressFormatException {
+        return inputs.parallelStream()
+                .map(input -> decodeChecked(input, excludeNetworkPrefix))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Decodes the given base58 string, and verifies the checksum in the last 4 bytes of the decoded data against the
+     * hash256 of the rest.  The checksum is left in the returned data.
      *
      * @param input the base58-encoded string to decode (which should include the checksum)
      * @throws AddressFormatException if the input is not base 58 or the checksum does not validate.
      */
-    private static byte[] decodeChecked(String input) throws AddressFormatException {
+    private static byte[] decodeAndVerify(String input) throws AddressFormatException {
         byte[] decoded = decode(input);
         if (decoded.length < 4)
             throw new AddressFormatException.InvalidDataLength("Input too short: " + decoded.length);
-        byte[] data = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
-        byte[] checksum = Arrays.copyOfRange(decoded, decoded.length - 4, decoded.length);
-        byte[] actualChecksum = Arrays.copyOfRange(hash256.apply(data), 0, 4);
-        if (!Arrays.equals(checksum, actualChecksum))
-            throw new AddressFormatException.InvalidChecksum();
-        return data;
+        byte[] hash = scratches.get().hash;
+        Sha256Engine.hash256(decoded, 0, decoded.length - 4, hash, 0);
+        for (int i = 0; i < 4; i++) {
+            if (hash[i] != decoded[decoded.length - 4 + i])
+                throw new AddressFormatException.InvalidChecksum();
+        }
+        return decoded;
     }
 
-    /**
-     * Divides a number, represented as an array of bytes each containing a single digit in the specified base, by the
-     * given divisor. The given number is modified in-place to contain the quotient, and the return value is the
-     * remainder.
-     *
-     * @param number     the number to divide
-     * @param firstDigit the index within the array of the first non-zero digit (this is used for optimization by
-     *                   skipping the leading zeros)
-     * @param base       the base in which the number's digits are represented (up to 256)
-     * @param divisor    the number to divide by (up to 256)
-     * @return the remainder of the division operation
-     */
-    private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
-        // this is just long division which accounts for the base of the input digits
-        int remainder = 0;
-        for (int i = firstDigit; i < number.length; i++) {
-            int digit = (int) number[i] & MASK_0xFF;
-            int temp = remainder * base + digit;
-            number[i] = (byte) (temp / divisor);
-            remainder = temp % divisor;
-        }
-        return (byte) remainder;
+    // Per-thread buffers, grown as needed and reused by every call on the thread
+    private static final class Scratch {
+        private int[] limbs = new int[16];
+        private char[] chars = new char[80];
+        private byte[] bytes = new byte[64];
+        private final byte[] hash = new byte[Sha256Engine.HASH_LENGTH];
+
+        // Returns at least n limbs;  only the limbs written by the caller are meaningful.
+        int[] limbs(int n) {
+            if (limbs.length < n) {
+                limbs = new int[n];
+            }
+            return limbs;
+        }
+
+        char[] chars(int n) {
+            if (chars.length < n) {
+                chars = new char[n];
+            }
+            return chars;
+        }
+
+        byte[] bytes(int n) {
+            if (bytes.length < n) {
+                bytes = new byte[n];
+            }
+            return bytes;
+        }
     }
 }
+
+
@@ -15,18 +15,25 @@
  */
 package mandioca.bitcoin.util;
 
-// Stolen from bitcoinj
+// Stolen from bitcoinj;  table-driven polymod, streaming checksums and the segwit conversion added
 
 import mandioca.bitcoin.address.AddressFormatException;
 
-import java.util.Arrays;
 import java.util.Locale;
 
+/**
+ * Bech32 (BIP-173) encoding and decoding, and the segwit witness program conversion of Bech32 addresses.
+ * <p>
+ * The checksum is computed while the human-readable part and data are streamed through the polymod, which steps
+ * five bits at a time with a 32-entry table of generator combinations;  nothing is copied to compute or verify it.
+ * <p>
+ * Witness version 0 programs only:  later versions use the Bech32m checksum of BIP-350, which is not implemented.
+ */
 public class Bech32 {
     /**
      * The Bech32 character set for encoding.
      */
-    private static final String CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+    private static final char[] CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l".toCharArray();
 
     /**
      * The Bech32 character set for decoding.
@@ -42,6 +49,25 @@ public class Bech32 {
             1, 0, 3, 16, 11, 28, 12, 14, 6, 4, 2, -1, -1, -1, -1, -1
     };
 
+    /**
+     * The xor of the polymod generators selected by each of the 32 values of the checksum's top five bits.
+     */
+    private static final int[] GENERATOR_TABLE = new int[32];
+
+    static {
+        int[] generators = {0x3b6a57b2, 0x26508e6d, 0x1ea119fa, 0x3d4233dd, 0x2a1462b3};
+        for (int top = 0; top < 32; top++) {
+            for (int i = 0; i < 5; i++) {
+                if ((top >>> i & 1) != 0) {
+                    GENERATOR_TABLE[top] ^= generators[i];
+                }
+            }
+        }
+    }
+
+    private static final int CHECKSUM_LENGTH = 6;
+    private static final int WITNESS_VERSION_0 = 0;
+
     public static class Bech32Data {
         public final String hrp;
         public final byte[] data;
@@ -53,62 +79,43 @@ public class Bech32 {
     }
 
     /**
-     * Find the polynomial with value coefficients mod the generator as 30-bit.
+     * A segwit output's witness version and program, the payload of a segwit address.
      */
-    private static int polymod(final byte[] values) {
-        int c = 1;
-        for (byte v_i : values) {
-            int c0 = (c >>> 25) & 0xff;
-            c = ((c & 0x1ffffff) << 5) ^ (v_i & 0xff);
-            if ((c0 & 1) != 0) c ^= 0x3b6a57b2;
-            if ((c0 & 2) != 0) c ^= 0x26508e6d;
-            if ((c0 & 4) != 0) c ^= 0x1ea119fa;
-            if ((c0 & 8) != 0) c ^= 0x3d4233dd;
-            if ((c0 & 16) != 0) c ^= 0x2a1462b3;
-        }
-        return c;
-    }
+    public static class WitnessProgram {
+        public final int version;
+        public final byte[] program;
 
-    /**
-     * Expand a HRP for use in checksum computation.
-     */
-    private static byte[] expandHrp(final String hrp) {
-        int hrpLength = hrp.length();
-        byte ret[] = new byte[hrpLength * 2 + 1];
-        for (int i = 0; i < hrpLength; ++i) {
-            int c = hrp.charAt(i) & 0x7f; // Limit to standard 7-bit ASCII
-            ret[i] = (byte) ((c >>> 5) & 0x07);
-            ret[i + hrpLength + 1] = (byte) (c & 0x1f);
+        private WitnessProgram(final int version, final byte[] program) {
+            this.version = version;
+            this.program = program;
         }
-        ret[hrpLength] = 0;
-        return ret;
     }
 
     /**
-     * Verify a checksum.
+     * Steps the polynomial with value coefficients mod the generator by one 5-bit value.
      */
-    private static boolean verifyChecksum(final String hrp, final byte[] values) {
-        byte[] hrpExpanded = expandHrp(hrp);
-        byte[] combined = new byte[hrpExpanded.length + values.length];
-        System.arraycopy(hrpExpanded, 0, combined, 0, hrpExpanded.length);
-        System.arraycopy(values, 0, combined, hrpExpanded.length, values.length);
-        return polymod(combined) == 1;
+    private static int polymodStep(final int c, final int value) {
+        return ((c & 0x1ffffff) << 5) ^ value ^ GENERATOR_TABLE[c >>> 25];
     }
 
     /**
-     * Create a checksum.
+     * Streams the expanded, lower cased HRP (high bits of each character, a zero, low bits of each character) through
+     * the polymod, starting from 1.
      */
-    private static byte[] createChecksum(final String hrp, final byte[] values) {
-        byte[] hrpExpanded = expandHrp(hrp);
-        byte[] enc = new byte[hrpExpanded.length + values.length + 6];
-        System.arraycopy(hrpExpanded, 0, enc, 0, hrpExpanded.length);
-        System.arraycopy(values, 0, enc, hrpExpanded.length, values.length);
-        int mod = polymod(enc) ^ 1;
-        byte[] ret = new byte[6];
-        for (int i = 0; i < 6; ++i) {
-            ret[i] = (byte) ((mod >>> (5 * (5 - i))) & 31);
+    private static int polymodHrp(final CharSequence hrp, final int hrpLength) {
+        int c = 1;
+        for (int i = 0; i < hrpLength; ++i) {
+            c = polymodStep(c, (toLowerCase(hrp.charAt(i)) & 0x7f) >>> 5);  // Limit to standard 7-bit ASCII
         }
-        return ret;
+        c = polymodStep(c, 0);
+        for (int i = 0; i < hrpLength; ++i) {
+            c = polymodStep(c, toLowerCase(hrp.charAt(i)) & 0x1f);
+        }
+        return c;
+    }
+
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
     }
 
     /**
@@ -122,39 +129,70 @@ public class Bech32 {
      * Encode a Bech32 string.
      */
     public static String encode(String hrp, final byte[] values) {
-        if (hrp.length() < 1) {
-            throw new RuntimeException("Human-readable part is too short");
-        }
-        if (hrp.length() > 83) {
-            throw new RuntimeException("Human-readable part is too long");
+        StringBuilder sb = new StringBuilder(hrp.length() + 1 + values.length + CHECKSUM_LENGTH);
+        encode(hrp, values, 0, values.length, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the Bech32 string of the lower cased HRP and the 5-bit values[off, off + len) to sb.
+     */
+    public static void encode(final CharSequence hrp, final byte[] values, final int off, final int len,
+                              final StringBuilder sb) {
+        checkHrpLength(hrp);
+        for (int i = 0; i < hrp.length(); ++i) {
+            sb.append(toLowerCase(hrp.charAt(i)));
         }
-        /*
-        checkArgument(hrp.length() >= 1, "Human-readable part is too short");
-        checkArgument(hrp.length() <= 83, "Human-readable part is too long");
-        */
-        hrp = hrp.toLowerCase(Locale.ROOT);
-        byte[] checksum = createChecksum(hrp, values);
-        byte[] combined = new byte[values.length + checksum.length];
-        System.arraycopy(values, 0, combined, 0, values.length);
-        System.arraycopy(checksum, 0, combined, values.length, checksum.length);
-        StringBuilder sb = new StringBuilder(hrp.length() + 1 + combined.length);
-        sb.append(hrp);
+        int c = polymodHrp(hrp, hrp.length());
         sb.append('1');
-        for (byte b : combined) {
-            sb.append(CHARSET.charAt(b));
+        for (int i = off; i < off + len; ++i) {
+            int value = values[i];
+            if ((value & ~31) != 0) {
+                throw new IllegalArgumentException("Bech32 values are 5 bits, not " + value);
+            }
+            c = polymodStep(c, value);
+            sb.append(CHARSET[value]);
+        }
+        for (int i = 0; i < CHECKSUM_LENGTH; ++i) {
+            c = polymodStep(c, 0);
+        }
+        c ^= 1;
+        for (int i = 0; i < CHECKSUM_LENGTH; ++i) {
+            sb.append(CHARSET[(c >>> (5 * (5 - i))) & 31]);
         }
-        return sb.toString();
     }
 
     /**
      * Decode a Bech32 string.
      */
-    public static Bech32Data decode(final String str) throws AddressFormatException {
+    public static Bech32Data decode(final CharSequence str) throws AddressFormatException {
+        final int pos = checkCharacters(str);
+        final int dataPartLength = str.length() - 1 - pos;
+        int c = polymodHrp(str, pos);
+        byte[] values = new byte[dataPartLength - CHECKSUM_LENGTH];
+        for (int i = 0; i < dataPartLength; ++i) {
+            char ch = str.charAt(i + pos + 1);
+            int value = CHARSET_REV[ch];
+            if (value == -1) throw new AddressFormatException.InvalidCharacter(ch, i + pos + 1);
+            c = polymodStep(c, value);
+            if (i < values.length) {
+                values[i] = (byte) value;
+            }
+        }
+        if (c != 1) throw new AddressFormatException.InvalidChecksum();
+        return new Bech32Data(str.subSequence(0, pos).toString().toLowerCase(Locale.ROOT), values);
+    }
+
+    /**
+     * Checks the length and characters of a Bech32 string, and returns the position of its separator.
+     */
+    private static int checkCharacters(final CharSequence str) throws AddressFormatException {
         boolean lower = false, upper = false;
         if (str.length() < 8)
             throw new AddressFormatException.InvalidDataLength("Input too short: " + str.length());
         if (str.length() > 90)
             throw new AddressFormatException.InvalidDataLength("Input too long: " + str.length());
+        int pos = -1;
         for (int i = 0; i < str.length(); ++i) {
             char c = str.charAt(i);
             if (c < 33 || c > 126) throw new AddressFormatException.InvalidCharacter(c, i);
@@ -168,20 +206,111 @@ public class Bech32 {
                     throw new AddressFormatException.InvalidCharacter(c, i);
                 upper = true;
             }
+            if (c == '1') pos = i;
         }
-        final int pos = str.lastIndexOf('1');
         if (pos < 1) throw new AddressFormatException.InvalidPrefix("Missing human-readable part");
         final int dataPartLength = str.length() - 1 - pos;
-        if (dataPartLength < 6)
+        if (dataPartLength < CHECKSUM_LENGTH)
             throw new AddressFormatException.InvalidDataLength("Data part too short: " + dataPartLength);
-        byte[] values = new byte[dataPartLength];
-        for (int i = 0; i < dataPartLength; ++i) {
-            char c = str.charAt(i + pos + 1);
-            if (CHARSET_REV[c] == -1) throw new AddressFormatException.InvalidCharacter(c, i + pos + 1);
-            values[i] = CHARSET_REV[c];
+        return pos;
+    }
+
+    private static void checkHrpLength(final CharSequence hrp) {
+        if (hrp.length() < 1) {
+            throw new RuntimeException("Human-readable part is too short");
+        }
+        if (hrp.length() > 83) {
+            throw new RuntimeException("Human-readable part is too long");
+        }
+    }
+
+    /**
+     * Returns the segwit address of a witness program:  the HRP, then the witness version and the program regrouped
+     * from 8-bit bytes to 5-bit values, as Bech32.
+     *
+     * @param hrp     the network's human-readable part, e.g. "bc" or "tb"
+     * @param version the witness version;  only 0 is supported
+     * @param program the witness program, 20 bytes (P2WPKH) or 32 bytes (P2WSH) for version 0
+     */
+    public static String encodeSegwitAddress(final String hrp, final int version, final byte[] program) {
+        checkWitnessProgram(version, program.length);
+        byte[] values = new byte[1 + (program.length * 8 + 4) / 5];
+        values[0] = (byte) version;
+        convertBits(program, 0, program.length, 8, 5, true, values, 1);
+        return encode(hrp, values);
+    }
+
+    /**
+     * Decodes a segwit address, checking its HRP against the expected one.
+     *
+     * @param hrp     the network's human-readable part, e.g. "bc" or "tb"
+     * @param address the Bech32 segwit address
+     * @throws AddressFormatException if the address is not valid Bech32, has another HRP, or its witness version or
+     *                                program is not valid
+     */
+    public static WitnessProgram decodeSegwitAddress(final String hrp, final CharSequence address)
+            throws AddressFormatException {
+        Bech32Data bech32 = decode(address);
+        if (!bech32.hrp.equals(hrp))
+            throw new AddressFormatException.WrongNetwork(bech32.hrp);
+        if (bech32.data.length < 1)
+            throw new AddressFormatException.InvalidDataLength("Missing witness version");
+        int version = bech32.data[0];
+        int programLength = (bech32.data.length - 1) * 5 / 8;
+        try {
+            checkWitnessProgram(version, programLength);
+        } catch (IllegalArgumentException e) {
+            throw new AddressFormatException(e.getMessage());
+        }
+        byte[] program = new byte[programLength];
+        convertBits(bech32.data, 1, bech32.data.length - 1, 5, 8, false, program, 0);
+        return new WitnessProgram(version, program);
+    }
+
+    private static void checkWitnessProgram(final int version, final int programLength) {
+        if (version != WITNESS_VERSION_0) {
+            throw new IllegalArgumentException("Witness version " + version + " is not supported");
+        }
+        if (programLength != 20 && programLength != 32) {
+            throw new IllegalArgumentException("Version 0 witness programs are 20 or 32 bytes, not " + programLength);
+        }
+    }
+
+    /**
+     * Regroups in[off, off + len), fromBits bits per element, into toBits bits per element at out[outOff].  With pad,
+     * the last group is zero filled;  without it, leftover bits must be fewer than fromBits and all zero.
+     *
+     * @return the number of elements written to out
+     * @throws AddressFormatException if an input element is out of range, or without pad, the leftover bits are
+     *                                invalid
+     */
+    public static int convertBits(final byte[] in, final int off, final int len, final int fromBits,
+                                  final int toBits, final boolean pad, final byte[] out, final int outOff)
+            throws AddressFormatException {
+        int acc = 0;
+        int bits = 0;
+        int o = outOff;
+        final int maxv = (1 << toBits) - 1;
+        final int maxAcc = (1 << (fromBits + toBits - 1)) - 1;
+        for (int i = off; i < off + len; i++) {
+            int value = in[i] & 0xff;
+            if ((value >>> fromBits) != 0) {
+                throw new AddressFormatException(
+                        String.format("Input value '%X' exceeds '%d' bit size", value, fromBits));
+            }
+            acc = ((acc << fromBits) | value) & maxAcc;
+            bits += fromBits;
+            while (bits >= toBits) {
+                bits -= toBits;
+                out[o++] = (byte) ((acc >>> bits) & maxv);
+            }
+        }
+        if (pad) {
+            if (bits > 0)
+                out[o++] = (byte) ((acc << (toBits - bits)) & maxv);
+        } else if (bits >= fromBits || ((acc << (toBits - bits)) & maxv) != 0) {
+            throw new AddressFormatException("Could not convert bits, invalid padding");
         }
-        String hrp = str.substring(0, pos).toLowerCase(Locale.ROOT);
-        if (!verifyChecksum(hrp, values)) throw new AddressFormatException.InvalidChecksum();
-        return new Bech32Data(hrp, Arrays.copyOfRange(values, 0, values.length - 6));
+        return o - outOff;
     }
 }
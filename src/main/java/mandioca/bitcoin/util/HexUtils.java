@@ -32,25 +32,68 @@ public class HexUtils {
     public final Predicate<String> isOddLength = (hex) -> hex.length() % 2 != 0;
     public final Function<String, BigInteger> stringToBigInt = (s) -> new BigInteger(strip0xPrefix.apply(s), HEX_RADIX);
     public final Function<BigInteger, String> bigIntToHex = (i) -> i.toString(HEX_RADIX);
-    public final Function<Byte, String> byteToHex = (b) -> String.format("%02X", b).toLowerCase();
-    public final Function<Byte, String> byteToPrefixedHex = (b) -> String.format("0x%02X", b).toLowerCase();
+    public final Function<Byte, String> byteToHex = (b) -> new String(new char[]{highDigit(b), lowDigit(b)});
+    public final Function<Byte, String> byteToPrefixedHex = (b) -> new String(new char[]{'0', 'x', highDigit(b), lowDigit(b)});
+
+    // Lower case hex digit of each nibble, and the nibble of each hex digit (either case) or -1, indexed by char.
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] NIBBLES = new byte[128];
+
+    static {
+        Arrays.fill(NIBBLES, (byte) -1);
+        for (int i = 0; i < 16; i++) {
+            NIBBLES[DIGITS[i]] = (byte) i;
+            NIBBLES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private static char highDigit(byte b) {
+        return DIGITS[(b >> 4) & 0xF];
+    }
+
+    private static char lowDigit(byte b) {
+        return DIGITS[b & 0xF];
+    }
+
+    private static int nibble(CharSequence hex, int i) {
+        char c = hex.charAt(i);
+        int n = c < NIBBLES.length ? NIBBLES[c] : -1;
+        if (n < 0) {
+            if (c == '+' || c == '-') {
+                throw new IllegalStateException("Hex string contains + or - character(s)");
+            }
+            throw new IllegalStateException("Hex string contains invalid character '" + c + "' at index " + i);
+        }
+        return n;
+    }
 
     public final byte[] decode(CharSequence hex) {
-        // Modified from https://github.com/nayuki/Bitcoin-Cryptography-Library/blob/master/java/io/nayuki/bitcoin/crypto/Utils.java
-        // Copyright © 2019 Project Nayuki. (MIT License)
-        if (isOddLength.test(hex.toString())) {
+        if (hex.length() % 2 != 0) {
             throw new IllegalStateException("Hex string has odd length");
         }
         byte[] b = new byte[hex.length() / 2];
-        for (int i = 0; i < hex.length(); i += 2) {
-            if (hex.charAt(i) == '+' || hex.charAt(i) == '-') {
-                throw new IllegalStateException("Hex string contains + or - character(s)");
-            }
-            b[i / 2] = (byte) Integer.parseInt(hex.toString().substring(i, i + 2), HEX_RADIX);
-        }
+        decode(hex, b, 0);
         return b;
     }
 
+    /**
+     * Decodes an even length hex string, in upper or lower case and without a 0x prefix, into out[outOff,
+     * outOff + hex.length() / 2).
+     */
+    public final void decode(CharSequence hex, byte[] out, int outOff) {
+        int length = hex.length();
+        if (length % 2 != 0) {
+            throw new IllegalStateException("Hex string has odd length");
+        }
+        if (outOff < 0 || outOff + length / 2 > out.length) {
+            throw new IllegalArgumentException("Cannot decode " + length / 2 + " bytes into "
+                    + out.length + " bytes at offset " + outOff);
+        }
+        for (int i = 0, j = outOff; i < length; i += 2, j++) {
+            out[j] = (byte) ((nibble(hex, i) << 4) | nibble(hex, i + 1));
+        }
+    }
+
     public final String prettyOctets(String octets) {
         if (octets.isEmpty()) {
             throw new RuntimeException("Cannot transform empty octet string");
@@ -60,9 +103,17 @@ public class HexUtils {
     }
 
     public final String encode(byte[][] byteArrays) {
-        StringBuffer buf = new StringBuffer();
-        Arrays.stream(byteArrays).forEach(a -> buf.append(HEX.encode(a)));
-        return buf.toString();
+        int length = 0;
+        for (byte[] a : byteArrays) {
+            length += a.length;
+        }
+        char[] hex = new char[2 * length];
+        int offset = 0;
+        for (byte[] a : byteArrays) {
+            encode(a, 0, a.length, hex, offset);
+            offset += 2 * a.length;
+        }
+        return new String(hex);
     }
 
     public final String encode(byte[] bytes) {
@@ -70,11 +121,51 @@ public class HexUtils {
         if (bytes == null) {
             throw new IllegalStateException("Cannot transform null byte[]");
         }
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : bytes) {
-            hexString.append(toOctet.apply(toPositiveHex.apply(b)));
+        char[] hex = new char[2 * bytes.length];
+        encode(bytes, 0, bytes.length, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Writes the lower case hex of in[off, off + len) to out[outOff, outOff + 2 * len).
+     */
+    public final void encode(byte[] in, int off, int len, char[] out, int outOff) {
+        checkEncodeBounds(in, off, len, out, outOff);
+        for (int i = off, j = outOff; i < off + len; i++, j += 2) {
+            out[j] = highDigit(in[i]);
+            out[j + 1] = lowDigit(in[i]);
+        }
+    }
+
+    /**
+     * Returns the lower case hex of the bytes in reverse order, as a little endian hash is displayed, without
+     * allocating the reversed array.
+     */
+    public final String encodeReversed(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalStateException("Cannot transform null byte[]");
+        }
+        char[] hex = new char[2 * bytes.length];
+        encodeReversed(bytes, 0, bytes.length, hex, 0);
+        return new String(hex);
+    }
+
+    /**
+     * Writes the lower case hex of in[off, off + len), last byte first, to out[outOff, outOff + 2 * len).
+     */
+    public final void encodeReversed(byte[] in, int off, int len, char[] out, int outOff) {
+        checkEncodeBounds(in, off, len, out, outOff);
+        for (int i = off + len - 1, j = outOff; i >= off; i--, j += 2) {
+            out[j] = highDigit(in[i]);
+            out[j + 1] = lowDigit(in[i]);
+        }
+    }
+
+    private static void checkEncodeBounds(byte[] in, int off, int len, char[] out, int outOff) {
+        if (off < 0 || len < 0 || off + len > in.length || outOff < 0 || (long) outOff + 2L * len > out.length) {
+            throw new IllegalArgumentException("Cannot encode " + len + " bytes at offset " + off + " of "
+                    + in.length + " bytes into " + out.length + " chars at offset " + outOff);
         }
-        return hexString.toString();
     }
 
     public String encode(BigInteger i) {
@@ -12,33 +12,32 @@ import java.util.Arrays;
 import java.util.Objects;
 
 import static java.lang.Integer.rotateLeft;
-import static mandioca.bitcoin.function.ByteArrayFunctions.MASK_0xFF;
 
 /**
- * Computes the RIPEMD-160 hash of an array of bytes. Not instantiable.
+ * An incremental RIPEMD-160 hash.  An instance owns its chaining state, partial block and 16-word message schedule,
+ * and writes hashes into caller supplied arrays, so hashing many messages with one instance allocates nothing.
+ * Instances are not thread-safe;  the static {@link #getHash(byte[])} and {@link #hash160} use one per thread.
  * <p>
- * Stolen from https://github.com/nayuki/Bitcoin-Cryptography-Library/blob/master/java/io/nayuki/bitcoin/crypto/Ripemd160.java
+ * Adapted from https://github.com/nayuki/Bitcoin-Cryptography-Library/blob/master/java/io/nayuki/bitcoin/crypto/Ripemd160.java
  */
 public final class Ripemd160 {
 
-    private static final int BLOCK_LEN = 64;  // In bytes
+    public static final int HASH_LENGTH = 20;
 
+    private static final int BLOCK_LEN = 64;  // In bytes
 
-    /*---- Static functions ----*/
-    private static final int[] KL = {0x00000000, 0x5A827999, 0x6ED9EBA1, 0x8F1BBCDC, 0xA953FD4E};  // Round constants for left line
+    private static final int[] INITIAL_STATE = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
 
+    // Round constants for the left and right lines, one per group of 16 rounds
+    private static final int KL1 = 0x5A827999, KL2 = 0x6ED9EBA1, KL3 = 0x8F1BBCDC, KL4 = 0xA953FD4E;
+    private static final int KR0 = 0x50A28BE6, KR1 = 0x5C4DD124, KR2 = 0x6D703EF3, KR3 = 0x7A6D76E9;
 
-    /*---- Private functions ----*/
-    private static final int[] KR = {0x50A28BE6, 0x5C4DD124, 0x6D703EF3, 0x7A6D76E9, 0x00000000};  // Round constants for right line
     private static final int[] RL = {  // Message schedule for left line
             0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
             7, 4, 13, 1, 10, 6, 15, 3, 12, 0, 9, 5, 2, 14, 11, 8,
             3, 10, 14, 4, 9, 15, 8, 1, 2, 7, 0, 6, 13, 11, 5, 12,
             1, 9, 11, 10, 0, 8, 12, 4, 13, 3, 7, 15, 14, 5, 6, 2,
             4, 0, 5, 9, 7, 12, 2, 10, 14, 1, 3, 8, 11, 6, 15, 13};
-
-
-    /*---- Class constants ----*/
     private static final int[] RR = {  // Message schedule for right line
             5, 14, 7, 0, 9, 2, 11, 4, 13, 6, 15, 8, 1, 10, 3, 12,
             6, 11, 3, 7, 0, 13, 5, 10, 14, 15, 8, 12, 4, 9, 1, 2,
@@ -58,8 +57,79 @@ public final class Ripemd160 {
             15, 5, 8, 11, 14, 14, 6, 14, 6, 9, 12, 9, 12, 5, 15, 8,
             8, 5, 12, 9, 12, 5, 14, 6, 8, 13, 6, 5, 15, 13, 11, 11};
 
-    private Ripemd160() {
-    }  // Not instantiable
+    private static final ThreadLocal<Ripemd160> contexts = ThreadLocal.withInitial(Ripemd160::new);
+
+    private final int[] state = new int[5];
+    private final int[] schedule = new int[16];
+    private final byte[] buffer = new byte[BLOCK_LEN];   // partial block
+    private final byte[] digest = new byte[32];          // hash160's intermediate SHA-256
+    private long length;                                 // bytes hashed since the last reset
+
+    public Ripemd160() {
+        reset();
+    }
+
+    public Ripemd160 reset() {
+        System.arraycopy(INITIAL_STATE, 0, state, 0, state.length);
+        length = 0;
+        return this;
+    }
+
+    public Ripemd160 update(byte[] in) {
+        return update(in, 0, in.length);
+    }
+
+    public Ripemd160 update(byte[] in, int off, int len) {
+        if (off < 0 || len < 0 || off + len > in.length) {
+            throw new IndexOutOfBoundsException("Cannot hash " + len + " bytes at offset " + off
+                    + " of a " + in.length + " byte array");
+        }
+        int buffered = (int) (length & (BLOCK_LEN - 1));
+        length += len;
+        if (buffered > 0) {
+            int n = Math.min(len, BLOCK_LEN - buffered);
+            System.arraycopy(in, off, buffer, buffered, n);
+            off += n;
+            len -= n;
+            if (buffered + n < BLOCK_LEN) {
+                return this;
+            }
+            compress(buffer, 0);
+        }
+        for (; len >= BLOCK_LEN; off += BLOCK_LEN, len -= BLOCK_LEN) {
+            compress(in, off);
+        }
+        System.arraycopy(in, off, buffer, 0, len);
+        return this;
+    }
+
+    /**
+     * Writes the 20-byte RIPEMD-160 of everything hashed since the last reset to out[off, off + 20), then resets.
+     */
+    public void doFinal(byte[] out, int off) {
+        checkOutput(out, off);
+        long bitLength = length << 3;
+        int buffered = (int) (length & (BLOCK_LEN - 1));
+        buffer[buffered++] = (byte) 0x80;
+        if (buffered > BLOCK_LEN - 8) {
+            Arrays.fill(buffer, buffered, BLOCK_LEN, (byte) 0);
+            compress(buffer, 0);
+            buffered = 0;
+        }
+        Arrays.fill(buffer, buffered, BLOCK_LEN - 8, (byte) 0);
+        for (int i = 0; i < 8; i++) {
+            buffer[BLOCK_LEN - 8 + i] = (byte) (bitLength >>> (i << 3));
+        }
+        compress(buffer, 0);
+        putState(out, off);
+        reset();
+    }
+
+    public byte[] doFinal() {
+        byte[] out = new byte[HASH_LENGTH];
+        doFinal(out, 0);
+        return out;
+    }
 
     /**
      * Computes and returns a 20-byte (160-bit) hash of the specified binary message. Each call will return a new byte
@@ -70,84 +140,138 @@ public final class Ripemd160 {
      * @throws NullPointerException if the message is {@code null}
      */
     public static byte[] getHash(byte[] msg) {
-        // Compress whole message blocks
         Objects.requireNonNull(msg);
-        int[] state = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
-        int off = msg.length / BLOCK_LEN * BLOCK_LEN;
-        compress(state, msg, off);
-
-        // Final blocks, padding, and length
-        byte[] block = new byte[BLOCK_LEN];
-        System.arraycopy(msg, off, block, 0, msg.length - off);
-        off = msg.length % block.length;
-        block[off] = (byte) 0x80;
-        off++;
-        if (off + 8 > block.length) {
-            compress(state, block, block.length);
-            Arrays.fill(block, (byte) 0);
-        }
-        long len = (long) msg.length << 3;
-        for (int i = 0; i < 8; i++)
-            block[block.length - 8 + i] = (byte) (len >>> (i * 8));
-        compress(state, block, block.length);
-
-        // Int32 array to bytes in little endian
-        byte[] result = new byte[state.length * 4];
-        for (int i = 0; i < result.length; i++)
-            result[i] = (byte) (state[i / 4] >>> (i % 4 * 8));
-        return result;
+        return contexts.get().reset().update(msg).doFinal();
     }
 
-    private static void compress(int[] state, byte[] blocks, int len) {
-        if (len % BLOCK_LEN != 0)
-            throw new IllegalArgumentException();
-        for (int i = 0; i < len; i += BLOCK_LEN) {
-
-            // Message schedule
-            int[] schedule = new int[16];
-            for (int j = 0; j < BLOCK_LEN; j++)
-                schedule[j / 4] |= (blocks[i + j] & MASK_0xFF) << (j % 4 * 8);
-
-            // The 80 rounds
-            int al = state[0], ar = state[0];
-            int bl = state[1], br = state[1];
-            int cl = state[2], cr = state[2];
-            int dl = state[3], dr = state[3];
-            int el = state[4], er = state[4];
-            for (int j = 0; j < 80; j++) {
-                int temp;
-                temp = rotateLeft(al + f(j, bl, cl, dl) + schedule[RL[j]] + KL[j / 16], SL[j]) + el;
-                al = el;
-                el = dl;
-                dl = rotateLeft(cl, 10);
-                cl = bl;
-                bl = temp;
-                temp = rotateLeft(ar + f(79 - j, br, cr, dr) + schedule[RR[j]] + KR[j / 16], SR[j]) + er;
-                ar = er;
-                er = dr;
-                dr = rotateLeft(cr, 10);
-                cr = br;
-                br = temp;
-            }
-            int temp = state[1] + cl + dr;
-            state[1] = state[2] + dl + er;
-            state[2] = state[3] + el + ar;
-            state[3] = state[4] + al + br;
-            state[4] = state[0] + bl + cr;
-            state[0] = temp;
+    /**
+     * Writes hash160, RIPEMD160(SHA256(in[off, off + len))), to out[outOff, outOff + 20).  The 32-byte SHA-256 is
+     * always one padded RIPEMD-160 block, so its words go straight into the message schedule.
+     */
+    public static void hash160(byte[] in, int off, int len, byte[] out, int outOff) {
+        checkOutput(out, outOff);
+        Ripemd160 context = contexts.get();
+        byte[] digest = context.digest;
+        Sha256Engine.sha256(in, off, len, digest, 0);
+        int[] x = context.schedule;
+        for (int i = 0; i < 8; i++) {
+            x[i] = (digest[i << 2] & 0xFF) | ((digest[(i << 2) + 1] & 0xFF) << 8)
+                    | ((digest[(i << 2) + 2] & 0xFF) << 16) | (digest[(i << 2) + 3] << 24);
         }
+        x[8] = 0x80;  // padding:  0x80, zeros and the bit length, 256
+        Arrays.fill(x, 9, 16, 0);
+        x[14] = 256;
+        context.reset();
+        rounds(context.state, x);
+        context.putState(out, outOff);
+        context.reset();
     }
 
+    private static void checkOutput(byte[] out, int off) {
+        if (off < 0 || out.length - off < HASH_LENGTH) {
+            throw new IllegalArgumentException("No room for a 20-byte hash at offset " + off
+                    + " of a " + out.length + " byte array");
+        }
+    }
 
+    // Int32 state to bytes in little endian
+    private void putState(byte[] out, int off) {
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            out[off + i] = (byte) (state[i >>> 2] >>> ((i & 3) << 3));
+        }
+    }
 
-    /*---- Miscellaneous ----*/
+    private void compress(byte[] block, int off) {
+        for (int i = 0; i < 16; i++, off += 4) {
+            schedule[i] = (block[off] & 0xFF) | ((block[off + 1] & 0xFF) << 8)
+                    | ((block[off + 2] & 0xFF) << 16) | (block[off + 3] << 24);
+        }
+        rounds(state, schedule);
+    }
 
-    private static int f(int i, int x, int y, int z) {
-        assert 0 <= i && i < 80;
-        if (i < 16) return x ^ y ^ z;
-        if (i < 32) return (x & y) | (~x & z);
-        if (i < 48) return (x | ~y) ^ z;
-        if (i < 64) return (x & z) | (y & ~z);
-        return x ^ (y | ~z);
+    // The 80 rounds of both lines, in five groups of 16 so each group's boolean functions are fixed.
+    private static void rounds(int[] state, int[] x) {
+        int al = state[0], ar = state[0];
+        int bl = state[1], br = state[1];
+        int cl = state[2], cr = state[2];
+        int dl = state[3], dr = state[3];
+        int el = state[4], er = state[4];
+        int t;
+        for (int j = 0; j < 16; j++) {
+            t = rotateLeft(al + (bl ^ cl ^ dl) + x[RL[j]], SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = t;
+            t = rotateLeft(ar + (br ^ (cr | ~dr)) + x[RR[j]] + KR0, SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = t;
+        }
+        for (int j = 16; j < 32; j++) {
+            t = rotateLeft(al + ((bl & cl) | (~bl & dl)) + x[RL[j]] + KL1, SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = t;
+            t = rotateLeft(ar + ((br & dr) | (cr & ~dr)) + x[RR[j]] + KR1, SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = t;
+        }
+        for (int j = 32; j < 48; j++) {
+            t = rotateLeft(al + ((bl | ~cl) ^ dl) + x[RL[j]] + KL2, SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = t;
+            t = rotateLeft(ar + ((br | ~cr) ^ dr) + x[RR[j]] + KR2, SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = t;
+        }
+        for (int j = 48; j < 64; j++) {
+            t = rotateLeft(al + ((bl & dl) | (cl & ~dl)) + x[RL[j]] + KL3, SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = t;
+            t = rotateLeft(ar + ((br & cr) | (~br & dr)) + x[RR[j]] + KR3, SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = t;
+        }
+        for (int j = 64; j < 80; j++) {
+            t = rotateLeft(al + (bl ^ (cl | ~dl)) + x[RL[j]] + KL4, SL[j]) + el;
+            al = el;
+            el = dl;
+            dl = rotateLeft(cl, 10);
+            cl = bl;
+            bl = t;
+            t = rotateLeft(ar + (br ^ cr ^ dr) + x[RR[j]], SR[j]) + er;
+            ar = er;
+            er = dr;
+            dr = rotateLeft(cr, 10);
+            cr = br;
+            br = t;
+        }
+        t = state[1] + cl + dr;
+        state[1] = state[2] + dl + er;
+        state[2] = state[3] + el + ar;
+        state[3] = state[4] + al + br;
+        state[4] = state[0] + bl + cr;
+        state[0] = t;
     }
 }
@@ -0,0 +1,220 @@
+package mandioca.bitcoin.util;
+
+import java.util.Arrays;
+
+import static java.lang.Integer.rotateRight;
+
+/**
+ * An incremental SHA-256 whose internal state (the eight chaining words, the partial block and the length) can be
+ * snapshot and restored, so a prefix shared by many messages is compressed only once.
+ * <p>
+ * Typical use:  hash the shared prefix, take a {@link #snapshot()}, then for each message {@link #restore(Sha256)}
+ * the snapshot, hash the rest and finish.  The BIP-143 signature hash prefix (version, hashPrevouts, hashSequence)
+ * and the first 64 bytes of a block header are hashed this way.
+ * <p>
+ * Instances are not thread-safe.  Snapshots are ordinary instances;  restoring from one does not change it.
+ */
+public final class Sha256 {
+
+    public static final int HASH_LENGTH = 32;
+    public static final int BLOCK_LENGTH = 64;
+
+    static final int[] K = {
+            0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+            0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+            0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+            0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+            0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+            0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+            0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+            0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2};
+
+    static final int[] INITIAL_STATE = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19};
+
+    private final int[] state = new int[8];
+    private final byte[] buffer = new byte[BLOCK_LENGTH];  // partial block
+    private final byte[] word = new byte[4];               // updateIntLE scratch
+    private int[] w;                                       // message schedule scratch, allocated on first use
+    private long length;                                   // bytes hashed so far
+
+    public Sha256() {
+        reset();
+    }
+
+    public Sha256 reset() {
+        System.arraycopy(INITIAL_STATE, 0, state, 0, 8);
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Returns a copy of this hash's state.
+     */
+    public Sha256 snapshot() {
+        return new Sha256().restore(this);
+    }
+
+    /**
+     * Sets this hash's state to the snapshot's, without allocating.
+     */
+    public Sha256 restore(Sha256 snapshot) {
+        System.arraycopy(snapshot.state, 0, state, 0, 8);
+        System.arraycopy(snapshot.buffer, 0, buffer, 0, (int) (snapshot.length & 63));
+        length = snapshot.length;
+        return this;
+    }
+
+    public Sha256 update(byte[] in) {
+        return update(in, 0, in.length);
+    }
+
+    public Sha256 update(byte[] in, int off, int len) {
+        if (off < 0 || len < 0 || off + len > in.length) {
+            throw new IndexOutOfBoundsException("Cannot hash " + len + " bytes at offset " + off
+                    + " of a " + in.length + " byte array");
+        }
+        int buffered = (int) (length & 63);
+        length += len;
+        if (buffered > 0) {
+            int n = Math.min(len, BLOCK_LENGTH - buffered);
+            System.arraycopy(in, off, buffer, buffered, n);
+            off += n;
+            len -= n;
+            if (buffered + n < BLOCK_LENGTH) {
+                return this;
+            }
+            compress(state, buffer, 0, schedule());
+        }
+        for (; len >= BLOCK_LENGTH; off += BLOCK_LENGTH, len -= BLOCK_LENGTH) {
+            compress(state, in, off, schedule());
+        }
+        System.arraycopy(in, off, buffer, 0, len);
+        return this;
+    }
+
+    /**
+     * Hashes a 4-byte little endian int, such as a block header nonce.
+     */
+    public Sha256 updateIntLE(int value) {
+        word[0] = (byte) value;
+        word[1] = (byte) (value >>> 8);
+        word[2] = (byte) (value >>> 16);
+        word[3] = (byte) (value >>> 24);
+        return update(word, 0, 4);
+    }
+
+    /**
+     * Writes SHA256 of everything hashed since the last reset to out[off, off + 32), then resets.
+     */
+    public void digest(byte[] out, int off) {
+        if (off < 0 || out.length - off < HASH_LENGTH) {
+            throw new IllegalArgumentException("No room for a 32-byte hash at offset " + off
+                    + " of a " + out.length + " byte array");
+        }
+        long bitLength = length << 3;
+        int buffered = (int) (length & 63);
+        buffer[buffered++] = (byte) 0x80;
+        if (buffered > BLOCK_LENGTH - 8) {
+            Arrays.fill(buffer, buffered, BLOCK_LENGTH, (byte) 0);
+            compress(state, buffer, 0, schedule());
+            buffered = 0;
+        }
+        Arrays.fill(buffer, buffered, BLOCK_LENGTH - 8, (byte) 0);
+        for (int i = 0; i < 8; i++) {
+            buffer[BLOCK_LENGTH - 1 - i] = (byte) (bitLength >>> (i << 3));
+        }
+        compress(state, buffer, 0, schedule());
+        for (int i = 0; i < 8; i++) {
+            putIntBE(state[i], out, off + (i << 2));
+        }
+        reset();
+    }
+
+    public byte[] digest() {
+        byte[] out = new byte[HASH_LENGTH];
+        digest(out, 0);
+        return out;
+    }
+
+    /**
+     * Writes SHA256(SHA256) of everything hashed since the last reset to out[off, off + 32), then resets.  The
+     * second hash runs on this instance, so nothing is allocated.
+     */
+    public void digestHash256(byte[] out, int off) {
+        digest(out, off);
+        update(out, off, HASH_LENGTH);
+        digest(out, off);
+    }
+
+    // Snapshots never compress, so they do without the 256-byte schedule.
+    private int[] schedule() {
+        if (w == null) {
+            w = new int[64];
+        }
+        return w;
+    }
+
+    /**
+     * Returns the number of bytes hashed since the last reset.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns a copy of the eight chaining words, the midstate;  only meaningful when a whole number of blocks has
+     * been hashed.
+     */
+    public int[] getMidstate() {
+        return state.clone();
+    }
+
+    /**
+     * The SHA-256 compression function:  updates state with the 64-byte block at in[off].
+     *
+     * @param state eight chaining words
+     * @param in    input bytes
+     * @param off   offset of the block
+     * @param w     scratch for the 64-word message schedule
+     */
+    static void compress(int[] state, byte[] in, int off, int[] w) {
+        for (int i = 0; i < 16; i++, off += 4) {
+            w[i] = (in[off] << 24) | ((in[off + 1] & 0xFF) << 16) | ((in[off + 2] & 0xFF) << 8) | (in[off + 3] & 0xFF);
+        }
+        for (int i = 16; i < 64; i++) {
+            int s0 = rotateRight(w[i - 15], 7) ^ rotateRight(w[i - 15], 18) ^ (w[i - 15] >>> 3);
+            int s1 = rotateRight(w[i - 2], 17) ^ rotateRight(w[i - 2], 19) ^ (w[i - 2] >>> 10);
+            w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+        }
+        int a = state[0], b = state[1], c = state[2], d = state[3];
+        int e = state[4], f = state[5], g = state[6], h = state[7];
+        for (int i = 0; i < 64; i++) {
+            int t1 = h + (rotateRight(e, 6) ^ rotateRight(e, 11) ^ rotateRight(e, 25)) + ((e & f) ^ (~e & g)) + K[i] + w[i];
+            int t2 = (rotateRight(a, 2) ^ rotateRight(a, 13) ^ rotateRight(a, 22)) + ((a & b) ^ (a & c) ^ (b & c));
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+        state[0] += a;
+        state[1] += b;
+        state[2] += c;
+        state[3] += d;
+        state[4] += e;
+        state[5] += f;
+        state[6] += g;
+        state[7] += h;
+    }
+
+    static void putIntBE(int value, byte[] out, int off) {
+        out[off] = (byte) (value >>> 24);
+        out[off + 1] = (byte) (value >>> 16);
+        out[off + 2] = (byte) (value >>> 8);
+        out[off + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,89 @@
+package mandioca.bitcoin.util;
+
+import java.util.stream.IntStream;
+
+/**
+ * Double SHA-256 of many independent, equal length messages laid out one after another in a single array, such as
+ * the 64-byte pairs of a Merkle tree level or a run of 80-byte block headers.  Hashes are written one after another
+ * into a single output array, so a whole batch costs no per-message allocation.
+ * <p>
+ * Every message goes through {@link Sha256Engine}, whose MessageDigest the JVM compiles to the CPU's SHA or vector
+ * instructions;  large batches are split into chunks hashed on the common fork-join pool.
+ */
+public final class Sha256Batch {
+
+    static final int CHUNK_SIZE = 512;  // messages per parallel task
+
+    private Sha256Batch() {
+    }
+
+    /**
+     * Writes hash256(in[off + i * len, off + (i + 1) * len)) to out[outOff + i * 32] for i = 0 to count - 1.
+     *
+     * @param in     messages, one after another
+     * @param off    offset of the first message
+     * @param len    length of every message
+     * @param count  number of messages
+     * @param out    hashes, one after another
+     * @param outOff offset of the first hash
+     */
+    public static void hash256(byte[] in, int off, int len, int count, byte[] out, int outOff) {
+        if (len < 0 || count < 0 || off < 0 || outOff < 0
+                || (long) off + (long) len * count > in.length
+                || (long) outOff + (long) Sha256Engine.HASH_LENGTH * count > out.length) {
+            throw new IllegalArgumentException("Cannot hash " + count + " messages of " + len + " bytes at offset "
+                    + off + " of " + in.length + " bytes into " + out.length + " bytes at offset " + outOff);
+        }
+        if (count <= CHUNK_SIZE) {
+            hashChunk(in, off, len, 0, count, out, outOff);
+            return;
+        }
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK_SIZE;
+            hashChunk(in, off, len, from, Math.min(count, from + CHUNK_SIZE), out, outOff);
+        });
+    }
+
+    private static void hashChunk(byte[] in, int off, int len, int from, int to, byte[] out, int outOff) {
+        for (int i = from; i < to; i++) {
+            Sha256Engine.hash256(in, off + i * len, len, out, outOff + i * Sha256Engine.HASH_LENGTH);
+        }
+    }
+
+    /**
+     * Hashes a Merkle tree level:  writes hash256(left || right) of each pair of 32-byte hashes in
+     * hashes[0, count * 32) to parents, pairing the last hash with itself when count is odd.
+     *
+     * @param hashes  count hashes, one after another
+     * @param count   number of hashes
+     * @param parents room for (count + 1) / 2 parent hashes, one after another
+     */
+    public static void merkleParents(byte[] hashes, int count, byte[] parents) {
+        int pairs = count / 2;
+        hash256(hashes, 0, 2 * Sha256Engine.HASH_LENGTH, pairs, parents, 0);
+        if (count % 2 == 1) {
+            byte[] last = new byte[Sha256Engine.HASH_LENGTH];
+            System.arraycopy(hashes, (count - 1) * Sha256Engine.HASH_LENGTH, last, 0, last.length);
+            Sha256Engine.hash256(last, last, parents, pairs * Sha256Engine.HASH_LENGTH);
+        }
+    }
+
+    /**
+     * Returns the Merkle root of count 32-byte hashes laid out one after another, hashing the tree level by level.
+     */
+    public static byte[] merkleRoot(byte[] hashes, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Cannot compute the merkle root of " + count + " hashes");
+        }
+        byte[] level = hashes;
+        for (; count > 1; count = (count + 1) / 2) {
+            byte[] parents = new byte[((count + 1) / 2) * Sha256Engine.HASH_LENGTH];
+            merkleParents(level, count, parents);
+            level = parents;
+        }
+        byte[] root = new byte[Sha256Engine.HASH_LENGTH];
+        System.arraycopy(level, 0, root, 0, root.length);
+        return root;
+    }
+}
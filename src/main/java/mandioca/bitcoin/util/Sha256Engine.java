@@ -0,0 +1,150 @@
+package mandioca.bitcoin.util;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 and double SHA-256 (hash256) over caller supplied buffers, without a provider lookup or allocation per
+ * hash.  Each thread reuses its own MessageDigest and 32-byte scratch buffer, so every method can be called from
+ * many threads at once.  Not instantiable.
+ * <p>
+ * The {@link mandioca.bitcoin.function.HashFunctions} sha256Hash and hash256 functions are wrappers around this
+ * class that return a new byte[32].
+ */
+public final class Sha256Engine {
+
+    public static final int HASH_LENGTH = 32;
+
+    private static final ThreadLocal<Sha256Engine> engines = ThreadLocal.withInitial(Sha256Engine::new);
+
+    private final MessageDigest digest;
+    private final byte[] scratch = new byte[HASH_LENGTH];
+
+    private Sha256Engine() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes SHA256(in[off, off + len)) to out[outOff, outOff + 32).
+     */
+    public static void sha256(byte[] in, int off, int len, byte[] out, int outOff) {
+        Sha256Engine engine = engines.get();
+        engine.digest.update(in, off, len);
+        engine.finish(out, outOff);
+    }
+
+    /**
+     * Writes SHA256(SHA256(in[off, off + len))) to out[outOff, outOff + 32).
+     */
+    public static void hash256(byte[] in, int off, int len, byte[] out, int outOff) {
+        Sha256Engine engine = engines.get();
+        engine.digest.update(in, off, len);
+        engine.rehash(out, outOff);
+    }
+
+    /**
+     * Writes SHA256(SHA256(left || right)) to out[outOff, outOff + 32), without concatenating the inputs;  the
+     * Merkle tree parent of two 32-byte hashes.
+     */
+    public static void hash256(byte[] left, byte[] right, byte[] out, int outOff) {
+        Sha256Engine engine = engines.get();
+        engine.digest.update(left);
+        engine.digest.update(right);
+        engine.rehash(out, outOff);
+    }
+
+    /**
+     * Hashes the remaining bytes of in, consuming them, and puts the 32-byte SHA256 at out's position.
+     */
+    public static void sha256(ByteBuffer in, ByteBuffer out) {
+        Sha256Engine engine = engines.get();
+        engine.digest.update(in);
+        engine.finish(engine.scratch, 0);
+        out.put(engine.scratch);
+    }
+
+    /**
+     * Hashes the remaining bytes of in, consuming them, and puts the 32-byte SHA256(SHA256) at out's position.
+     */
+    public static void hash256(ByteBuffer in, ByteBuffer out) {
+        Sha256Engine engine = engines.get();
+        engine.digest.update(in);
+        engine.rehash(engine.scratch, 0);
+        out.put(engine.scratch);
+    }
+
+    /**
+     * Puts SHA256(SHA256) of the concatenated slices of in to out[outOff, outOff + 32), without copying the slices
+     * or moving in's position or limit.  Slices are given as absolute index and length pairs, as {i0, n0, i1, n1 ...}.
+     */
+    public static void hash256(ByteBuffer in, int[] slices, byte[] out, int outOff) {
+        Sha256Engine engine = engines.get();
+        engine.update(in, slices);
+        engine.rehash(out, outOff);
+    }
+
+    public static byte[] sha256(byte[] in) {
+        byte[] out = new byte[HASH_LENGTH];
+        sha256(in, 0, in.length, out, 0);
+        return out;
+    }
+
+    public static byte[] hash256(byte[] in) {
+        byte[] out = new byte[HASH_LENGTH];
+        hash256(in, 0, in.length, out, 0);
+        return out;
+    }
+
+    // Heap buffers are hashed from their backing array;  direct, mapped and read-only buffers through a duplicate.
+    private void update(ByteBuffer in, int[] slices) {
+        if (slices.length % 2 != 0) {
+            throw new IllegalArgumentException("Slices must be index and length pairs");
+        }
+        for (int i = 0; i < slices.length; i += 2) {
+            if (slices[i] < 0 || slices[i + 1] < 0 || slices[i] + slices[i + 1] > in.limit()) {
+                digest.reset();
+                throw new IllegalArgumentException("Slice of " + slices[i + 1] + " bytes at index " + slices[i]
+                        + " is outside a buffer with limit " + in.limit());
+            }
+        }
+        if (in.hasArray()) {
+            for (int i = 0; i < slices.length; i += 2) {
+                digest.update(in.array(), in.arrayOffset() + slices[i], slices[i + 1]);
+            }
+        } else {
+            ByteBuffer slice = in.duplicate();
+            for (int i = 0; i < slices.length; i += 2) {
+                slice.limit(slices[i] + slices[i + 1]).position(slices[i]);
+                digest.update(slice);
+            }
+        }
+    }
+
+    // Completes the first hash into scratch, then hashes scratch into out.
+    private void rehash(byte[] out, int outOff) {
+        finish(scratch, 0);
+        digest.update(scratch);
+        finish(out, outOff);
+    }
+
+    // Completes the hash into out;  on a bad offset the digest is reset, so the next hash on this thread starts clean.
+    private void finish(byte[] out, int outOff) {
+        if (outOff < 0 || out.length - outOff < HASH_LENGTH) {
+            digest.reset();
+            throw new IllegalArgumentException("No room for a 32-byte hash at offset " + outOff
+                    + " of a " + out.length + " byte array");
+        }
+        try {
+            digest.digest(out, outOff, HASH_LENGTH);
+        } catch (DigestException e) {
+            digest.reset();
+            throw new RuntimeException(e);
+        }
+    }
+}
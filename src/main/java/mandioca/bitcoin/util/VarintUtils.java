@@ -1,25 +1,31 @@
 package mandioca.bitcoin.util;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.function.Predicate;
 
-import static mandioca.bitcoin.function.BigIntegerFunctions.HEX_RADIX;
-import static mandioca.bitcoin.function.ByteArrayFunctions.*;
+import static mandioca.bitcoin.function.ByteArrayFunctions.MASK_0xFF;
 import static mandioca.bitcoin.function.ByteCompareFunctions.isEqual;
-import static mandioca.bitcoin.function.EndianFunctions.toLittleEndian;
-import static mandioca.bitcoin.pbbl.ByteBufferLender.borrowBuffer;
-import static mandioca.bitcoin.pbbl.ByteBufferLender.returnBuffer;
 
+/**
+ * Bitcoin's variable length integer:  values below 0xfd are one byte, and larger values are a 0xfd, 0xfe or 0xff
+ * prefix followed by the value as a 2, 4 or 8 byte little endian number.  Values are unsigned 64-bit numbers held in
+ * a long;  those of 2^63 and above are negative.
+ * <p>
+ * The read and write methods work on primitive longs in place, in a byte[], ByteBuffer or DataInput, and allocate
+ * nothing.
+ */
 public final class VarintUtils {
 
     // SEE https://en.bitcoin.it/wiki/Protocol_documentation#Variable_length_integer
 
-    private static final Predicate<Byte> isLessThan0xfd = (b) -> byteToInt.apply(b) < 0xfd;
-    private static final Predicate<Long> isLessThan0x10000 = (l) -> l < Long.valueOf("10000", HEX_RADIX);
-    private static final Predicate<Long> isLessThan0x100000000 = (l) -> l < Long.valueOf("100000000", HEX_RADIX);
-    private static final BigInteger hex0x10000000000000000 = new BigInteger("10000000000000000", HEX_RADIX);
-    private static final Predicate<Long> isLessThan0x10000000000000000 = (l) -> BigInteger.valueOf(l).compareTo(hex0x10000000000000000) < 0;
+    public static final int MAX_LENGTH = 9;
+
+    private static final int PREFIX_2_BYTES = 0xfd;
+    private static final int PREFIX_4_BYTES = 0xfe;
+    private static final int PREFIX_8_BYTES = 0xff;
 
     public static final Predicate<byte[]> firstByteIs253 = (bytes) -> isEqual.apply(bytes[0], (byte) 0xfd);
     public static final Predicate<byte[]> firstByteIs254 = (bytes) -> isEqual.apply(bytes[0], (byte) 0xfe);
@@ -27,85 +33,196 @@ public final class VarintUtils {
 
     public static final VarintUtils VARINT = new VarintUtils();
 
-    public long decode(byte[] vi) {
-        // Varint's value range is 0 to 2^64 - 1
-        ByteBuffer byteBuffer = null;
-        try {
-            if (firstByteIs253.test(vi)) {          // if byte == 0xfd, next two bytes are the number
-                byteBuffer = borrowBuffer.apply(2);
-                byteBuffer.put(vi[2]).put(vi[1]).flip();
-                return bytesToLong.apply(byteBuffer.array());
-            } else if (firstByteIs254.test(vi)) {   // if byte == 0xfe, next four bytes are the number
-                byteBuffer = borrowBuffer.apply(4);
-                byteBuffer.put(vi[4]).put(vi[3]).put(vi[2]).put(vi[1]).flip();
-                return bytesToLong.apply(byteBuffer.array());
-            } else if (firstByteIs255.test(vi)) {   // if byte == 0xff, next eight bytes are the number
-                byteBuffer = borrowBuffer.apply(8);
-                byteBuffer.put(vi[8]).put(vi[7]).put(vi[6]).put(vi[5]).put(vi[4]).put(vi[3]).put(vi[2]).put(vi[1]).flip();
-                return bytesToLong.apply(byteBuffer.array());
-            } else { // anything else is the int
-                return bytesToLong.apply(vi);
-            }
-        } finally {
-            if (byteBuffer != null) {
-                returnBuffer.accept(byteBuffer);
-            }
+    /**
+     * Returns the number of bytes, 1, 3, 5 or 9, of the varint whose first byte is given.
+     */
+    public int length(byte firstByte) {
+        switch (firstByte & MASK_0xFF) {
+            case PREFIX_2_BYTES:
+                return 3;
+            case PREFIX_4_BYTES:
+                return 5;
+            case PREFIX_8_BYTES:
+                return 9;
+            default:
+                return 1;
         }
     }
 
-    // TODO optimize this dog's breakfast
-    public byte[] encode(int n) {
-        if (n == 0) {
-            return new byte[]{0x00};
-        } else if (n < 0xfd) {
-            return intToTruncatedByteArray.apply(n);
-        } else if (n < 65535) {     // 0x10000 = 65535
-            return concatenate.apply(new byte[]{(byte) 0xfd}, toLittleEndian.apply(n, 2));
+    /**
+     * Returns the number of bytes, 1, 3, 5 or 9, of the varint encoding n.
+     */
+    public int encodedLength(long n) {
+        if (n >= 0 && n < PREFIX_2_BYTES) {
+            return 1;
+        } else if (n >= 0 && n < 0x10000L) {
+            return 3;
+        } else if (n >= 0 && n < 0x100000000L) {
+            return 5;
         } else {
-            return encodeVeryLargeVarint((long) n);
+            return 9;
         }
     }
 
+    /**
+     * Reads the varint at in[off];  its length is {@link #length(byte)} of in[off].
+     */
+    public long read(byte[] in, int off) {
+        int first = in[off] & MASK_0xFF;
+        switch (first) {
+            case PREFIX_2_BYTES:
+                return (in[off + 1] & 0xFFL) | (in[off + 2] & 0xFFL) << 8;
+            case PREFIX_4_BYTES:
+                return littleEndian(in, off + 1, 4);
+            case PREFIX_8_BYTES:
+                return littleEndian(in, off + 1, 8);
+            default:
+                return first;
+        }
+    }
 
-    // Encode a long between 0 and 2^64 - 1 into a byte[]
-    public byte[] encode(Long n) {  // From Jimmy Song's helper.py
-        if (n == 0) {
-            return new byte[]{0x00};
-        } else if (n < 0xfd) {
-            return longToTruncatedByteArray.apply(n);
-        } else if (n < 65535) {     // 0x10000 = 65535
-            return concatenate.apply(new byte[]{(byte) 0xfd}, toLittleEndian.apply(n, 2));
-        } else {
-            return encodeVeryLargeVarint(n);
+    /**
+     * Reads the varint at the buffer's position, whatever the buffer's byte order, and advances past it.
+     */
+    public long read(ByteBuffer in) {
+        int first = in.get() & MASK_0xFF;
+        switch (first) {
+            case PREFIX_2_BYTES:
+                return (in.get() & 0xFFL) | (in.get() & 0xFFL) << 8;
+            case PREFIX_4_BYTES:
+                return (in.get() & 0xFFL) | (in.get() & 0xFFL) << 8 | (in.get() & 0xFFL) << 16 | (in.get() & 0xFFL) << 24;
+            case PREFIX_8_BYTES:
+                long n = 0;
+                for (int shift = 0; shift < 64; shift += 8) {
+                    n |= (in.get() & 0xFFL) << shift;
+                }
+                return n;
+            default:
+                return first;
         }
     }
 
-    // Encode a BigInteger between 0 and 2^64 - 1 into a byte[]
-    public byte[] encode(BigInteger n) { // From Jimmy Song's helper.py
-        byte[] bigEndianBytes = bigIntToTruncatedByteArray.apply(n);
-        if (isLessThan0xfd.test(bigEndianBytes[0])) {
-            return bigEndianBytes;
-        } else {
-            return encodeVeryLargeVarint(n.longValue());
+    /**
+     * Reads the varint at an absolute index of the buffer, whatever the buffer's byte order, without moving its
+     * position;  its length is {@link #length(byte)} of the byte at index.
+     */
+    public long read(ByteBuffer in, int index) {
+        int first = in.get(index) & MASK_0xFF;
+        switch (first) {
+            case PREFIX_2_BYTES:
+                return littleEndian(in, index + 1, 2);
+            case PREFIX_4_BYTES:
+                return littleEndian(in, index + 1, 4);
+            case PREFIX_8_BYTES:
+                return littleEndian(in, index + 1, 8);
+            default:
+                return first;
         }
     }
 
+    /**
+     * Reads the next varint from a stream.
+     */
+    public long read(DataInput in) throws IOException {
+        int first = in.readUnsignedByte();
+        switch (first) {
+            case PREFIX_2_BYTES:
+                return Short.toUnsignedLong(Short.reverseBytes(in.readShort()));
+            case PREFIX_4_BYTES:
+                return Integer.toUnsignedLong(Integer.reverseBytes(in.readInt()));
+            case PREFIX_8_BYTES:
+                return Long.reverseBytes(in.readLong());
+            default:
+                return first;
+        }
+    }
 
-    private byte[] encodeVeryLargeVarint(Long n) {
-        // From Jimmy Song's helper.py
-        return getBytes(n, isLessThan0x10000, isLessThan0x100000000, isLessThan0x10000000000000000);
+    /**
+     * Writes the varint encoding n to out[off, off + {@link #encodedLength(long)}) and returns its length.
+     */
+    public int write(long n, byte[] out, int off) {
+        int length = encodedLength(n);
+        switch (length) {
+            case 1:
+                out[off] = (byte) n;
+                break;
+            case 3:
+                out[off] = (byte) PREFIX_2_BYTES;
+                putLittleEndian(n, out, off + 1, 2);
+                break;
+            case 5:
+                out[off] = (byte) PREFIX_4_BYTES;
+                putLittleEndian(n, out, off + 1, 4);
+                break;
+            default:
+                out[off] = (byte) PREFIX_8_BYTES;
+                putLittleEndian(n, out, off + 1, 8);
+        }
+        return length;
     }
 
-    static byte[] getBytes(Long n, Predicate<Long> isLessThan0x10000, Predicate<Long> isLessThan0x100000000, Predicate<Long> isLessThan0x10000000000000000) {
-        if (isLessThan0x10000.test(n)) {
-            return concatenate.apply(new byte[]{(byte) 0xfd}, toLittleEndian.apply(n.intValue(), 2));
-        } else if (isLessThan0x100000000.test(n)) {
-            return concatenate.apply(new byte[]{(byte) 0xfe}, toLittleEndian.apply(n.intValue(), 4));
-        } else if (isLessThan0x10000000000000000.test(n)) {
-            return concatenate.apply(new byte[]{(byte) MASK_0xFF}, toLittleEndian.apply(n, 8));
-        } else {
-            throw new RuntimeException("n too large " + n);
+    /**
+     * Writes the varint encoding n at the buffer's position, whatever the buffer's byte order, and advances past it.
+     */
+    public void write(long n, ByteBuffer out) {
+        int length = encodedLength(n);
+        if (length == 1) {
+            out.put((byte) n);
+            return;
+        }
+        out.put((byte) (length == 3 ? PREFIX_2_BYTES : length == 5 ? PREFIX_4_BYTES : PREFIX_8_BYTES));
+        for (int i = 0; i < length - 1; i++) {
+            out.put((byte) (n >>> (8 * i)));
+        }
+    }
+
+    public long decode(byte[] vi) {
+        // Varint's value range is 0 to 2^64 - 1
+        return read(vi, 0);
+    }
+
+    // Encode a non-negative int;  a negative int is a bug, e.g. an overflowed length, not a value above 2^31 - 1
+    public byte[] encode(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Cannot varint encode negative int " + n);
         }
+        return encode((long) n);
+    }
+
+    // Encode a long between 0 and 2^64 - 1 into a byte[]
+    public byte[] encode(long n) {
+        byte[] vi = new byte[encodedLength(n)];
+        write(n, vi, 0);
+        return vi;
     }
 
+    // Encode a BigInteger between 0 and 2^64 - 1 into a byte[]
+    public byte[] encode(BigInteger n) {
+        if (n.signum() < 0 || n.bitLength() > 64) {
+            throw new RuntimeException("n out of varint range " + n);
+        }
+        return encode(n.longValue());
+    }
+
+    private static long littleEndian(byte[] in, int off, int length) {
+        long n = 0;
+        for (int i = 0; i < length; i++) {
+            n |= (in[off + i] & 0xFFL) << (8 * i);
+        }
+        return n;
+    }
+
+    private static long littleEndian(ByteBuffer in, int index, int length) {
+        long n = 0;
+        for (int i = 0; i < length; i++) {
+            n |= (in.get(index + i) & 0xFFL) << (8 * i);
+        }
+        return n;
+    }
+
+    private static void putLittleEndian(long n, byte[] out, int off, int length) {
+        for (int i = 0; i < length; i++) {
+            out[off + i] = (byte) (n >>> (8 * i));
+        }
+    }
 }
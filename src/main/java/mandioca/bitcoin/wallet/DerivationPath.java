@@ -0,0 +1,124 @@
+package mandioca.bitcoin.wallet;
+
+import java.util.Arrays;
+
+/**
+ * An immutable BIP-32 key derivation path, such as m/44'/0'/0'/0, held as the list of child numbers below the
+ * master key m.  Hardened child numbers have the {@link #HARDENED_BIT} set, and are written with a ' or h suffix.
+ * <p>
+ * See https://github.com/bitcoin/bips/blob/master/bip-0032.mediawiki
+ */
+public final class DerivationPath {
+
+    public static final int HARDENED_BIT = 0x80000000;
+    public static final DerivationPath MASTER = new DerivationPath(new int[0]);
+
+    private final int[] childNumbers;
+
+    private DerivationPath(int[] childNumbers) {
+        this.childNumbers = childNumbers;
+    }
+
+    /**
+     * Parses a path like m/44'/0'/0'/0 or m/84h/0h/0h/1.
+     *
+     * @param path derivation path, starting with m
+     * @return DerivationPath
+     */
+    public static DerivationPath parse(String path) {
+        if (path == null) {
+            throw new NullPointerException("Cannot parse null derivation path");
+        }
+        String[] elements = path.trim().split("/");
+        if (!elements[0].equals("m")) {
+            throw new IllegalArgumentException("Derivation path must start with 'm', not '" + path + "'");
+        }
+        int[] childNumbers = new int[elements.length - 1];
+        for (int i = 1; i < elements.length; i++) {
+            String element = elements[i];
+            boolean hardened = element.endsWith("'") || element.endsWith("h") || element.endsWith("H");
+            String digits = hardened ? element.substring(0, element.length() - 1) : element;
+            int index;
+            try {
+                index = Integer.parseInt(digits);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid derivation path element '" + element + "' in " + path, e);
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Derivation path index " + element + " in " + path + " is out of range");
+            }
+            childNumbers[i - 1] = hardened ? hardened(index) : index;
+        }
+        return new DerivationPath(childNumbers);
+    }
+
+    /**
+     * Returns the hardened child number for index i, i + 2^31.
+     */
+    public static int hardened(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Child index " + index + " is already hardened or out of range");
+        }
+        return index | HARDENED_BIT;
+    }
+
+    public static boolean isHardened(int childNumber) {
+        return (childNumber & HARDENED_BIT) != 0;
+    }
+
+    /**
+     * Returns this path extended by one child number.
+     */
+    public DerivationPath child(int childNumber) {
+        int[] extended = Arrays.copyOf(childNumbers, childNumbers.length + 1);
+        extended[childNumbers.length] = childNumber;
+        return new DerivationPath(extended);
+    }
+
+    /**
+     * Returns the path of this path's parent, or null if this is the master key's path.
+     */
+    public DerivationPath parent() {
+        return childNumbers.length == 0 ? null : prefix(childNumbers.length - 1);
+    }
+
+    /**
+     * Returns the path made of this path's first depth child numbers.
+     */
+    public DerivationPath prefix(int depth) {
+        return depth == childNumbers.length ? this : new DerivationPath(Arrays.copyOf(childNumbers, depth));
+    }
+
+    public int getDepth() {
+        return childNumbers.length;
+    }
+
+    public int getChildNumber(int level) {
+        return childNumbers[level];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DerivationPath that = (DerivationPath) o;
+        return Arrays.equals(childNumbers, that.childNumbers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(childNumbers);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("m");
+        for (int childNumber : childNumbers) {
+            sb.append('/').append(childNumber & ~HARDENED_BIT);
+            if (isHardened(childNumber)) {
+                sb.append('\'');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package mandioca.bitcoin.wallet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Derives keys below a BIP-32 root key, remembering the intermediate nodes of every path it walks.  Deriving
+ * m/44'/0'/0'/0/i for many i then costs one child derivation per key, not five.
+ * <p>
+ * Only intermediate nodes are cached, never the leaves returned by {@link #derive(DerivationPath)} or
+ * {@link #deriveRange(DerivationPath, int, int)}, so walking millions of addresses does not fill the cache.  The
+ * cache holds at most its capacity in nodes;  once full, new nodes are derived but not cached.
+ * <p>
+ * The root may be a public extended key, for watch-only chains that derive only normal children.
+ */
+public final class DeterministicKeyChain {
+
+    public static final int DEFAULT_CACHE_CAPACITY = 10_000;
+    static final int RANGE_BATCH_SIZE = 256;  // children per parallel task, sharing one batch inversion
+
+    private final ExtendedKey root;
+    private final int cacheCapacity;
+    private final Map<DerivationPath, ExtendedKey> nodes = new ConcurrentHashMap<>();
+
+    public DeterministicKeyChain(ExtendedKey root) {
+        this(root, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param root          master key m, or any key treated as the root of the paths
+     * @param cacheCapacity maximum number of cached intermediate nodes
+     */
+    public DeterministicKeyChain(ExtendedKey root, int cacheCapacity) {
+        if (root == null) {
+            throw new NullPointerException("Cannot create key chain with null root key");
+        }
+        if (cacheCapacity < 0) {
+            throw new IllegalArgumentException("Key chain cache capacity cannot be negative: " + cacheCapacity);
+        }
+        this.root = root;
+        this.cacheCapacity = cacheCapacity;
+    }
+
+    public ExtendedKey getRoot() {
+        return root;
+    }
+
+    public ExtendedKey derive(String path) {
+        return derive(DerivationPath.parse(path));
+    }
+
+    /**
+     * Returns the key at the given path, deriving it from the deepest cached node on the path.
+     *
+     * @param path derivation path
+     * @return ExtendedKey
+     */
+    public ExtendedKey derive(DerivationPath path) {
+        if (path.getDepth() == 0) {
+            return root;
+        }
+        return getNode(path.parent()).deriveChild(path.getChildNumber(path.getDepth() - 1));
+    }
+
+    public ExtendedKey[] deriveRange(String path, int from, int to) {
+        return deriveRange(DerivationPath.parse(path), from, to);
+    }
+
+    /**
+     * Returns the children of the key at path with child numbers from (inclusive) to to (exclusive), deriving them in
+     * parallel batches.  For hardened children pass hardened child numbers, e.g.
+     * {@code deriveRange(path, hardened(0), hardened(100))}.
+     *
+     * @param path derivation path of the parent key, e.g. m/44'/0'/0'/0 for an account's receiving keys
+     * @param from first child number
+     * @param to   child number after the last
+     * @return ExtendedKey[] where index i is path/(from + i)
+     */
+    public ExtendedKey[] deriveRange(DerivationPath path, int from, int to) {
+        int count = to - from;
+        if (count < 0 || (count > 0 && DerivationPath.isHardened(from) != DerivationPath.isHardened(to - 1))) {
+            throw new IllegalArgumentException("Invalid child number range " + from + " to " + to);
+        }
+        ExtendedKey parent = getNode(path);
+        int batches = (count + RANGE_BATCH_SIZE - 1) / RANGE_BATCH_SIZE;
+        ExtendedKey[] children = new ExtendedKey[count];
+        IntStream.range(0, batches).parallel().forEach((b) -> {
+            int start = b * RANGE_BATCH_SIZE;
+            int end = Math.min(count, start + RANGE_BATCH_SIZE);
+            ExtendedKey[] batch = parent.deriveChildren(from + start, from + end);
+            System.arraycopy(batch, 0, children, start, batch.length);
+        });
+        return children;
+    }
+
+    // Returns the key at path, caching it and every node above it.
+    private ExtendedKey getNode(DerivationPath path) {
+        if (path.getDepth() == 0) {
+            return root;
+        }
+        ExtendedKey node = nodes.get(path);
+        if (node == null) {
+            node = getNode(path.parent()).deriveChild(path.getChildNumber(path.getDepth() - 1));
+            if (nodes.size() < cacheCapacity) {
+                nodes.putIfAbsent(path, node);
+            }
+        }
+        return node;
+    }
+
+    public int getCacheSize() {
+        return nodes.size();
+    }
+
+    public void clearCache() {
+        nodes.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "DeterministicKeyChain{" +
+                "root=" + root +
+                ", cachedNodes=" + nodes.size() +
+                '}';
+    }
+}
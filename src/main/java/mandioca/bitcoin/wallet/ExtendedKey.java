@@ -0,0 +1,343 @@
+package mandioca.bitcoin.wallet;
+
+import mandioca.bitcoin.ecc.Secp256k1Point;
+import mandioca.bitcoin.ecc.Secp256k1PrivateKey;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static java.util.Arrays.copyOfRange;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
+import static mandioca.bitcoin.function.HashFunctions.hash160;
+import static mandioca.bitcoin.util.Base58.decodeChecked;
+import static mandioca.bitcoin.util.Base58.encodeChecked;
+
+/**
+ * A BIP-32 extended key:  a private or public key plus a chain code, from which child keys are derived.
+ * <p>
+ * A private extended key (xprv) derives both hardened and normal children.  A public extended key (xpub) derives
+ * only normal children, K_i = point(IL) + K_par, so a watch-only job can generate every receiving key of an account
+ * without its secrets.
+ * <p>
+ * See https://github.com/bitcoin/bips/blob/master/bip-0032.mediawiki
+ */
+public final class ExtendedKey {
+
+    static final int MAINNET_PRIVATE_VERSION = 0x0488ADE4;  // xprv
+    static final int MAINNET_PUBLIC_VERSION = 0x0488B21E;   // xpub
+    static final int TESTNET_PRIVATE_VERSION = 0x04358394;  // tprv
+    static final int TESTNET_PUBLIC_VERSION = 0x043587CF;   // tpub
+    static final int SERIALIZED_LENGTH = 78;
+
+    private static final byte[] MASTER_KEY_HMAC_KEY = "Bitcoin seed".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<Mac> hmacSha512 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA512");
+        } catch (Exception e) {
+            throw new RuntimeException("Error creating HmacSHA512 instance", e);
+        }
+    });
+
+    private final Secp256k1PrivateKey privateKey;  // null for a public extended key
+    private final Secp256k1Point publicKey;
+    private final byte[] chainCode;
+    private final int depth;
+    private final int parentFingerprint;
+    private final int childNumber;
+    private final boolean testnet;
+    private byte[] compressedSec;                  // computed on first use;  racing threads compute the same bytes
+    private byte[] identifier;                     // likewise
+
+    private ExtendedKey(Secp256k1PrivateKey privateKey, Secp256k1Point publicKey, byte[] chainCode,
+                        int depth, int parentFingerprint, int childNumber, boolean testnet) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.chainCode = chainCode;
+        this.depth = depth;
+        this.parentFingerprint = parentFingerprint;
+        this.childNumber = childNumber;
+        this.testnet = testnet;
+    }
+
+    /**
+     * Returns the master key m derived from a seed, usually 16 to 64 bytes.
+     *
+     * @param seed    seed bytes
+     * @param testnet true for tprv/tpub serialization, false for xprv/xpub
+     * @return ExtendedKey
+     */
+    public static ExtendedKey fromSeed(byte[] seed, boolean testnet) {
+        if (seed.length < 16 || seed.length > 64) {
+            throw new IllegalArgumentException("BIP-32 seed must be 16 to 64 bytes, not " + seed.length);
+        }
+        byte[] i = hmacSha512(MASTER_KEY_HMAC_KEY, seed);
+        BigInteger k = new BigInteger(1, copyOfRange(i, 0, 32));
+        if (k.signum() == 0 || k.compareTo(N) >= 0) {
+            throw new IllegalArgumentException("Seed yields an invalid master key, use another seed");
+        }
+        Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(k);
+        return new ExtendedKey(privateKey, privateKey.getPublicKey(), copyOfRange(i, 32, 64), 0, 0, 0, testnet);
+    }
+
+    /**
+     * Parses a Base58Check encoded xprv, xpub, tprv or tpub.
+     *
+     * @param base58 serialized extended key
+     * @return ExtendedKey
+     */
+    public static ExtendedKey parse(String base58) {
+        byte[] data = decodeChecked(base58, false);
+        if (data.length != SERIALIZED_LENGTH) {
+            throw new IllegalArgumentException("Extended key must be " + SERIALIZED_LENGTH
+                    + " bytes, not " + data.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int version = buffer.getInt();
+        int depth = buffer.get() & 0xFF;
+        int parentFingerprint = buffer.getInt();
+        int childNumber = buffer.getInt();
+        byte[] chainCode = new byte[32];
+        buffer.get(chainCode);
+        byte[] key = new byte[33];
+        buffer.get(key);
+        if (depth == 0 && (parentFingerprint != 0 || childNumber != 0)) {
+            throw new IllegalArgumentException("Master extended key has a parent fingerprint or child number");
+        }
+        boolean testnet = version == TESTNET_PRIVATE_VERSION || version == TESTNET_PUBLIC_VERSION;
+        if (version == MAINNET_PRIVATE_VERSION || version == TESTNET_PRIVATE_VERSION) {
+            BigInteger k = new BigInteger(1, copyOfRange(key, 1, 33));
+            if (key[0] != 0 || k.signum() == 0 || k.compareTo(N) >= 0) {
+                throw new IllegalArgumentException("Invalid private key in extended key");
+            }
+            Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(k);
+            return new ExtendedKey(privateKey, privateKey.getPublicKey(), chainCode,
+                    depth, parentFingerprint, childNumber, testnet);
+        } else if (version == MAINNET_PUBLIC_VERSION || version == TESTNET_PUBLIC_VERSION) {
+            if (key[0] != 2 && key[0] != 3) {
+                throw new IllegalArgumentException("Invalid public key prefix in extended key");
+            }
+            return new ExtendedKey(null, Secp256k1Point.parse(key), chainCode,
+                    depth, parentFingerprint, childNumber, testnet);
+        } else {
+            throw new IllegalArgumentException("Unknown extended key version 0x" + Integer.toHexString(version));
+        }
+    }
+
+    /**
+     * Returns the child key with the given child number;  hardened child numbers have
+     * {@link DerivationPath#HARDENED_BIT} set, and need a private extended key.
+     * <p>
+     * With probability below 2^-127 a child number yields no valid key, and a RuntimeException is thrown;  BIP-32
+     * says to use the next child number instead.
+     *
+     * @param childNumber child number
+     * @return ExtendedKey
+     */
+    public ExtendedKey deriveChild(int childNumber) {
+        byte[] i = childHmac(childNumber);
+        BigInteger il = new BigInteger(1, copyOfRange(i, 0, 32));
+        return privateKey == null
+                ? publicChild(childNumber, i, il, publicKey.addMultipleOfGenerator(il))
+                : privateChild(childNumber, i, il);
+    }
+
+    /**
+     * Returns the children with child numbers from (inclusive) to to (exclusive).  Children of a public extended key
+     * are converted to affine coordinates together, with one batch inversion.
+     *
+     * @param from first child number
+     * @param to   child number after the last
+     * @return ExtendedKey[] where index i is child from + i
+     */
+    public ExtendedKey[] deriveChildren(int from, int to) {
+        if (Integer.compareUnsigned(from, to) > 0) {
+            throw new IllegalArgumentException("Invalid child number range " + from + " to " + to);
+        }
+        ExtendedKey[] children = new ExtendedKey[to - from];
+        if (privateKey != null) {
+            for (int i = 0; i < children.length; i++) {
+                children[i] = deriveChild(from + i);
+            }
+            return children;
+        }
+        byte[][] hmacs = new byte[children.length][];
+        BigInteger[] il = new BigInteger[children.length];
+        for (int i = 0; i < children.length; i++) {
+            hmacs[i] = childHmac(from + i);
+            il[i] = new BigInteger(1, copyOfRange(hmacs[i], 0, 32));
+        }
+        Secp256k1Point[] points = Secp256k1Point.addMultiplesOfGenerator(il, publicKey);
+        for (int i = 0; i < children.length; i++) {
+            children[i] = publicChild(from + i, hmacs[i], il[i], points[i]);
+        }
+        return children;
+    }
+
+    // I = HMAC-SHA512(c_par, 0x00 || ser256(k_par) || ser32(i)) for hardened i, else HMAC-SHA512(c_par, serP(K_par) || ser32(i))
+    private byte[] childHmac(int childNumber) {
+        ByteBuffer data = ByteBuffer.allocate(37);
+        if (DerivationPath.isHardened(childNumber)) {
+            if (privateKey == null) {
+                throw new IllegalArgumentException("Cannot derive hardened child "
+                        + (childNumber & ~DerivationPath.HARDENED_BIT) + "' from a public extended key");
+            }
+            data.put((byte) 0).put(bigIntToUnsignedByteArray.apply(privateKey.getSecret()));
+        } else {
+            data.put(getCompressedSec());
+        }
+        data.putInt(childNumber);
+        return hmacSha512(chainCode, data.array());
+    }
+
+    // k_i = parse256(IL) + k_par mod N, c_i = IR
+    private ExtendedKey privateChild(int childNumber, byte[] i, BigInteger il) {
+        BigInteger k = il.compareTo(N) < 0 ? il.add(privateKey.getSecret()).mod(N) : BigInteger.ZERO;
+        if (k.signum() == 0) {
+            throw new RuntimeException("Child " + childNumber + " is not a valid key, use the next child number");
+        }
+        Secp256k1PrivateKey child = new Secp256k1PrivateKey(k);
+        return new ExtendedKey(child, child.getPublicKey(), copyOfRange(i, 32, 64),
+                depth + 1, getFingerprint(), childNumber, testnet);
+    }
+
+    // K_i = point(parse256(IL)) + K_par, computed by the caller, c_i = IR
+    private ExtendedKey publicChild(int childNumber, byte[] i, BigInteger il, Secp256k1Point point) {
+        if (il.compareTo(N) >= 0 || point.getX() == null) {
+            throw new RuntimeException("Child " + childNumber + " is not a valid key, use the next child number");
+        }
+        return new ExtendedKey(null, point, copyOfRange(i, 32, 64),
+                depth + 1, getFingerprint(), childNumber, testnet);
+    }
+
+    /**
+     * Returns the public extended key with the same public key and chain code.
+     */
+    public ExtendedKey neuter() {
+        return privateKey == null
+                ? this
+                : new ExtendedKey(null, publicKey, chainCode, depth, parentFingerprint, childNumber, testnet);
+    }
+
+    /**
+     * Returns the Base58Check xprv/xpub (tprv/tpub on testnet) serialization.
+     */
+    public String serialize() {
+        int version = privateKey == null
+                ? (testnet ? TESTNET_PUBLIC_VERSION : MAINNET_PUBLIC_VERSION)
+                : (testnet ? TESTNET_PRIVATE_VERSION : MAINNET_PRIVATE_VERSION);
+        ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_LENGTH)
+                .putInt(version)
+                .put((byte) depth)
+                .putInt(parentFingerprint)
+                .putInt(childNumber)
+                .put(chainCode);
+        if (privateKey == null) {
+            buffer.put(getCompressedSec());
+        } else {
+            buffer.put((byte) 0).put(bigIntToUnsignedByteArray.apply(privateKey.getSecret()));
+        }
+        return encodeChecked(buffer.array());
+    }
+
+    /**
+     * Returns the key identifier, hash160 of the compressed public key.
+     */
+    public byte[] getIdentifier() {
+        if (identifier == null) {
+            identifier = hash160.apply(getCompressedSec());
+        }
+        return identifier.clone();
+    }
+
+    /**
+     * Returns the first 32 bits of the identifier, which children record as their parent fingerprint.
+     */
+    public int getFingerprint() {
+        if (identifier == null) {
+            identifier = hash160.apply(getCompressedSec());
+        }
+        return ByteBuffer.wrap(identifier).getInt();
+    }
+
+    private byte[] getCompressedSec() {
+        if (compressedSec == null) {
+            compressedSec = publicKey.getSec(true);
+        }
+        return compressedSec;
+    }
+
+    public boolean isPrivate() {
+        return privateKey != null;
+    }
+
+    /**
+     * Returns the private key, or null if this is a public extended key.
+     */
+    public Secp256k1PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public Secp256k1Point getPublicKey() {
+        return publicKey;
+    }
+
+    public byte[] getChainCode() {
+        return chainCode.clone();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getParentFingerprint() {
+        return parentFingerprint;
+    }
+
+    public int getChildNumber() {
+        return childNumber;
+    }
+
+    public boolean isTestnet() {
+        return testnet;
+    }
+
+    private static byte[] hmacSha512(byte[] key, byte[] data) {
+        try {
+            Mac mac = hmacSha512.get();
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+            return mac.doFinal(data);
+        } catch (Exception e) {
+            throw new RuntimeException("Error calculating HmacSHA512", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExtendedKey that = (ExtendedKey) o;
+        return depth == that.depth
+                && parentFingerprint == that.parentFingerprint
+                && childNumber == that.childNumber
+                && testnet == that.testnet
+                && isPrivate() == that.isPrivate()
+                && publicKey.equals(that.publicKey)
+                && Arrays.equals(chainCode, that.chainCode);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * publicKey.hashCode() + Arrays.hashCode(chainCode);
+    }
+
+    @Override
+    public String toString() {
+        return isPrivate() ? "ExtendedKey{private, depth=" + depth + ", childNumber=" + childNumber + "}"
+                : serialize();
+    }
+}
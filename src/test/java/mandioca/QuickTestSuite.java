@@ -15,6 +15,7 @@ import mandioca.bitcoin.script.ScriptVersion1ParseAndSerializeTest;
 import mandioca.bitcoin.script.processing.*;
 import mandioca.bitcoin.transaction.*;
 import mandioca.bitcoin.util.*;
+import mandioca.bitcoin.wallet.ExtendedKeyTest;
 import mandioca.ioc.DiFrameworkServiceInjectionTest;
 import mandioca.ioc.DiFrameworkSimpleFieldInjectionTest;
 import mandioca.real.RealNumberPointTest;
@@ -26,21 +27,32 @@ import org.junit.runners.Suite;
         AddressFactoryTest.class,
 
         // ecc pkg
+        BatchInversionTest.class,
         EllipticCurveFactoryTest.class,
         EllipticCurvePointTest.class,
         FieldElementTest.class,
         Rfc6979Test.class,
         Secp256k1DERTest.class,
+        Secp256k1FieldElementTest.class,
+        Secp256k1JacobianPointTest.class,
+        Secp256k1ProjectivePointTest.class,
         Secp256K1PointTest.class,
         Secp256k1SECTest.class,
         Secp256k1SignatureTest.class,
         Secp256k1WIFTest.class,
+        Secp256k1WnafTest.class,
+        SignatureBatchVerifierTest.class,
+        SignatureCacheTest.class,
+        PublicKeyCacheTest.class,
+        MultiScalarMultiplicationTest.class,
+        SchnorrTest.class,
 
         // functions pkg
         EndianFunctionsTest.class,
 
         /*
         // network pkg
+        BlockChainValidatorTest.class,
         BlockHeaderTest.class,
         BlockTest.class,
         BloomFilterTest.class,
@@ -119,14 +131,23 @@ import org.junit.runners.Suite;
         UTXOUtilsTest.class,
         UTXOGroupTest.class,
         TransactionFactoryTest.class,
+        SigHashTest.class,
+        TxViewTest.class,
 
         // util pkg
         Base58Test.class,
         Bech32Test.class,
+        HexUtilsTest.class,
         Ripemd160Test.class,
+        Sha256EngineTest.class,
+        Sha256Test.class,
+        Sha256BatchTest.class,
         TupleTest.class,
         VarintUtilsTest.class,
 
+        // wallet pkg
+        ExtendedKeyTest.class,
+
         // ioc pkg
         DiFrameworkServiceInjectionTest.class,
         DiFrameworkSimpleFieldInjectionTest.class,
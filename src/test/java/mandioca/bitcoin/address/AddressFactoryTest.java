@@ -10,10 +10,13 @@ import java.math.BigInteger;
 import static junit.framework.TestCase.assertTrue;
 import static mandioca.bitcoin.address.AddressFactory.*;
 import static mandioca.bitcoin.address.AddressType.P2PKH;
+import static mandioca.bitcoin.address.AddressType.P2WPKH;
+import static mandioca.bitcoin.address.AddressType.P2WSH;
 import static mandioca.bitcoin.network.NetworkType.MAINNET;
 import static mandioca.bitcoin.network.NetworkType.TESTNET3;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class AddressFactoryTest extends MandiocaTest {
 
@@ -97,4 +100,48 @@ public class AddressFactoryTest extends MandiocaTest {
         assertEquals(MAINNET, actualAddress.networkType());
         assertTrue(actualAddress.validate()); // TODO
     }
+
+    @Test
+    public void testBulkP2pkhMatchesSingleKeyAddresses() {
+        BigInteger first = HEX.stringToBigInt.apply("0x12345deadbeef");
+        int count = BulkAddressGenerator.BATCH_SIZE + 5;
+        Address[] addresses = BulkAddressGenerator.generateP2pkh(first, count, true, MAINNET);
+        assertEquals(count, addresses.length);
+        assertEquals("1F1Pn2y6pDb68E5nYJJeba4TLg2U7B6KF1", addresses[0].value());
+        for (int i : new int[]{1, 2, BulkAddressGenerator.BATCH_SIZE - 1, BulkAddressGenerator.BATCH_SIZE, count - 1}) {
+            Secp256k1Point publicKey = new Secp256k1PrivateKey(first.add(BigInteger.valueOf(i))).getPublicKey();
+            assertEquals(publicKeyToP2pkhAddress.apply(publicKey, true, MAINNET).value(), addresses[i].value());
+        }
+        Address[] uncompressed = BulkAddressGenerator.generateP2pkh(BigInteger.valueOf(5000), 3, false, TESTNET3);
+        assertEquals("mmTPbXQFxboEtNRkwfh6K51jvdtHLxGeMA", uncompressed[2].value());
+    }
+
+    @Test
+    public void testSegwitAddresses() {
+        // BIP-173 test vectors;  the p2wpkh program is hash160 of the generator point's compressed SEC
+        Secp256k1Point generator = new Secp256k1PrivateKey(BigInteger.ONE).getPublicKey();
+        Address p2wpkh = publicKeyToP2wpkhAddress.apply(generator, MAINNET);
+        assertEquals("bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4", p2wpkh.value());
+        assertEquals(P2WPKH, p2wpkh.addressType());
+        assertTrue(p2wpkh.validate());
+        assertEquals("751e76e8199196d454941c45d1b3a323f1433bd6", HEX.encode(segwitAddressToHash.apply(p2wpkh.value(), MAINNET)));
+
+        byte[] scriptHash = HEX.decode("1863143c14c5166804bd19203356da136c985678cd4d27a1b8c6329604903262");
+        Address p2wsh = scriptHashToP2wsh.apply(scriptHash, TESTNET3);
+        assertEquals("tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sl5k7", p2wsh.value());
+        assertEquals(P2WSH, p2wsh.addressType());
+        assertTrue(p2wsh.validate());
+        assertFalse(new Pay2WitnessScriptHashAddress(MAINNET, p2wsh.value()).validate());  // testnet hrp
+        assertFalse(new Pay2WitnessPubKeyHashAddress(TESTNET3, p2wsh.value()).validate());  // 32-byte program
+    }
+
+    @Test
+    public void testBulkP2wpkhMatchesSingleKeyAddresses() {
+        BigInteger first = HEX.stringToBigInt.apply("0x12345deadbeef");
+        Address[] addresses = BulkAddressGenerator.generateP2wpkh(first, 5, TESTNET3);
+        for (int i = 0; i < addresses.length; i++) {
+            Secp256k1Point publicKey = new Secp256k1PrivateKey(first.add(BigInteger.valueOf(i))).getPublicKey();
+            assertEquals(publicKeyToP2wpkhAddress.apply(publicKey, TESTNET3).value(), addresses[i].value());
+        }
+    }
 }
@@ -18,4 +18,10 @@ public abstract class AbstractSecp256k1Test extends AbstractEllipticCurveTest {
     protected Secp256k1Point getPoint(BigInteger x, BigInteger y) {
         return (Secp256k1Point) SECP256K1_CURVE.getPoint(x, y);
     }
+
+    // Reference result kP from EllipticCurvePoint's affine double-and-add, for checking the optimized secp256k1 paths.
+    protected Secp256k1Point affineScalarMultiply(Secp256k1Point point, BigInteger k) {
+        Point result = new EllipticCurvePoint(point.getX(), point.getY(), A, B).scalarMultiply(k);
+        return result.getX() == null ? IDENTITY : new Secp256k1Point(result.getX(), result.getY());
+    }
 }
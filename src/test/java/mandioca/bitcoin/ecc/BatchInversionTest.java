@@ -0,0 +1,98 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static org.junit.Assert.*;
+
+public class BatchInversionTest extends AbstractSecp256k1Test {
+
+    private final Random random = new Random(23);
+
+    @Test
+    public void testInvert() {
+        BigInteger[] numbers = new BigInteger[20];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = new BigInteger(256, random).mod(P);
+        }
+        numbers[0] = ONE;
+        numbers[7] = ZERO;
+        numbers[19] = ZERO;
+        BigInteger[] inverses = BatchInversion.invert(numbers, P);
+        for (int i = 0; i < numbers.length; i++) {
+            BigInteger expected = numbers[i].signum() == 0 ? ZERO : numbers[i].modInverse(P);
+            assertEquals(expected, inverses[i]);
+        }
+        assertEquals(0, BatchInversion.invert(new BigInteger[0], P).length);
+        assertArrayEquals(new BigInteger[]{ZERO}, BatchInversion.invertScalars(new BigInteger[]{ZERO}));
+    }
+
+    @Test
+    public void testInvertScalars() {
+        BigInteger[] scalars = new BigInteger[10];
+        for (int i = 0; i < scalars.length; i++) {
+            scalars[i] = new BigInteger(256, random).mod(N);
+        }
+        BigInteger[] inverses = BatchInversion.invertScalars(scalars);
+        for (int i = 0; i < scalars.length; i++) {
+            assertEquals(ONE, scalars[i].multiply(inverses[i]).mod(N));
+        }
+    }
+
+    @Test
+    public void testInvertFieldElements() {
+        Secp256k1FieldElement[] elements = new Secp256k1FieldElement[12];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = new Secp256k1FieldElement(new BigInteger(256, random).mod(P));
+        }
+        elements[3] = Secp256k1FieldElement.ZERO;
+        Secp256k1FieldElement[] inverses = BatchInversion.invert(elements);
+        for (int i = 0; i < elements.length; i++) {
+            BigInteger number = elements[i].getNumber();
+            BigInteger expected = number.signum() == 0 ? ZERO : number.modInverse(P);
+            assertEquals(expected, inverses[i].getNumber());
+        }
+        assertEquals(ZERO, Secp256k1FieldElement.ZERO.getNumber());  // inputs are not modified
+    }
+
+    @Test
+    public void testBatchAffineNormalization() {
+        Secp256k1JacobianPoint[] points = new Secp256k1JacobianPoint[8];
+        Secp256k1JacobianPoint g = Secp256k1JacobianPoint.fromAffine(G);
+        Secp256k1JacobianPoint point = g;
+        for (int i = 0; i < points.length; i++) {
+            points[i] = point;
+            point = point.twice().add(g);
+        }
+        points[5] = Secp256k1JacobianPoint.newInfinity();
+        Secp256k1Point[] affine = Secp256k1JacobianPoint.toAffine(points);
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(points[i].toAffine(), affine[i]);
+        }
+    }
+
+    @Test
+    public void testVerifyAll() {
+        int count = 6;
+        Secp256k1Point[] points = new Secp256k1Point[count];
+        BigInteger[] z = new BigInteger[count];
+        Signature[] signatures = new Signature[count];
+        for (int i = 0; i < count; i++) {
+            Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(new BigInteger(256, random).mod(N));
+            points[i] = privateKey.getPublicKey();
+            z[i] = new BigInteger(256, random);
+            signatures[i] = privateKey.sign(z[i]);
+        }
+        signatures[2] = new Signature(signatures[2].getR(), signatures[2].getS().add(ONE));
+        signatures[4] = new Signature(signatures[4].getR(), ZERO);
+        boolean[] valid = Secp256k1Point.verifyAll(points, z, signatures);
+        for (int i = 0; i < count; i++) {
+            assertEquals(points[i].verify(z[i], signatures[i]), valid[i]);
+            assertEquals(i != 2 && i != 4, valid[i]);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.N;
+import static org.junit.Assert.*;
+
+public class MultiScalarMultiplicationTest extends AbstractSecp256k1Test {
+
+    private final Random random = new Random(340);
+
+    @Test
+    public void testStrausMatchesNaiveSum() {
+        assertMatchesNaiveSum(1);
+        assertMatchesNaiveSum(7);
+        assertMatchesNaiveSum(MultiScalarMultiplication.PIPPENGER_THRESHOLD - 1);
+    }
+
+    @Test
+    public void testPippengerMatchesNaiveSum() {
+        assertMatchesNaiveSum(MultiScalarMultiplication.PIPPENGER_THRESHOLD);
+        assertMatchesNaiveSum(MultiScalarMultiplication.PIPPENGER_THRESHOLD + 37);
+    }
+
+    @Test
+    public void testPippengerWithRepeatedPointsAndExtremeScalars() {
+        int n = 40;
+        Secp256k1Point[] points = new Secp256k1Point[n];
+        BigInteger[] scalars = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = i % 2 == 0 ? Secp256k1Point.G : Secp256k1Point.multiplyGenerator(BigInteger.valueOf(3));
+            scalars[i] = i % 3 == 0 ? N.subtract(ONE) : BigInteger.valueOf(i + 1);
+        }
+        assertEquals(naiveSum(ZERO, scalars, points), MultiScalarMultiplication.pippenger(scalars, points).toAffine());
+    }
+
+    @Test
+    public void testGeneratorTerm() {
+        BigInteger u = new BigInteger(256, random).mod(N);
+        Secp256k1Point[] points = randomPoints(MultiScalarMultiplication.PIPPENGER_THRESHOLD + 1);
+        BigInteger[] scalars = randomScalars(points.length);
+        Secp256k1Point expected = naiveSum(u, scalars, points);
+        assertEquals(expected, MultiScalarMultiplication.multiply(u, scalars, points));
+        assertEquals(Secp256k1Point.multiplyGenerator(u), MultiScalarMultiplication.multiply(u, new BigInteger[0], new Secp256k1Point[0]));
+    }
+
+    @Test
+    public void testTermsThatCancel() {
+        Secp256k1Point p = Secp256k1Point.multiplyGenerator(BigInteger.valueOf(12345));
+        BigInteger k = new BigInteger(256, random).mod(N);
+        Secp256k1Point[] points = {p, p, Secp256k1Point.IDENTITY};
+        BigInteger[] scalars = {k, N.subtract(k), ONE};
+        assertNull(MultiScalarMultiplication.multiply(scalars, points).getX());
+        assertNull(MultiScalarMultiplication.multiply(new BigInteger[]{ZERO}, new Secp256k1Point[]{p}).getX());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMismatchedLengths() {
+        MultiScalarMultiplication.multiply(new BigInteger[]{ONE}, new Secp256k1Point[0]);
+    }
+
+    @Test
+    public void testWindowBitsGrowWithBatchSize() {
+        assertEquals(2, MultiScalarMultiplication.windowBits(2));
+        assertTrue(MultiScalarMultiplication.windowBits(256) < MultiScalarMultiplication.windowBits(8192));
+    }
+
+    private void assertMatchesNaiveSum(int n) {
+        Secp256k1Point[] points = randomPoints(n);
+        BigInteger[] scalars = randomScalars(n);
+        assertEquals(naiveSum(ZERO, scalars, points), MultiScalarMultiplication.multiply(scalars, points));
+    }
+
+    private Secp256k1Point naiveSum(BigInteger u, BigInteger[] scalars, Secp256k1Point[] points) {
+        Secp256k1Point sum = Secp256k1Point.multiplyGenerator(u);
+        for (int i = 0; i < points.length; i++) {
+            sum = sum.add(points[i].scalarMultiply(scalars[i]));
+        }
+        return sum;
+    }
+
+    private Secp256k1Point[] randomPoints(int n) {
+        Secp256k1Point[] points = new Secp256k1Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = Secp256k1Point.multiplyGenerator(new BigInteger(256, random).mod(N));
+        }
+        return points;
+    }
+
+    private BigInteger[] randomScalars(int n) {
+        BigInteger[] scalars = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            scalars[i] = new BigInteger(256, random).mod(N);
+        }
+        return scalars;
+    }
+}
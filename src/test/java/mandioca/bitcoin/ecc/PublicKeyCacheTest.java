@@ -0,0 +1,76 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PublicKeyCacheTest extends AbstractSecp256k1Test {
+
+    @Test
+    public void testCompressedParseMatchesUncompressed() {
+        for (int i = 1; i <= 50; i++) {
+            Secp256k1Point publicKey = new Secp256k1PrivateKey(BigInteger.valueOf(i * 7919L)).getPublicKey();
+            byte[] compressed = publicKey.getSec(true);
+            assertEquals(publicKey, Secp256k1Point.parseCompressedSec(compressed));
+            assertEquals(Secp256k1Point.parse(publicKey.getSec(false)), Secp256k1Point.parse(compressed));
+        }
+    }
+
+    @Test
+    public void testKeyIsDecodedOnce() {
+        PublicKeyCache cache = new PublicKeyCache(100);
+        byte[] sec = new Secp256k1PrivateKey(BigInteger.valueOf(12345)).getPublicKey().getSec(true);
+        AtomicInteger decodes = new AtomicInteger();
+        Secp256k1Point first = null;
+        for (int i = 0; i < 3; i++) {
+            Secp256k1Point point = cache.get(sec, s -> {
+                decodes.incrementAndGet();
+                return Secp256k1Point.parseCompressedSec(s);
+            });
+            first = first == null ? point : first;
+            assertSame(first, point);
+        }
+        assertEquals(1, decodes.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPrefixIsPartOfKey() {
+        PublicKeyCache cache = new PublicKeyCache(100);
+        byte[] even = new Secp256k1PrivateKey(BigInteger.valueOf(12345)).getPublicKey().getSec(true);
+        byte[] odd = even.clone();
+        odd[0] = (byte) (even[0] ^ 0x01);
+        Secp256k1Point evenPoint = cache.get(even, Secp256k1Point::parseCompressedSec);
+        Secp256k1Point oddPoint = cache.get(odd, Secp256k1Point::parseCompressedSec);
+        assertEquals(evenPoint.getX(), oddPoint.getX());
+        assertNotEquals(evenPoint.getY(), oddPoint.getY());
+    }
+
+    @Test
+    public void testCapacityIsBounded() {
+        PublicKeyCache cache = new PublicKeyCache(10);
+        for (int i = 1; i <= 40; i++) {
+            cache.get(new Secp256k1PrivateKey(BigInteger.valueOf(i)).getPublicKey().getSec(true),
+                    Secp256k1Point::parseCompressedSec);
+            assertTrue(cache.size() <= 10);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testXNotOnCurve() {
+        byte[] sec = new byte[33];
+        sec[0] = 0x02;
+        sec[32] = 0x05;  // 5^3 + 7 = 132 is not a square mod p
+        Secp256k1Point.parseCompressedSec(sec);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongLength() {
+        new PublicKeyCache(10).get(new byte[32], Secp256k1Point::parseCompressedSec);
+    }
+}
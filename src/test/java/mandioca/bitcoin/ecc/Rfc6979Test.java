@@ -12,9 +12,17 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.TWO;
 import static mandioca.bitcoin.util.HexUtils.HEX;
+import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 // Important:  https://github.com/warner/python-ecdsa
@@ -56,6 +64,18 @@ public class Rfc6979Test extends AbstractSecp256k1Test {
         assertEquals("6931E1828BA0AFBA580ED7C833BFE082C84F1331AFA33A6B98AD8C493CC5EDD0", HEX.encode(k).toUpperCase());
     }
 
+    @Test
+    public void testClearThenInitRepeatsK() {
+        Rfc6979 rfc6979 = new Rfc6979();
+        BigInteger e = new BigInteger("1111111111111111111111111111111111111111111111111111111111111111", 16);
+        BigInteger z = new BigInteger("2222222222222222222222222222222222222222222222222222222222222222", 16);
+        rfc6979.init(e, z);
+        BigInteger k = rfc6979.nextK();
+        rfc6979.clear();
+        rfc6979.init(e, z);
+        assertEquals(k, rfc6979.nextK());
+    }
+
     @Test
     // Test parameters e, z and expected k from https://github.com/bitcoinjs/bitcoinjs-lib/blob/master/test/fixtures/ecdsa.json
     public void test2() throws InvalidKeyException {
@@ -290,4 +310,68 @@ public class Rfc6979Test extends AbstractSecp256k1Test {
         // testCandidates.forEach(c -> { out.println(c.toString(16)); });
         // assertEquals("D16B6AE827F17175E040871A1C7EC3500192C4C92677336EC2537ACAEE0008E0", HEX.encode(testCandidates.get(0)));
     }
+
+    @Test
+    public void testReinitAndBytePath() {
+        BigInteger e = new BigInteger("1111111111111111111111111111111111111111111111111111111111111111", 16);
+        BigInteger z = new BigInteger("2222222222222222222222222222222222222222222222222222222222222222", 16);
+        Rfc6979 rfc6979 = new Rfc6979();
+        rfc6979.init(ONE, ONE);
+        rfc6979.nextK();
+        rfc6979.init(bigIntToUnsignedByteArray.apply(e), bigIntToUnsignedByteArray.apply(z));
+        byte[] k = new byte[32];
+        rfc6979.nextK(k);
+        assertEquals("6931E1828BA0AFBA580ED7C833BFE082C84F1331AFA33A6B98AD8C493CC5EDD0", HEX.encode(k).toUpperCase());
+    }
+
+    @Test
+    public void testHashNotLessThanNIsReduced() {
+        Rfc6979 rfc6979 = new Rfc6979();
+        BigInteger z = BigInteger.valueOf(5);
+        rfc6979.init(TWO, z.add(N));
+        BigInteger k = rfc6979.nextK();
+        rfc6979.init(TWO, z);
+        assertEquals(k, rfc6979.nextK());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitRejectsShortHash() {
+        new Rfc6979().init(new byte[32], new byte[31]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitRejectsLongHash() {
+        new Rfc6979().init(new byte[32], new byte[33]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitRejectsShortSecret() {
+        new Rfc6979().init(new byte[31], new byte[32]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInitRejectsLongSecret() {
+        new Rfc6979().init(new byte[33], new byte[32]);
+    }
+
+    @Test
+    public void testConcurrentSigning() throws Exception {
+        List<Secp256k1PrivateKey> keys = IntStream.range(1, 9)
+                .mapToObj(i -> new Secp256k1PrivateKey(BigInteger.valueOf(i * 1000003L)))
+                .collect(Collectors.toList());
+        BigInteger z = HashUtils.getSHA256HashAsInteger("concurrent");
+        List<Signature> expected = keys.stream().map(key -> key.sign(z)).collect(Collectors.toList());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Signature>> futures = IntStream.range(0, 64)
+                    .mapToObj(i -> executor.submit(() -> keys.get(i % keys.size()).sign(z)))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(expected.get(i % keys.size()), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertArrayEquals(expected.get(0).getDer(), keys.get(0).sign(bigIntToUnsignedByteArray.apply(z)).getDer());
+    }
 }
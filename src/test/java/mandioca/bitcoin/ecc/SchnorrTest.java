@@ -0,0 +1,112 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static mandioca.bitcoin.function.HashFunctions.sha256Hash;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.*;
+
+public class SchnorrTest extends AbstractSecp256k1Test {
+
+    // secret key, public key, aux rand, message, signature;  see https://github.com/bitcoin/bips/blob/master/bip-0340/test-vectors.csv
+    private static final String[][] SIGNING_VECTORS = {
+            {"0000000000000000000000000000000000000000000000000000000000000003",
+                    "F9308A019258C31049344F85F89D5229B531C845836F99B08601F113BCE036F9",
+                    "0000000000000000000000000000000000000000000000000000000000000000",
+                    "0000000000000000000000000000000000000000000000000000000000000000",
+                    "E907831F80848D1069A5371B402410364BDF1C5F8307B0084C55F1CE2DCA821525F66A4A85EA8B71E482A74F382D2CE5EBEEE8FDB2172F477DF4900D310536C0"},
+            {"B7E151628AED2A6ABF7158809CF4F3C762E7160F38B4DA56A784D9045190CFEF",
+                    "DFF1D77F2A671C5F36183726DB2341BE58FEAE1DA2DECED843240F7B502BA659",
+                    "0000000000000000000000000000000000000000000000000000000000000001",
+                    "243F6A8885A308D313198A2E03707344A4093822299F31D0082EFA98EC4E6C89",
+                    "6896BD60EEAE296DB48A229FF71DFE071BDE413E6D43F917DC8DCF8C78DE33418906D11AC976ABCCB20B091292BFF4EA897EFCB639EA871CFA95F6DE339E4B0A"},
+            {"C90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74020BBEA63B14E5C9",
+                    "DD308AFEC5777E13121FA72B9CC1B7CC0139715309B086C960E18FD969774EB8",
+                    "C87AA53824B4D7AE2EB035A2B5BBBCCC080E76CDC6D1692C4B0B62D798E6D906",
+                    "7E2D58D8B3BCDF1ABADEC7829054F90DDA9805AAB56C77333024B9D0A508B75C",
+                    "5831AAEED7B44BB74E5EAB94BA9D4294C49BCF2A60728D8B4C200F50DD313C1BAB745879A5AD954A72C45A91C3A51D3C7ADEA98D82F8481E0E1E03674A6F3FB7"},
+            {"0B432B2677937381AEF05BB02A66ECD012773062CF3FA2549E44F58ED2401710",
+                    "25D1DFF95105F5253C4022F628A996AD3A0D95FBF21D468A1B33F8C160D8F517",
+                    "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF",
+                    "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF",
+                    "7EB0509757E246F19449885651611CB965ECC1A187DD51B64FDA1EDC9637D5EC97582B9CB13DB3933705B32BA982AF5AF25FD78881EBB32771FC5922EFC66EA3"},
+    };
+
+    @Test
+    public void testSigningVectors() {
+        for (String[] vector : SIGNING_VECTORS) {
+            Secp256k1PrivateKey key = new Secp256k1PrivateKey(new BigInteger(vector[0], 16));
+            byte[] publicKey = HEX.decode(vector[1]);
+            byte[] message = HEX.decode(vector[3]);
+            assertArrayEquals(publicKey, key.getPublicKey().getXOnly());
+            SchnorrSignature signature = key.signSchnorr(message, HEX.decode(vector[2]));
+            assertEquals(vector[4], HEX.encode(signature.getBytes()).toUpperCase());
+            assertTrue(Schnorr.verify(publicKey, message, SchnorrSignature.parse(HEX.decode(vector[4]))));
+        }
+    }
+
+    @Test
+    public void testVerifyRejectsInvalidSignatures() {
+        String[] vector = SIGNING_VECTORS[1];
+        byte[] publicKey = HEX.decode(vector[1]);
+        byte[] message = HEX.decode(vector[3]);
+        byte[] signature = HEX.decode(vector[4]);
+        byte[] badMessage = message.clone();
+        badMessage[0] ^= 1;
+        assertFalse(Schnorr.verify(publicKey, badMessage, SchnorrSignature.parse(signature)));
+        byte[] badS = signature.clone();
+        badS[63] ^= 1;
+        assertFalse(Schnorr.verify(publicKey, message, SchnorrSignature.parse(badS)));
+        // public key not on the curve
+        assertFalse(Schnorr.verify(HEX.decode("EEFDEA4CDB677750A420FEE807EACF21EB9898AE79B9768766E4FAA04A2D4A34"),
+                message, SchnorrSignature.parse(signature)));
+    }
+
+    @Test
+    public void testBatchVerification() {
+        int n = 12;
+        byte[][] publicKeys = new byte[n][];
+        byte[][] messages = new byte[n][];
+        SchnorrSignature[] signatures = new SchnorrSignature[n];
+        for (int i = 0; i < n; i++) {
+            Secp256k1PrivateKey key = new Secp256k1PrivateKey(BigInteger.valueOf(1000 + i));
+            publicKeys[i] = key.getPublicKey().getXOnly();
+            messages[i] = sha256Hash.apply(new byte[]{(byte) i});
+            signatures[i] = key.signSchnorr(messages[i], new byte[32]);
+            assertTrue(Schnorr.verify(publicKeys[i], messages[i], signatures[i]));
+        }
+        assertTrue(Schnorr.verifyBatch(publicKeys, messages, signatures));
+        assertTrue(Schnorr.verifyBatch(new byte[0][], new byte[0][], new SchnorrSignature[0]));
+
+        SchnorrSignature valid = signatures[7];
+        signatures[7] = new SchnorrSignature(valid.getR(), valid.getS().add(BigInteger.ONE));
+        assertFalse(Schnorr.verifyBatch(publicKeys, messages, signatures));
+        signatures[7] = valid;
+        messages[0] = messages[1];
+        assertFalse(Schnorr.verifyBatch(publicKeys, messages, signatures));
+    }
+
+    @Test
+    public void testTaggedHash() {
+        byte[] tagHash = sha256Hash.apply("BIP0340/challenge".getBytes());
+        byte[] data = {1, 2, 3};
+        byte[] expected = sha256Hash.apply(concat(tagHash, tagHash, data));
+        assertArrayEquals(expected, Schnorr.taggedHash("BIP0340/challenge", new byte[]{1}, new byte[]{2, 3}));
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] a : arrays) {
+            length += a.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] a : arrays) {
+            System.arraycopy(a, 0, result, offset, a.length);
+            offset += a.length;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.TWO;
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.ecc.curveparams.Secp256k1CurveParameters.p;
+import static org.junit.Assert.*;
+
+public class Secp256k1FieldElementTest {
+
+    // Edge cases for the limb carries and reductions:  0, 1, p-1, p-2, 2^255, 2^32 + 977, and all-ones limbs < p
+    private static final BigInteger[] EDGE_NUMBERS = {
+            ZERO, ONE, TWO, p.subtract(ONE), p.subtract(TWO), ONE.shiftLeft(255),
+            ONE.shiftLeft(32).add(BigInteger.valueOf(977)), ONE.shiftLeft(224).subtract(ONE),
+            p.subtract(ONE.shiftLeft(32))
+    };
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void testConstructorNumberNotLessThanPrimeException() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("not in secp256k1 field range 0 to p-1");
+        new Secp256k1FieldElement(p);
+    }
+
+    @Test
+    public void testFromBytesNumberNotLessThanPrimeException() {
+        exception.expect(IllegalArgumentException.class);
+        byte[] bytes = new byte[32];
+        Arrays.fill(bytes, (byte) 0xFF);
+        Secp256k1FieldElement.fromBytes(bytes, 0);
+    }
+
+    @Test
+    public void testBytesRoundTrip() {
+        for (BigInteger number : numbers()) {
+            Secp256k1FieldElement element = new Secp256k1FieldElement(number);
+            assertEquals(number, element.getNumber());
+            byte[] bytes = new byte[33];
+            element.toBytes(bytes, 1);
+            assertEquals(element, Secp256k1FieldElement.fromBytes(bytes, 1));
+        }
+    }
+
+    @Test
+    public void testArithmeticMatchesFieldElement() {
+        BigInteger[] numbers = numbers();
+        for (BigInteger a : numbers) {
+            for (BigInteger b : numbers) {
+                Field fa = new FieldElement(a, p);
+                Field fb = new FieldElement(b, p);
+                Field sa = new Secp256k1FieldElement(a);
+                Field sb = new Secp256k1FieldElement(b);
+                assertEquals(fa.add(fb).getNumber(), sa.add(sb).getNumber());
+                assertEquals(fa.subtract(fb).getNumber(), sa.subtract(sb).getNumber());
+                assertEquals(fa.multiply(fb).getNumber(), sa.multiply(sb).getNumber());
+                if (b.signum() != 0) {
+                    assertEquals(fa.divide(fb).getNumber(), sa.divide(sb).getNumber());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMixedOperands() {
+        BigInteger a = new BigInteger(255, random);
+        BigInteger b = new BigInteger(255, random);
+        Field sum = new Secp256k1FieldElement(a).add(new FieldElement(b, p));
+        assertEquals(a.add(b).mod(p), sum.getNumber());
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Cannot add two numbers in different finite fields");
+        new Secp256k1FieldElement(a).add(FieldElement.valueOf(2, 31));
+    }
+
+    @Test
+    public void testPowerAndSqrt() {
+        for (BigInteger number : numbers()) {
+            Secp256k1FieldElement element = new Secp256k1FieldElement(number);
+            assertEquals(number.modPow(BigInteger.valueOf(3), p), element.power(BigInteger.valueOf(3)).getNumber());
+            assertEquals(number.modPow(p.subtract(TWO), p), element.power(BigInteger.valueOf(-1)).getNumber());
+            Field square = element.multiply(element);
+            Field root = square.sqrt();
+            assertEquals(square, root.multiply(root));
+        }
+    }
+
+    @Test
+    public void testInPlaceOperationsAllowAliasing() {
+        int[] tt = new int[Secp256k1FieldElement.PRODUCT_LIMBS];
+        BigInteger a = p.subtract(BigInteger.valueOf(12345));
+        Secp256k1FieldElement element = new Secp256k1FieldElement(a);
+        element.setSquare(element, tt).setAdd(element, element).setMulInt(element, 3).setSub(element, Secp256k1FieldElement.ONE);
+        assertEquals(a.pow(2).multiply(BigInteger.valueOf(6)).subtract(ONE).mod(p), element.getNumber());
+        element.setInverse(element, tt).setMul(element, element, tt).setNegate(element);
+        BigInteger expected = a.pow(2).multiply(BigInteger.valueOf(6)).subtract(ONE).modInverse(p).pow(2).negate().mod(p);
+        assertEquals(expected, element.getNumber());
+        assertTrue(new Secp256k1FieldElement().isZero());
+        assertTrue(Secp256k1FieldElement.ONE.isOdd());
+        assertEquals(ZERO, new Secp256k1FieldElement().setInverse(Secp256k1FieldElement.ZERO, tt).getNumber());
+    }
+
+    private BigInteger[] numbers() {
+        BigInteger[] numbers = new BigInteger[EDGE_NUMBERS.length + 20];
+        System.arraycopy(EDGE_NUMBERS, 0, numbers, 0, EDGE_NUMBERS.length);
+        for (int i = EDGE_NUMBERS.length; i < numbers.length; i++) {
+            numbers[i] = new BigInteger(256, random).mod(p);
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,125 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Secp256k1JacobianPointTest extends AbstractSecp256k1Test {
+
+    private static final BigInteger[] SCALARS = new BigInteger[]{
+            BigInteger.valueOf(2),
+            BigInteger.valueOf(7),
+            BigInteger.valueOf(5000),
+            BigInteger.valueOf(2018).pow(5),
+            HEX.stringToBigInt.apply("0xdeadbeef12345"),
+            HEX.stringToBigInt.apply("0x3374DB0ECD7B1D5FEC5CFD17D216D3DF609EC44F34B7DB74418DD34146AB59D0")
+    };
+
+    @Test
+    public void testScalarMultiplyMatchesAffineDoubleAndAdd() {
+        for (BigInteger k : SCALARS) {
+            assertEquals(affineScalarMultiply(G, k), Secp256k1JacobianPoint.multiply(G, k).toAffine());
+        }
+        Secp256k1Point p = G.scalarMultiply(BigInteger.valueOf(12345));
+        for (BigInteger k : SCALARS) {
+            assertEquals(affineScalarMultiply(p, k), p.scalarMultiply(k));
+        }
+    }
+
+    @Test
+    public void testAddAndDoubleSpecialCases() {
+        Secp256k1JacobianPoint g = Secp256k1JacobianPoint.fromAffine(G);
+        assertEquals(G.add(G), g.add(g).toAffine());
+        assertEquals(G.add(G), g.twice().toAffine());
+        assertTrue(g.add(g.negate()).isInfinity());
+        assertTrue(g.addAffine(new Secp256k1FieldElement(G.getX().getNumber()),
+                new Secp256k1FieldElement(P.subtract(G.getY().getNumber()))).isInfinity());
+        assertEquals(G, Secp256k1JacobianPoint.newInfinity().add(g).toAffine());
+        assertEquals(IDENTITY, G.scalarMultiply(N));
+        assertEquals(IDENTITY, G.scalarMultiply(ZERO));
+        assertEquals(getPoint(G.getX().getNumber(), P.subtract(G.getY().getNumber())), G.scalarMultiply(N.subtract(ONE)));
+    }
+
+    @Test
+    public void testGeneratorTableMatchesAffineDoubleAndAdd() {
+        for (BigInteger k : SCALARS) {
+            assertEquals(affineScalarMultiply(G, k), Secp256k1Point.multiplyGenerator(k));
+        }
+        assertEquals(G, Secp256k1Point.multiplyGenerator(ONE));
+        assertEquals(IDENTITY, Secp256k1Point.multiplyGenerator(ZERO));
+        assertEquals(IDENTITY, Secp256k1Point.multiplyGenerator(N));
+        BigInteger allWindowsFull = ONE.shiftLeft(256).subtract(ONE).mod(N);
+        assertEquals(affineScalarMultiply(G, allWindowsFull), Secp256k1Point.multiplyGenerator(allWindowsFull));
+    }
+
+    @Test
+    public void testInPlaceOperationsMatchImmutableOperations() {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint p = Secp256k1JacobianPoint.fromAffine(G.scalarMultiply(BigInteger.valueOf(7)));
+        Secp256k1JacobianPoint q = Secp256k1JacobianPoint.fromAffine(G.scalarMultiply(BigInteger.valueOf(11))).twice();
+        Secp256k1FieldElement[] g = Secp256k1JacobianPoint.fromAffine(G).affineCoordinates();
+        assertEquals(p.add(q).toAffine(), p.copy().setAdd(q, ws).toAffine());
+        assertEquals(p.add(q.negate()).toAffine(), p.copy().setSubtract(q, ws).toAffine());
+        assertEquals(p.twice().toAffine(), p.copy().setTwice(ws).toAffine());
+        assertEquals(p.addAffine(g[0], g[1]).toAffine(), p.copy().setAddAffine(g[0], g[1], ws).toAffine());
+        assertEquals(p.subtractAffine(g[0], g[1]).toAffine(), p.copy().setSubtractAffine(g[0], g[1], ws).toAffine());
+        // special cases:  P + P, P - P, and the point at infinity on either side
+        assertEquals(q.twice().toAffine(), q.copy().setAdd(q.copy(), ws).toAffine());
+        assertTrue(q.copy().setSubtract(q, ws).isInfinity());
+        assertEquals(q.toAffine(), Secp256k1JacobianPoint.newInfinity().setAdd(q, ws).toAffine());
+        assertEquals(q.toAffine(), q.copy().setAdd(Secp256k1JacobianPoint.newInfinity(), ws).toAffine());
+        assertEquals(G, Secp256k1JacobianPoint.newInfinity().setAddAffine(g[0], g[1], ws).toAffine());
+        assertTrue(Secp256k1JacobianPoint.newInfinity().setTwice(ws).isInfinity());
+        // the copies were modified, the originals and shared constants were not
+        assertEquals(G.scalarMultiply(BigInteger.valueOf(7)), p.toAffine());
+        assertEquals(ONE, Secp256k1FieldElement.ONE.getNumber());
+    }
+
+    @Test
+    public void testFromAffineDoesNotShareConstants() {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint g = Secp256k1JacobianPoint.fromAffine(G);
+        g.setTwice(ws).setTwice(ws);    // rewrites z in place
+        assertEquals(G.scalarMultiply(BigInteger.valueOf(4)), g.toAffine());
+        Secp256k1JacobianPoint infinity = Secp256k1JacobianPoint.fromAffine(Secp256k1Point.IDENTITY);
+        infinity.setAdd(Secp256k1JacobianPoint.fromAffine(G), ws);
+        assertEquals(G, infinity.toAffine());
+        assertEquals(ONE, Secp256k1FieldElement.ONE.getNumber());
+        assertEquals(ZERO, Secp256k1FieldElement.ZERO.getNumber());
+    }
+
+    @Test
+    public void testResultsDoNotShareOperands() {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1JacobianPoint g = Secp256k1JacobianPoint.fromAffine(G);
+        Secp256k1JacobianPoint infinity = Secp256k1JacobianPoint.newInfinity();
+        Secp256k1Point g3 = G.scalarMultiply(BigInteger.valueOf(3));
+        Secp256k1FieldElement qx = new Secp256k1FieldElement(g3.getX().getNumber());
+        Secp256k1FieldElement qy = new Secp256k1FieldElement(g3.getY().getNumber());
+        Secp256k1JacobianPoint[] results = new Secp256k1JacobianPoint[]{
+                infinity.twice(), infinity.negate(), infinity.endomorphism(),
+                infinity.add(g), g.add(infinity), infinity.add(infinity),
+                infinity.addAffine(qx, qy), infinity.subtractAffine(qx, qy),
+                g.twice(), g.negate(), g.endomorphism(), g.add(g), g.addAffine(qx, qy),
+                Secp256k1JacobianPoint.multiply(G, ZERO), Secp256k1JacobianPoint.multiply(IDENTITY, BigInteger.TEN)
+        };
+        for (Secp256k1JacobianPoint result : results) {
+            result.setAddAffine(qx, qy, ws).setTwice(ws);    // rewrites every coordinate in place
+        }
+        assertTrue(infinity.isInfinity());
+        assertEquals(G, g.toAffine());
+        assertEquals(g3.getX().getNumber(), qx.getNumber());
+        assertEquals(g3.getY().getNumber(), qy.getNumber());
+        // and the next point at infinity from each path is still the point at infinity
+        assertTrue(infinity.twice().isInfinity());
+        assertTrue(infinity.add(Secp256k1JacobianPoint.newInfinity()).isInfinity());
+        assertTrue(Secp256k1JacobianPoint.multiply(G, ZERO).isInfinity());
+        assertTrue(Secp256k1JacobianPoint.multiply(IDENTITY, BigInteger.TEN).isInfinity());
+    }
+}
@@ -0,0 +1,69 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.TWO;
+import static java.math.BigInteger.ZERO;
+import static mandioca.bitcoin.ecc.MultiplicationMode.CONSTANT_TIME;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Secp256k1ProjectivePointTest extends AbstractSecp256k1Test {
+
+    private static final BigInteger[] SCALARS = {
+            ONE, TWO, BigInteger.valueOf(15), BigInteger.valueOf(16), BigInteger.valueOf(0xF0F0F0F0L),
+            new BigInteger("d2c8b8f0b2a3c3a5e0f3a7c1e9b4d6f8a1b3c5d7e9f1a3b5c7d9e1f3a5b7c9d1", 16),
+            ONE.shiftLeft(255).subtract(ONE)
+    };
+
+    @Test
+    public void testConstantTimeGeneratorMultiply() {
+        for (BigInteger k : SCALARS) {
+            assertEquals(affineScalarMultiply(G, k), Secp256k1Point.multiplyGenerator(k, CONSTANT_TIME));
+        }
+        assertEquals(IDENTITY, Secp256k1Point.multiplyGenerator(ZERO, CONSTANT_TIME));
+        assertEquals(IDENTITY, Secp256k1Point.multiplyGenerator(N, CONSTANT_TIME));
+        assertEquals(Secp256k1Point.multiplyGenerator(N.subtract(ONE)), Secp256k1Point.multiplyGenerator(N.subtract(ONE), CONSTANT_TIME));
+    }
+
+    @Test
+    public void testConstantTimeScalarMultiply() {
+        Secp256k1Point p = G.scalarMultiply(BigInteger.valueOf(987654321));
+        for (BigInteger k : SCALARS) {
+            assertEquals(affineScalarMultiply(p, k), p.scalarMultiply(k, CONSTANT_TIME));
+        }
+        assertEquals(IDENTITY, p.scalarMultiply(ZERO, CONSTANT_TIME));
+        assertEquals(IDENTITY, p.scalarMultiply(N, CONSTANT_TIME));
+        assertEquals(IDENTITY, IDENTITY.scalarMultiply(TWO, CONSTANT_TIME));
+        assertEquals(G.scalarMultiply(N.subtract(TWO)), G.scalarMultiply(N.subtract(TWO), CONSTANT_TIME));
+    }
+
+    @Test
+    public void testCompleteAdditionSpecialCases() {
+        Secp256k1Workspace ws = Secp256k1Workspace.get();
+        Secp256k1FieldElement gx = new Secp256k1FieldElement(G.getX().getNumber());
+        Secp256k1FieldElement gy = new Secp256k1FieldElement(G.getY().getNumber());
+        Secp256k1ProjectivePoint infinity = Secp256k1ProjectivePoint.infinity();
+        Secp256k1ProjectivePoint g = new Secp256k1ProjectivePoint().setAddAffine(infinity, gx, gy, ws);
+        assertEquals(G, g.toAffine());
+        assertEquals(G.add(G), new Secp256k1ProjectivePoint().setAdd(g, g, ws).toAffine());
+        assertEquals(G.add(G), new Secp256k1ProjectivePoint().setAddAffine(g, gx, gy, ws).toAffine());
+        assertEquals(G.add(G), new Secp256k1ProjectivePoint().setTwice(g, ws).toAffine());
+        assertEquals(G, new Secp256k1ProjectivePoint().setAdd(g, infinity, ws).toAffine());
+        assertEquals(G, new Secp256k1ProjectivePoint().setAdd(infinity, g, ws).toAffine());
+        assertTrue(new Secp256k1ProjectivePoint().setTwice(infinity, ws).isInfinity());
+        Secp256k1FieldElement negativeGy = new Secp256k1FieldElement().setNegate(gy);
+        assertTrue(new Secp256k1ProjectivePoint().setAddAffine(g, gx, negativeGy, ws).isInfinity());
+    }
+
+    @Test
+    public void testSigningUsesConstantTimePath() {
+        Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(BigInteger.valueOf(8675309));
+        assertEquals(Secp256k1Point.multiplyGenerator(BigInteger.valueOf(8675309)), privateKey.getPublicKey());
+        BigInteger z = new BigInteger("bc62d4b80d9e36da29c16c5d4d9f11731f36052c72401a76c23c0fb5a9b74423", 16);
+        assertTrue(privateKey.getPublicKey().verify(z, privateKey.sign(z)));
+    }
+}
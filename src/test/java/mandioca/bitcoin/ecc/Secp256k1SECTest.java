@@ -289,6 +289,42 @@ public class Secp256k1SECTest extends AbstractSecp256k1Test {
         assertEquals(publicKey, deserializedPublicKey);
     }
 
+    // Secrets used by the SEC tests above, used as scalars for variable point multiplication
+    private static final String[] SEC_TEST_SECRETS = new String[]{
+            "0xdeadbeef12345",
+            "0xdeadbeef54321",
+            "3374DB0ECD7B1D5FEC5CFD17D216D3DF609EC44F34B7DB74418DD34146AB59D0",
+            "DE87A76B2E74528C6B233F407ED92C04AB3147A77DDCDA86EFC01AE481457E87",
+            "9279659357DE3C1B856429A2F384FA7850003D2D5E617D093CC9CA665565452D",
+            "333E2A5BEE5BE33EEDFC4FFDD981802EC133C58685ADB24C23F66B75B2D923C8",
+            "4181C4D9F30C71C700DEFD231B4733794286A26BD00B87DFC9E5ED4D5EBF1A81",
+            "3B820C5779BF0792ED4E21301C70D069865F4378F970C5279C1CDA5703F6FA16",
+            "6D7206A99D4375A0DCC8B2F20D73AE2DC9DC46E5013A56DF2942D5AA5C3EE979"
+    };
+
+    @Test
+    public void testEndomorphismScalarMultiplyMatchesDoubleAndAdd() {
+        assertEquals(getPoint(Secp256k1Endomorphism.mapX(G.getX().getNumber()), G.getY().getNumber()),
+                affineScalarMultiply(G, Secp256k1Endomorphism.LAMBDA));
+        Secp256k1Point p = new Secp256k1PrivateKey(BigInteger.valueOf(2018).pow(5)).getPublicKey();
+        try {
+            for (String secret : SEC_TEST_SECRETS) {
+                BigInteger k = HEX.stringToBigInt.apply(secret);
+                BigInteger[] split = Secp256k1Endomorphism.split(k);
+                assertEquals(k, split[0].add(split[1].multiply(Secp256k1Endomorphism.LAMBDA)).mod(N));
+                Secp256k1Point expected = affineScalarMultiply(p, k);
+                Secp256k1Point.setEndomorphismEnabled(true);
+                assertEquals(expected, p.scalarMultiply(k));
+                assertEquals(affineScalarMultiply(G, k).add(expected), Secp256k1Point.doubleScalarMultiply(k, k, p));
+                Secp256k1Point.setEndomorphismEnabled(false);
+                assertEquals(expected, p.scalarMultiply(k));
+                assertEquals(affineScalarMultiply(G, k).add(expected), Secp256k1Point.doubleScalarMultiply(k, k, p));
+            }
+        } finally {
+            Secp256k1Point.setEndomorphismEnabled(true);
+        }
+    }
+
 
 /*
 https://crypto.stackexchange.com/questions/20838/request-for-data-to-test-deterministic-ecdsa-signature-algorithm-for-secp256k1
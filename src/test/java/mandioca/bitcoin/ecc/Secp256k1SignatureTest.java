@@ -197,4 +197,13 @@ public class Secp256k1SignatureTest extends AbstractSecp256k1Test {
          */
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testSignRejectsShortHash() {
+        new Secp256k1PrivateKey(ONE).sign(new byte[31]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSignRejectsLongHash() {
+        new Secp256k1PrivateKey(ONE).sign(new byte[33]);
+    }
 }
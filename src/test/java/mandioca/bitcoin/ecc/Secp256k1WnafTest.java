@@ -0,0 +1,61 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Secp256k1WnafTest extends AbstractSecp256k1Test {
+
+    private final Random random = new Random(11);
+
+    @Test
+    public void testEncode() {
+        for (int w = 2; w <= 8; w++) {
+            for (int i = 0; i < 50; i++) {
+                BigInteger k = new BigInteger(256, random);
+                int[] wnaf = Secp256k1Wnaf.encode(k, w);
+                BigInteger decoded = ZERO;
+                int lastNonZero = -w;
+                for (int bit = wnaf.length - 1; bit >= 0; bit--) {
+                    decoded = decoded.shiftLeft(1).add(BigInteger.valueOf(wnaf[bit]));
+                    if (wnaf[bit] != 0) {
+                        assertTrue((wnaf[bit] & 1) == 1 && Math.abs(wnaf[bit]) < (1 << (w - 1)));
+                        assertTrue(lastNonZero - bit >= w || lastNonZero == -w);
+                        lastNonZero = bit;
+                    }
+                }
+                assertEquals(k, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void testDoubleScalarMultiply() {
+        Secp256k1Point p = G.scalarMultiply(BigInteger.valueOf(5000));
+        for (int i = 0; i < 10; i++) {
+            BigInteger u = new BigInteger(256, random).mod(N);
+            BigInteger v = new BigInteger(256, random).mod(N);
+            Secp256k1Point expected = affineScalarMultiply(G, u).add(affineScalarMultiply(p, v));
+            assertEquals(expected, Secp256k1Point.doubleScalarMultiply(u, v, p));
+        }
+        assertEquals(G, Secp256k1Point.doubleScalarMultiply(ONE, ZERO, p));
+        assertEquals(p, Secp256k1Point.doubleScalarMultiply(ZERO, ONE, p));
+        assertEquals(IDENTITY, Secp256k1Point.doubleScalarMultiply(ONE, N.subtract(ONE), G));
+        assertEquals(G, Secp256k1Point.doubleScalarMultiply(ONE, ONE, IDENTITY));
+    }
+
+    @Test
+    public void testEndomorphismOfInfinityIsMutable() {
+        Secp256k1JacobianPoint infinity = Secp256k1Wnaf.multiplyEndomorphism(BigInteger.TEN, IDENTITY);
+        assertTrue(infinity.isInfinity());
+        infinity.setAdd(Secp256k1JacobianPoint.fromAffine(G), Secp256k1Workspace.get());
+        assertEquals(G, infinity.toAffine());
+        assertTrue(Secp256k1Wnaf.multiplyEndomorphism(BigInteger.TEN, IDENTITY).isInfinity());
+    }
+}
@@ -0,0 +1,98 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.math.BigInteger.ONE;
+import static mandioca.bitcoin.ecc.SignatureBatchVerifier.Status.*;
+import static org.junit.Assert.*;
+
+public class SignatureBatchVerifierTest extends AbstractSecp256k1Test {
+
+    private static final int NUM_JOBS = 40;
+    private static final List<SignatureBatchVerifier.Job> VALID_JOBS = new ArrayList<>();
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setUp() {
+        Random random = new Random(31);
+        for (int i = 0; i < NUM_JOBS; i++) {
+            Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(new BigInteger(256, random).mod(N));
+            BigInteger z = new BigInteger(256, random);
+            VALID_JOBS.add(new SignatureBatchVerifier.Job(privateKey.getPublicKey(), z, privateKey.sign(z)));
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAllValid() {
+        SignatureBatchVerifier.Result result = new SignatureBatchVerifier().verify(VALID_JOBS.stream());
+        assertEquals(NUM_JOBS, result.size());
+        assertTrue(result.allValid());
+        assertEquals(-1, result.firstInvalid());
+    }
+
+    @Test
+    public void testPerJobResults() {
+        List<SignatureBatchVerifier.Job> jobs = withInvalidJobs(7, 33);
+        SignatureBatchVerifier.Result result = new SignatureBatchVerifier(executor, 5, false).verify(jobs);
+        for (int i = 0; i < NUM_JOBS; i++) {
+            assertEquals(i == 7 || i == 33 ? INVALID : VALID, result.getStatus(i));
+        }
+        assertFalse(result.allValid());
+        assertEquals(7, result.firstInvalid());
+    }
+
+    @Test
+    public void testFailFast() {
+        List<SignatureBatchVerifier.Job> jobs = withInvalidJobs(0);
+        // One thread, so the chunk holding the invalid job runs first and the rest are skipped.
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            SignatureBatchVerifier verifier = new SignatureBatchVerifier(singleThread, 4, true);
+            SignatureBatchVerifier.Result result = verifier.verify(jobs);
+            assertEquals(INVALID, result.getStatus(0));
+            assertEquals(VALID, result.getStatus(1));
+            assertEquals(NOT_VERIFIED, result.getStatus(NUM_JOBS - 1));
+            assertFalse(result.allValid());
+            assertEquals(0, result.firstInvalid());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        SignatureBatchVerifier.Result result = new SignatureBatchVerifier().verify(Collections.emptyList());
+        assertEquals(0, result.size());
+        assertTrue(result.allValid());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        new SignatureBatchVerifier(executor, 0, false);
+    }
+
+    private List<SignatureBatchVerifier.Job> withInvalidJobs(int... indexes) {
+        List<SignatureBatchVerifier.Job> jobs = new ArrayList<>(VALID_JOBS);
+        for (int index : indexes) {
+            SignatureBatchVerifier.Job job = jobs.get(index);
+            jobs.set(index, new SignatureBatchVerifier.Job(job.getPublicKey(), job.getZ().add(ONE), job.getSignature()));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,67 @@
+package mandioca.bitcoin.ecc;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.math.BigInteger.ONE;
+import static org.junit.Assert.*;
+
+public class SignatureCacheTest extends AbstractSecp256k1Test {
+
+    private static final Secp256k1PrivateKey PRIVATE_KEY = new Secp256k1PrivateKey(BigInteger.valueOf(12345));
+    private static final BigInteger Z = new BigInteger("ec208baa0fc1c19f708a9ca96fdeff3ac3f230bb4a7ba4aede4942ad003c0f60", 16);
+    private static final byte[] SEC = PRIVATE_KEY.getPublicKey().getSec(true);
+    private static final byte[] DER = PRIVATE_KEY.sign(Z).getDer();
+
+    @Test
+    public void testValidSignatureIsVerifiedOnce() {
+        SignatureCache cache = new SignatureCache(100);
+        AtomicInteger verifications = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.verify(Z, SEC, DER, () -> {
+                verifications.incrementAndGet();
+                return Secp256k1Point.parse(SEC).verify(Z, Signature.parse(DER));
+            }));
+        }
+        assertEquals(1, verifications.get());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+        assertTrue(cache.contains(Z, SEC, DER));
+    }
+
+    @Test
+    public void testInvalidSignatureIsNotCached() {
+        SignatureCache cache = new SignatureCache(100);
+        BigInteger otherZ = Z.add(ONE);
+        assertFalse(cache.verify(otherZ, SEC, DER, () -> Secp256k1Point.parse(SEC).verify(otherZ, Signature.parse(DER))));
+        assertFalse(cache.contains(otherZ, SEC, DER));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeyCoversEveryPart() {
+        SignatureCache cache = new SignatureCache(100);
+        cache.add(Z, SEC, DER);
+        assertTrue(cache.contains(Z, SEC, DER));
+        assertFalse(cache.contains(Z.add(ONE), SEC, DER));
+        assertFalse(cache.contains(Z, PRIVATE_KEY.getPublicKey().getSec(false), DER));
+        assertFalse(cache.contains(Z, SEC, PRIVATE_KEY.sign(Z.add(ONE)).getDer()));
+    }
+
+    @Test
+    public void testCapacityIsBounded() {
+        SignatureCache cache = new SignatureCache(10);
+        for (int i = 0; i < 100; i++) {
+            cache.add(BigInteger.valueOf(i), SEC, DER);
+            assertTrue(cache.size() <= 10);
+        }
+        assertTrue(cache.contains(BigInteger.valueOf(99), SEC, DER));
+        assertFalse(cache.contains(BigInteger.ZERO, SEC, DER));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+}
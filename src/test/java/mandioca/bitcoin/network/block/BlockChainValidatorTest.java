@@ -0,0 +1,91 @@
+package mandioca.bitcoin.network.block;
+
+import mandioca.bitcoin.MandiocaTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static mandioca.bitcoin.function.ByteArrayFunctions.intToBytes;
+import static mandioca.bitcoin.network.NetworkConstants.MAX_BLOCK_HEADER_BATCH_SIZE;
+import static mandioca.bitcoin.network.NetworkConstants.ZERO_HASH;
+import static mandioca.bitcoin.network.NetworkProperties.NETWORK;
+import static mandioca.bitcoin.network.NetworkType.isRegtest;
+import static mandioca.bitcoin.network.block.GenesisBlockHeader.genesisBlockHeader;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BlockChainValidatorTest extends MandiocaTest {
+
+    // Regtest's bits:  about half of all header hashes are below the target, so mining a header takes a few tries.
+    private static final byte[] EASY_BITS = HEX.decode("207fffff");
+
+    @Test
+    public void testValidChain() throws InvalidBlockException {
+        List<BlockHeader> blockHeaders = new ArrayList<>();
+        mine(blockHeaders, 5, true);
+        new BlockChainValidator().validate(blockHeaders);
+    }
+
+    @Test
+    public void testBadProofOfWorkInFirstBatch() {
+        List<BlockHeader> blockHeaders = new ArrayList<>();
+        mine(blockHeaders, 1, true);
+        mine(blockHeaders, 1, false);
+        mine(blockHeaders, 1, true);
+        assertInvalidAt("bad proof of work at block 2 ", blockHeaders);
+    }
+
+    @Test
+    public void testBadProofOfWorkInSecondBatch() {
+        List<BlockHeader> blockHeaders = new ArrayList<>();
+        mine(blockHeaders, MAX_BLOCK_HEADER_BATCH_SIZE + 1, true);
+        mine(blockHeaders, 1, false);
+        mine(blockHeaders, 1, true);
+        assertInvalidAt("bad proof of work at block " + (MAX_BLOCK_HEADER_BATCH_SIZE + 2) + " ", blockHeaders);
+    }
+
+    @Test
+    public void testFirstBadHeaderIsReported() {
+        if (isRegtest.test(NETWORK)) {
+            return;  // regtest only warns of discontinuous blocks
+        }
+        List<BlockHeader> blockHeaders = new ArrayList<>();
+        mine(blockHeaders, 1, true);
+        blockHeaders.add(header(ZERO_HASH, true));   // valid proof of work, but does not follow block 1
+        mine(blockHeaders, 1, false);                // follows block 2, but bad proof of work
+        mine(blockHeaders, 1, true);
+        assertInvalidAt("discontinuous block at 2 ", blockHeaders);
+    }
+
+    // Appends count headers, each following the last one (or the genesis block), with a valid or bad proof of work.
+    private static void mine(List<BlockHeader> blockHeaders, int count, boolean validProofOfWork) {
+        for (int i = 0; i < count; i++) {
+            BlockHeader previous = blockHeaders.isEmpty()
+                    ? genesisBlockHeader.get()
+                    : blockHeaders.get(blockHeaders.size() - 1);
+            blockHeaders.add(header(previous.hash(), validProofOfWork));
+        }
+    }
+
+    // Tries nonces until the header's proof of work is valid, or bad, as asked.
+    private static BlockHeader header(byte[] previousBlockBigEndian, boolean validProofOfWork) {
+        for (int nonce = 0; ; nonce++) {
+            BlockHeader header = new BlockHeader(1, previousBlockBigEndian, ZERO_HASH, 1296688602, EASY_BITS,
+                    intToBytes.apply(nonce), new byte[]{});
+            if (new Block(header).checkProofOfWork() == validProofOfWork) {
+                return header;
+            }
+        }
+    }
+
+    private static void assertInvalidAt(String expectedMessage, List<BlockHeader> blockHeaders) {
+        try {
+            new BlockChainValidator().validate(blockHeaders);
+            fail("expected " + expectedMessage);
+        } catch (InvalidBlockException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(expectedMessage));
+        }
+    }
+}
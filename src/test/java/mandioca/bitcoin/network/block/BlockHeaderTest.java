@@ -5,8 +5,11 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigInteger;
+
 import static mandioca.bitcoin.function.BigIntegerFunctions.HEX_RADIX;
 import static mandioca.bitcoin.function.ByteArrayFunctions.*;
+import static mandioca.bitcoin.function.EndianFunctions.reverse;
 import static mandioca.bitcoin.network.block.BlockHeader.parse;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 import static org.junit.Assert.assertEquals;
@@ -112,4 +115,20 @@ public class BlockHeaderTest extends MandiocaTest {
         String actualHashHex = HEX.encode(blockHeader.hash());
         assertEquals(expectedHashHex, actualHashHex);
     }
+
+    @Test
+    public void testNonceHasherMidstate() {
+        String blockHeaderRaw = "020000208ec39428b17323fa0ddec8e887b4a7c53b8c0a0a220cfd0000000000000000005b0750fce0a889502d40508d39576821155e9c9e3f5c3157f961db38fd8b25be1e77a759e93c0118a4ffd71d";
+        BlockHeader blockHeader = parse(hexToByteArrayInputStream.apply(blockHeaderRaw));
+        HeaderNonceHasher hasher = new HeaderNonceHasher(blockHeader);
+        int nonce = blockHeader.getNonceInt();
+        byte[] hash = new byte[32];
+        hasher.hash(nonce, hash, 0);
+        assertEquals(HEX.encode(blockHeader.hash()), HEX.encode(reverse.apply(hash)));
+
+        BigInteger target = new BlockHelper().bitsToTarget(blockHeader.getBits());
+        long unsignedNonce = Integer.toUnsignedLong(nonce);
+        assertEquals(unsignedNonce, hasher.findNonce(unsignedNonce - 100, unsignedNonce + 100, target));
+        assertEquals(-1, hasher.findNonce(unsignedNonce + 1, unsignedNonce + 100, target));
+    }
 }
@@ -138,6 +138,20 @@ public class BlockTest extends MandiocaTest {
         assertFalse(block.checkProofOfWork());
     }
 
+    @Test
+    public void testCheckPowBatch() {
+        String validRaw = "04000000fbedbbf0cfdaf278c094f187f2eb987c86a199da22bbb20400000000000000007b7697b29129648fa08b4bcd13c9d5e60abb973a1efac9c8d573c71c807c56c3d6213557faa80518c3737ec1";
+        String invalidRaw = "04000000fbedbbf0cfdaf278c094f187f2eb987c86a199da22bbb20400000000000000007b7697b29129648fa08b4bcd13c9d5e60abb973a1efac9c8d573c71c807c56c3d6213557faa80518c3737ec0";
+        BlockHeader[] blockHeaders = {
+                parse(hexStream.apply(invalidRaw)),
+                parse(hexStream.apply(validRaw)),
+                parse(hexStream.apply(invalidRaw))};
+        boolean[] valid = new BlockHelper().checkProofOfWork(blockHeaders);
+        assertFalse(valid[0]);
+        assertTrue(valid[1]);
+        assertFalse(valid[2]);
+    }
+
     @Test
     public void testTargetToBits() {
         // From programmingbitcoin/code-ch09/block.py  Exercise 12 (has bug in book's code & wrong answer)
@@ -0,0 +1,136 @@
+package mandioca.bitcoin.transaction;
+
+import mandioca.bitcoin.script.Script;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static mandioca.bitcoin.function.ByteArrayFunctions.hexToByteArrayInputStream;
+import static mandioca.bitcoin.function.HashFunctions.hash160;
+import static mandioca.bitcoin.function.HashFunctions.hash256;
+import static mandioca.bitcoin.network.NetworkType.TESTNET3;
+import static mandioca.bitcoin.script.Script.StandardScripts.hashToP2pkhScript;
+import static mandioca.bitcoin.script.Script.StandardScripts.hashToP2wpkhScript;
+import static mandioca.bitcoin.script.processing.SigHashType.SIGHASH_ALL;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static mandioca.bitcoin.util.VarintUtils.VARINT;
+import static org.junit.Assert.assertEquals;
+
+public class SigHashTest {
+
+    private final Random random = new Random(1);  // SIGHASH_ALL's value
+
+    @Test
+    public void testLegacySigHashMatchesFullPreimage() throws IOException {
+        int n = 6;
+        TxIn[] inputs = new TxIn[n];
+        for (int i = 0; i < n; i++) {
+            inputs[i] = new TxIn(randomBytes(32), new byte[]{0, 0, 0, (byte) i}, new Script(new byte[][]{}),
+                    new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) (0xf0 + i)});
+        }
+        TxOut[] outputs = {
+                new TxOut(new byte[]{0, 0, 0, 0, 0, 1, 0, 0}, hashToP2pkhScript.apply(randomBytes(20))),
+                new TxOut(new byte[]{0, 0, 0, 0, 0, 2, 0, 0}, hashToP2pkhScript.apply(randomBytes(20)))};
+        Tx tx = new Tx(1, inputs, outputs, 0, TESTNET3);
+        Script redeemScript = hashToP2pkhScript.apply(randomBytes(20));
+
+        for (int inputIndex : new int[]{3, 0, 5, 1, 4, 2, 3}) {  // out of order, to fill the cached prefixes unevenly
+            assertEquals("input " + inputIndex, legacySigHash(tx, inputIndex, redeemScript),
+                    tx.sigHash(inputIndex, Optional.of(redeemScript)));
+        }
+    }
+
+    // BIP-143 native P2WPKH example:  input 0 spends a P2PK output of 6.25 BTC, input 1 a P2WPKH output of 6 BTC.
+    // See https://github.com/bitcoin/bips/blob/master/bip-0143.mediawiki#native-p2wpkh
+    private static final String BIP143_UNSIGNED_TX = "0100000002fff7f7881a8099afa6940d42d1e7f6362bec38171ea3edf433541db4e4ad969f0000000000eeffffffef51e1b804cc89d182d279655c3aa89e815b1b309fe287d9b2b55d57b90ec68a0100000000ffffffff02202cb206000000001976a9148280b37df378db99f66f85c95a783a76ac7a6d5988ac9093510d000000001976a9143bde42dbee7e4dbe6a21b2d50ce2f0167faa815988ac11000000";
+    private static final String BIP143_HASH_PREVOUTS = "96b827c8483d4e9b96712b6713a7b68d6e8003a781feba36c31143470b4efd37";
+    private static final String BIP143_HASH_SEQUENCE = "52b0a642eea2fb7ae638c36f6252b6750293dbe574a806984b8e4d8548339a3b";
+    private static final String BIP143_HASH_OUTPUTS = "863ef3e1a92afbfdb97f31ad0fc7683ee943e9abcf2501590ff8f6551f47e5e5";
+    private static final String BIP143_INPUT_1_SIGHASH = "c37af31116d1b27caf68aae9e3ac82f1477929014d5b917657d0eb49478cb670";
+
+    @Test
+    public void testBip143SigHashNativeP2wpkhExample() {
+        Tx tx = Tx.parse(hexToByteArrayInputStream.apply(BIP143_UNSIGNED_TX), TESTNET3);
+        byte[] input0KeyHash = hash160.apply(HEX.decode("03c9f4836b9a4f77fc0d81f7bcb01b7f1b35916864b9476c241ce9fc198bd25432"));
+        Optional<Script> input0Script = Optional.of(hashToP2wpkhScript.apply(input0KeyHash));
+        Optional<Script> input1Script = Optional.of(hashToP2wpkhScript.apply(HEX.decode("1d0f172a0ecb48aee1be1f2687d2963ae33f71a1")));
+
+        // Input 1 first, then input 0, then input 1 again, all from the one cached prefix.
+        assertEquals(BIP143_INPUT_1_SIGHASH, HEX.to64DigitPaddedHex(tx.sigHashBip143(1, input1Script, Optional.empty(), 600_000_000L)));
+        assertEquals(bip143SigHash("fff7f7881a8099afa6940d42d1e7f6362bec38171ea3edf433541db4e4ad969f00000000",
+                "1976a914" + HEX.encode(input0KeyHash) + "88ac", "40be402500000000", "eeffffff"),
+                tx.sigHashBip143(0, input0Script, Optional.empty(), 625_000_000L));
+        assertEquals(BIP143_INPUT_1_SIGHASH, HEX.to64DigitPaddedHex(tx.sigHashBip143(1, input1Script, Optional.empty(), 600_000_000L)));
+
+        assertEquals(BIP143_HASH_PREVOUTS, HEX.encode(tx.hashPreviousOuts()));
+        assertEquals(BIP143_HASH_SEQUENCE, HEX.encode(tx.hashSequence()));
+        assertEquals(BIP143_HASH_OUTPUTS, HEX.encode(tx.hashOutputs()));
+    }
+
+    @Test
+    public void testConcurrentSigHashesOfOneTx() throws Exception {
+        Optional<Script> input1Script = Optional.of(hashToP2wpkhScript.apply(HEX.decode("1d0f172a0ecb48aee1be1f2687d2963ae33f71a1")));
+        Script redeemScript = hashToP2pkhScript.apply(HEX.decode("1d0f172a0ecb48aee1be1f2687d2963ae33f71a1"));
+        Tx reference = Tx.parse(hexToByteArrayInputStream.apply(BIP143_UNSIGNED_TX), TESTNET3);
+        BigInteger[] expected = {legacySigHash(reference, 0, redeemScript), legacySigHash(reference, 1, redeemScript)};
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                Tx tx = Tx.parse(hexToByteArrayInputStream.apply(BIP143_UNSIGNED_TX), TESTNET3);  // caches empty
+                List<Future<String>> futures = IntStream.range(0, 8)
+                        .mapToObj(i -> executor.submit(() -> i % 2 == 0
+                                ? HEX.to64DigitPaddedHex(tx.sigHashBip143(1, input1Script, Optional.empty(), 600_000_000L))
+                                : tx.sigHash(i / 2 % 2, Optional.of(redeemScript)).toString(16)))
+                        .collect(Collectors.toList());
+                for (int i = 0; i < futures.size(); i++) {
+                    assertEquals(i % 2 == 0 ? BIP143_INPUT_1_SIGHASH : expected[i / 2 % 2].toString(16),
+                            futures.get(i).get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The BIP-143 signature hash of an input of the example tx, from its whole preimage, as the spec lays it out.
+    private BigInteger bip143SigHash(String outpoint, String scriptCode, String amount, String sequence) {
+        String preimage = "01000000" + BIP143_HASH_PREVOUTS + BIP143_HASH_SEQUENCE + outpoint + scriptCode + amount
+                + sequence + BIP143_HASH_OUTPUTS + "11000000" + "01000000";
+        return new BigInteger(1, hash256.apply(HEX.decode(preimage)));
+    }
+
+    // The legacy signature hash computed from its whole preimage, as before prefix caching.
+    private BigInteger legacySigHash(Tx tx, int inputIndex, Script redeemScript) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(tx.version);
+        baos.write(VARINT.encode(tx.getDeserializedInputs().length));
+        for (int i = 0; i < tx.getDeserializedInputs().length; i++) {
+            TxIn txIn = tx.getDeserializedInputs()[i];
+            Script scriptSig = i == inputIndex ? redeemScript : new Script(new byte[][]{});
+            baos.write(new TxIn(txIn.previousTransactionId, txIn.previousTransactionIndex, scriptSig, txIn.sequence).serialize());
+        }
+        baos.write(VARINT.encode(tx.getDeserializedOutputs().length));
+        for (TxOut txOut : tx.getDeserializedOutputs()) {
+            baos.write(txOut.serialize());
+        }
+        baos.write(tx.locktime);
+        baos.write(SIGHASH_ALL.littleEndian());
+        return new BigInteger(1, hash256.apply(baos.toByteArray()));
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
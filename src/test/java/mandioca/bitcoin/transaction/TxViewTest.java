@@ -0,0 +1,108 @@
+package mandioca.bitcoin.transaction;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import static mandioca.bitcoin.function.EndianFunctions.reverse;
+import static mandioca.bitcoin.function.HashFunctions.hash256;
+import static mandioca.bitcoin.network.NetworkType.TESTNET3;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.*;
+
+public class TxViewTest {
+
+    // testnet 687f70bd4b071ca2733667f68c1b74c5561b6cf681406ed60a8d4c8effa0a9a7
+    private static final String LEGACY_TX = "0100000001eafb99c6b24e9285cf0ed457a028d723e61c80c443e370c84cf96507958dd610010000008b483045022100b95d83b8b81a0491cc24b7f91dc7b8f961a050b0ee5371eaa55e1d94bb89a7b902204524c390855cc384afc6d72e0b4f2ea72c9bad6a3a54f2ad5501b998b442fd750141048aa0d470b7a9328889c84ef0291ed30346986e22558e80c3ae06199391eae21308a00cdcfb34febc0ea9c80dfd16b01f26c7ec67593cb8ab474aca8fa1d7029dffffffff02287d0200000000001976a91436a5ee46338acf885538ebd709a810b361c93a4388acb34caf0b000000001976a91436a5ee46338acf885538ebd709a810b361c93a4388ac00000000";
+    // testnet 1fb870ee3a0d250df1385d3ea17223989d1fb7277ceb68ac6880366eb063f6f7, a p2sh-p2wpkh spend
+    private static final String SEGWIT_TX = "020000000001011991ff3cc3353a9d3fb51de8b1d255f7833d1e06a8bfbc7fada6cc31c4dadc380100000017160014285152691d5d81e78c65b5f65d0d70988c326370ffffffff0240420f000000000017a914d1c1fc5a4652891e419c5a023498ac85c6604f9487d02b1c000000000017a9147c42c6c39eec91fde23ebe48f389957b2096834c8702483045022100fbb805908ab72064b5a3810829b70751ad0c428efd0bc3b3ddd78c77e2321695022007b2bda12e75d55471ead6d94f98479d1532cafdb55e8d380e22ca860fd4c1af012103aa2927336b2388d0b34f9d5d1c09d3802270e92b26b9d3f7adb00203bf53c48f00000000";
+
+    @Test
+    public void testLegacyTx() {
+        TxView view = new TxView(ByteBuffer.wrap(HEX.decode(LEGACY_TX)));
+        assertFalse(view.isSegwit());
+        assertEquals(LEGACY_TX.length() / 2, view.length());
+        assertEquals("687f70bd4b071ca2733667f68c1b74c5561b6cf681406ed60a8d4c8effa0a9a7", view.id());
+        assertEquals(view.id(), view.witnessId());
+        assertEquals(1, view.version());
+        assertEquals(0, view.locktime());
+        assertEquals(1, view.inputCount());
+        assertEquals("10d68d950765f94cc870e343c4801ce623d728a057d40ecf85924eb2c699fbea", view.previousTransactionIdHex(0));
+        assertEquals(1, view.previousTransactionIndex(0));
+        assertEquals(0x8b, view.scriptSig(0).remaining());
+        assertEquals(0x48, view.scriptSig(0).get(0));
+        assertEquals(-1, view.sequence(0));
+        assertEquals(2, view.outputCount());
+        assertEquals(0x027d28L, view.amount(0));
+        assertEquals(0x0baf4cb3L, view.amount(1));
+        assertEquals(0x19, view.scriptPubKey(1).remaining());
+        assertEquals(0, view.witnessItemCount(0));
+    }
+
+    @Test
+    public void testSegwitTx() {
+        byte[] bytes = HEX.decode(SEGWIT_TX);
+        TxView view = new TxView(ByteBuffer.wrap(bytes));
+        assertTrue(view.isSegwit());
+        assertEquals(bytes.length, view.length());
+        assertEquals("1fb870ee3a0d250df1385d3ea17223989d1fb7277ceb68ac6880366eb063f6f7", view.id());
+        assertEquals(HEX.encode(reverse.apply(hash256.apply(bytes))), view.witnessId());
+        assertEquals(2, view.version());
+        assertEquals(1, view.inputCount());
+        assertEquals(2, view.outputCount());
+        assertEquals(1_000_000L, view.amount(0));
+        assertEquals(2, view.witnessItemCount(0));
+        assertEquals(0x48, view.witnessItem(0, 0).remaining());   // DER signature and sighash type
+        assertEquals(33, view.witnessItem(0, 1).remaining());     // compressed public key
+
+        Tx tx = Tx.parse(new ByteArrayInputStream(bytes), TESTNET3);
+        assertEquals(tx.id(), view.id());
+        assertEquals(tx.getDeserializedOutputs()[1].getAmountAsLong(), view.amount(1));
+        assertArrayEquals(tx.getDeserializedInputs()[0].witness[1], toArray(view.witnessItem(0, 1)));
+        assertEquals(tx.id(), view.toTx(TESTNET3).id());
+    }
+
+    @Test
+    public void testConsecutiveTxsInDirectBuffer() {
+        byte[] legacy = HEX.decode(LEGACY_TX);
+        byte[] segwit = HEX.decode(SEGWIT_TX);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3 + legacy.length + segwit.length);
+        buffer.put(new byte[3]).put(segwit).put(legacy).flip();
+
+        TxView first = new TxView(buffer, 3);
+        TxView second = new TxView(buffer, first.offset() + first.length());
+        assertEquals("1fb870ee3a0d250df1385d3ea17223989d1fb7277ceb68ac6880366eb063f6f7", first.id());
+        assertEquals("687f70bd4b071ca2733667f68c1b74c5561b6cf681406ed60a8d4c8effa0a9a7", second.id());
+        assertEquals(buffer.limit(), second.offset() + second.length());
+        assertEquals(0, buffer.position());
+
+        byte[] txid = new byte[32];
+        second.txid(txid, 0);
+        assertArrayEquals(hash256.apply(legacy), txid);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedTx() {
+        byte[] bytes = HEX.decode(SEGWIT_TX);
+        new TxView(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testWitnessCountOf2To64Minus1() {
+        // 0xff prefix and 8 bytes:  2^64 - 1 items, negative as a long
+        new TxView(ByteBuffer.wrap(HEX.decode(SEGWIT_TX.replace("8702483045", "87ffffffffffffffffff483045"))));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testWitnessCountLargerThanTx() {
+        // 0xfe prefix and 4 bytes:  2^31 - 1 items, more than the bytes left
+        new TxView(ByteBuffer.wrap(HEX.decode(SEGWIT_TX.replace("8702483045", "87feffffff7f483045"))));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -1,12 +1,17 @@
 package mandioca.bitcoin.util;
 
+import mandioca.bitcoin.address.AddressFormatException;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static mandioca.bitcoin.function.BigIntegerFunctions.HEX_RADIX;
 import static mandioca.bitcoin.function.ByteArrayFunctions.bigIntToUnsignedByteArray;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class Base58Test {
 
@@ -39,4 +44,82 @@ public class Base58Test {
         String expectedBase58 = "EQJsjkd6JaGwxrjEhfeqPenqHwrBmPQZjJGNSCHBkcF7";
         assertEquals(expectedBase58, base58);
     }
+
+    @Test
+    public void testMatchesBigIntegerConversion() {
+        Random random = new Random(58);
+        for (int length = 0; length <= 100; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            for (int i = 0; i < length && i < random.nextInt(4); i++) {
+                bytes[i] = 0;  // some leading zeros
+            }
+            String base58 = Base58.encode(bytes);
+            assertEquals("length " + length, referenceEncode(bytes), base58);
+            assertArrayEquals("length " + length, bytes, Base58.decode(base58));
+        }
+        assertEquals("111", Base58.encode(new byte[3]));
+        assertArrayEquals(new byte[3], Base58.decode("111"));
+    }
+
+    @Test
+    public void testEncodeSliceIntoBuilder() {
+        byte[] bytes = {9, 0, 0, 1, 2, 3, 9};
+        StringBuilder out = new StringBuilder("x");
+        Base58.encode(bytes, 1, 5, out);
+        assertEquals("x" + Base58.encode(new byte[]{0, 0, 1, 2, 3}), out.toString());
+    }
+
+    @Test
+    public void testChecked() {
+        byte[] payload = new byte[21];
+        new Random(58).nextBytes(payload);
+        payload[0] = 0;
+        String address = Base58.encodeChecked(payload);
+        assertArrayEquals(payload, Base58.decodeChecked(address, false));
+        assertArrayEquals(Arrays.copyOfRange(payload, 1, 21), Base58.decodeChecked(address, true));
+        char last = address.charAt(address.length() - 1);
+        String corrupted = address.substring(0, address.length() - 1) + (last == 'z' ? 'y' : 'z');
+        try {
+            Base58.decodeChecked(corrupted, false);
+            fail("corrupted checksum was accepted");
+        } catch (AddressFormatException.InvalidChecksum expected) {
+        }
+    }
+
+    @Test(expected = AddressFormatException.InvalidCharacter.class)
+    public void testInvalidCharacter() {
+        Base58.decode("1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN0");
+    }
+
+    @Test
+    public void testDecodeAll() {
+        Random random = new Random(58);
+        List<byte[]> payloads = new ArrayList<>();
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            byte[] payload = new byte[21];
+            random.nextBytes(payload);
+            payloads.add(payload);
+            addresses.add(Base58.encodeChecked(payload));
+        }
+        List<byte[]> decoded = Base58.decodeAllChecked(addresses, false);
+        List<byte[]> raw = Base58.decodeAll(addresses);
+        for (int i = 0; i < payloads.size(); i++) {
+            assertArrayEquals(payloads.get(i), decoded.get(i));
+            assertArrayEquals(Base58.decode(addresses.get(i)), raw.get(i));
+        }
+    }
+
+    // The textbook conversion:  leading zero bytes become '1's, the rest is the number in base 58.
+    private static String referenceEncode(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (BigInteger n = new BigInteger(1, bytes); n.signum() > 0; n = n.divide(BigInteger.valueOf(58))) {
+            sb.append(Base58.ALPHABET[n.mod(BigInteger.valueOf(58)).intValue()]);
+        }
+        for (int i = 0; i < bytes.length && bytes[i] == 0; i++) {
+            sb.append('1');
+        }
+        return sb.reverse().toString();
+    }
 }
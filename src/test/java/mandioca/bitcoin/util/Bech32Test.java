@@ -24,6 +24,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Locale;
 
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -108,4 +110,54 @@ public class Bech32Test {
     public void decode_invalidHrp() {
         Bech32.decode("1pzry9x0s0muk");
     }
+
+    @Test
+    public void validSegwitAddresses() {
+        // BIP-173 test vectors with witness version 0
+        assertSegwitAddress("bc", "BC1QW508D6QEJXTDG4Y5R3ZARVARY0C5XW7KV8F3T4", "751e76e8199196d454941c45d1b3a323f1433bd6");
+        assertSegwitAddress("tb", "tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sl5k7",
+                "1863143c14c5166804bd19203356da136c985678cd4d27a1b8c6329604903262");
+        assertSegwitAddress("tb", "tb1qqqqqp399et2xygdj5xreqhjjvcmzhxw4aywxecjdzew6hylgvsesrxh6hy",
+                "000000c4a5cad46221b2a187905e5266362b99d5e91c6ce24d165dab93e86433");
+    }
+
+    private static void assertSegwitAddress(String hrp, String address, String programHex) {
+        Bech32.WitnessProgram witnessProgram = Bech32.decodeSegwitAddress(hrp, address);
+        assertEquals(0, witnessProgram.version);
+        assertEquals(programHex, HEX.encode(witnessProgram.program));
+        assertEquals(address.toLowerCase(Locale.ROOT), Bech32.encodeSegwitAddress(hrp, 0, witnessProgram.program));
+    }
+
+    @Test
+    public void invalidSegwitAddresses() {
+        String[][] cases = {
+                {"tb", "tc1qw508d6qejxtdg4y5r3zarvary0c5xw7kg3g4ty"},  // Invalid human-readable part
+                {"bc", "bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t5"},  // Invalid checksum
+                {"bc", "BC13W508D6QEJXTDG4Y5R3ZARVARY0C5XW7KN40WF2"},  // Invalid witness version
+                {"bc", "bc1rw5uspcuh"},                                // Invalid program length
+                {"bc", "BC1QR508D6QEJXTDG4Y5R3ZARVARYV98GJ9P"},        // Invalid program length for witness version 0
+                {"tb", "tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sL5k7"},  // Mixed case
+                {"bc", "bc1zw508d6qejxtdg4y5r3zarvaryvqyzf3du"},       // Unsupported witness version 2
+                {"tb", "tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3pjxtptv"},  // Non-zero padding
+                {"bc", "bc1gmk9yu"},                                   // Empty data section
+        };
+        for (String[] invalid : cases) {
+            try {
+                Bech32.decodeSegwitAddress(invalid[0], invalid[1]);
+                fail(String.format("Parsed an invalid segwit address: '%s'", invalid[1]));
+            } catch (AddressFormatException x) {
+                /* expected */
+            }
+        }
+    }
+
+    @Test
+    public void convertBitsRoundTrip() {
+        byte[] bytes = HEX.decode("00ff7f80010203fedcba9876543210");
+        byte[] fives = new byte[(bytes.length * 8 + 4) / 5];
+        assertEquals(fives.length, Bech32.convertBits(bytes, 0, bytes.length, 8, 5, true, fives, 0));
+        byte[] back = new byte[bytes.length];
+        assertEquals(bytes.length, Bech32.convertBits(fives, 0, fives.length, 5, 8, false, back, 0));
+        assertArrayEquals(bytes, back);
+    }
 }
@@ -0,0 +1,110 @@
+package mandioca.bitcoin.util;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static mandioca.bitcoin.function.BigIntegerFunctions.HEX_RADIX;
+import static mandioca.bitcoin.function.EndianFunctions.reverse;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times the table driven HexUtils against the encoder and decoder it replaced, kept here as the baseline.  JMH is
+ * not part of this build, so this is a plain warmed up loop;  compare the logged ns per call on the same machine,
+ * not across machines.  Ignored because it takes several seconds and asserts nothing about speed.
+ */
+@Ignore
+public class HexUtilsBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(HexUtilsBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private final byte[] hash = new byte[32];
+    private final String hashHex;
+    private volatile Object sink;
+
+    public HexUtilsBenchmark() {
+        new Random(23).nextBytes(hash);
+        hashHex = HEX.encode(hash);
+    }
+
+    // The old encoder:  Integer.toHexString of each byte, zero padded to an octet.
+    private static String oldEncode(byte[] bytes) {
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : bytes) {
+            String hex = Integer.toHexString(b & 0xFF);
+            hexString.append(hex.length() == 1 ? '0' + hex : hex);
+        }
+        return hexString.toString();
+    }
+
+    // The old byteToHex.
+    private static String oldByteToHex(byte b) {
+        return String.format("%02X", b).toLowerCase();
+    }
+
+    // The old decoder:  Integer.parseInt of each two character substring, which accepted either case.
+    private static byte[] oldDecode(CharSequence hex) {
+        if (hex.toString().length() % 2 != 0) {
+            throw new IllegalStateException("Hex string has odd length");
+        }
+        byte[] b = new byte[hex.length() / 2];
+        for (int i = 0; i < hex.length(); i += 2) {
+            if (hex.charAt(i) == '+' || hex.charAt(i) == '-') {
+                throw new IllegalStateException("Hex string contains + or - character(s)");
+            }
+            b[i / 2] = (byte) Integer.parseInt(hex.toString().substring(i, i + 2), HEX_RADIX);
+        }
+        return b;
+    }
+
+    @Test
+    public void benchmarkEncodeReversed() {
+        assertEquals(oldEncode(reverse.apply(hash)), HEX.encodeReversed(hash));
+        compare("reverse and encode 32 bytes",
+                () -> oldEncode(reverse.apply(hash)),
+                () -> HEX.encodeReversed(hash));
+    }
+
+    @Test
+    public void benchmarkDecode() {
+        assertArrayEquals(oldDecode(hashHex), HEX.decode(hashHex));
+        compare("decode 64 hex digits",
+                () -> oldDecode(hashHex),
+                () -> HEX.decode(hashHex));
+    }
+
+    @Test
+    public void benchmarkByteToHex() {
+        assertEquals(oldByteToHex(hash[0]), HEX.byteToHex.apply(hash[0]));
+        compare("byteToHex",
+                () -> oldByteToHex(hash[0]),
+                () -> HEX.byteToHex.apply(hash[0]));
+    }
+
+    private void compare(String name, Supplier<Object> baseline, Supplier<Object> candidate) {
+        long oldNanos = time(baseline);
+        long newNanos = time(candidate);
+        log.info("{}:  old {} ns/call, new {} ns/call", name,
+                oldNanos / ITERATIONS, newNanos / ITERATIONS);
+    }
+
+    private long time(Supplier<Object> operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = operation.get();
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = operation.get();
+        }
+        return System.nanoTime() - t0;
+    }
+}
@@ -0,0 +1,87 @@
+package mandioca.bitcoin.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static mandioca.bitcoin.function.EndianFunctions.reverse;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.*;
+
+public class HexUtilsTest {
+
+    private final Random random = new Random(16);  // base 16
+
+    @Test
+    public void testEncodeMatchesStringFormat() {
+        for (int b = Byte.MIN_VALUE; b <= Byte.MAX_VALUE; b++) {
+            String expected = String.format("%02x", (byte) b);
+            assertEquals(expected, HEX.encode(new byte[]{(byte) b}));
+            assertEquals(expected, HEX.byteToHex.apply((byte) b));
+            assertEquals("0x" + expected, HEX.byteToPrefixedHex.apply((byte) b));
+        }
+        assertEquals("", HEX.encode(new byte[0]));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (int length = 0; length < 70; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String hex = HEX.encode(bytes);
+            assertArrayEquals(bytes, HEX.decode(hex));
+            assertArrayEquals(bytes, HEX.decode(hex.toUpperCase()));
+        }
+    }
+
+    @Test
+    public void testEncodeAndDecodeSlices() {
+        byte[] bytes = HEX.decode("00112233445566778899aabbccddeeff");
+        char[] chars = new char[10];
+        HEX.encode(bytes, 3, 4, chars, 1);
+        assertEquals("33445566", new String(chars, 1, 8));
+        byte[] out = new byte[6];
+        HEX.decode("DeadBeef", out, 2);
+        assertArrayEquals(new byte[]{0, 0, (byte) 0xde, (byte) 0xad, (byte) 0xbe, (byte) 0xef}, out);
+    }
+
+    @Test
+    public void testEncodeReversed() {
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        assertEquals(HEX.encode(reverse.apply(hash)), HEX.encodeReversed(hash));
+        char[] chars = new char[8];
+        HEX.encodeReversed(hash, 4, 4, chars, 0);
+        assertEquals(HEX.encode(reverse.apply(new byte[]{hash[4], hash[5], hash[6], hash[7]})), new String(chars));
+    }
+
+    @Test
+    public void testEncodeByteArrays() {
+        assertEquals("0102ff", HEX.encode(new byte[][]{{1}, {}, {2, (byte) 0xff}}));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecodeOddLength() {
+        HEX.decode("abc");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecodeSign() {
+        HEX.decode("-1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecodeInvalidCharacter() {
+        HEX.decode("0g");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecodeNonAsciiCharacter() {
+        HEX.decode("0١");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeOutputTooShort() {
+        HEX.encode(new byte[4], 0, 4, new char[7], 0);
+    }
+}
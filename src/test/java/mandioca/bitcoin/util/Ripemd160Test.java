@@ -10,8 +10,13 @@ package mandioca.bitcoin.util;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static mandioca.bitcoin.function.ByteArrayFunctions.asciiToBytes;
+import static mandioca.bitcoin.function.HashFunctions.hash160;
 import static mandioca.bitcoin.function.HashFunctions.hashRipemd160;
+import static mandioca.bitcoin.function.HashFunctions.sha256Hash;
 import static mandioca.bitcoin.util.HexUtils.HEX;
 import static org.junit.Assert.assertArrayEquals;
 
@@ -173,4 +178,36 @@ public final class Ripemd160Test {
             assertArrayEquals(HEX.decode(testCase[0]), hashRipemd160.apply(asciiToBytes.apply(testCase[1])));
     }
 
+    @Test
+    public void testIncrementalMatchesWholeMessage() {
+        Random random = new Random(160);
+        Ripemd160 ripemd160 = new Ripemd160();
+        for (int length = 0; length <= 200; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            int split = length / 3;
+            byte[] hash = new byte[24];
+            ripemd160.update(data, 0, split).update(data, split, length - split).doFinal(hash, 4);
+            assertArrayEquals("length " + length, Ripemd160.getHash(data), Arrays.copyOfRange(hash, 4, 24));
+        }
+    }
+
+    @Test
+    public void testHash160() {
+        Random random = new Random(160);
+        for (int length : new int[]{0, 20, 33, 65, 200}) {
+            byte[] data = new byte[length + 3];
+            random.nextBytes(data);
+            byte[] hash = new byte[20];
+            Ripemd160.hash160(data, 3, length, hash, 0);
+            byte[] message = Arrays.copyOfRange(data, 3, data.length);
+            assertArrayEquals("length " + length, hashRipemd160.apply(sha256Hash.apply(message)), hash);
+            assertArrayEquals("length " + length, hash, hash160.apply(message));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutputTooShort() {
+        new Ripemd160().doFinal(new byte[20], 1);
+    }
 }
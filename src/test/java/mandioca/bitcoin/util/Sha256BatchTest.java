@@ -0,0 +1,72 @@
+package mandioca.bitcoin.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static mandioca.bitcoin.function.HashFunctions.hash256;
+import static org.junit.Assert.assertArrayEquals;
+
+public class Sha256BatchTest {
+
+    private final Random random = new Random(80);  // the length of a block header, what batches mostly hash
+
+    @Test
+    public void testMatchesHash256AcrossChunks() {
+        for (int len : new int[]{0, 1, 55, 64, 80, 200}) {
+            for (int count : new int[]{0, 1, Sha256Batch.CHUNK_SIZE, 2 * Sha256Batch.CHUNK_SIZE + 3}) {
+                byte[] in = new byte[3 + len * count];
+                random.nextBytes(in);
+                byte[] out = new byte[5 + 32 * count];
+                Sha256Batch.hash256(in, 3, len, count, out, 5);
+                for (int i = 0; i < count; i++) {
+                    byte[] message = new byte[len];
+                    System.arraycopy(in, 3 + i * len, message, 0, len);
+                    byte[] hash = new byte[32];
+                    System.arraycopy(out, 5 + i * 32, hash, 0, 32);
+                    assertArrayEquals("length " + len + ", count " + count + ", message " + i, hash256.apply(message), hash);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMerkleRoot() {
+        for (int count = 1; count <= 20; count++) {
+            byte[][] hashes = new byte[count][32];
+            byte[] level = new byte[32 * count];
+            for (int i = 0; i < count; i++) {
+                random.nextBytes(hashes[i]);
+                System.arraycopy(hashes[i], 0, level, 32 * i, 32);
+            }
+            assertArrayEquals("count " + count, merkleRoot(hashes), Sha256Batch.merkleRoot(level, count));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMerkleRootOfNothing() {
+        Sha256Batch.merkleRoot(new byte[0], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutputTooShort() {
+        Sha256Batch.hash256(new byte[64 * 3], 0, 64, 3, new byte[32 * 3 - 1], 0);
+    }
+
+    // The Merkle root computed pair by pair.
+    private static byte[] merkleRoot(byte[][] hashes) {
+        while (hashes.length > 1) {
+            byte[][] parents = new byte[(hashes.length + 1) / 2][];
+            for (int i = 0; i < parents.length; i++) {
+                byte[] left = hashes[2 * i];
+                byte[] right = 2 * i + 1 < hashes.length ? hashes[2 * i + 1] : left;
+                byte[] pair = new byte[64];
+                System.arraycopy(left, 0, pair, 0, 32);
+                System.arraycopy(right, 0, pair, 32, 32);
+                parents[i] = hash256.apply(pair);
+            }
+            hashes = parents;
+        }
+        return hashes[0];
+    }
+}
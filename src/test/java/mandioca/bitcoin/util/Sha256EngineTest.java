@@ -0,0 +1,97 @@
+package mandioca.bitcoin.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static mandioca.bitcoin.function.ByteArrayFunctions.concatenate;
+import static mandioca.bitcoin.function.HashFunctions.*;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.*;
+
+public class Sha256EngineTest {
+
+    private static final byte[] ABC = "abc".getBytes(StandardCharsets.US_ASCII);
+    private static final String SHA256_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String HASH256_HELLO = "9595c9df90075148eb06860365df33584b75bff782a510c6cd4883a419833d50";
+
+    @Test
+    public void testKnownHashes() {
+        assertEquals(SHA256_ABC, HEX.encode(sha256Hash.apply(ABC)));
+        assertEquals(HASH256_HELLO, HEX.encode(hash256.apply("hello".getBytes(StandardCharsets.US_ASCII))));
+        assertArrayEquals(sha256Hash.apply(sha256Hash.apply(ABC)), hash256.apply(ABC));
+    }
+
+    @Test
+    public void testOffsetsIntoCallerBuffers() {
+        byte[] in = concatenate.apply(new byte[]{1, 2, 3}, concatenate.apply(ABC, new byte[]{4}));
+        byte[] out = new byte[40];
+        Sha256Engine.sha256(in, 3, ABC.length, out, 5);
+        assertEquals(SHA256_ABC, HEX.encode(Arrays.copyOfRange(out, 5, 37)));
+        Sha256Engine.hash256(in, 3, ABC.length, out, 8);
+        assertArrayEquals(hash256.apply(ABC), Arrays.copyOfRange(out, 8, 40));
+        assertArrayEquals(hash256.apply(ABC), hash256FromOffset.apply(in, 3, ABC.length));
+    }
+
+    @Test
+    public void testOutputBufferTooShortLeavesNoState() {
+        try {
+            Sha256Engine.hash256(ABC, 0, ABC.length, new byte[40], 10);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(SHA256_ABC, HEX.encode(sha256Hash.apply(ABC)));
+        }
+    }
+
+    @Test
+    public void testByteBuffers() {
+        for (ByteBuffer out : new ByteBuffer[]{ByteBuffer.allocate(34), ByteBuffer.allocateDirect(34)}) {
+            ByteBuffer in = ByteBuffer.allocateDirect(ABC.length).put(ABC).flip();
+            out.position(2);
+            Sha256Engine.hash256(in, out);
+            assertFalse(in.hasRemaining());
+            assertEquals(34, out.position());
+            byte[] hash = new byte[32];
+            out.position(2);
+            out.get(hash);
+            assertArrayEquals(hash256.apply(ABC), hash);
+        }
+        ByteBuffer out = ByteBuffer.allocate(32);
+        Sha256Engine.sha256(ByteBuffer.wrap(ABC), out);
+        assertEquals(SHA256_ABC, HEX.encode(out.array()));
+    }
+
+    @Test
+    public void testMerkleParentWithoutConcatenation() {
+        byte[] left = hash256.apply(ABC);
+        byte[] right = sha256Hash.apply(ABC);
+        byte[] parent = new byte[32];
+        Sha256Engine.hash256(left, right, parent, 0);
+        assertArrayEquals(hash256.apply(concatenate.apply(left, right)), parent);
+    }
+
+    @Test
+    public void testByteBufferSlices() {
+        byte[] bytes = "xxabcyyabcz".getBytes(StandardCharsets.US_ASCII);
+        byte[] expected = hash256.apply("abcabc".getBytes(StandardCharsets.US_ASCII));
+        int[] slices = {2, 3, 7, 3};
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        direct.position(5);
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.wrap(bytes), direct, ByteBuffer.wrap(bytes).asReadOnlyBuffer()}) {
+            byte[] out = new byte[32];
+            Sha256Engine.hash256(buffer, slices, out, 0);
+            assertArrayEquals(expected, out);
+        }
+        assertEquals(5, direct.position());
+    }
+
+    @Test
+    public void testConcurrentHashing() {
+        byte[] expected = hash256.apply(ABC);
+        assertTrue(IntStream.range(0, 10_000).parallel()
+                .allMatch((i) -> Arrays.equals(expected, hash256.apply(ABC))));
+    }
+}
@@ -0,0 +1,72 @@
+package mandioca.bitcoin.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static mandioca.bitcoin.function.HashFunctions.hash256;
+import static mandioca.bitcoin.function.HashFunctions.sha256Hash;
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static org.junit.Assert.*;
+
+public class Sha256Test {
+
+    private final Random random = new Random(256);  // after the digest size in bits, like Ripemd160Test's 160
+
+    @Test
+    public void testKnownHashes() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                HEX.encode(new Sha256().digest()));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                HEX.encode(new Sha256().update(ascii("abc")).digest()));
+        assertEquals("248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1",
+                HEX.encode(new Sha256().update(ascii("abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq")).digest()));
+    }
+
+    @Test
+    public void testMatchesMessageDigestAtEveryPaddingBoundary() {
+        for (int length = 0; length <= 200; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            Sha256 sha256 = new Sha256();
+            int split = length / 3;
+            sha256.update(data, 0, split).update(data, split, length - split);
+            assertArrayEquals("length " + length, sha256Hash.apply(data), sha256.digest());
+        }
+    }
+
+    @Test
+    public void testSnapshotAndRestore() {
+        byte[] prefix = new byte[100];
+        random.nextBytes(prefix);
+        Sha256 snapshot = new Sha256().update(prefix).snapshot();
+        Sha256 sha256 = new Sha256();
+        for (int i = 0; i < 5; i++) {
+            byte[] suffix = new byte[i * 37];
+            random.nextBytes(suffix);
+            byte[] hash = new byte[32];
+            sha256.restore(snapshot).update(suffix).digestHash256(hash, 0);
+            byte[] whole = new byte[prefix.length + suffix.length];
+            System.arraycopy(prefix, 0, whole, 0, prefix.length);
+            System.arraycopy(suffix, 0, whole, prefix.length, suffix.length);
+            assertArrayEquals(hash256.apply(whole), hash);
+        }
+        assertEquals(prefix.length, snapshot.getLength());  // restoring does not change the snapshot
+    }
+
+    @Test
+    public void testUpdateIntLE() {
+        byte[] expected = new Sha256().update(new byte[]{0x78, 0x56, 0x34, 0x12}).digest();
+        assertArrayEquals(expected, new Sha256().updateIntLE(0x12345678).digest());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDigestOutputTooShort() {
+        new Sha256().digest(new byte[32], 1);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -2,12 +2,16 @@ package mandioca.bitcoin.util;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import static mandioca.bitcoin.util.HexUtils.HEX;
 import static mandioca.bitcoin.util.VarintUtils.VARINT;
-import static org.junit.Assert.assertArrayEquals;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class VarintUtilsTest {
 
@@ -139,4 +143,57 @@ public class VarintUtilsTest {
         assertArrayEquals(new byte[]{0x04}, bytes);
         assertEquals(4, VARINT.decode(bytes));
     }
+
+    @Test
+    public void testBoundaries() throws IOException {
+        long[] values = {0, 0xfc, 0xfd, 0xffff, 0x10000, 0xffffffffL, 0x100000000L, Long.MAX_VALUE, -1L};
+        int[] lengths = {1, 1, 3, 3, 5, 5, 9, 9, 9};
+        for (int i = 0; i < values.length; i++) {
+            long n = values[i];
+            byte[] bytes = VARINT.encode(n);
+            assertEquals("length of " + Long.toUnsignedString(n), lengths[i], bytes.length);
+            assertEquals(lengths[i], VARINT.length(bytes[0]));
+            assertEquals(n, VARINT.decode(bytes));
+            assertEquals(n, VARINT.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+        }
+        assertEquals("ffffffffffffffffff", HEX.encode(VARINT.encode(-1L)));  // 2^64 - 1
+    }
+
+    @Test
+    public void testWriteAndReadInPlace() {
+        long[] values = {7, 300, 70_000, 5_000_000_000L};
+        byte[] bytes = new byte[2 + values.length * VarintUtils.MAX_LENGTH];
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length).order(ByteOrder.BIG_ENDIAN);
+        int off = 2;
+        for (long n : values) {
+            off += VARINT.write(n, bytes, off);
+            VARINT.write(n, buffer);
+        }
+        assertEquals(off - 2, buffer.position());
+        buffer.flip();
+        off = 2;
+        for (long n : values) {
+            assertEquals(n, VARINT.read(bytes, off));
+            assertEquals(n, VARINT.read(buffer, off - 2));  // absolute, leaving the position alone
+            off += VARINT.length(bytes[off]);
+            assertEquals(n, VARINT.read(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testVarintEncodeDecodeForBigInteger_70_000() {
+        byte[] bytes = VARINT.encode(BigInteger.valueOf(70_000));
+        assertEquals("fe70110100", HEX.encode(bytes));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBigIntegerTooLarge() {
+        VARINT.encode(BigInteger.ONE.shiftLeft(64));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeIntRejected() {
+        VARINT.encode(-1);
+    }
 }
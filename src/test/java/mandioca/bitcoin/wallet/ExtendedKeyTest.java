@@ -0,0 +1,99 @@
+package mandioca.bitcoin.wallet;
+
+import org.junit.Test;
+
+import static mandioca.bitcoin.util.HexUtils.HEX;
+import static mandioca.bitcoin.wallet.DerivationPath.hardened;
+import static org.junit.Assert.*;
+
+public class ExtendedKeyTest {
+
+    // BIP-32 test vector 1
+    private static final byte[] SEED = HEX.decode("000102030405060708090a0b0c0d0e0f");
+    private static final String M_XPRV = "xprv9s21ZrQH143K3QTDL4LXw2F7HEK3wJUD2nW2nRk4stbPy6cq3jPPqjiChkVvvNKmPGJxWUtg6LnF5kejMRNNU3TGtRBeJgk33yuGBxrMPHi";
+    private static final String M_XPUB = "xpub661MyMwAqRbcFtXgS5sYJABqqG9YLmC4Q1Rdap9gSE8NqtwybGhePY2gZ29ESFjqJoCu1Rupje8YtGqsefD265TMg7usUDFdp6W1EGMcet8";
+    private static final String M_0H_XPRV = "xprv9uHRZZhk6KAJC1avXpDAp4MDc3sQKNxDiPvvkX8Br5ngLNv1TxvUxt4cV1rGL5hj6KCesnDYUhd7oWgT11eZG7XnxHrnYeSvkzY7d2bhkJ7";
+    private static final String M_0H_XPUB = "xpub68Gmy5EdvgibQVfPdqkBBCHxA5htiqg55crXYuXoQRKfDBFA1WEjWgP6LHhwBZeNK1VTsfTFUHCdrfp1bgwQ9xv5ski8PX9rL2dZXvgGDnw";
+    private static final String M_0H_1_XPRV = "xprv9wTYmMFdV23N2TdNG573QoEsfRrWKQgWeibmLntzniatZvR9BmLnvSxqu53Kw1UmYPxLgboyZQaXwTCg8MSY3H2EU4pWcQDnRnrVA1xe8fs";
+    private static final String M_0H_1_XPUB = "xpub6ASuArnXKPbfEwhqN6e3mwBcDTgzisQN1wXN9BJcM47sSikHjJf3UFHKkNAWbWMiGj7Wf5uMash7SyYq527Hqck2AxYysAA7xmALppuCkwQ";
+
+    @Test
+    public void testVector1() {
+        ExtendedKey m = ExtendedKey.fromSeed(SEED, false);
+        assertEquals(M_XPRV, m.serialize());
+        assertEquals(M_XPUB, m.neuter().serialize());
+
+        ExtendedKey m0h = m.deriveChild(hardened(0));
+        assertEquals(M_0H_XPRV, m0h.serialize());
+        assertEquals(M_0H_XPUB, m0h.neuter().serialize());
+
+        ExtendedKey m0h1 = m0h.deriveChild(1);
+        assertEquals(M_0H_1_XPRV, m0h1.serialize());
+        assertEquals(M_0H_1_XPUB, m0h1.neuter().serialize());
+    }
+
+    @Test
+    public void testParseRoundTrip() {
+        for (String serialized : new String[]{M_XPRV, M_XPUB, M_0H_XPRV, M_0H_1_XPUB}) {
+            assertEquals(serialized, ExtendedKey.parse(serialized).serialize());
+        }
+        assertTrue(ExtendedKey.parse(M_XPRV).isPrivate());
+        assertFalse(ExtendedKey.parse(M_XPUB).isPrivate());
+        assertEquals(ExtendedKey.fromSeed(SEED, false).getFingerprint(),
+                ExtendedKey.parse(M_0H_XPUB).getParentFingerprint());
+    }
+
+    @Test
+    public void testPublicDerivationMatchesPrivateDerivation() {
+        ExtendedKey xprv = ExtendedKey.parse(M_0H_XPRV);
+        ExtendedKey xpub = ExtendedKey.parse(M_0H_XPUB);
+        assertEquals(M_0H_1_XPUB, xpub.deriveChild(1).serialize());
+        ExtendedKey[] fromPublic = xpub.deriveChildren(0, 20);
+        for (int i = 0; i < fromPublic.length; i++) {
+            assertEquals(xprv.deriveChild(i).neuter(), fromPublic[i]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHardenedDerivationFromPublicKey() {
+        ExtendedKey.parse(M_XPUB).deriveChild(hardened(0));
+    }
+
+    @Test
+    public void testKeyChainCachesIntermediateNodes() {
+        DeterministicKeyChain chain = new DeterministicKeyChain(ExtendedKey.fromSeed(SEED, false));
+        assertEquals(M_0H_1_XPRV, chain.derive("m/0'/1").serialize());
+        assertEquals(1, chain.getCacheSize());   // m/0' only;  the leaf is not cached
+        ExtendedKey[] range = chain.deriveRange("m/0'/1", 0, 600);
+        assertEquals(2, chain.getCacheSize());
+        assertEquals(600, range.length);
+        ExtendedKey parent = ExtendedKey.parse(M_0H_1_XPRV);
+        for (int i : new int[]{0, 1, 255, 256, 599}) {
+            assertEquals(parent.deriveChild(i), range[i]);
+        }
+    }
+
+    @Test
+    public void testWatchOnlyKeyChain() {
+        DeterministicKeyChain chain = new DeterministicKeyChain(ExtendedKey.parse(M_0H_XPUB));
+        ExtendedKey[] range = chain.deriveRange("m/1", 10, 300);
+        ExtendedKey account = ExtendedKey.parse(M_0H_1_XPRV);
+        assertEquals(account.deriveChild(10).neuter(), range[0]);
+        assertEquals(account.deriveChild(299).neuter(), range[289]);
+    }
+
+    @Test
+    public void testDerivationPath() {
+        DerivationPath path = DerivationPath.parse("m/44'/0h/0H/1/7");
+        assertEquals(5, path.getDepth());
+        assertEquals("m/44'/0'/0'/1/7", path.toString());
+        assertEquals(hardened(44), path.getChildNumber(0));
+        assertEquals(DerivationPath.parse("m/44'/0'/0'/1"), path.parent());
+        assertEquals(DerivationPath.MASTER, DerivationPath.parse("m"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDerivationPath() {
+        DerivationPath.parse("44'/0'");
+    }
+}